@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.concurrent.TimeUnit;
 
@@ -28,6 +29,7 @@ import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.SerializationBufferPool;
 
 /**
 *
@@ -47,6 +49,11 @@ public abstract class NIOWriteStreamBase {
      */
     protected final ArrayDeque<BBContainer> m_queuedBuffers = new ArrayDeque<BBContainer>();
 
+    /**
+     * Direct buffers handed over by the write being serialized, queued as they are after the bytes copied before them
+     */
+    private final ArrayList<BBContainer> m_directTail = new ArrayList<BBContainer>();
+
     protected long m_bytesWritten = 0;
     protected long m_messagesWritten = 0;
 
@@ -91,7 +98,8 @@ public abstract class NIOWriteStreamBase {
 
     /**
      * Serialize all queued writes into the queue of pending buffers, which are allocated from
-     * thread local memory pool.
+     * thread local memory pool. Writes larger than a pool buffer are serialized into buffers
+     * from the thread local {@link SerializationBufferPool}.
      * @return number of queued writes processed
      * @throws IOException
      */
@@ -106,57 +114,83 @@ public abstract class NIOWriteStreamBase {
             processedWrites++;
             final int serializedSize = ds.getSerializedSize();
             if (serializedSize == DeferredSerialization.EMPTY_MESSAGE_LENGTH) continue;
-            BBContainer outCont = m_queuedBuffers.peekLast();
-            ByteBuffer outbuf = null;
-            if (outCont == null || !outCont.b().hasRemaining()) {
-                outCont = pool.acquire();
-                outCont.b().clear();
+            final int tailSize = ds.getDirectTailSize();
+            final int copiedSize = serializedSize - tailSize;
+            if (copiedSize > pool.bufferSize()) {
+                // Larger than a pool buffer, serialize to a pooled direct buffer of the exact size and queue
+                // it as is. It is left with no room remaining so the next write starts a new pool buffer.
+                final BBContainer outCont = SerializationBufferPool.acquire(copiedSize);
+                final ByteBuffer buf = outCont.b();
+                try {
+                    serialize(ds, buf, tailSize);
+                } catch (IOException | RuntimeException e) {
+                    outCont.discard();
+                    throw e;
+                }
+                checkSloppySerialization(buf, ds);
+                bytesQueued += buf.limit();
+                buf.position(buf.limit());
                 m_queuedBuffers.offer(outCont);
-            }
-
-            outbuf = outCont.b();
-
-            if (outbuf.remaining() >= serializedSize) {
-                // Fast path, serialize to direct buffer creating no garbage
+            } else {
+                // Serialize to direct buffer creating no garbage. Start a new pool buffer when the write
+                // doesn't fit in what is left of the last one, rather than copying it across the two.
+                BBContainer outCont = m_queuedBuffers.peekLast();
+                if (outCont == null || !outCont.b().hasRemaining() || outCont.b().remaining() < copiedSize) {
+                    outCont = pool.acquire();
+                    outCont.b().clear();
+                    m_queuedBuffers.offer(outCont);
+                }
+                final ByteBuffer outbuf = outCont.b();
                 final int oldLimit = outbuf.limit();
-                outbuf.limit(outbuf.position() + serializedSize);
+                outbuf.limit(outbuf.position() + copiedSize);
                 final ByteBuffer slice = outbuf.slice();
-                ds.serialize(slice);
+                serialize(ds, slice, tailSize);
                 checkSloppySerialization(slice, ds);
                 slice.position(0);
                 bytesQueued += slice.remaining();
                 outbuf.position(outbuf.limit());
                 outbuf.limit(oldLimit);
-            } else {
-                // Slow path serialize to heap, and then put in buffers
-                ByteBuffer buf = ByteBuffer.allocate(serializedSize);
-                ds.serialize(buf);
-                checkSloppySerialization(buf, ds);
-                buf.position(0);
-                bytesQueued += buf.remaining();
-                // Copy data allocated in heap buffer to direct buffer
-                while (buf.hasRemaining()) {
-                    if (!outbuf.hasRemaining()) {
-                        outCont = pool.acquire();
-                        outbuf = outCont.b();
-                        outbuf.clear();
-                        m_queuedBuffers.offer(outCont);
-                    }
-                    if (outbuf.remaining() >= buf.remaining()) {
-                        outbuf.put(buf);
-                    } else {
-                        final int oldLimit = buf.limit();
-                        buf.limit(buf.position() + outbuf.remaining());
-                        outbuf.put(buf);
-                        buf.limit(oldLimit);
-                    }
-                }
+            }
+            if (tailSize > 0) {
+                queueDirectTail();
+                bytesQueued += tailSize;
             }
         }
         updateQueued(bytesQueued, true);
         return processedWrites;
     }
 
+    private void serialize(DeferredSerialization ds, ByteBuffer buf, int tailSize) throws IOException {
+        if (tailSize == 0) {
+            ds.serialize(buf);
+            return;
+        }
+        try {
+            ds.serializeWithDirectTail(buf, m_directTail);
+        } catch (IOException | RuntimeException e) {
+            for (BBContainer c : m_directTail) {
+                c.discard();
+            }
+            m_directTail.clear();
+            throw e;
+        }
+    }
+
+    /*
+     * Queue the direct buffers of the last write behind the bytes copied before them, so they go
+     * to the socket without another copy. They are left looking like filled pool buffers, with no
+     * room remaining, so the next write starts a new pool buffer instead of appending to them.
+     */
+    private void queueDirectTail() {
+        for (BBContainer c : m_directTail) {
+            final ByteBuffer b = c.b();
+            assert(b.position() == 0 && b.limit() == b.capacity());
+            b.position(b.limit());
+            m_queuedBuffers.offer(c);
+        }
+        m_directTail.clear();
+    }
+
     private static final boolean ASSERT_ON;
     static {
         boolean assertOn = false;
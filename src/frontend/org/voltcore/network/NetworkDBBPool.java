@@ -54,6 +54,10 @@ public class NetworkDBBPool {
         return new CachedContainer(cont);
     }
 
+    int bufferSize() {
+        return m_allocationSize;
+    }
+
     void clear() {
         BBContainer cont = null;
         while ((cont = m_buffers.poll()) != null) {
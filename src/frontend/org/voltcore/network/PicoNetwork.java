@@ -79,6 +79,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
@@ -97,6 +98,16 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     private static final VoltLogger m_logger = new VoltLogger(VoltNetwork.class.getName());
     protected static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
+    /*
+     * Writes are held for up to this long after the first of them was enqueued so that messages sent
+     * close together are serialized into the same buffer and written to the socket together.
+     * 0 writes every message as soon as the network thread sees it.
+     */
+    static final long COALESCE_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Long.getLong("PICONETWORK_COALESCE_MICROS", 10));
+    // A held batch is written as soon as it has this many messages
+    static final int COALESCE_MAX_MESSAGES = Integer.getInteger("PICONETWORK_COALESCE_MAX_MESSAGES", 64);
+
     protected final Selector m_selector;
     protected final NetworkDBBPool m_pool = new NetworkDBBPool(64);
     protected final NIOReadStream m_readStream = new NIOReadStream();
@@ -118,6 +129,13 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     private final String m_threadName;
     private Set<Long> m_verbotenThreads;
 
+    // Messages enqueued since the last flush and the time at which the first of them was enqueued
+    private int m_batchMessages = 0;
+    private long m_batchStartNanos;
+    // Flushes of enqueued messages, the messages in them and the sum of the time the batches were held
+    private final long[] m_batchStats = new long[3];
+    private final long[] m_lastBatchStats = new long[3];
+
     /**
      * Start this VoltNetwork's thread. populate the verbotenThreads set
      * with the id of the thread that is created
@@ -299,6 +317,31 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     }
 
     protected void drainWriteStream() throws IOException {
+        if (holdWrites()) {
+            // Keep spinning so the batch is flushed once the hold expires
+            m_hadWork = true;
+            return;
+        }
+        flushWriteStream();
+    }
+
+    /**
+     * @return {@code true} if the enqueued messages should be held back to be written with messages which
+     *         have yet to be enqueued
+     */
+    private boolean holdWrites() {
+        return COALESCE_NANOS > 0 && m_batchMessages > 0 && m_batchMessages < COALESCE_MAX_MESSAGES
+                && !m_shouldStop && System.nanoTime() - m_batchStartNanos < COALESCE_NANOS;
+    }
+
+    private void flushWriteStream() throws IOException {
+        if (m_batchMessages > 0) {
+            m_batchStats[0]++;
+            m_batchStats[1] += m_batchMessages;
+            m_batchStats[2] += System.nanoTime() - m_batchStartNanos;
+            m_batchMessages = 0;
+        }
+
         /*
          * Drain the write stream
          */
@@ -400,6 +443,7 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
             final long read = m_readStream.getBytesRead(interval);
             final long writeInfo[] = m_writeStream.getBytesAndMessagesWritten(interval);
             final long messagesRead = m_messagesRead;
+            final long batchInfo[] = getBatchStats(interval);
             retval.put(
                     m_ih.connectionId(),
                     Pair.of(
@@ -408,7 +452,10 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1]}));
+                                    writeInfo[1],
+                                    batchInfo[0],
+                                    batchInfo[1],
+                                    batchInfo[2]}));
             retval.put(
                     -1L,
                     Pair.of(
@@ -417,10 +464,24 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    batchInfo[0],
+                                    batchInfo[1],
+                                    batchInfo[2] }));
             return retval;
     }
 
+    private long[] getBatchStats(boolean interval) {
+        final long stats[] = m_batchStats.clone();
+        if (interval) {
+            for (int ii = 0; ii < stats.length; ii++) {
+                stats[ii] -= m_lastBatchStats[ii];
+            }
+            System.arraycopy(m_batchStats, 0, m_lastBatchStats, 0, m_batchStats.length);
+        }
+        return stats;
+    }
+
     @Override
     public Future<Map<Long, Pair<String, long[]>>> getIOStats(final boolean interval) {
         Callable<Map<Long, Pair<String, long[]>>> task = new Callable<Map<Long, Pair<String, long[]>>>() {
@@ -522,30 +583,40 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     }
 
     public void enqueue(final DeferredSerialization ds) {
+        final long enqueueNanos = System.nanoTime();
         m_tasks.offer(new Runnable() {
             @Override
             public void run() {
                 m_writeStream.enqueue(ds);
+                addToBatch(enqueueNanos);
             }
         });
         m_selector.wakeup();
     }
 
     public void enqueue(final ByteBuffer buf) {
+        final long enqueueNanos = System.nanoTime();
         m_tasks.offer(new Runnable() {
             @Override
             public void run() {
                 m_writeStream.enqueue(buf);
+                addToBatch(enqueueNanos);
             }
         });
         m_selector.wakeup();
     }
 
+    private void addToBatch(long enqueueNanos) {
+        if (m_batchMessages++ == 0) {
+            m_batchStartNanos = enqueueNanos;
+        }
+    }
+
     public FutureTask<Void> enqueueAndDrain(final ByteBuffer buf) {
         Callable<Void> task = new Callable<Void>() {
             public Void call() throws Exception {
                 m_writeStream.enqueue(buf);
-                drainWriteStream();
+                flushWriteStream();
                 return null;
             }
         };
@@ -23,6 +23,7 @@ import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayDeque;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 
@@ -69,6 +70,13 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
 
     protected final QueueMonitor m_monitor;
 
+    /**
+     * Most buffers handed to the channel by one gathering write
+     */
+    private static final int MAX_GATHERED_BUFFERS = 16;
+    private final ByteBuffer[] m_gatheredBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+    private final BBContainer[] m_gatheredContainers = new BBContainer[MAX_GATHERED_BUFFERS];
+
     /**
      * Set to -1 when there are no pending writes. If there is a pending write it is set to the time
      * of the last successful write or the time the oldest pending write was queued.
@@ -335,26 +343,30 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
                     return bytesWritten;
                 }
 
-                ByteBuffer buffer = null;
-                if (m_currentWriteBuffer == null) {
-                    m_currentWriteBuffer = m_queuedBuffers.poll();
-                    buffer = m_currentWriteBuffer.b();
-                    buffer.flip();
+                if (m_currentWriteBuffer == null && m_queuedBuffers.size() > 1) {
+                    rc = gatherTo(channel);
                 } else {
-                    buffer = m_currentWriteBuffer.b();
-                }
-
-                rc = channel.write(buffer);
+                    ByteBuffer buffer = null;
+                    if (m_currentWriteBuffer == null) {
+                        m_currentWriteBuffer = m_queuedBuffers.poll();
+                        buffer = m_currentWriteBuffer.b();
+                        buffer.flip();
+                    } else {
+                        buffer = m_currentWriteBuffer.b();
+                    }
 
-                //Discard the buffer back to a pool if no data remains
-                if (buffer.hasRemaining()) {
-                    if (!m_hadBackPressure) {
-                        backpressureStarted();
+                    rc = channel.write(buffer);
+
+                    //Discard the buffer back to a pool if no data remains
+                    if (buffer.hasRemaining()) {
+                        if (!m_hadBackPressure) {
+                            backpressureStarted();
+                        }
+                    } else {
+                        m_currentWriteBuffer.discard();
+                        m_currentWriteBuffer = null;
+                        m_messagesWritten++;
                     }
-                } else {
-                    m_currentWriteBuffer.discard();
-                    m_currentWriteBuffer = null;
-                    m_messagesWritten++;
                 }
                 bytesWritten += rc;
 
@@ -380,4 +392,50 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
         }
         return bytesWritten;
     }
+
+    /**
+     * Write several queued buffers with one call, such as a response header followed by the
+     * direct buffers of its result tables. Buffers that were written are discarded, one that was
+     * partially written becomes the current write buffer, and the rest go back on the queue in
+     * the state serializeQueuedWrites left them in.
+     */
+    private long gatherTo(final GatheringByteChannel channel) throws IOException {
+        int count = 0;
+        while (count < MAX_GATHERED_BUFFERS && !m_queuedBuffers.isEmpty()) {
+            final BBContainer cont = m_queuedBuffers.poll();
+            final ByteBuffer buffer = cont.b();
+            buffer.flip();
+            m_gatheredContainers[count] = cont;
+            m_gatheredBuffers[count] = buffer;
+            count++;
+        }
+
+        try {
+            return channel.write(m_gatheredBuffers, 0, count);
+        } finally {
+            int ii = 0;
+            for (; ii < count && !m_gatheredBuffers[ii].hasRemaining(); ii++) {
+                m_gatheredContainers[ii].discard();
+                m_messagesWritten++;
+            }
+            if (ii < count) {
+                if (!m_hadBackPressure) {
+                    backpressureStarted();
+                }
+                if (m_gatheredBuffers[ii].position() > 0) {
+                    m_currentWriteBuffer = m_gatheredContainers[ii++];
+                }
+            }
+            for (int jj = count - 1; jj >= ii; jj--) {
+                final ByteBuffer buffer = m_gatheredBuffers[jj];
+                buffer.position(buffer.limit());
+                buffer.limit(buffer.capacity());
+                m_queuedBuffers.offerFirst(m_gatheredContainers[jj]);
+            }
+            for (ii = 0; ii < count; ii++) {
+                m_gatheredContainers[ii] = null;
+                m_gatheredBuffers[ii] = null;
+            }
+        }
+    }
 }
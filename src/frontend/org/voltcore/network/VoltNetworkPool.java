@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -145,6 +146,10 @@ public class VoltNetworkPool {
                     globalStats = stats.get(-1L).getSecond();
                 } else {
                     final long localStats[] = stats.get(-1L).getSecond();
+                    // Pico networks also report write batching so they have more counters than client networks
+                    if (localStats.length > globalStats.length) {
+                        globalStats = Arrays.copyOf(globalStats, localStats.length);
+                    }
                     for (int ii = 0; ii < localStats.length; ii++) {
                         globalStats[ii] += localStats[ii];
                     }
@@ -47,6 +47,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -537,6 +538,27 @@ public class CoreUtils {
         return MoreExecutors.listeningDecorator(tpe);
     }
 
+    /**
+     * Create an executor which starts a new virtual thread for every task. Threads are named
+     * {@code namePrefix} followed by an incrementing counter.
+     * <p>
+     * Virtual threads require a JDK 21 or newer runtime, so they are looked up reflectively.
+     *
+     * @return the executor, or {@code null} if the runtime does not support virtual threads
+     */
+    public static ExecutorService getVirtualThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
     /*
      * Have shutdown actually means shutdown. Tasks that need to complete should use
      * futures.
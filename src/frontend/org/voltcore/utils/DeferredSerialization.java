@@ -19,6 +19,9 @@ package org.voltcore.utils;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import org.voltcore.utils.DBBPool.BBContainer;
 
 /**
  * Interface for serializing an Object at a later time and place. At serialization
@@ -45,4 +48,24 @@ public interface DeferredSerialization {
     void cancel();
 
     int getSerializedSize() throws IOException;
+
+    /**
+     * Number of bytes at the end of the message that can be handed to the write stream as
+     * direct buffers instead of being copied by {@link #serialize(ByteBuffer)}. Only valid after
+     * {@link #getSerializedSize()} and included in the size it returned.
+     */
+    default int getDirectTailSize() {
+        return 0;
+    }
+
+    /**
+     * Called instead of {@link #serialize(ByteBuffer)} by write streams that can write direct
+     * buffers to the socket as they are, when {@link #getDirectTailSize()} is not zero. Serializes
+     * everything before the tail into {@code buf} and adds the tail to {@code tail} in order.
+     * Each container's buffer must have its position at zero and its limit at its capacity. The
+     * stream discards every container once its bytes are written.
+     */
+    default void serializeWithDirectTail(ByteBuffer buf, Collection<BBContainer> tail) throws IOException {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -0,0 +1,179 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltcore.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * Thread local pool of direct buffers used to serialize messages which do not fit in a network pool buffer.
+ * <p>
+ * Buffers are cached in power of two size classes from {@value #MIN_CLASS_SIZE} bytes up to
+ * {@code SERIALIZATION_POOL_MAX_BUFFER} bytes. Each class retains at most {@code SERIALIZATION_POOL_CLASS_BYTES}
+ * bytes of idle buffers and the pools of all threads together retain at most {@code SERIALIZATION_POOL_TOTAL_BYTES}
+ * bytes, anything beyond that is freed when it is returned. Larger requests are allocated directly and freed on
+ * return.
+ * <p>
+ * {@link #acquire(int)} returns a container whose buffer is exactly the requested size so messages which assert that
+ * they filled their buffer can serialize straight into it. The caller must {@link BBContainer#discard() discard} the
+ * container once the contents have been written. Discarding may happen on any thread, the buffer is returned to the
+ * pool of the thread which acquired it.
+ */
+public final class SerializationBufferPool {
+    static final int MIN_CLASS_SIZE = 4 * 1024;
+    private static final int MIN_CLASS_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    static final int MAX_CLASS_SIZE = Math.max(MIN_CLASS_SIZE,
+            Integer.highestOneBit(Integer.getInteger("SERIALIZATION_POOL_MAX_BUFFER", 4 * 1024 * 1024)));
+    private static final int CLASS_BYTES = Integer.getInteger("SERIALIZATION_POOL_CLASS_BYTES", 2 * 1024 * 1024);
+    private static final long TOTAL_BYTES = Long.getLong("SERIALIZATION_POOL_TOTAL_BYTES", 16 * 1024 * 1024);
+
+    // Bytes of idle buffers held by the pools of all threads
+    private static final AtomicLong s_idleBytes = new AtomicLong();
+
+    private static final ThreadLocal<SerializationBufferPool> s_pools = new ThreadLocal<SerializationBufferPool>() {
+        @Override
+        protected SerializationBufferPool initialValue() {
+            return new SerializationBufferPool(MAX_CLASS_SIZE, CLASS_BYTES, s_idleBytes, TOTAL_BYTES);
+        }
+    };
+
+    private final SizeClass[] m_classes;
+    private final int m_maxClassSize;
+
+    SerializationBufferPool(int maxClassSize, int classBytes, AtomicLong idleBytes, long totalBytes) {
+        m_maxClassSize = maxClassSize;
+        int classCount = Integer.numberOfTrailingZeros(maxClassSize) - MIN_CLASS_SHIFT + 1;
+        m_classes = new SizeClass[classCount];
+        for (int i = 0; i < classCount; ++i) {
+            int size = MIN_CLASS_SIZE << i;
+            m_classes[i] = new SizeClass(size, Math.max(1, classBytes / size), idleBytes, totalBytes);
+        }
+    }
+
+    /**
+     * Acquire a direct buffer from the pool of the calling thread
+     *
+     * @param size of the buffer
+     * @return container holding a cleared direct buffer with a capacity of exactly {@code size}
+     */
+    public static BBContainer acquire(int size) {
+        return s_pools.get().get(size);
+    }
+
+    BBContainer get(int size) {
+        assert size >= 0;
+        if (size > m_maxClassSize) {
+            return DBBPool.allocateDirect(size);
+        }
+        return m_classes[classIndex(size)].get(size);
+    }
+
+    /**
+     * @return number of idle buffers held by this pool
+     */
+    int idleBuffers() {
+        int idle = 0;
+        for (SizeClass sizeClass : m_classes) {
+            idle += sizeClass.m_buffers.size();
+        }
+        return idle;
+    }
+
+    /**
+     * Free all idle buffers held by this pool
+     */
+    void clear() {
+        for (SizeClass sizeClass : m_classes) {
+            BBContainer cont;
+            while ((cont = sizeClass.poll()) != null) {
+                cont.discard();
+            }
+        }
+    }
+
+    private static int classIndex(int size) {
+        if (size <= MIN_CLASS_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+    }
+
+    private static final class SizeClass {
+        final int m_size;
+        final Queue<BBContainer> m_buffers;
+        private final AtomicLong m_idleBytes;
+        private final long m_totalBytes;
+
+        SizeClass(int size, int maxIdle, AtomicLong idleBytes, long totalBytes) {
+            m_size = size;
+            m_buffers = new ArrayBlockingQueue<>(maxIdle);
+            m_idleBytes = idleBytes;
+            m_totalBytes = totalBytes;
+        }
+
+        BBContainer get(int size) {
+            BBContainer cont = poll();
+            if (cont == null) {
+                cont = DBBPool.allocateDirect(m_size);
+            }
+            ByteBuffer b = cont.b();
+            b.clear();
+            b.limit(size);
+            return new PooledContainer(b.slice(), cont, this);
+        }
+
+        BBContainer poll() {
+            BBContainer cont = m_buffers.poll();
+            if (cont != null) {
+                m_idleBytes.addAndGet(-m_size);
+            }
+            return cont;
+        }
+
+        /**
+         * Keep {@code cont} for reuse unless this class or the pools of all threads are full, then it is freed
+         */
+        void offer(BBContainer cont) {
+            if (m_idleBytes.addAndGet(m_size) <= m_totalBytes && m_buffers.offer(cont)) {
+                return;
+            }
+            m_idleBytes.addAndGet(-m_size);
+            cont.discard();
+        }
+    }
+
+    private static final class PooledContainer extends BBContainer {
+        private final BBContainer m_original;
+        private final SizeClass m_owner;
+
+        PooledContainer(ByteBuffer slice, BBContainer original, SizeClass owner) {
+            super(slice);
+            m_original = original;
+            m_owner = owner;
+        }
+
+        @Override
+        public void discard() {
+            checkDoubleFree();
+            m_owner.offer(m_original);
+        }
+    }
+}
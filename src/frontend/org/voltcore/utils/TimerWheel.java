@@ -0,0 +1,226 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * A hashed timer wheel for large numbers of coarse grained timeouts which are usually cancelled before they expire.
+ * <p>
+ * Scheduling and cancelling a timeout are lock free and do not allocate anything beyond the timeout itself, unlike
+ * a {@link java.util.concurrent.ScheduledThreadPoolExecutor} which takes a lock and reorders a heap for both. The
+ * price is precision: a timeout fires on the first tick at or after its deadline, so it can be up to one tick late.
+ * <p>
+ * Expired tasks are run on the single wheel thread so they must be short and must not block.
+ */
+public final class TimerWheel {
+    private static final VoltLogger LOG = new VoltLogger("HOST");
+
+    /**
+     * Handle for a scheduled task
+     */
+    public interface Timeout {
+        /**
+         * Cancel this timeout
+         *
+         * @return {@code true} if the timeout was cancelled or {@code false} if it has already expired or been
+         *         cancelled
+         */
+        boolean cancel();
+    }
+
+    private final long m_tickNanos;
+    private final int m_mask;
+    private final long m_startNanos;
+    private final Thread m_thread;
+
+    // Timeouts which have been scheduled but not yet placed in a bucket by the wheel thread
+    private final Queue<TimeoutImpl> m_newTimeouts = new ConcurrentLinkedQueue<>();
+    // Only accessed by the wheel thread
+    private final ArrayDeque<TimeoutImpl>[] m_buckets;
+    private long m_tick = 0;
+
+    private volatile boolean m_shutdown = false;
+
+    /**
+     * Create and start a new timer wheel
+     *
+     * @param name      name of the wheel thread
+     * @param tick      duration of one tick of the wheel
+     * @param unit      unit of {@code tick}
+     * @param wheelSize number of buckets in the wheel. Rounded up to a power of 2
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tick, TimeUnit unit, int wheelSize) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tick);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        m_tickNanos = unit.toNanos(tick);
+        m_mask = size - 1;
+        m_buckets = (ArrayDeque<TimeoutImpl>[]) new ArrayDeque<?>[size];
+        for (int i = 0; i < size; ++i) {
+            m_buckets[i] = new ArrayDeque<>();
+        }
+        m_startNanos = System.nanoTime();
+        m_thread = CoreUtils.getThreadFactory(name).newThread(this::run);
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Schedule {@code task} to be run on the wheel thread after {@code delay}
+     *
+     * @param task  to run when the timeout expires
+     * @param delay before {@code task} should be run
+     * @param unit  of {@code delay}
+     * @return {@link Timeout} which can be used to cancel the task
+     * @throws IllegalStateException If this wheel has been shut down
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (m_shutdown) {
+            throw new IllegalStateException("Timer wheel has been shut down");
+        }
+        TimeoutImpl timeout = new TimeoutImpl(task, System.nanoTime() - m_startNanos + unit.toNanos(delay));
+        m_newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stop the wheel thread. Any pending timeouts are discarded without being run.
+     */
+    public void shutdown() {
+        m_shutdown = true;
+        m_thread.interrupt();
+    }
+
+    /**
+     * @return {@code true} if {@link #shutdown()} has been called
+     */
+    public boolean isShutdown() {
+        return m_shutdown;
+    }
+
+    private void run() {
+        while (!m_shutdown) {
+            long deadline = (m_tick + 1) * m_tickNanos;
+            long sleepNanos;
+            while ((sleepNanos = deadline - (System.nanoTime() - m_startNanos)) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (m_shutdown) {
+                        return;
+                    }
+                }
+            }
+
+            transferNewTimeouts();
+            expireTimeouts(m_buckets[(int) (m_tick & m_mask)], deadline);
+            ++m_tick;
+        }
+    }
+
+    private void transferNewTimeouts() {
+        TimeoutImpl timeout;
+        while ((timeout = m_newTimeouts.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            // Never place a timeout in a tick which has already been processed
+            long expireTick = Math.max(m_tick, timeout.m_deadline / m_tickNanos);
+            timeout.m_remainingRounds = (expireTick - m_tick) >>> Integer.numberOfTrailingZeros(m_buckets.length);
+            m_buckets[(int) (expireTick & m_mask)].add(timeout);
+        }
+    }
+
+    private static void expireTimeouts(ArrayDeque<TimeoutImpl> bucket, long deadline) {
+        for (Iterator<TimeoutImpl> iter = bucket.iterator(); iter.hasNext();) {
+            TimeoutImpl timeout = iter.next();
+            if (timeout.isCancelled()) {
+                iter.remove();
+            } else if (timeout.m_remainingRounds <= 0) {
+                iter.remove();
+                assert timeout.m_deadline <= deadline;
+                timeout.expire();
+            } else {
+                --timeout.m_remainingRounds;
+            }
+        }
+    }
+
+    private static final class TimeoutImpl implements Timeout {
+        private static final int ST_PENDING = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<TimeoutImpl> s_stateUpdater = AtomicIntegerFieldUpdater
+                .newUpdater(TimeoutImpl.class, "m_state");
+
+        // Deadline relative to the start of the wheel
+        final long m_deadline;
+        // Only accessed by the wheel thread
+        long m_remainingRounds;
+        // Cleared on cancel so a cancelled timeout sitting in a bucket does not retain the task
+        private volatile Runnable m_task;
+        private volatile int m_state = ST_PENDING;
+
+        TimeoutImpl(Runnable task, long deadline) {
+            m_task = task;
+            m_deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (s_stateUpdater.compareAndSet(this, ST_PENDING, ST_CANCELLED)) {
+                m_task = null;
+                return true;
+            }
+            return false;
+        }
+
+        boolean isCancelled() {
+            return m_state == ST_CANCELLED;
+        }
+
+        void expire() {
+            if (!s_stateUpdater.compareAndSet(this, ST_PENDING, ST_EXPIRED)) {
+                return;
+            }
+            Runnable task = m_task;
+            m_task = null;
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOG.error("Timer wheel task failed", t);
+            }
+        }
+    }
+}
@@ -42,6 +42,7 @@ import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.catalog.Table;
 import org.voltdb.compiler.PlannerTool;
+import org.voltdb.compiler.TableStatistics;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.DbSettings;
@@ -191,11 +192,15 @@ public class CatalogContext {
         // by applying the existing schema, which are costly in the UAC MP blocking path.
         if (hasSchemaChange) {
             m_defaultProcs = new DefaultProcedureManager(database);
-            m_ptool = new PlannerTool(database, m_catalogInfo.m_catalogHash);
+            m_ptool = new PlannerTool(database, m_catalogInfo.m_catalogHash).inheritTableStatistics(plannerTool);
         } else {
             m_defaultProcs = defaultProcManager;
             m_ptool = plannerTool.updateWhenNoSchemaChange(database, m_catalogInfo.m_catalogHash);
         }
+        // Statistics collected by @Analyze are stored in the catalog jar so every host plans with the same ones
+        if (m_catalogInfo.m_jarfile != null) {
+            m_ptool.loadTableStatistics(m_catalogInfo.m_jarfile.get(TableStatistics.CATALOG_JAR_ENTRY));
+        }
 
         m_jdbc = new JdbcDatabaseMetaDataGenerator(catalog, m_defaultProcs, m_catalogInfo.m_jarfile);
         m_messenger = messenger;
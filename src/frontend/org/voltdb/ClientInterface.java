@@ -27,6 +27,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -71,6 +72,7 @@ import org.voltcore.network.VoltPort;
 import org.voltcore.network.VoltProtocolHandler;
 import org.voltcore.network.WriteStream;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.Pair;
@@ -92,6 +94,7 @@ import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MigratePartitionLeaderInfo;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.largequery.ResultCursorManager;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.HashMismatchMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
@@ -852,6 +855,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             }
 
             m_notifier.removeConnection(c);
+            // cursors opened by this connection can no longer be read by it
+            ResultCursorManager.connectionClosed(connectionId());
         }
 
         /*
@@ -922,6 +927,15 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         private ClientResponseImpl clientResponse;
         private boolean restartMispartitionedTxn;
 
+        /*
+         * Result tables the site copied into direct buffers, released once the response is
+         * serialized or dropped. Trailing ones are written to the socket straight from the copy.
+         */
+        private List<DirectResultBuffer> directResults;
+        private int directTailTables;
+        private int directTailSize;
+        private int serializedSize;
+
         private ClientResponseWork(InitiateResponseMessage response,
                                    ClientInterfaceHandleManager cihm,
                                    Procedure catProc)
@@ -931,6 +945,17 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             this.cihm = cihm;
             this.catProc = catProc;
             restartMispartitionedTxn = true;
+            if (clientResponse != null) {
+                for (VoltTable vt : clientResponse.getResults()) {
+                    DirectResultBuffer direct = DirectResultBuffer.of(vt);
+                    if (direct != null) {
+                        if (directResults == null) {
+                            directResults = new ArrayList<>();
+                        }
+                        directResults.add(direct);
+                    }
+                }
+            }
         }
 
         @Override
@@ -938,10 +963,57 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         {
             buf.putInt(buf.capacity() - 4);
             clientResponse.flattenToBuffer(buf);
+            releaseDirectResults();
+        }
+
+        @Override
+        public int getDirectTailSize() {
+            return directTailSize;
+        }
+
+        @Override
+        public void serializeWithDirectTail(ByteBuffer buf, Collection<BBContainer> tail) throws IOException
+        {
+            buf.putInt(serializedSize - 4);
+            VoltTable[] results = clientResponse.getResults();
+            int firstTailTable = results.length - directTailTables;
+            clientResponse.flattenToBuffer(buf, firstTailTable);
+            for (int i = firstTailTable; i < results.length; i++) {
+                tail.add(DirectResultBuffer.of(results[i]).retain());
+            }
+            releaseDirectResults();
         }
 
         @Override
         public void cancel() {
+            releaseDirectResults();
+        }
+
+        private void releaseDirectResults() {
+            if (directResults != null) {
+                for (DirectResultBuffer direct : directResults) {
+                    direct.release();
+                }
+                directResults = null;
+            }
+        }
+
+        // Find the result tables at the end of the response that can be sent from their direct copies
+        private void findDirectTail() {
+            directTailTables = 0;
+            directTailSize = 0;
+            if (directResults == null) {
+                return;
+            }
+            VoltTable[] results = clientResponse.getResults();
+            for (int i = results.length - 1; i >= 0; i--) {
+                DirectResultBuffer direct = DirectResultBuffer.of(results[i]);
+                if (direct == null) {
+                    break;
+                }
+                directTailTables++;
+                directTailSize += direct.getSerializedSize();
+            }
         }
 
         public void setRestartMispartitionedTxn(boolean restart) {
@@ -964,6 +1036,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 clientData = cihm.findHandle(response.getClientInterfaceHandle());
             }
             if (clientData == null) {
+                releaseDirectResults();
                 return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
             }
 
@@ -971,6 +1044,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             if (response.isMispartitioned() || response.isMisrouted()) {
                 // If the transaction is restarted, don't send a response to the client yet.
                 if (restartTransaction(clientData.m_messageSize, clientData.m_creationTimeNanos)) {
+                    releaseDirectResults();
                     return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
                 }
             }
@@ -1000,7 +1074,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             clientResponse.setClusterRoundtrip((int)TimeUnit.NANOSECONDS.toMillis(delta));
             clientResponse.setHashes(null); // not part of wire protocol
 
-            return clientResponse.getSerializedSize() + 4;
+            serializedSize = clientResponse.getSerializedSize() + 4;
+            findDirectTail();
+            return serializedSize;
         }
 
         @Override
@@ -267,6 +267,15 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
      * @return buf to allow call chaining.
      */
     public ByteBuffer flattenToBuffer(ByteBuffer buf) {
+        return flattenToBuffer(buf, results.length);
+    }
+
+    /**
+     * Serialize the response but only the first {@code tableCount} result tables, the caller
+     * writes the serialized form of the remaining tables after it.
+     * @return buf to allow call chaining.
+     */
+    ByteBuffer flattenToBuffer(ByteBuffer buf, int tableCount) {
         assert setProperly;
         buf.put((byte)0); //version
         buf.putLong(clientHandle);
@@ -300,9 +309,9 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             }
         }
         buf.putShort((short) results.length);
-        for (VoltTable vt : results)
+        for (int i = 0; i < tableCount; i++)
         {
-            vt.flattenToBuffer(buf);
+            results[i].flattenToBuffer(buf);
         }
         return buf;
     }
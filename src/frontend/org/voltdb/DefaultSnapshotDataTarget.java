@@ -24,6 +24,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -42,6 +43,7 @@ import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.RateLimitedLogger;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.PosixAdvise;
 
@@ -84,6 +86,19 @@ public class DefaultSnapshotDataTarget extends NativeSnapshotDataTarget {
 
     private final ScheduledFuture<?> m_syncTask;
 
+    /*
+     * Base file when writing an incremental snapshot. Chunks which match the chunk at the same index of the same
+     * partition in the base file are written as a reference to that chunk.
+     */
+    private final TableSaveFile m_base;
+    /*
+     * Every chunk of an incremental snapshot file is followed by its digest, even when there is no usable base, so
+     * the file can be the base of the next incremental snapshot
+     */
+    private final boolean m_incremental;
+    private final ConcurrentHashMap<Integer, AtomicInteger> m_chunkCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger m_referencedChunks = new AtomicInteger();
+
     private final AtomicInteger m_outstandingWriteTasks = new AtomicInteger(0);
     private final ReentrantLock m_outstandingWriteTasksLock = new ReentrantLock();
     private final Condition m_noMoreOutstandingWriteTasksCondition =
@@ -109,14 +124,73 @@ public class DefaultSnapshotDataTarget extends NativeSnapshotDataTarget {
             boolean isTruncationSnapshot,
             UnaryOperator<FileChannel> channelOperator
             ) throws IOException {
+        this(file, hostId, clusterName, databaseName, tableName, numPartitions, isReplicated, partitionIds,
+                schemaBytes, txnId, timestamp, version, isTruncationSnapshot, channelOperator, false, null, null);
+    }
+
+    /**
+     * Create a target which writes a file of an incremental snapshot
+     *
+     * @param baseFile file of the same table in the base snapshot. If it cannot be used as a base, or the chain of
+     *                 base files is {@link TableSaveFile#MAX_INCREMENTAL_CHAIN_DEPTH} deep, the full table is written
+     *                 and the file starts a new chain.
+     */
+    public DefaultSnapshotDataTarget(
+            final File file,
+            final int hostId,
+            final String clusterName,
+            final String databaseName,
+            final String tableName,
+            final int numPartitions,
+            final boolean isReplicated,
+            final List<Integer> partitionIds,
+            final byte[] schemaBytes,
+            final long txnId,
+            final long timestamp,
+            boolean isTruncationSnapshot,
+            UnaryOperator<FileChannel> channelOperator,
+            File baseFile
+            ) throws IOException {
+        this(file, hostId, clusterName, databaseName, tableName, numPartitions, isReplicated, partitionIds,
+                schemaBytes, txnId, timestamp, s_incrementalVersion, isTruncationSnapshot, channelOperator, true,
+                openIncrementalBase(baseFile), baseFile.getName());
+    }
+
+    private DefaultSnapshotDataTarget(
+            final File file,
+            final int hostId,
+            final String clusterName,
+            final String databaseName,
+            final String tableName,
+            final int numPartitions,
+            final boolean isReplicated,
+            final List<Integer> partitionIds,
+            final byte[] schemaBytes,
+            final long txnId,
+            final long timestamp,
+            int version[],
+            boolean isTruncationSnapshot,
+            UnaryOperator<FileChannel> channelOperator,
+            boolean incremental,
+            TableSaveFile base,
+            String baseFileName
+            ) throws IOException {
         super(isReplicated);
 
         m_file = file;
-        m_fos = new FileOutputStream(file);
+        m_incremental = incremental;
+        m_base = base;
+        try {
+            m_fos = new FileOutputStream(file);
+        } catch (IOException e) {
+            closeBase();
+            throw e;
+        }
         m_channel = channelOperator.apply(m_fos.getChannel());
 
         BBContainer container = serializeHeader(DBBPool::allocateDirect, hostId, clusterName, databaseName, tableName,
-                numPartitions, isReplicated, partitionIds, schemaBytes, txnId, timestamp, version);
+                numPartitions, isReplicated, partitionIds, schemaBytes, txnId, timestamp, version,
+                base == null ? null : baseFileName, base == null ? 0 : base.getChainDepth() + 1);
 
         /*
          * Be completely sure the write succeeded. If it didn't
@@ -127,9 +201,11 @@ public class DefaultSnapshotDataTarget extends NativeSnapshotDataTarget {
             writeFuture.get();
         } catch (InterruptedException e) {
             m_fos.close();
+            closeBase();
             throw new java.io.InterruptedIOException();
         } catch (ExecutionException e) {
             m_fos.close();
+            closeBase();
             throw m_writeException;
         }
 
@@ -242,11 +318,39 @@ public class DefaultSnapshotDataTarget extends NativeSnapshotDataTarget {
         } finally {
             s_bytesAllowedBeforeSync.release(m_bytesWrittenSinceLastSync.getAndSet(0));
             m_channel.close();
+            closeBase();
         }
 
+        if (m_base != null && SNAP_LOG.isDebugEnabled()) {
+            SNAP_LOG.debug("Incremental snapshot file " + m_file + " references " + m_referencedChunks.get()
+                    + " chunks in its base file");
+        }
         postClose();
     }
 
+    private boolean isInBase(int partitionId, int chunkIndex, int length, int crc, byte[] digest) {
+        if (m_base == null) {
+            return false;
+        }
+        try {
+            return m_base.hasChunk(partitionId, chunkIndex, length, crc, digest);
+        } catch (IOException e) {
+            m_syncServiceLogger.log(System.nanoTime(), Level.WARN, e, "Unable to read base snapshot file of "
+                    + m_file + ", writing chunks in full. This message is rate limited to once every one minute.");
+            return false;
+        }
+    }
+
+    private void closeBase() {
+        if (m_base != null) {
+            try {
+                m_base.close();
+            } catch (IOException e) {
+                SNAP_LOG.warn("Error closing base snapshot file of " + m_file, e);
+            }
+        }
+    }
+
     /*
      * Prepend length is basically synonymous with writing actual tuple data and not
      * the header.
@@ -277,12 +381,17 @@ public class DefaultSnapshotDataTarget extends NativeSnapshotDataTarget {
         }
 
         ByteBuffer tupleData = tupleDataCont.b();
+        final int partitionId = prependLength ? tupleData.getInt(0) : -1;
+        final int chunkIndex = m_base != null && prependLength
+                ? m_chunkCounts.computeIfAbsent(partitionId, p -> new AtomicInteger()).getAndIncrement()
+                : -1;
 
         m_outstandingWriteTasks.incrementAndGet();
 
         Future<BBContainer> compressionTask = null;
+        final byte[] digest = m_incremental && prependLength ? new byte[TableSaveFile.CHUNK_DIGEST_LENGTH] : null;
         if (prependLength) {
-            BBContainer cont =
+            final BBContainer cont =
                     DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferCompressedLen);
             //Skip 4-bytes so the partition ID is not compressed
             //That way if we detect a corruption we know what partition is bad
@@ -293,7 +402,20 @@ public class DefaultSnapshotDataTarget extends NativeSnapshotDataTarget {
              * that is 16 bytes, but 4 of those are done by CompressionService
              */
             cont.b().position(12);
-            compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData, cont);
+            if (digest == null) {
+                compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData, cont,
+                        SnapshotSiteProcessor.m_snapshotCompressionCodec);
+            } else {
+                // Digest the compressed chunk on the compression thread instead of the single write thread
+                compressionTask = CompressionService.submitCompressionTask(() -> {
+                    CompressionService.compressAndCRC32cBuffer(tupleData, cont,
+                            SnapshotSiteProcessor.m_snapshotCompressionCodec);
+                    ByteBuffer chunk = cont.b().duplicate();
+                    chunk.position(16);
+                    System.arraycopy(TableSaveFile.chunkDigest(chunk), 0, digest, 0, digest.length);
+                    return cont;
+                });
+            }
         }
         final Future<BBContainer> compressionTaskFinal = compressionTask;
 
@@ -310,31 +432,57 @@ public class DefaultSnapshotDataTarget extends NativeSnapshotDataTarget {
                             final ByteBuffer payloadBuffer = payloadContainer.b();
                             payloadBuffer.position(0);
 
-                            ByteBuffer lengthPrefix = ByteBuffer.allocate(12);
-                            permitAcquired = payloadBuffer.remaining();
-                            s_bytesAllowedBeforeSync.acquire(permitAcquired);
                             //Length prefix does not include 4 header items, just compressd payload
                             //that follows
-                            lengthPrefix.putInt(payloadBuffer.remaining() - 16);//length prefix
-                            lengthPrefix.putInt(tupleData.getInt(0)); // partitionId
+                            int lengthValue = payloadBuffer.remaining() - 16;
+                            if (isInBase(partitionId, chunkIndex, lengthValue, payloadBuffer.getInt(12), digest)) {
+                                /*
+                                 * Unchanged since the base snapshot so only write the header with the complement
+                                 * of the length, which tells the reader to get the payload from the base file
+                                 */
+                                payloadBuffer.limit(16);
+                                lengthValue = ~lengthValue;
+                                m_referencedChunks.incrementAndGet();
+                            }
+
+                            ByteBuffer lengthPrefix = ByteBuffer.allocate(12);
+                            final int chunkBytes = payloadBuffer.remaining() + (digest == null ? 0 : digest.length);
+                            permitAcquired = chunkBytes;
+                            s_bytesAllowedBeforeSync.acquire(permitAcquired);
+                            lengthPrefix.putInt(lengthValue);//length prefix
+                            lengthPrefix.putInt(partitionId);
 
                             /*
                              * Checksum the header and put it in the payload buffer
                              */
                             PureJavaCrc32C crc = new PureJavaCrc32C();
                             crc.update(lengthPrefix.array(), 0, 8);
+                            if (digest != null) {
+                                crc.update(digest, 0, digest.length);
+                            }
                             lengthPrefix.putInt((int)crc.getValue());
                             lengthPrefix.flip();
                             payloadBuffer.put(lengthPrefix);
                             payloadBuffer.position(0);
 
-                            enforceSnapshotRateLimit(payloadBuffer.remaining());
+                            enforceSnapshotRateLimit(chunkBytes);
 
                             /*
                              * Write payload to file
                              */
-                            while (payloadBuffer.hasRemaining()) {
-                                totalWritten += m_channel.write(payloadBuffer);
+                            if (digest == null) {
+                                while (payloadBuffer.hasRemaining()) {
+                                    totalWritten += m_channel.write(payloadBuffer);
+                                }
+                            } else {
+                                // The digest goes between the header and the compressed chunk
+                                ByteBuffer header = payloadBuffer.duplicate();
+                                header.limit(16);
+                                payloadBuffer.position(16);
+                                ByteBuffer[] chunk = { header, ByteBuffer.wrap(digest), payloadBuffer };
+                                while (totalWritten < chunkBytes) {
+                                    totalWritten += (int) m_channel.write(chunk);
+                                }
                             }
                         } finally {
                             payloadContainer.discard();
@@ -324,7 +324,8 @@ class DirectIoSnapshotDataTarget extends NativeSnapshotDataTarget {
                 int uncompressedOriginalPosition = uncompressed.position();
                 uncompressed.position(uncompressedOriginalPosition + s_uncompressedHeaderSize);
 
-                int compressedSize = CompressionService.compressAndCRC32cBuffer(uncompressed, compressedContainer);
+                int compressedSize = CompressionService.compressAndCRC32cBuffer(uncompressed, compressedContainer,
+                        SnapshotSiteProcessor.m_snapshotCompressionCodec);
 
                 // Fill in the header for compressed block
                 compressed.rewind();
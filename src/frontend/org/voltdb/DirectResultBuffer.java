@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.VoltUnsafe;
+
+/**
+ * Reference counted direct copy of a result table taken out of the EE's shared output buffer.
+ * Large results returned to a client are copied here instead of onto the heap, so the client
+ * interface can hand the copy to the socket without flattening the table a second time.
+ * <p>
+ * The copy starts with one reference that belongs to the response and is dropped by
+ * {@link #release()} when the response has been serialized or discarded. Every container
+ * returned by {@link #retain()} holds another reference until it is discarded. The memory is
+ * freed with the last reference, or by the GC if the response never reaches a client connection.
+ */
+public final class DirectResultBuffer {
+    /**
+     * Result tables at least this many bytes are copied into direct buffers, -1 disables it
+     */
+    public static final int THRESHOLD = Integer.getInteger("DIRECT_RESULT_THRESHOLD", 256 * 1024);
+
+    // The serialized table, its 4 byte length followed by the table itself
+    private final ByteBuffer m_buffer;
+    private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+    private DirectResultBuffer(ByteBuffer buffer) {
+        m_buffer = buffer;
+    }
+
+    /**
+     * @return true if the table is still in memory owned by the EE and big enough to copy here
+     */
+    static boolean shouldCopy(VoltTable table) {
+        return THRESHOLD >= 0 && table.m_directResult == null && table.m_buffer.isDirect()
+                && table.getSerializedSize() >= THRESHOLD;
+    }
+
+    /**
+     * Copy a table out of the EE's buffer. The argument is left as it is, the returned read only
+     * table is backed by the copy.
+     */
+    static VoltTable copyOf(VoltTable table) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(table.getSerializedSize());
+        table.flattenToBuffer(buffer);
+        buffer.flip();
+
+        DirectResultBuffer result = new DirectResultBuffer(buffer);
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(4);
+        VoltTable copy = PrivateVoltTableFactory.createVoltTableFromBuffer(dup.slice().asReadOnlyBuffer(), true);
+        copy.m_directResult = result;
+        return copy;
+    }
+
+    /**
+     * @return the direct copy backing this table or null
+     */
+    static DirectResultBuffer of(VoltTable table) {
+        return table.m_directResult;
+    }
+
+    public int getSerializedSize() {
+        return m_buffer.capacity();
+    }
+
+    /**
+     * @return a container over the serialized table that holds a reference until it is discarded
+     */
+    public BBContainer retain() {
+        int count = m_refCount.getAndIncrement();
+        assert(count > 0) : "Retaining a released result buffer";
+        return new BBContainer(m_buffer.asReadOnlyBuffer()) {
+            @Override
+            public void discard() {
+                checkDoubleFree();
+                release();
+            }
+        };
+    }
+
+    public void release() {
+        int count = m_refCount.decrementAndGet();
+        if (count == 0) {
+            VoltUnsafe.cleanDirectBuffer(m_buffer);
+        } else {
+            assert(count > 0) : "Broken refcounting of a result buffer";
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.utils.Pair;
 import org.voltdb.VoltTable.ColumnInfo;
@@ -34,7 +35,11 @@ public class IOStats extends StatsSource {
         BYTES_READ                  (VoltType.BIGINT),
         MESSAGES_READ               (VoltType.BIGINT),
         BYTES_WRITTEN               (VoltType.BIGINT),
-        MESSAGES_WRITTEN            (VoltType.BIGINT);
+        MESSAGES_WRITTEN            (VoltType.BIGINT),
+        // Write batching, only done on connections to other hosts
+        WRITE_BATCHES               (VoltType.BIGINT),
+        AVG_BATCH_SIZE              (VoltType.BIGINT),
+        AVG_BATCH_LATENCY           (VoltType.BIGINT);
 
         public final VoltType m_type;
         IoStats(VoltType type) { m_type = type; }
@@ -88,6 +93,13 @@ public class IOStats extends StatsSource {
         rowValues[offset + IoStats.MESSAGES_READ.ordinal()] = counters[1];
         rowValues[offset + IoStats.BYTES_WRITTEN.ordinal()] = counters[2];
         rowValues[offset + IoStats.MESSAGES_WRITTEN.ordinal()] = counters[3];
+        // Counters 4 to 6 are the batches flushed, the messages in them and the total nanoseconds they were held
+        final long batches = counters.length > 6 ? counters[4] : 0;
+        rowValues[offset + IoStats.WRITE_BATCHES.ordinal()] = batches;
+        rowValues[offset + IoStats.AVG_BATCH_SIZE.ordinal()] = batches > 0 ? counters[5] / batches : 0L;
+        // Latency is reported in microseconds
+        rowValues[offset + IoStats.AVG_BATCH_LATENCY.ordinal()] = batches > 0
+                ? TimeUnit.NANOSECONDS.toMicros(counters[6] / batches) : 0L;
         return offset + IoStats.values().length;
     }
 
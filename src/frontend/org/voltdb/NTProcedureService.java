@@ -29,16 +29,16 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.Mailbox;
 import org.voltcore.network.Connection;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.TimerWheel;
 import org.voltdb.AuthSystem.AuthUser;
 import org.voltdb.SystemProcedureCatalog.Config;
 import org.voltdb.catalog.CatalogMap;
@@ -90,28 +90,57 @@ public class NTProcedureService {
         }
     }
 
-    // User-supplied non-transactional procedures
-    private Map<String, ProcedureRunnerNTGenerator> m_procs = ImmutableMap.<String, ProcedureRunnerNTGenerator>builder().build();
-    // Non-transactional system procedures
-    private Map<String, ProcedureRunnerNTGenerator> m_sysProcs = ImmutableMap.<String, ProcedureRunnerNTGenerator>builder().build();
+    /**
+     * Immutable snapshot of everything the dispatch path needs to look up. Catalog updates
+     * build a new snapshot and swap it in, so callProcedureNT never has to take a lock
+     * unless the service is paused.
+     */
+    private static class LoadedProcs {
+        // User-supplied non-transactional procedures
+        final Map<String, ProcedureRunnerNTGenerator> m_procs;
+        // Non-transactional system procedures
+        final Map<String, ProcedureRunnerNTGenerator> m_sysProcs;
+        // Executor for compound procedures, null if none have ever been loaded
+        final ExecutorService m_compoundProcExecutorService;
+        // We pause the service mid-catalog update for stats reasons
+        final boolean m_paused;
+
+        LoadedProcs(Map<String, ProcedureRunnerNTGenerator> procs, Map<String, ProcedureRunnerNTGenerator> sysProcs,
+                ExecutorService compoundProcExecutorService, boolean paused) {
+            m_procs = procs;
+            m_sysProcs = sysProcs;
+            m_compoundProcExecutorService = compoundProcExecutorService;
+            m_paused = paused;
+        }
+
+        LoadedProcs withPaused(boolean paused) {
+            return new LoadedProcs(m_procs, m_sysProcs, m_compoundProcExecutorService, paused);
+        }
+    }
+
+    private volatile LoadedProcs m_loaded = new LoadedProcs(
+            ImmutableMap.<String, ProcedureRunnerNTGenerator>builder().build(),
+            ImmutableMap.<String, ProcedureRunnerNTGenerator>builder().build(),
+            null, false);
 
     // A tracker of currently executing procedures by id, where id is a long that increments with each call
     final Map<Long, ProcedureRunnerNT> m_outstanding = new ConcurrentHashMap<>();
 
-    // Create a singleton scheduled thread pool for timeouts - create only if Compound procedures are used
-    private ScheduledThreadPoolExecutor m_timeoutExecutor = null;
-    private Map<Long, ScheduledFuture<?>> m_timeouts = null;
+    // Timer wheel for timeouts - create only if Compound procedures are used
+    private static final int NTPROC_TIMEOUT_TICK_MS = Integer.getInteger("NTPROC_TIMEOUT_TICK_MS", 10);
+    private static final int NTPROC_TIMEOUT_WHEEL_SIZE = Integer.getInteger("NTPROC_TIMEOUT_WHEEL_SIZE", 512);
+    private volatile TimerWheel m_timeoutWheel = null;
+    private final Map<Long, TimerWheel.Timeout> m_timeouts = new ConcurrentHashMap<>();
 
     // This lets us respond over the network directly
     final LightweightNTClientResponseAdapter m_internalNTClientAdapter;
     // Mailbox for the client interface is used to send messages directly to other nodes (sysprocs only)
     private final Mailbox m_mailbox;
-    // We pause the service mid-catalog update for stats reasons
-    private boolean m_paused = false;
     // Transactions that arrived when paused (should always be empty if not paused)
+    // Guarded by this
     private final Queue<PendingInvocation> m_pendingInvocations = new ArrayDeque<>();
     // increments for every procedure call
-    private long nextProcedureRunnerId = 0;
+    private final AtomicLong nextProcedureRunnerId = new AtomicLong();
 
     // no need for thread safety as this can't race with @UAC at startup
     boolean isRestoring;
@@ -130,36 +159,47 @@ public class NTProcedureService {
     private static int NTPROC_THREADS = Integer.getInteger("NTPROC_THREADS", defaultThreadLimit);
     private static int NTPROC_QUEUEMAX = Integer.getInteger("NTPROC_QUEUEMAX", 10_000);
 
+    // Opt-in: run every NT and compound procedure invocation on its own virtual thread
+    // instead of the thread pools below. NT procs spend most of their time blocked on
+    // sub-calls, so this removes the cap on concurrent invocations set by the pool sizes.
+    // Thread limits and queue limits do not apply in this mode; upstream backpressure does.
+    // Requires a JDK 21 or newer runtime, otherwise the thread pools are used.
+    private static final boolean USE_VIRTUAL_THREADS = useVirtualThreads();
+
     // Runs the initial run() method of nt procs.
     //  (doesn't run nt procs if started by other nt procs).
     // Uses multiple threads, created on demand up to a limit.
     // After that there is a bounded queue.
     // Threads do not idle out, despite the timeout setting.
-    private final ExecutorService m_primaryExecutorService = new ThreadPoolExecutor(
-            NTPROC_THREADS, NTPROC_THREADS, 60, TimeUnit.SECONDS,
-            new ArrayBlockingQueue<>(NTPROC_QUEUEMAX),
-            new ThreadFactoryBuilder()
-                .setNameFormat(NTPROC_THREADPOOL_NAMEPREFIX + "%d")
-                .build());
+    private final ExecutorService m_primaryExecutorService = USE_VIRTUAL_THREADS ?
+            CoreUtils.getVirtualThreadPerTaskExecutor(NTPROC_THREADPOOL_NAMEPREFIX) :
+            new ThreadPoolExecutor(
+                NTPROC_THREADS, NTPROC_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(NTPROC_QUEUEMAX),
+                new ThreadFactoryBuilder()
+                    .setNameFormat(NTPROC_THREADPOOL_NAMEPREFIX + "%d")
+                    .build());
 
     // Runs any follow-up work from nt procs' run() method,
     //  including other nt procs, or other callbacks.
     // Use of synchronous queue causes direct handoff to new thread.
     // The number of threads is unbounded.
     // Threads are cached but idle out after 60 secs.
-    private final ExecutorService m_priorityExecutorService = new ThreadPoolExecutor(
-            0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
-            new SynchronousQueue(),
-            new ThreadFactoryBuilder()
-                .setNameFormat(NTPROC_THREADPOOL_NAMEPREFIX + NTPROC_THREADPOOL_PRIORITY_SUFFIX + "%d")
-                .build());
+    private final ExecutorService m_priorityExecutorService = USE_VIRTUAL_THREADS ?
+            CoreUtils.getVirtualThreadPerTaskExecutor(NTPROC_THREADPOOL_NAMEPREFIX + NTPROC_THREADPOOL_PRIORITY_SUFFIX) :
+            new ThreadPoolExecutor(
+                0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue(),
+                new ThreadFactoryBuilder()
+                    .setNameFormat(NTPROC_THREADPOOL_NAMEPREFIX + NTPROC_THREADPOOL_PRIORITY_SUFFIX + "%d")
+                    .build());
 
     // Used for requests for compound procs, and responses
     // from subprocs. Subprocs issued by the compound proc
     // will execute on the usual site thread. See primary
     // thread for other comments. Created only if we have
     // compound procedures loaded.
-    private ExecutorService m_compoundProcExecutorService;
+    // Only modified while loading procedures, under the lock on this
     private boolean m_compoundProcsExist;
 
     /**
@@ -224,21 +264,22 @@ public class NTProcedureService {
 
         /**
          * From the generator, create an actual procedure runner to be used
-         * for a single invocation of an NT procedure run. We are synchronized
-         * on the NTProcedureService when this method is called.
+         * for a single invocation of an NT procedure run. This may be called
+         * concurrently from many threads.
          */
         ProcedureRunnerNT generateProcedureRunnerNT(
-                AuthUser user, Connection ccxn, boolean isAdmin, long ciHandle, long clientHandle, int timeout)
+                AuthUser user, Connection ccxn, boolean isAdmin, long ciHandle, long clientHandle, int timeout,
+                ExecutorService compoundProcExecutorService)
                 throws InstantiationException, IllegalAccessException {
             // every single call gets a unique id as a key for the outstanding procedure map
             // in NTProcedureService
-            long id = nextProcedureRunnerId++;
+            long id = nextProcedureRunnerId.getAndIncrement();
             final VoltNonTransactionalProcedure procedure = m_procClz.newInstance();
             if (m_isCompound) {
                 return new CompoundProcedureRunner(
                     id, user, ccxn, isAdmin, ciHandle, clientHandle, timeout,
                     (VoltCompoundProcedure)procedure, m_procedureName,
-                    m_procMethod, m_paramTypes, m_compoundProcExecutorService,
+                    m_procMethod, m_paramTypes, compoundProcExecutorService,
                     NTProcedureService.this, m_mailbox, m_statsCollector, m_compoundCallStats);
             } else {
                 return new ProcedureRunnerNT(
@@ -257,7 +298,7 @@ public class NTProcedureService {
         m_internalNTClientAdapter = new LightweightNTClientResponseAdapter(ClientInterface.NT_ADAPTER_CID, dispatcher);
         clientInterface.bindAdapter(m_internalNTClientAdapter, null);
         m_mailbox = mailbox;
-        m_sysProcs = loadSystemProcedures(true);
+        m_loaded = new LoadedProcs(m_loaded.m_procs, loadSystemProcedures(true), null, false);
     }
 
     /**
@@ -314,7 +355,7 @@ public class NTProcedureService {
      * This fixes a hole where stats gets messed up.
      */
     synchronized void preUpdate() {
-        m_paused = true;
+        m_loaded = m_loaded.withPaused(true);
     }
 
     /**
@@ -350,21 +391,23 @@ public class NTProcedureService {
             // stuff in it. Like classfinding, instantiation, and reflection.
             runnerGeneratorMap.put(procedure.getTypeName(), new ProcedureRunnerNTGenerator(clz));
         }
-        m_procs = ImmutableMap.<String, ProcedureRunnerNTGenerator>builder().putAll(runnerGeneratorMap).build();
+        Map<String, ProcedureRunnerNTGenerator> procs =
+                ImmutableMap.<String, ProcedureRunnerNTGenerator>builder().putAll(runnerGeneratorMap).build();
 
         // reload all sysprocs
         loadSystemProcedures(false);
 
         // Start a compound proc executor if we now need one
-        if (m_compoundProcsExist && m_compoundProcExecutorService == null) {
+        ExecutorService compoundProcExecutorService = m_loaded.m_compoundProcExecutorService;
+        if (m_compoundProcsExist && compoundProcExecutorService == null) {
             LOG.info("Catalog contains one or more compound procedures");
-            m_compoundProcExecutorService = initCompoundProcExecution();
+            compoundProcExecutorService = initCompoundProcExecution();
         }
 
         // Set the system to start accepting work again now that everything is updated.
         // We had to stop because stats would be wonky if we called a proc while updating
         // this stuff.
-        m_paused = false;
+        m_loaded = new LoadedProcs(procs, m_loaded.m_sysProcs, compoundProcExecutorService, false);
 
         // release all of the pending invocations into the real queue
         m_pendingInvocations.forEach(pi ->
@@ -380,37 +423,48 @@ public class NTProcedureService {
      * 'ntPriority' is used to select the executor service.
      * It is false for a request from a client to an NT proc,
      * and would be true if that NT proc called further NT procs.
+     *
+     * Only a paused service takes the lock; otherwise everything is
+     * looked up in the current immutable snapshot of loaded procedures.
      */
-    synchronized void callProcedureNT(
+    void callProcedureNT(
             final long ciHandle, final AuthUser user, final Connection ccxn, final boolean isAdmin,
             final boolean ntPriority, final StoredProcedureInvocation task) {
-        // If paused, stuff a record of the invocation into a queue that gets
-        // drained when un-paused. We're counting on regular upstream backpressure
-        // to prevent this from getting too out of hand.
-        if (m_paused) {
-            m_pendingInvocations.add(new PendingInvocation(ciHandle, user, ccxn, isAdmin, ntPriority, task));
-            return;
+        LoadedProcs loaded = m_loaded;
+        if (loaded.m_paused) {
+            synchronized (this) {
+                // If paused, stuff a record of the invocation into a queue that gets
+                // drained when un-paused. We're counting on regular upstream backpressure
+                // to prevent this from getting too out of hand.
+                loaded = m_loaded;
+                if (loaded.m_paused) {
+                    m_pendingInvocations.add(new PendingInvocation(ciHandle, user, ccxn, isAdmin, ntPriority, task));
+                    return;
+                }
+            }
         }
 
         String procName = task.getProcName();
 
         final ProcedureRunnerNTGenerator prntg;
         if (procName.startsWith("@")) {
-            prntg = m_sysProcs.get(procName);
+            prntg = loaded.m_sysProcs.get(procName);
         } else {
-            prntg = m_procs.get(procName);
+            prntg = loaded.m_procs.get(procName);
         }
 
         final ProcedureRunnerNT runner;
         boolean isCompound = prntg.m_isCompound;
-        if (isCompound && m_compoundProcExecutorService == null) { // should never happen
+        final ExecutorService compoundProcExecutorService = loaded.m_compoundProcExecutorService;
+        if (isCompound && compoundProcExecutorService == null) { // should never happen
             LOG.error("Internal error: no compound procedure executor service");
             runner = null;
         }
         else {
             ProcedureRunnerNT temp;
             try {
-                temp = prntg.generateProcedureRunnerNT(user, ccxn, isAdmin, ciHandle, task.getClientHandle(), task.getBatchTimeout());
+                temp = prntg.generateProcedureRunnerNT(user, ccxn, isAdmin, ciHandle, task.getClientHandle(),
+                        task.getBatchTimeout(), compoundProcExecutorService);
             } catch (InstantiationException | IllegalAccessException e1) {
                 temp = null; // error handled below
             }
@@ -445,7 +499,7 @@ public class NTProcedureService {
         // - new (from user) txns get regular one
         // - sub tasks and sub nt procs generated by nt procs get
         //   immediate exec service (priority)
-        ExecutorService exec = isCompound ? m_compoundProcExecutorService :
+        ExecutorService exec = isCompound ? compoundProcExecutorService :
                                ntPriority ? m_priorityExecutorService :
                                m_primaryExecutorService;
 
@@ -509,36 +563,45 @@ public class NTProcedureService {
 
     /**
      * Start a timeout on the procedure, if required by the runner
-     * <p>
-     * NOTE: assumes called from synchronized block
      *
      * @param runner        the procedure runner
      * @param taskTimeout   the specific timeout for this invocation, or {@code StoredProcedureInvocation.NO_TIMEOUT}
      */
-    private synchronized void startTimeout(ProcedureRunnerNT runner, int taskTimeout) {
+    private void startTimeout(ProcedureRunnerNT runner, int taskTimeout) {
         int defaultTimeout = runner.getTimeout();
         if (defaultTimeout <= 0) {
             // Not a procedure that can time out
             return;
         }
 
-        // If procedures that time out are used, create a timeout executor. Note that if those procedures are
-        // subsequently removed, the executor will remain in order to service any active  procedures pending timeout.
-        if (m_timeoutExecutor == null) {
-            m_timeoutExecutor = CoreUtils.getScheduledThreadPoolExecutor("NT Procedures Timeouts", 1, CoreUtils.MEDIUM_STACK_SIZE);
-            m_timeouts = new ConcurrentHashMap<>();
-            LOG.info("Created NT procedure timeout executor");
-        }
-
         // Override timeout with task timeout, if provided, and schedule it
         int effectiveTimeout = taskTimeout != StoredProcedureInvocation.NO_TIMEOUT ? taskTimeout : defaultTimeout;
-        ScheduledFuture<?> timeoutTask = m_timeoutExecutor.schedule(() -> runner.timeoutCall(effectiveTimeout),
+        TimerWheel.Timeout timeoutTask = getTimeoutWheel().schedule(() -> runner.timeoutCall(effectiveTimeout),
                 effectiveTimeout, TimeUnit.MICROSECONDS);
 
-        ScheduledFuture<?> prev = m_timeouts.put(runner.m_id, timeoutTask);
+        TimerWheel.Timeout prev = m_timeouts.put(runner.m_id, timeoutTask);
         assert prev == null : "Procedure " + runner.getProcedureName() + " has multiple timeouts";
     }
 
+    /**
+     * If procedures that time out are used, create a timer wheel. Note that if those procedures are
+     * subsequently removed, the wheel will remain in order to service any active procedures pending timeout.
+     */
+    private TimerWheel getTimeoutWheel() {
+        TimerWheel wheel = m_timeoutWheel;
+        if (wheel == null) {
+            synchronized (m_timeouts) {
+                wheel = m_timeoutWheel;
+                if (wheel == null) {
+                    m_timeoutWheel = wheel = new TimerWheel("NT Procedures Timeouts", NTPROC_TIMEOUT_TICK_MS,
+                            TimeUnit.MILLISECONDS, NTPROC_TIMEOUT_WHEEL_SIZE);
+                    LOG.info("Created NT procedure timeout wheel");
+                }
+            }
+        }
+        return wheel;
+    }
+
     /**
      * Cancel a running timeout, if required by the runner
      *
@@ -549,12 +612,11 @@ public class NTProcedureService {
         if (runner.getTimeout() <= 0) {
             return;
         }
-        assert m_timeoutExecutor != null : "No timeout executor to handle procedure timeouts";
-        assert m_timeouts != null : "No timeouts map to handle procedure timeouts";
+        assert m_timeoutWheel != null : "No timeout wheel to handle procedure timeouts";
 
-        ScheduledFuture<?> tmo = m_timeouts.remove(runner.m_id);
+        TimerWheel.Timeout tmo = m_timeouts.remove(runner.m_id);
         if (tmo != null) {
-            tmo.cancel(false);
+            tmo.cancel();
         }
         else if (LOG.isDebugEnabled()){
             LOG.debugFmt("Timeout %d, procedure %s was already canceled", runner.m_id, runner.getProcedureName());
@@ -566,10 +628,29 @@ public class NTProcedureService {
      * handy runner generator we have made for every NT procedure.
      */
     boolean isCompoundProc(String procName) {
-        ProcedureRunnerNTGenerator gen = m_procs.get(procName);
+        ProcedureRunnerNTGenerator gen = m_loaded.m_procs.get(procName);
         return (gen != null && gen.m_isCompound);
     }
 
+    /*
+     * Check whether NTPROC_VIRTUAL_THREADS was requested and whether
+     * this runtime can actually provide virtual threads.
+     */
+    private static boolean useVirtualThreads() {
+        if (!Boolean.getBoolean("NTPROC_VIRTUAL_THREADS")) {
+            return false;
+        }
+        ExecutorService probe = CoreUtils.getVirtualThreadPerTaskExecutor(NTPROC_THREADPOOL_NAMEPREFIX);
+        if (probe == null) {
+            LOG.warnFmt("NTPROC_VIRTUAL_THREADS requires Java 21 or newer but running on %s, using thread pools",
+                        System.getProperty("java.version"));
+            return false;
+        }
+        probe.shutdown();
+        LOG.info("NT and compound procedures will run on virtual threads");
+        return true;
+    }
+
     /*
      * Set up everything for compound proc execution using parameters
      * from the deployment file.
@@ -595,6 +676,11 @@ public class NTProcedureService {
             }
         }
 
+        if (USE_VIRTUAL_THREADS) {
+            LOG.info("Compound procedure executor service: virtual thread per invocation");
+            return CoreUtils.getVirtualThreadPerTaskExecutor(COMPROC_THREADPOOL_NAMEPREFIX);
+        }
+
         LOG.infoFmt("Compound procedure executor service: %,d threads, queue limit %,d",
                     threadLimit, queueLimit);
         ThreadPoolExecutor exec =
@@ -33,6 +33,7 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
 import org.voltdb.utils.VoltSnapshotFile;
 
 import com.google_voltpatches.common.annotations.VisibleForTesting;
@@ -59,6 +60,8 @@ public abstract class NativeSnapshotDataTarget implements SnapshotDataTarget {
     private static final int s_staticHeaderSizeAfterSize = s_staticHeaderSize - s_offsetComplete;
 
     static final int[] s_currentVersion = { 0, 0, 0, 2 };
+    // Files of incremental snapshots can hold references to chunks in the base file and have a digest in every chunk
+    static final int[] s_incrementalVersion = { 0, 0, 0, 3 };
 
     // Test hook for injecting errors through a FileChanel
     static volatile UnaryOperator<FileChannel> SNAPSHOT_FILE_CHANEL_OPERATER = UnaryOperator.identity();
@@ -114,15 +117,82 @@ public abstract class NativeSnapshotDataTarget implements SnapshotDataTarget {
      */
     public static Factory getFactory(String directory, String pathType, String nonce, int hostId, final String clusterName,
             final String databaseName, int numPartitions, List<Integer> partitions, long txnId, long timestamp, boolean isTruncationSnapshot) {
+        return getFactory(directory, pathType, nonce, hostId, clusterName, databaseName, numPartitions, partitions,
+                txnId, timestamp, isTruncationSnapshot, (String) null);
+    }
+
+    /**
+     * Construct a factory for creating {@link NativeSnapshotDataTarget} instances which write an incremental snapshot
+     * against the snapshot {@code baseNonce} in the same directory. Chunks which are unchanged since the base
+     * snapshot are written as references to the chunk in the base file.
+     *
+     * @param baseNonce nonce of the base snapshot or {@code null} to write a full snapshot
+     * @see #getFactory(String, String, String, int, String, String, int, List, long, long, boolean)
+     */
+    public static Factory getFactory(String directory, String pathType, String nonce, int hostId, final String clusterName,
+            final String databaseName, int numPartitions, List<Integer> partitions, long txnId, long timestamp,
+            boolean isTruncationSnapshot, String baseNonce) {
         // Grab the currently configured operator and replace it with a no-op so only the targets returned by this
         // factory are affected
         UnaryOperator<FileChannel> channelOperator = SNAPSHOT_FILE_CHANEL_OPERATER;
         SNAPSHOT_FILE_CHANEL_OPERATER = UnaryOperator.identity();
 
+        if (baseNonce != null) {
+            return (fileName, tableName, isReplicated, schema) -> {
+                boolean systemPath = SnapshotUtil.isCommandLogOrTerminusSnapshot(pathType, nonce);
+                String baseFileName = baseNonce + fileName.substring(nonce.length());
+                File f = systemPath ? new File(directory, fileName) : new VoltSnapshotFile(directory, fileName);
+                File baseFile = systemPath ? new File(directory, baseFileName)
+                        : new VoltSnapshotFile(directory, baseFileName);
+                return new DefaultSnapshotDataTarget(f, hostId, clusterName, databaseName, tableName, numPartitions,
+                        isReplicated, partitions, schema, txnId, timestamp, isTruncationSnapshot, channelOperator,
+                        baseFile);
+            };
+        }
+
         return getFactory(directory, pathType, nonce, hostId, clusterName, databaseName, numPartitions, partitions, txnId, timestamp,
                 isTruncationSnapshot, channelOperator);
     }
 
+    /**
+     * Open the file of a base snapshot for an incremental snapshot file
+     *
+     * @param baseFile file of the same table in the base snapshot
+     * @return the opened file or {@code null} if it cannot be used as a base, in which case the full table is written
+     */
+    static TableSaveFile openIncrementalBase(File baseFile) {
+        if (!baseFile.exists()) {
+            SNAP_LOG.warn("Base snapshot file " + baseFile + " does not exist, writing the full table");
+            return null;
+        }
+        TableSaveFile base = null;
+        try {
+            base = TableSaveFile.openBase(baseFile);
+            if (!base.getCompleted() || !base.hasChunkDigests()
+                    || base.getCompressionCodec() != SnapshotSiteProcessor.m_snapshotCompressionCodec) {
+                SNAP_LOG.warn("Base snapshot file " + baseFile
+                        + " is incomplete or has a different format, writing the full table");
+                base.close();
+                return null;
+            }
+            if (base.getChainDepth() >= TableSaveFile.MAX_INCREMENTAL_CHAIN_DEPTH) {
+                SNAP_LOG.info("Base snapshot file " + baseFile + " is " + base.getChainDepth()
+                        + " incremental snapshots deep, writing the full table");
+                base.close();
+                return null;
+            }
+            return base;
+        } catch (IOException e) {
+            SNAP_LOG.warn("Unable to open base snapshot file " + baseFile + ", writing the full table", e);
+            if (base != null) {
+                try {
+                    base.close();
+                } catch (IOException ignore) {}
+            }
+            return null;
+        }
+    }
+
     /**
      * Factory method for tests to allow them to inject misbehaving {@link FileChannel}s into targets
      *
@@ -221,6 +291,20 @@ public abstract class NativeSnapshotDataTarget implements SnapshotDataTarget {
             final String clusterName, final String databaseName, final String tableName, final int numPartitions,
             final boolean isReplicated, final List<Integer> partitionIds, final byte[] schemaBytes, final long txnId,
             final long timestamp, int version[]) throws IOException {
+        return serializeHeader(containerFactory, hostId, clusterName, databaseName, tableName, numPartitions,
+                isReplicated, partitionIds, schemaBytes, txnId, timestamp, version, null, 0);
+    }
+
+    /**
+     * @param baseFileName name of the base file when writing an incremental snapshot file otherwise {@code null}
+     * @param chainDepth   number of incremental snapshot files between this file and the full file at the start of
+     *                     its chain. Only written to files of incremental snapshots.
+     * @see #serializeHeader(IntFunction, int, String, String, String, int, boolean, List, byte[], long, long, int[])
+     */
+    DBBPool.BBContainer serializeHeader(IntFunction<DBBPool.BBContainer> containerFactory, int hostId,
+            final String clusterName, final String databaseName, final String tableName, final int numPartitions,
+            final boolean isReplicated, final List<Integer> partitionIds, final byte[] schemaBytes, final long txnId,
+            final long timestamp, int version[], String baseFileName, int chainDepth) throws IOException {
         String hostname = CoreUtils.getHostnameOrAddress();
         JSONStringer stringer = new JSONStringer();
 
@@ -236,6 +320,7 @@ public abstract class NativeSnapshotDataTarget implements SnapshotDataTarget {
             stringer.keySymbolValuePair("tableName", tableName.toUpperCase());
             stringer.keySymbolValuePair("isReplicated", isReplicated);
             stringer.keySymbolValuePair("isCompressed", true);
+            stringer.keySymbolValuePair("compressionCodec", SnapshotSiteProcessor.m_snapshotCompressionCodec.name());
             stringer.keySymbolValuePair("checksumType", "CRC32C");
             stringer.keySymbolValuePair("timestamp", timestamp);
             /*
@@ -251,6 +336,12 @@ public abstract class NativeSnapshotDataTarget implements SnapshotDataTarget {
 
                 stringer.keySymbolValuePair("numPartitions", numPartitions);
             }
+            if (baseFileName != null) {
+                stringer.keySymbolValuePair("baseFile", baseFileName);
+            }
+            if (version[3] >= s_incrementalVersion[3]) {
+                stringer.keySymbolValuePair("chainDepth", chainDepth);
+            }
             stringer.endObject();
             jsonBytes = stringer.toString().getBytes("UTF-8");
         } catch (Exception e) {
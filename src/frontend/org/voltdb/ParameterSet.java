@@ -305,8 +305,9 @@ public class ParameterSet implements JSONString {
         byte[][] encodedStrings = null;
         byte[][][] encodedStringArrays = null;
 
+        OneParamInfo opi = new OneParamInfo();
         for (int i = 0; i < count; ++i) {
-            OneParamInfo opi = readOneParameter(buffer);
+            readOneParameter(buffer, opi);
             params[i] = opi.value;
             if (opi.encodedString != null) {
                 if (encodedStrings == null) {
@@ -383,13 +384,67 @@ public class ParameterSet implements JSONString {
             throw new RuntimeException("Invalid partition parameter requested.");
         }
         for (int i = 0; i < partitionIndex; ++i) {
-            readOneParameter(unserializedParams);
+            skipOneParameter(unserializedParams);
         }
-        OneParamInfo opi = readOneParameter(unserializedParams);
+        OneParamInfo opi = readOneParameter(unserializedParams, new OneParamInfo());
         unserializedParams.rewind();
         return opi.value;
     }
 
+    /*
+     * Advance past a single serialized parameter without decoding it. Scalars,
+     * strings and varbinary are skipped without allocating; other types are
+     * read, so that malformed values fail the same way they do when decoded.
+     */
+    static void skipOneParameter(ByteBuffer in) throws IOException {
+        final int start = in.position();
+        final byte typeByte = in.get();
+        if (typeByte != ARRAY) {
+            VoltType type;
+            try {
+                type = VoltType.get(typeByte);
+            } catch (AssertionError ae) {
+                throw new RuntimeException("ParameterSet doesn't support type " + typeByte);
+            }
+            int skip = -1;
+            switch (type) {
+                case NULL:
+                    skip = 0;
+                    break;
+                case TINYINT:
+                case BOOLEAN:
+                    skip = Byte.BYTES;
+                    break;
+                case SMALLINT:
+                    skip = Short.BYTES;
+                    break;
+                case INTEGER:
+                    skip = Integer.BYTES;
+                    break;
+                case BIGINT:
+                case FLOAT:
+                case TIMESTAMP:
+                    skip = Long.BYTES;
+                    break;
+                case STRING:
+                case VARBINARY:
+                    if (in.remaining() >= Integer.BYTES) {
+                        final int len = in.getInt();
+                        skip = len == VoltType.NULL_STRING_LENGTH ? 0 : len;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (skip >= 0 && skip <= in.remaining()) {
+                in.position(in.position() + skip);
+                return;
+            }
+        }
+        in.position(start);
+        readOneParameter(in, new OneParamInfo());
+    }
+
     static Object getAKosherArray(Object[] array) {
         int tables = 0;
         int integers = 0;
@@ -567,7 +622,7 @@ public class ParameterSet implements JSONString {
         }
     }
 
-    static private OneParamInfo readOneParameter(ByteBuffer in) throws IOException {
+    static OneParamInfo readOneParameter(ByteBuffer in, OneParamInfo retval) throws IOException {
         Object value;
         int len;
         byte[] encodedString = null;
@@ -685,7 +740,6 @@ public class ParameterSet implements JSONString {
             }
         }
 
-        OneParamInfo retval = new OneParamInfo();
         retval.value = value;
         retval.encodedString = encodedString;
         retval.encodedStringArray = encodedStringArray;
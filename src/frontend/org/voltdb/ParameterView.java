@@ -0,0 +1,434 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltdb.ParameterSet.OneParamInfo;
+import org.voltdb.common.Constants;
+
+/**
+ * A lazily decoded, read only view of serialized procedure parameters.
+ * <p>
+ * Unlike {@link ParameterSet#fromByteBuffer(ByteBuffer)}, which decodes and boxes every
+ * parameter up front, a view only locates a parameter when it is accessed, and the
+ * integer and float accessors read values straight out of the buffer without boxing.
+ * Integer values are widened to the requested type, with the null value of the
+ * serialized type mapped to the null value of the requested type, the same way
+ * {@link ParameterConverter} converts them.
+ * <p>
+ * A view only uses absolute reads so the underlying buffer can be shared with other readers,
+ * but a view itself is not thread safe.
+ */
+public final class ParameterView {
+    private final ByteBuffer m_buffer;
+    private final int m_start;
+    private final int m_count;
+    // Offset of each parameter in m_buffer, allocated and filled in as parameters are accessed
+    private int[] m_offsets;
+    private int m_located;
+
+    /**
+     * Create a view of the parameters serialized in {@code buffer} starting at its position.
+     * The view does not modify the position of {@code buffer}.
+     *
+     * @param buffer containing serialized parameters
+     * @return a view of the parameters
+     */
+    public static ParameterView of(ByteBuffer buffer) {
+        return new ParameterView(buffer);
+    }
+
+    private ParameterView(ByteBuffer buffer) {
+        m_buffer = buffer;
+        m_start = buffer.position() + Short.BYTES;
+        m_count = buffer.getShort(buffer.position());
+        if (m_count < 0) {
+            throw new IllegalArgumentException("Invalid parameter length " + m_count + " for ParameterSet." );
+        }
+    }
+
+    public int size() {
+        return m_count;
+    }
+
+    /**
+     * @return {@code true} if the parameter at {@code index} is an array
+     */
+    public boolean isArray(int index) {
+        return m_buffer.get(locate(index)) == ParameterSet.ARRAY;
+    }
+
+    /**
+     * @return the type of the parameter at {@code index}, or the element type if it is an array
+     */
+    public VoltType getType(int index) {
+        int offset = locate(index);
+        byte type = m_buffer.get(offset);
+        return VoltType.get(type == ParameterSet.ARRAY ? m_buffer.get(offset + 1) : type);
+    }
+
+    /**
+     * @return {@code true} if the parameter at {@code index} is a scalar null value of any type
+     */
+    public boolean isNull(int index) {
+        int offset = locate(index);
+        byte type = m_buffer.get(offset);
+        if (type == ParameterSet.ARRAY) {
+            return false;
+        }
+        switch (VoltType.get(type)) {
+            case NULL:
+                return true;
+            case TINYINT:
+                return m_buffer.get(offset + 1) == VoltType.NULL_TINYINT;
+            case SMALLINT:
+                return m_buffer.getShort(offset + 1) == VoltType.NULL_SMALLINT;
+            case INTEGER:
+                return m_buffer.getInt(offset + 1) == VoltType.NULL_INTEGER;
+            case BIGINT:
+                return m_buffer.getLong(offset + 1) == VoltType.NULL_BIGINT;
+            case FLOAT:
+                return m_buffer.getDouble(offset + 1) == VoltType.NULL_FLOAT;
+            case STRING:
+            case VARBINARY:
+            case GEOGRAPHY:
+                return m_buffer.getInt(offset + 1) == VoltType.NULL_STRING_LENGTH;
+            default: {
+                Object value = getObject(index);
+                return value == null || value == VoltType.NULL_DECIMAL || value == VoltType.NULL_POINT;
+            }
+        }
+    }
+
+    /**
+     * @return the value of a TINYINT, SMALLINT, INTEGER or BIGINT parameter as a long
+     * @throws VoltTypeException if the parameter is any other type
+     */
+    public long getLong(int index) {
+        return getLongAt(locate(index), index);
+    }
+
+    private long getLongAt(int offset, int index) {
+        switch (scalarType(offset)) {
+            case NULL:
+                return VoltType.NULL_BIGINT;
+            case TINYINT: {
+                byte value = m_buffer.get(offset + 1);
+                return value == VoltType.NULL_TINYINT ? VoltType.NULL_BIGINT : value;
+            }
+            case SMALLINT: {
+                short value = m_buffer.getShort(offset + 1);
+                return value == VoltType.NULL_SMALLINT ? VoltType.NULL_BIGINT : value;
+            }
+            case INTEGER: {
+                int value = m_buffer.getInt(offset + 1);
+                return value == VoltType.NULL_INTEGER ? VoltType.NULL_BIGINT : value;
+            }
+            case BIGINT:
+                return m_buffer.getLong(offset + 1);
+            default:
+                throw typeMismatch(index, long.class);
+        }
+    }
+
+    /**
+     * @return the value of a TINYINT, SMALLINT or INTEGER parameter as an int
+     * @throws VoltTypeException if the parameter is any other type
+     */
+    public int getInt(int index) {
+        return getIntAt(locate(index), index);
+    }
+
+    private int getIntAt(int offset, int index) {
+        switch (scalarType(offset)) {
+            case NULL:
+                return VoltType.NULL_INTEGER;
+            case TINYINT: {
+                byte value = m_buffer.get(offset + 1);
+                return value == VoltType.NULL_TINYINT ? VoltType.NULL_INTEGER : value;
+            }
+            case SMALLINT: {
+                short value = m_buffer.getShort(offset + 1);
+                return value == VoltType.NULL_SMALLINT ? VoltType.NULL_INTEGER : value;
+            }
+            case INTEGER:
+                return m_buffer.getInt(offset + 1);
+            default:
+                throw typeMismatch(index, int.class);
+        }
+    }
+
+    /**
+     * @return the value of a TINYINT or SMALLINT parameter as a short
+     * @throws VoltTypeException if the parameter is any other type
+     */
+    public short getShort(int index) {
+        return getShortAt(locate(index), index);
+    }
+
+    private short getShortAt(int offset, int index) {
+        switch (scalarType(offset)) {
+            case NULL:
+                return VoltType.NULL_SMALLINT;
+            case TINYINT: {
+                byte value = m_buffer.get(offset + 1);
+                return value == VoltType.NULL_TINYINT ? VoltType.NULL_SMALLINT : value;
+            }
+            case SMALLINT:
+                return m_buffer.getShort(offset + 1);
+            default:
+                throw typeMismatch(index, short.class);
+        }
+    }
+
+    /**
+     * @return the value of a TINYINT parameter
+     * @throws VoltTypeException if the parameter is any other type
+     */
+    public byte getByte(int index) {
+        return getByteAt(locate(index), index);
+    }
+
+    private byte getByteAt(int offset, int index) {
+        switch (scalarType(offset)) {
+            case NULL:
+                return VoltType.NULL_TINYINT;
+            case TINYINT:
+                return m_buffer.get(offset + 1);
+            default:
+                throw typeMismatch(index, byte.class);
+        }
+    }
+
+    /**
+     * @return the value of a FLOAT parameter
+     * @throws VoltTypeException if the parameter is any other type
+     */
+    public double getDouble(int index) {
+        return getDoubleAt(locate(index), index);
+    }
+
+    private double getDoubleAt(int offset, int index) {
+        switch (scalarType(offset)) {
+            case NULL:
+                return VoltType.NULL_FLOAT;
+            case FLOAT:
+                return m_buffer.getDouble(offset + 1);
+            default:
+                throw typeMismatch(index, double.class);
+        }
+    }
+
+    /**
+     * @return the value of a STRING parameter or {@code null} if it is null
+     * @throws VoltTypeException if the parameter is any other type
+     */
+    public String getString(int index) {
+        return getStringAt(locate(index), index);
+    }
+
+    private String getStringAt(int offset, int index) {
+        switch (scalarType(offset)) {
+            case NULL:
+                return null;
+            case STRING: {
+                int length = m_buffer.getInt(offset + 1);
+                if (length == VoltType.NULL_STRING_LENGTH) {
+                    return null;
+                }
+                int start = offset + 1 + Integer.BYTES;
+                if (m_buffer.hasArray()) {
+                    return new String(m_buffer.array(), m_buffer.arrayOffset() + start, length,
+                            Constants.UTF8ENCODING);
+                }
+                byte[] encoded = new byte[length];
+                for (int i = 0; i < length; ++i) {
+                    encoded[i] = m_buffer.get(start + i);
+                }
+                return new String(encoded, Constants.UTF8ENCODING);
+            }
+            default:
+                throw typeMismatch(index, String.class);
+        }
+    }
+
+    /**
+     * Fully decode the parameter at {@code index} the same way {@link ParameterSet} does
+     *
+     * @return the decoded parameter value
+     */
+    public Object getObject(int index) {
+        ByteBuffer dup = m_buffer.duplicate();
+        dup.position(locate(index));
+        try {
+            return ParameterSet.readOneParameter(dup, new OneParamInfo()).value;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to decode parameter " + index, e);
+        }
+    }
+
+    /**
+     * Read all parameters as arguments for a procedure with parameter types {@code types}. Only
+     * parameters which can be read by one of the typed accessors of this view are converted.
+     *
+     * @param types parameter types of the procedure
+     * @return arguments for the procedure or {@code null} if any parameter cannot be read directly
+     *         and must be converted by {@link ParameterConverter}
+     */
+    Object[] toArguments(Class<?>[] types) {
+        if (types.length != m_count) {
+            return null;
+        }
+        Object[] args = new Object[m_count];
+        int offset = m_start;
+        for (int i = 0; i < m_count; ++i) {
+            if (i > 0) {
+                offset = nextOffset(offset);
+            }
+            byte typeByte = m_buffer.get(offset);
+            if (typeByte == ParameterSet.ARRAY) {
+                return null;
+            }
+            VoltType type = VoltType.get(typeByte);
+            Class<?> expected = types[i];
+            if (expected == long.class && (type == VoltType.NULL || type == VoltType.BIGINT
+                    || type == VoltType.INTEGER || type == VoltType.SMALLINT || type == VoltType.TINYINT)) {
+                args[i] = getLongAt(offset, i);
+            } else if (expected == int.class && (type == VoltType.NULL || type == VoltType.INTEGER
+                    || type == VoltType.SMALLINT || type == VoltType.TINYINT)) {
+                args[i] = getIntAt(offset, i);
+            } else if (expected == String.class && (type == VoltType.NULL || type == VoltType.STRING)) {
+                String value = getStringAt(offset, i);
+                args[i] = Constants.CSV_NULL.equals(value) ? null : value;
+            } else if (expected == double.class && (type == VoltType.NULL || type == VoltType.FLOAT)) {
+                args[i] = getDoubleAt(offset, i);
+            } else if (expected == short.class && (type == VoltType.NULL || type == VoltType.SMALLINT
+                    || type == VoltType.TINYINT)) {
+                args[i] = getShortAt(offset, i);
+            } else if (expected == byte.class && (type == VoltType.NULL || type == VoltType.TINYINT)) {
+                args[i] = getByteAt(offset, i);
+            } else {
+                return null;
+            }
+        }
+        return args;
+    }
+
+    /**
+     * @param types parameter types of a procedure
+     * @return {@code true} if {@link #toArguments(Class[])} is able to produce arguments of all of {@code types}
+     */
+    static boolean supportsDirectDecode(Class<?>[] types) {
+        for (Class<?> type : types) {
+            if (type != long.class && type != int.class && type != String.class && type != double.class
+                    && type != short.class && type != byte.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private VoltType scalarType(int offset) {
+        byte type = m_buffer.get(offset);
+        return type == ParameterSet.ARRAY ? VoltType.INVALID : VoltType.get(type);
+    }
+
+    private int locate(int index) {
+        if (index < 0 || index >= m_count) {
+            throw new IndexOutOfBoundsException("Parameter index " + index + " out of range " + m_count);
+        }
+        if (m_offsets == null) {
+            m_offsets = new int[m_count];
+            m_offsets[0] = m_start;
+            m_located = 1;
+        }
+        while (m_located <= index) {
+            m_offsets[m_located] = nextOffset(m_offsets[m_located - 1]);
+            ++m_located;
+        }
+        return m_offsets[index];
+    }
+
+    /**
+     * @return the offset of the parameter which follows the one at {@code offset}
+     */
+    private int nextOffset(int offset) {
+        byte typeByte = m_buffer.get(offset);
+        int skip = -1;
+        if (typeByte != ParameterSet.ARRAY) {
+            VoltType type;
+            try {
+                type = VoltType.get(typeByte);
+            } catch (AssertionError ae) {
+                type = VoltType.INVALID;
+            }
+            switch (type) {
+                case NULL:
+                    skip = 0;
+                    break;
+                case TINYINT:
+                case BOOLEAN:
+                    skip = Byte.BYTES;
+                    break;
+                case SMALLINT:
+                    skip = Short.BYTES;
+                    break;
+                case INTEGER:
+                    skip = Integer.BYTES;
+                    break;
+                case BIGINT:
+                case FLOAT:
+                case TIMESTAMP:
+                    skip = Long.BYTES;
+                    break;
+                case STRING:
+                case VARBINARY:
+                    if (offset + 1 + Integer.BYTES <= m_buffer.limit()) {
+                        int length = m_buffer.getInt(offset + 1);
+                        if (length == VoltType.NULL_STRING_LENGTH) {
+                            skip = Integer.BYTES;
+                        } else if (length >= 0) {
+                            skip = Integer.BYTES + length;
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        int next = offset + 1 + skip;
+        if (skip >= 0 && next <= m_buffer.limit()) {
+            return next;
+        }
+        // Arrays, less common types and malformed parameters are handled by ParameterSet
+        ByteBuffer dup = m_buffer.duplicate();
+        dup.position(offset);
+        try {
+            ParameterSet.skipOneParameter(dup);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to locate parameter after offset " + offset, e);
+        }
+        return dup.position();
+    }
+
+    private VoltTypeException typeMismatch(int index, Class<?> expected) {
+        return new VoltTypeException("Parameter " + index + " of type " + getType(index) + (isArray(index) ? "[]" : "")
+                + " cannot be read as " + expected.getSimpleName());
+    }
+}
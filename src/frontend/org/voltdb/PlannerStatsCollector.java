@@ -94,6 +94,18 @@ public class PlannerStatsCollector extends StatsSource {
     long m_cacheMisses = 0;
     long m_lastCacheMisses = 0;
 
+    /**
+     * Cache 1 evictions
+     */
+    long m_cache1Evictions = 0;
+    long m_lastCache1Evictions = 0;
+
+    /**
+     * Cache 2 evictions
+     */
+    long m_cache2Evictions = 0;
+    long m_lastCache2Evictions = 0;
+
     /**
      * Time of last planning start
      */
@@ -142,7 +154,9 @@ public class PlannerStatsCollector extends StatsSource {
         PLAN_TIME_MIN           (VoltType.BIGINT),
         PLAN_TIME_MAX           (VoltType.BIGINT),
         PLAN_TIME_AVG           (VoltType.BIGINT),
-        FAILURES                (VoltType.BIGINT);
+        FAILURES                (VoltType.BIGINT),
+        CACHE1_EVICTIONS        (VoltType.BIGINT),
+        CACHE2_EVICTIONS        (VoltType.BIGINT);
 
         public final VoltType m_type;
         Planner(VoltType type) { m_type = type; }
@@ -194,13 +208,35 @@ public class PlannerStatsCollector extends StatsSource {
         m_partitionId = partitionId;
     }
 
+    /**
+     * Used to update the eviction counts of caches which track their own evictions
+     *
+     * @param cache1Evictions  total number of entries evicted from the level 1 cache
+     * @param cache2Evictions  total number of entries evicted from the level 2 cache
+     */
+    public synchronized void updateCacheEvictions(long cache1Evictions, long cache2Evictions) {
+        m_cache1Evictions = cache1Evictions;
+        m_cache2Evictions = cache2Evictions;
+    }
+
     /**
      * Called before doing planning. Starts timer.
      */
     public void startStatsCollection() {
+        m_currentStartTime = startConcurrentStatsCollection();
+    }
+
+    /**
+     * Called before doing planning when statements can be planned concurrently.
+     *
+     * @return start time to pass to {@link #endConcurrentStatsCollection} or {@code null} if this
+     *         invocation is not timed
+     */
+    public synchronized Long startConcurrentStatsCollection() {
         if (getInvocations() % m_collectionFrequency == 0) {
-            m_currentStartTime = System.nanoTime();
+            return System.nanoTime();
         }
+        return null;
     }
 
     /**
@@ -212,8 +248,24 @@ public class PlannerStatsCollector extends StatsSource {
      * @param partitionId  partition id
      */
     public void endStatsCollection(long cache1Size, long cache2Size, CacheUse cacheUse, long partitionId) {
-        if (m_currentStartTime != null) {
-            long delta = System.nanoTime() - m_currentStartTime;
+        Long startTime = m_currentStartTime;
+        m_currentStartTime = null;
+        endConcurrentStatsCollection(startTime, cache1Size, cache2Size, cacheUse, partitionId);
+    }
+
+    /**
+     * Called after planning or failing to plan when statements can be planned concurrently.
+     *
+     * @param startTime    value returned by {@link #startConcurrentStatsCollection()}
+     * @param cache1Size   number of entries in level 1 cache
+     * @param cache2Size   number of entries in level 2 cache
+     * @param cacheUse     where the planned statement came from
+     * @param partitionId  partition id
+     */
+    public synchronized void endConcurrentStatsCollection(Long startTime, long cache1Size, long cache2Size,
+            CacheUse cacheUse, long partitionId) {
+        if (startTime != null) {
+            long delta = System.nanoTime() - startTime;
             if (delta < 0) {
                 if (Math.abs(delta) > 1000000000) {
                     log.info("Planner statistics recorded a negative planning time larger than one second: " +
@@ -227,7 +279,6 @@ public class PlannerStatsCollector extends StatsSource {
                 m_lastMinPlanningTime = Math.min(delta, m_lastMinPlanningTime);
                 m_lastMaxPlanningTime = Math.max(delta, m_lastMaxPlanningTime);
             }
-            m_currentStartTime = null;
         }
 
         m_cache1Level = cache1Size;
@@ -259,7 +310,7 @@ public class PlannerStatsCollector extends StatsSource {
      * @param values Values of each column of the row of stats. Used as output.
      */
     @Override
-    protected int updateStatsRow(Object rowKey, Object rowValues[]) {
+    protected synchronized int updateStatsRow(Object rowKey, Object rowValues[]) {
         int offset = super.updateStatsRow(rowKey, rowValues);
 
         rowValues[offset + Planner.PARTITION_ID.ordinal()] = m_partitionId;
@@ -272,6 +323,8 @@ public class PlannerStatsCollector extends StatsSource {
         long cache2Hits  = m_cache2Hits;
         long cacheMisses = m_cacheMisses;
         long failureCount = m_failures;
+        long cache1Evictions = m_cache1Evictions;
+        long cache2Evictions = m_cache2Evictions;
 
         if (m_interval) {
             totalTimedExecutionTime = m_totalPlanningTime - m_lastTimedPlanningTime;
@@ -300,6 +353,12 @@ public class PlannerStatsCollector extends StatsSource {
             failureCount = m_failures - m_lastFailures;
             m_lastFailures = m_failures;
 
+            cache1Evictions = m_cache1Evictions - m_lastCache1Evictions;
+            m_lastCache1Evictions = m_cache1Evictions;
+
+            cache2Evictions = m_cache2Evictions - m_lastCache2Evictions;
+            m_lastCache2Evictions = m_cache2Evictions;
+
             m_lastInvocations = m_invocations;
         }
 
@@ -319,6 +378,8 @@ public class PlannerStatsCollector extends StatsSource {
             rowValues[offset + Planner.PLAN_TIME_AVG.ordinal()] = 0L;
         }
         rowValues[offset + Planner.FAILURES.ordinal()] = failureCount;
+        rowValues[offset + Planner.CACHE1_EVICTIONS.ordinal()] = cache1Evictions;
+        rowValues[offset + Planner.CACHE2_EVICTIONS.ordinal()] = cache2Evictions;
 
         return offset + Planner.values().length;
     }
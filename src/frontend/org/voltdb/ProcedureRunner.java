@@ -37,6 +37,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.function.IntFunction;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.HostMessenger;
 import org.voltcore.network.VoltPort;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.StatementStats.SingleCallStatsToken;
@@ -113,6 +114,10 @@ public class ProcedureRunner {
     protected final VoltProcedure m_procedure;
     protected Method m_procMethod;
     protected Class<?>[] m_paramTypes;
+    // true if every parameter of the run method can be decoded straight from the serialized invocation
+    private boolean m_directParameterDecode = false;
+    // Arguments returned by the last direct decode, which already have the types in m_paramTypes
+    private Object[] m_directArguments = null;
 
     // per txn state (are reset after call)
     //
@@ -261,6 +266,26 @@ public class ProcedureRunner {
         return m_isSysProc;
     }
 
+    /**
+     * Decode the parameters of {@code invocation} for {@link #call(Object[], boolean, boolean)}. When every
+     * parameter of the procedure is a primitive or string the arguments are read straight from the serialized
+     * invocation, skipping the intermediate {@link ParameterSet}, and {@link #call(Object[], boolean, boolean)}
+     * does not pass them through {@link ParameterConverter} again. Otherwise the parameter set is deserialized.
+     */
+    public Object[] getInvocationParameters(StoredProcedureInvocation invocation) {
+        if (m_directParameterDecode) {
+            ParameterView view = invocation.getParameterView();
+            if (view != null) {
+                Object[] args = view.toArguments(m_paramTypes);
+                if (args != null) {
+                    m_directArguments = args;
+                    return args;
+                }
+            }
+        }
+        return invocation.getParams().toArray();
+    }
+
     /**
      * Note this fails for Sysprocs that use it in non-coordinating fragment work. Don't.
      * @return The transaction id for determinism, not for ordering.
@@ -363,6 +388,9 @@ public class ProcedureRunner {
 
         // use local var to avoid warnings about reassigning method argument
         Object[] paramList = paramListIn;
+        // arguments decoded by getInvocationParameters() are already of the parameter types
+        final boolean directArguments = paramListIn == m_directArguments;
+        m_directArguments = null;
 
         if (resetHash) {
             // catalog version and statement count are part of the CRC, reset them for a new call
@@ -397,7 +425,7 @@ public class ProcedureRunner {
                 return getErrorResponse(m_statusCode, m_appStatusCode, m_appStatusString, msg, null);
             }
 
-            for (int i = 0; i < m_paramTypes.length; i++) {
+            for (int i = 0; i < m_paramTypes.length && !directArguments; i++) {
                 try {
                     paramList[i] = ParameterConverter.tryToMakeCompatible(m_paramTypes[i], paramList[i], keepParamsImmutable);
                     // check the result type in an assert
@@ -419,7 +447,8 @@ public class ProcedureRunner {
                     try {
                         Object rawResult = m_procMethod.invoke(m_procedure, paramList);
                         if (returnResults) {
-                            results = ParameterConverter.getResultsFromRawResults(m_procedureName, rawResult);
+                            results = ParameterConverter.getResultsFromRawResults(m_procedureName,
+                                    copyLargeResultsToDirectBuffers(rawResult));
                         }
                     } catch (IllegalAccessException e) {
                         // If reflection fails, invoke the same error handling that other exceptions do
@@ -480,7 +509,7 @@ public class ProcedureRunner {
                     if (getNonVoltDBBackendIfExists() == null) {
                         m_batch.addAll(m_sqlStmts);
                         results = voltExecuteSQL(true);
-                        results = convertTablesToHeapBuffers(results);
+                        results = convertTablesToHeapBuffers((VoltTable[]) copyLargeResultsToDirectBuffers(results));
                     }
                 } catch (SerializableException ex) {
                     retval = getErrorResponse(m_procedureName,
@@ -1180,6 +1209,7 @@ public class ProcedureRunner {
                     }
                     m_procMethod = m;
                     m_paramTypes = m.getParameterTypes();
+                    m_directParameterDecode = !m_isSysProc && ParameterView.supportsDirectDecode(m_paramTypes);
                     break;
                 }
             }
@@ -1341,6 +1371,42 @@ public class ProcedureRunner {
        return response;
     }
 
+    /**
+     * Large tables the procedure returns straight from the EE are copied into
+     * {@link DirectResultBuffer}s instead of the heap when the response goes to the client
+     * interface on this host, which writes them to the socket from that copy. The tables
+     * passed in are left as they are.
+     */
+    private Object copyLargeResultsToDirectBuffers(Object rawResult) {
+        if (DirectResultBuffer.THRESHOLD < 0 || !isInitiatedByLocalClientInterface()) {
+            return rawResult;
+        }
+        if (rawResult instanceof VoltTable) {
+            VoltTable table = (VoltTable) rawResult;
+            return DirectResultBuffer.shouldCopy(table) ? DirectResultBuffer.copyOf(table) : table;
+        }
+        if (rawResult instanceof VoltTable[]) {
+            VoltTable[] tables = (VoltTable[]) rawResult;
+            VoltTable[] copies = null;
+            for (int i = 0; i < tables.length; i++) {
+                if (tables[i] != null && DirectResultBuffer.shouldCopy(tables[i])) {
+                    if (copies == null) {
+                        copies = tables.clone();
+                    }
+                    copies[i] = DirectResultBuffer.copyOf(tables[i]);
+                }
+            }
+            return copies == null ? tables : copies;
+        }
+        return rawResult;
+    }
+
+    private boolean isInitiatedByLocalClientInterface() {
+        long initiatorHSId = m_txnState.initiatorHSId;
+        return CoreUtils.getSiteIdFromHSId(initiatorHSId) == HostMessenger.CLIENT_INTERFACE_SITE_ID
+                && CoreUtils.getHostIdFromHSId(initiatorHSId) == m_site.getCorrespondingHostId();
+    }
+
     final private VoltTable[] convertTablesToHeapBuffers(VoltTable[] results) {
         for (VoltTable table : results) {
             // Make sure this table does not use an ee cache buffer
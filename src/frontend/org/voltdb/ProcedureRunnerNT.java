@@ -247,6 +247,19 @@ public class ProcedureRunnerNT {
      * Track responses and complete the returned future when they're all accounted for.
      */
     protected CompletableFuture<Map<Integer,ClientResponse>> callAllNodeNTProcedure(String procName, Object... params) {
+        return sendNTProcedureToNodes(null, procName, params);
+    }
+
+    /**
+     * Send an invocation directly to one host's CI mailbox.
+     * This ONLY works for NT procedures.
+     * The returned future completes with null if the host is not live.
+     */
+    protected CompletableFuture<ClientResponse> callNodeNTProcedure(int hostId, String procName, Object... params) {
+        return sendNTProcedureToNodes(hostId, procName, params).thenApply(responses -> responses.get(hostId));
+    }
+
+    private CompletableFuture<Map<Integer,ClientResponse>> sendNTProcedureToNodes(Integer hostId, String procName, Object... params) {
         // only one of these at a time
         if (!m_outstandingAllHostProc.compareAndSet(false, true)) {
             throw new VoltAbortException(new IllegalStateException("Only one AllNodeNTProcedure operation can be running at a time."));
@@ -271,8 +284,18 @@ public class ProcedureRunnerNT {
         synchronized(m_allHostCallbackLock) {
             // collect the set of live client interface mailbox ids
             hsids = VoltZK.getMailBoxesForNT(VoltDB.instance().getHostMessenger().getZK());
+            if (hostId != null) {
+                hsids = hsids.stream().filter(hsid -> CoreUtils.getHostIdFromHSId(hsid) == hostId)
+                        .collect(Collectors.toSet());
+            }
             m_outstandingAllHostProcedureHostIds =
                     hsids.stream().map(hsid->CoreUtils.getHostIdFromHSId(hsid)).collect(Collectors.toSet());
+            if (hsids.isEmpty()) {
+                // the requested host is not live so no response will ever arrive
+                m_outstandingAllHostProc.set(false);
+                m_allHostFut.complete(m_allHostResponses);
+                return m_allHostFut;
+            }
         }
 
         // send the invocation to all live nodes
@@ -587,6 +610,10 @@ public class ProcedureRunnerNT {
         return m_clientHandle;
     }
 
+    protected long getConnectionId() {
+        return m_ccxn.connectionId();
+    }
+
     protected String getUsername() {
         return m_user.m_name;
     }
@@ -18,6 +18,7 @@ package org.voltdb;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -240,6 +241,24 @@ public class QueueDepthTracker {
         }
     }
 
+    /**
+     * Account for tasks removed from the queue in one drain, reading the
+     * clock only once for the whole batch.
+     *
+     * @param tasks drained tasks
+     * @param start index of the first task in {@code tasks} to account for
+     */
+    public void pollUpdate(List<? extends SiteTasker> tasks, int start) {
+        long currentTime = System.nanoTime();
+        for (int i = start; i < tasks.size(); i++) {
+            SiteTasker task = tasks.get(i);
+            m_aggregateStats.pollUpdate(currentTime, task.getQueueOfferTime());
+            if (m_prioSupport) {
+                m_perPrioStats[task.getPriority()].pollUpdate(currentTime, task.getQueueOfferTime());
+            }
+        }
+    }
+
     public SiteStatsSource newQueueStats() {
         return new QueueStats(this, m_siteId);
     }
@@ -197,6 +197,7 @@ import org.voltdb.snmp.SnmpTrapSender;
 import org.voltdb.stats.GcStats;
 import org.voltdb.stats.LimitsStats;
 import org.voltdb.stats.LiveClientsStats;
+import org.voltdb.stats.PbdGroupCommitStats;
 import org.voltdb.sysprocs.AdHocNTBase;
 import org.voltdb.sysprocs.VerifyCatalogAndWriteJar;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
@@ -216,6 +217,7 @@ import org.voltdb.utils.HTTPAdminListener;
 import org.voltdb.utils.InMemoryJarfile;
 import org.voltdb.utils.InMemoryJarfile.JarLoader;
 import org.voltdb.utils.MiscUtils;
+import org.voltdb.utils.PbdGroupCommitScheduler;
 import org.voltdb.utils.PlatformProperties;
 import org.voltdb.utils.ProClass;
 import org.voltdb.utils.SystemStatsCollector;
@@ -1516,6 +1518,9 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             statsAgent.registerStatsSource(StatsSelector.CPU, 0, m_cpuStats);
             m_gcStats = new GcStats();
             statsAgent.registerStatsSource(StatsSelector.GC, 0, m_gcStats);
+            PbdGroupCommitScheduler groupCommit = PbdGroupCommitScheduler.instance();
+            statsAgent.registerStatsSource(StatsSelector.PBDGROUPCOMMIT, 0,
+                    groupCommit == null ? new PbdGroupCommitStats() : groupCommit.getStats());
 
             m_commandLogStats = new CommandLogStats(m_commandLog);
             statsAgent.registerStatsSource(StatsSelector.COMMANDLOG, 0, m_commandLogStats);
@@ -18,17 +18,26 @@ package org.voltdb;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
 import org.voltdb.utils.VoltSnapshotFile;
 
 /**
@@ -187,19 +196,49 @@ public class SnapshotDeleteAgent extends OpsAgent
         }
         final SnapshotPathType stype = SnapshotPathType.valueOf(obj.getString(SnapshotUtil.JSON_PATH_TYPE));
 
+        //When user calls @SnapshotDelete, 'stype' will be set to SNAP_PATH so we will delete what user requested.
+        //If its SNAP_AUTO then its coming from periodic delete task so we use the configured snapshot path.
+        final List<List<File>> relevantFiles = new ArrayList<>(paths.length);
+        final Map<File, Set<File>> deletingByDirectory = new HashMap<>();
+        for (int ii = 0; ii < paths.length; ii++) {
+            List<File> files = retrieveRelevantFiles(SnapshotUtil.getRealPath(stype, paths[ii]), nonces[ii]);
+            relevantFiles.add(files);
+            if (files != null) {
+                for (File f : files) {
+                    deletingByDirectory.computeIfAbsent(f.getParentFile(), d -> new HashSet<>()).add(f);
+                }
+            }
+        }
+
+        // A snapshot can only be deleted together with every incremental snapshot which still reads chunks from it
+        for (int ii = 0; ii < paths.length; ii++) {
+            List<File> files = relevantFiles.get(ii);
+            if (files == null || files.isEmpty()) {
+                continue;
+            }
+            File directory = files.get(0).getParentFile();
+            List<String> referencing = findReferencingFiles(directory, deletingByDirectory.get(directory), files);
+            if (!referencing.isEmpty()) {
+                String err = "Snapshot " + nonces[ii] + " is the base of incremental snapshot files which are not "
+                        + "being deleted: " + referencing;
+                SNAP_LOG.error("Refusing to delete snapshot files in " + directory + ": " + err);
+                for (File f : files) {
+                    result.addRow(m_messenger.getHostId(), CoreUtils.getHostnameOrAddress(), f.getParent(),
+                            stype.toString(), nonces[ii], f.getName(), f.length(), "FALSE", "FAILURE", err);
+                }
+                relevantFiles.set(ii, null);
+            }
+        }
+
         new Thread("Async snapshot deletion thread") {
             @Override
             public void run() {
                 StringBuilder sb = new StringBuilder();
                 sb.append("Deleting files: ");
                 int delCount = 0;
-                for (int ii = 0; ii < paths.length; ii++) {
-                    //When user calls @SnapshotDelete, 'stype' will be set to SNAP_PATH so we will delete what user requested.
-                    //If its SNAP_AUTO then its coming from periodic delete task so we use the configured snapshot path.
-                    String path = SnapshotUtil.getRealPath(stype, paths[ii]);
-                    List<File> relevantFiles = retrieveRelevantFiles(path, nonces[ii]);
-                    if (relevantFiles != null) {
-                        for (final File f : relevantFiles) {
+                for (List<File> files : relevantFiles) {
+                    if (files != null) {
+                        for (final File f : files) {
                             sb.append(f.getPath()).append(' ');
                             f.delete();
                             delCount++;
@@ -216,6 +255,40 @@ public class SnapshotDeleteAgent extends OpsAgent
         return new VoltTable[] {result};
     }
 
+    /*
+     * Find the table files in directory which are not being deleted and are part of an incremental snapshot whose
+     * base file is one of files
+     */
+    private static List<String> findReferencingFiles(File directory, Set<File> deleting, List<File> files) {
+        List<String> referencing = new ArrayList<>();
+        File[] tableFiles = directory.listFiles((d, name) -> name.endsWith(".vpt"));
+        if (tableFiles == null) {
+            return referencing;
+        }
+        for (File tableFile : tableFiles) {
+            if (deleting.contains(tableFile)) {
+                continue;
+            }
+            String baseFileName;
+            try (FileInputStream fis = new FileInputStream(tableFile)) {
+                TableSaveFile saveFile = new TableSaveFile(fis, 1, null, false, null);
+                try {
+                    baseFileName = saveFile.getBaseFileName();
+                } finally {
+                    saveFile.close();
+                }
+            } catch (IOException | RuntimeException e) {
+                SNAP_LOG.warn("Unable to read the header of " + tableFile + " while checking for incremental "
+                        + "snapshots which reference deleted files", e);
+                continue;
+            }
+            if (baseFileName != null && files.contains(new File(directory, baseFileName))) {
+                referencing.add(tableFile.getName());
+            }
+        }
+        return referencing;
+    }
+
     // Foe auto snaps, the nonce has the prefix and a timestamp
     private final List<File> retrieveRelevantFiles(String filePath, String nonce) {
         final File path = new VoltSnapshotFile(filePath);
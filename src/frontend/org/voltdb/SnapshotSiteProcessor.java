@@ -62,7 +62,7 @@ import org.voltdb.rejoin.StreamSnapshotDataTarget.StreamSnapshotTimeoutException
 import org.voltdb.sysprocs.saverestore.HiddenColumnFilter;
 import org.voltdb.sysprocs.saverestore.SnapshotPredicates;
 import org.voltdb.utils.CatalogUtil;
-import org.voltdb.utils.CompressionService;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.MiscUtils;
 
 import com.google_voltpatches.common.collect.ImmutableMap;
@@ -160,8 +160,13 @@ public class SnapshotSiteProcessor {
      * in the system (2 megabytes). Add a fudge factor for metadata.
      */
     public static final int m_snapshotBufferLength = (1024 * 1024 * 2) + Short.MAX_VALUE;
+    /**
+     * Codec used to compress snapshot table blocks. The codec is recorded in the header of each table file.
+     */
+    public static final CompressionCodec m_snapshotCompressionCodec =
+        CompressionCodec.fromProperty("SNAPSHOT_COMPRESSION_CODEC", CompressionCodec.SNAPPY);
     public static final int m_snapshotBufferCompressedLen =
-        CompressionService.maxCompressedLength(m_snapshotBufferLength);
+        m_snapshotCompressionCodec.maxCompressedLength(m_snapshotBufferLength);
 
     /**
      * Limit the number of buffers that are outstanding at any given time
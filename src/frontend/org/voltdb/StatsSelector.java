@@ -70,6 +70,9 @@ public enum StatsSelector {
     REBALANCE,      // return elastic rebalance progress
     KSAFETY,        // return ksafety coverage information
     GC,             // return GC Stats
+    PBDGROUPCOMMIT, // return PBD group commit flush stats
+    MPREADQUEUE,    // return per procedure wait times of MP reads for a read-only site
+    REJOIN,         // return per site progress and throughput of the rejoin snapshot stream
 
     COMMANDLOG(false),     // return number of outstanding bytes and txns on this node
     IMPORTER,       // synonym as IMPORT for backward compatibility
@@ -216,6 +216,17 @@ public class StoredProcedureInvocation implements JSONString {
         return null;
     }
 
+    /**
+     * @return a lazily decoding view over the serialized parameters or {@code null} if the parameters have already
+     *         been deserialized or were never serialized
+     */
+    public ParameterView getParameterView() {
+        if (serializedParams == null || params.isDone()) {
+            return null;
+        }
+        return ParameterView.of(serializedParams);
+    }
+
     public void setClientHandle(long aHandle) {
         clientHandle = aHandle;
     }
@@ -729,6 +729,22 @@ public class SystemProcedureCatalog {
         builder.put("@LogNoteOnHost",
                 Builder.createNp("org.voltdb.sysprocs.LogNote$LogNoteOnHost", VoltType.STRING).allowedInReplica().build());
 
+        builder.put("@AdHocCursorOpen",
+                Builder.createNp("org.voltdb.sysprocs.AdHocCursor$Open").allowedInReplica().build());
+        builder.put("@AdHocCursorFetch",
+                Builder.createNp("org.voltdb.sysprocs.AdHocCursor$Fetch").allowedInReplica().build());
+        builder.put("@AdHocCursorFetchOnHost",
+                Builder.createNp("org.voltdb.sysprocs.AdHocCursor$FetchOnHost").allowedInReplica().build());
+        builder.put("@AdHocCursorClose",
+                Builder.createNp("org.voltdb.sysprocs.AdHocCursor$Close").allowedInReplica().build());
+        builder.put("@AdHocCursorCloseOnHost",
+                Builder.createNp("org.voltdb.sysprocs.AdHocCursor$CloseOnHost").allowedInReplica().build());
+
+        builder.put("@Analyze",
+                Builder.createNp("org.voltdb.sysprocs.Analyze", VoltType.STRING).allowedInReplica().build());
+        builder.put("@AnalyzeOnHost",
+                Builder.createNp("org.voltdb.sysprocs.Analyze$AnalyzeOnHost", VoltType.STRING).allowedInReplica().build());
+
         builder.put("@ValidateDeployment",
                 new Config("org.voltdb.sysprocs.ValidateDeployment",
                         Initiator.SINGLE_PARTITION, Mutable.READ_ONLY, 0, VoltType.VARBINARY,
@@ -36,6 +36,14 @@ public class VoltNTSystemProcedure extends VoltNonTransactionalProcedure {
         return m_runner.callAllNodeNTProcedure(procName, params);
     }
 
+    /**
+     * Run a non-transactional (only) procedure on one live host.
+     * The returned future completes with null if the host is not live.
+     */
+    protected CompletableFuture<ClientResponse> callNTProcedureOnHost(int hostId, String procName, Object... params) {
+        return m_runner.callNodeNTProcedure(hostId, procName, params);
+    }
+
     protected String getHostname() {
         return m_runner.getHostname();
     }
@@ -48,6 +56,10 @@ public class VoltNTSystemProcedure extends VoltNonTransactionalProcedure {
         return m_runner.getClientHandle();
     }
 
+    protected long getConnectionId() {
+        return m_runner.getConnectionId();
+    }
+
     protected String getUsername() {
         return m_runner.getUsername();
     }
@@ -139,6 +139,9 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     int m_rowCount = -1;
     int m_colCount = -1;
 
+    // set on the server when the table lives in a reference counted copy taken out of the EE
+    DirectResultBuffer m_directResult = null;
+
     // non-positive value that probably shouldn't be -1 to avoid off-by-one errors
     private static final int NO_MEMOIZED_ROW_OFFSET = Integer.MIN_VALUE;
 
@@ -2243,7 +2246,8 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     }
 
     public final void convertToHeapBuffer() {
-        if (m_buffer.isDirect()) {
+        // A table in a DirectResultBuffer already has its own copy and is written out from it
+        if (m_buffer.isDirect() && m_directResult == null) {
             // Either this was allocated by the stored procedure as a direct buffer or this
             // is cached from the EE. If the second, we need to make a copy so the EE can
             // reuse the buffer for the next stored procedure.
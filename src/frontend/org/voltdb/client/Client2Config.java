@@ -87,6 +87,8 @@ public class Client2Config {
     int outstandingTxnLimit = DEFAULT_OUTSTANDING_TRANSACTION_LIMIT;
     int txnPerSecRateLimit = 0;
     int networkBackpressureLevel = DEFAULT_NETWORK_BACKPRESSURE_LEVEL;
+    int coalescingByteLimit = 0;
+    long coalescingDelay = 0;
     long reconnectDelay = DEFAULT_RECONNECT_DELAY;
     long reconnectRetryDelay = DEFAULT_RECONNECT_RETRY_DELAY;
     boolean disableConnectionMgmt = false;
@@ -363,6 +365,35 @@ public class Client2Config {
         return this;
     }
 
+    /**
+     * Enables coalescing of procedure call requests. Requests queued
+     * for the same connection are combined into a single network write,
+     * reducing the number of system calls per transaction for clients
+     * which issue many concurrent asynchronous calls. Since calls are
+     * routed to the connection for their partition when client affinity
+     * data is available, each write usually targets a single partition.
+     * <p>
+     * A combined write is sent once it reaches {@code byteLimit} bytes,
+     * when there are no more requests queued for the connection after
+     * waiting up to {@code delay} since the first request was added,
+     * or when a request cannot be sent without waiting for the outstanding
+     * transaction limit or network backpressure. A delay of zero only
+     * combines requests which are already queued, and does not add latency.
+     * <p>
+     * By default coalescing is disabled and each request is written
+     * to the network individually.
+     *
+     * @param byteLimit size of combined requests at which a write is sent, zero to disable coalescing
+     * @param delay maximum time a request waits for further requests
+     * @param unit time units for the delay
+     * @return this
+     */
+    public Client2Config requestCoalescing(int byteLimit, long delay, TimeUnit unit) {
+        coalescingByteLimit = Math.max(0, byteLimit);
+        coalescingDelay = unit.toNanos(Math.max(0, delay));
+        return this;
+    }
+
     /**
      * Sets delay times for attempts to reconnect failed connections.
      * There are two settings: one for the time to wait before the first
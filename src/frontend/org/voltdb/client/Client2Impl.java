@@ -244,6 +244,11 @@ public class Client2Impl implements Client2 {
     final static int DEFAULT_BACKPRESSURE_QUEUE_LIMIT = 100;
     private int backpressureQueueLimit = DEFAULT_BACKPRESSURE_QUEUE_LIMIT; // Override via config
 
+    // Optional coalescing of requests into combined network writes.
+    // Disabled when the byte limit is zero.
+    private int coalescingByteLimit; // Override via config
+    private long coalescingDelay; // Override via config
+
     // Comparator for priority ordering of requests. Uses request
     // sequence to ensure FIFO for equal-priority entries.
     private static class PrioOrder implements Comparator<RequestContext> {
@@ -320,6 +325,10 @@ public class Client2Impl implements Client2 {
             return pending.take();
         }
 
+        RequestContext dequeue(long timeout) throws InterruptedException {
+            return pending.poll(timeout, TimeUnit.NANOSECONDS);
+        }
+
         void clearQueue() {
             pending.clear();
         }
@@ -328,6 +337,10 @@ public class Client2Impl implements Client2 {
             connection.writeStream().enqueue(buf);
         }
 
+        void writeToNetwork(ByteBuffer[] bufs) {
+            connection.writeStream().enqueue(bufs);
+        }
+
         ClientStats clientStats(String procName) {
             ClientStats st = null;
             synchronized (stats) {
@@ -563,6 +576,8 @@ public class Client2Impl implements Client2 {
         setOutstandingTxnLimit(config.outstandingTxnLimit);
         setRequestLimits(config.requestHardLimit, config.requestWarningLevel, config.requestResumeLevel);
         backpressureQueueLimit = config.networkBackpressureLevel;
+        coalescingByteLimit = config.coalescingByteLimit;
+        coalescingDelay = config.coalescingDelay;
         timerService.scheduleAtFixedRate(new TimeoutTask(), 1, 1, TimeUnit.SECONDS);
 
         reconnectDelay = config.reconnectDelay;
@@ -1386,19 +1401,35 @@ public class Client2Impl implements Client2 {
      * on network backpressure. Request timeouts are honoured while blocking.
      */
     private void connectionWorker(ClientConnection cxn) {
+        WriteBatch batch = coalescingByteLimit > 0 ? new WriteBatch() : null;
         while (cxn.isConnected()) {
             RequestContext req = null;
             try {
-                req = cxn.dequeue();
+                if (batch == null || batch.isEmpty()) {
+                    req = cxn.dequeue();
+                }
+                else {
+                    req = cxn.dequeue(batch.remainingDelay());
+                    if (req == null) {
+                        batch.flush(cxn);
+                        continue;
+                    }
+                }
                 if (rateLimiter != null) {
                     rateLimiter.limitSendRate();
                 }
                 long timeLeft = remainingTime(req.startTime, req.timeout);
                 req.holdsPermit = sendPermits.tryAcquire();
+                if (!req.holdsPermit && batch != null) {
+                    batch.flush(cxn); // batched requests hold permits; send before waiting
+                }
                 while (!req.holdsPermit) {
                     req.holdsPermit = sendPermits.tryAcquire(timeLeft, TimeUnit.NANOSECONDS);
                     timeLeft = remainingTime(req.startTime, req.timeout);
                 }
+                if (batch != null && hasNetworkBackpressure(cxn)) {
+                    batch.flush(cxn);
+                }
                 if (awaitClearToSend(cxn, req.startTime, req.timeout)) {
                     timeLeft = remainingTime(req.startTime, req.timeout);
                 }
@@ -1410,7 +1441,12 @@ public class Client2Impl implements Client2 {
                 if (req.timeout < ONE_SECOND_NANOS) {
                     setShortTimeoutTask(req, timeLeft);
                 }
-                cxn.writeToNetwork(buf);
+                if (batch == null) {
+                    cxn.writeToNetwork(buf);
+                }
+                else if (batch.add(buf, coalescingDelay) >= coalescingByteLimit) {
+                    batch.flush(cxn);
+                }
             }
             catch (LocalTimeoutException ex) {
                 String err = String.format("Procedure call timed out before sending (timeout %s, elapsed %s)",
@@ -1435,6 +1471,48 @@ public class Client2Impl implements Client2 {
         cxn.clearQueue();
     }
 
+    /*
+     * Serialized requests awaiting a combined network write. Each
+     * request keeps its own length prefix, so the combined write is
+     * just a sequence of ordinary framed messages. Owned by a single
+     * connection worker thread.
+     */
+    private static class WriteBatch {
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private int bytes;
+        private long deadline;
+
+        boolean isEmpty() {
+            return buffers.isEmpty();
+        }
+
+        int add(ByteBuffer buf, long delay) {
+            if (buffers.isEmpty()) {
+                deadline = System.nanoTime() + delay;
+            }
+            buffers.add(buf);
+            bytes += buf.remaining();
+            return bytes;
+        }
+
+        long remainingDelay() {
+            return Math.max(deadline - System.nanoTime(), 0);
+        }
+
+        void flush(ClientConnection cxn) {
+            if (buffers.size() == 1) {
+                cxn.writeToNetwork(buffers.get(0));
+            }
+            else if (!buffers.isEmpty()) {
+                // Queued as one write which the network thread copies straight
+                // into its output buffer, so there is no intermediate copy here
+                cxn.writeToNetwork(buffers.toArray(new ByteBuffer[buffers.size()]));
+            }
+            buffers.clear();
+            bytes = 0;
+        }
+    }
+
     /*
      * Considerations for sub-second timeouts. We queue up a task to
      * handle this specific request.  Known "long" sysprocs are excluded.
@@ -1484,6 +1562,12 @@ public class Client2Impl implements Client2 {
         return waited;
     }
 
+    private boolean hasNetworkBackpressure(ClientConnection cxn) {
+        synchronized (cxn.backpressureLock) {
+            return cxn.backpressure;
+        }
+    }
+
     /*
      * Network backpressure reporting (from network layer to us).
      * Distinct from request backpressure handling (between us and application).
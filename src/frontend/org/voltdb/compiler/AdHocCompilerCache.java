@@ -19,11 +19,11 @@ package org.voltdb.compiler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
 
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
@@ -31,6 +31,8 @@ import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.cache.Cache;
 import com.google_voltpatches.common.cache.CacheBuilder;
+import com.google_voltpatches.common.cache.CacheStats;
+import com.google_voltpatches.common.cache.Weigher;
 
 /**
  * Keep a cache two level cache of plans generated by the Ad Hoc
@@ -43,6 +45,11 @@ import com.google_voltpatches.common.cache.CacheBuilder;
  * statement mapped to core parameterized plans. These parameterized
  * plans need parameter values and sql literals in order to be
  * actually used.
+ *
+ * Both levels are concurrent caches split into independently locked segments, so lookups
+ * from concurrent planner threads do not contend with each other. Eviction is approximately
+ * LRU within each segment and is bounded by the serialized size of the cached plans as well
+ * as by the number of entries.
  */
 public class AdHocCompilerCache implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -63,12 +70,15 @@ public class AdHocCompilerCache implements Serializable {
      * Get the global cache for a given hash of the catalog. Note that there can be only
      * one cache per catalogHash at a time.
      */
-    public synchronized static AdHocCompilerCache getCacheForCatalogHash(byte[] catalogHash) {
+    public static AdHocCompilerCache getCacheForCatalogHash(byte[] catalogHash) {
         String hashString = Encoder.hexEncode(catalogHash);
         AdHocCompilerCache cache = m_catalogHashMatch.getIfPresent(hashString);
         if (cache == null) {
-            cache = new AdHocCompilerCache();
-            m_catalogHashMatch.put(hashString, cache);
+            try {
+                cache = m_catalogHashMatch.get(hashString, AdHocCompilerCache::new);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Unable to create ad hoc compiler cache", e.getCause());
+            }
         }
         return cache;
     }
@@ -77,28 +87,30 @@ public class AdHocCompilerCache implements Serializable {
     // PER-INSTANCE AWESOMEC CACHING CODE
     //////////////////////////////////////////////////////////////////////////
 
+    // maximum number of independently locked segments in each cache level
+    static final int CONCURRENCY_LEVEL = Integer.getInteger("ADHOC_COMPILER_CACHE_CONCURRENCY", 16);
+
     // cache sizes determined at construction time
     final int MAX_LITERAL_ENTRIES;
-    // max cache size for parameterized plans
-    final long MAX_LITERAL_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32*1024*1024);
+    // max cache memory for literal plans
+    final long MAX_LITERAL_MEM;
     final int MAX_CORE_ENTRIES;
+    // max cache memory for parameterized plans
+    final long MAX_CORE_MEM;
 
     /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    final Cache<String, AdHocPlannedStatement> m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
-     *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
-
-    // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
-    long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
-    long m_planInsertions = 0;
-    long m_planEvictions = 0;
+     *  to what values to enable its specialized (expression-indexed) plan.
+     *  The lists are never modified once cached, a new list replaces the old one when a variant is added. */
+    final Cache<String, List<BoundPlan>> m_coreCache;
+    /** serializes updates of the variants of the same parsed token */
+    private final Object[] m_coreUpdateLocks;
+
+    // stats at the time of the last printStats() call
+    private CacheStats m_lastLiteralStats = new CacheStats(0, 0, 0, 0, 0, 0);
+    private CacheStats m_lastPlanStats = new CacheStats(0, 0, 0, 0, 0, 0);
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -110,94 +122,74 @@ public class AdHocCompilerCache implements Serializable {
         this(1000, 1000);
     }
 
+    /**
+     * Constructor with specific entry limits and default memory limits.
+     *
+     * @param maxLiteralEntries cache size for literals
+     * @param maxCoreEntries cache size for parameterized plans
+     */
+    AdHocCompilerCache(int maxLiteralEntries, int maxCoreEntries) {
+        this(maxLiteralEntries, Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32 * 1024 * 1024),
+                maxCoreEntries, Long.getLong("ADHOC_COMPILER_CACHE_MAX_CORE_MEM_BYTES", 32 * 1024 * 1024));
+    }
+
     /**
      * Constructor with specific cache sizes is only called directly for testing.
      *
      * @param maxLiteralEntries cache size for literals
      * @param maxLiteralMem cache memory for literals
+     * @param maxCoreEntries cache size for parameterized plans
+     * @param maxCoreMem cache memory for parameterized plans
      */
-    AdHocCompilerCache(int maxLiteralEntries, int maxCoreEntries) {
+    AdHocCompilerCache(int maxLiteralEntries, long maxLiteralMem, int maxCoreEntries, long maxCoreMem) {
         MAX_LITERAL_ENTRIES = maxLiteralEntries;
+        MAX_LITERAL_MEM = maxLiteralMem;
         MAX_CORE_ENTRIES = maxCoreEntries;
-
-        // an LRU cache map
-        m_literalCache = new AdHocStatementCache(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM);
-
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-
-        };
-    }
-
-    // define a LinkedHashMap based LRU cache bounds by both entry number and entry value on-heap size
-    // without changing Map.Entry, only works for value of type AdHocPlannedStatement
-    // only extend put, remove,clear and removeEldestEntry methods to account weight
-    public class AdHocStatementCache extends LinkedHashMap<String, AdHocPlannedStatement>{
-       private static final long serialVersionUID = 2988383448026641836L;
-        private final int maxEntries;
-        private final long maxMemory; // in bytes
-        private long currentMemory;   // in bytes
-
-        public AdHocStatementCache() {
-            // default max entry of 1000
-            // default max value size of 32MB
-            this(1000, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries) {
-            this(maxEntries, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries, final long maxMemory) {
-            // set accessOrder to true for LRU
-            super(maxEntries * 2, .75f, true);
-            this.maxEntries = maxEntries;
-            this.maxMemory = maxMemory;
-            this.currentMemory = 0;
-        }
-
-        // This method is called just after a new entry has been added
-        @Override
-        public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
-            if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
-                ++m_literalEvictions;
-                this.currentMemory -= eldest.getValue().getSerializedSize();
-                return true;
-            }
-            return false;
-        }
-
-        @Override
-        public AdHocPlannedStatement put(String key, AdHocPlannedStatement value) {
-            this.currentMemory += value.getSerializedSize();
-            return super.put(key,value);
+        MAX_CORE_MEM = maxCoreMem;
+
+        final int literalMinWeight = minimumWeight(MAX_LITERAL_MEM, MAX_LITERAL_ENTRIES);
+        m_literalCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(concurrencyLevel(MAX_LITERAL_ENTRIES))
+                .maximumWeight(MAX_LITERAL_MEM)
+                .weigher((Weigher<String, AdHocPlannedStatement>) (sql, plan) ->
+                        Math.max(plan.getSerializedSize(), literalMinWeight))
+                .recordStats()
+                .build();
+
+        final int coreMinWeight = minimumWeight(MAX_CORE_MEM, MAX_CORE_ENTRIES);
+        m_coreCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(concurrencyLevel(MAX_CORE_ENTRIES))
+                .maximumWeight(MAX_CORE_MEM)
+                .weigher((Weigher<String, List<BoundPlan>>) (token, variants) -> {
+                    int size = 0;
+                    for (BoundPlan variant : variants) {
+                        size += variant.m_core.getSerializedSize();
+                    }
+                    return Math.max(size, coreMinWeight);
+                })
+                .recordStats()
+                .build();
+
+        m_coreUpdateLocks = new Object[CONCURRENCY_LEVEL];
+        for (int i = 0; i < m_coreUpdateLocks.length; ++i) {
+            m_coreUpdateLocks[i] = new Object();
         }
+    }
 
-        @Override
-        public AdHocPlannedStatement remove(Object key) {
-            AdHocPlannedStatement value = super.remove(key);
-            if (value != null) {
-                this.currentMemory -= value.getSerializedSize();
-            }
-            return value;
-        }
+    /**
+     * Each segment is bounded by its share of the limits, so keep enough entries in
+     * every segment for the eviction order to be meaningful.
+     */
+    private static int concurrencyLevel(int maxEntries) {
+        return Math.max(1, Math.min(CONCURRENCY_LEVEL, maxEntries / 64));
+    }
 
-        @Override
-        public void clear() {
-            super.clear();
-            this.currentMemory = 0;
-        }
+    /**
+     * Every entry weighs at least its share of the memory limit so that the weight limit
+     * also bounds the number of entries.
+     */
+    private static int minimumWeight(long maxMemory, int maxEntries) {
+        return (int) Math.min(Integer.MAX_VALUE, (maxMemory + maxEntries - 1) / Math.max(maxEntries, 1));
     }
 
     /**
@@ -205,38 +197,29 @@ public class AdHocCompilerCache implements Serializable {
      * Probably shouldn't live past real stats integration.
      */
     synchronized void printStats() {
-        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
-        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+        CacheStats literalStats = m_literalCache.stats();
+        CacheStats planStats = m_coreCache.stats();
+        CacheStats literal = literalStats.minus(m_lastLiteralStats);
+        CacheStats plan = planStats.minus(m_lastPlanStats);
+        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Evictions %d\n",
+                literal.hitCount(), literal.requestCount(), literal.hitRate() * 100.0, literal.evictionCount());
+        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Evictions %d\n",
+                plan.hitCount(), plan.requestCount(), plan.hitRate() * 100.0, plan.evictionCount());
 
         System.out.print(line1 + line2);
         System.out.flush();
 
         // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
+        m_lastLiteralStats = literalStats;
+        m_lastPlanStats = planStats;
     }
 
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
      */
-    public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
-        if (retval != null) {
-            ++m_literalHits;
-        }
-        return retval;
+    public AdHocPlannedStatement getWithSQL(String sql) {
+        return m_literalCache.getIfPresent(sql);
     }
 
     /**
@@ -244,13 +227,8 @@ public class AdHocCompilerCache implements Serializable {
      * SQL statement
      * @return A CorePlan that needs parameter values to run.
      */
-    public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
-        if (retval != null) {
-            ++m_planHits;
-        }
-        return retval;
+    public List<BoundPlan> getWithParsedToken(String parsedToken) {
+        return m_coreCache.getIfPresent(parsedToken);
     }
 
     /**
@@ -271,12 +249,12 @@ public class AdHocCompilerCache implements Serializable {
      * @param hasUserQuestionMarkParameters is user provided parameterized query
      * @param hasAutoParameterizedException is the auto parameterized query has parameter exception
      */
-    public synchronized void put(String sql,
-                                 String parsedToken,
-                                 AdHocPlannedStatement planIn,
-                                 String[] extractedLiterals,
-                                 boolean hasUserQuestionMarkParameters,
-                                 boolean hasAutoParameterizedException)
+    public void put(String sql,
+                    String parsedToken,
+                    AdHocPlannedStatement planIn,
+                    String[] extractedLiterals,
+                    boolean hasUserQuestionMarkParameters,
+                    boolean hasAutoParameterizedException)
     {
         assert(sql != null);
         assert(parsedToken != null);
@@ -293,54 +271,62 @@ public class AdHocCompilerCache implements Serializable {
 
         // deal with L2 cache
         if (! hasAutoParameterizedException) {
-            BoundPlan matched = null;
             BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
-            // deal with the parameterized plan cache first
-            List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
+            BoundPlan matched = addBoundPlan(parsedToken, unmatched);
+            // if a different core is found, reuse it
+            // this is useful when updating the literal cache
+            if (matched != null && unmatched.m_core != matched.m_core) {
+                plan = new AdHocPlannedStatement(planIn, matched.m_core);
+                plan.setBoundConstants(matched.m_constants);
+            }
+        }
+
+        // then deal with the L1 cache
+        if (! hasUserQuestionMarkParameters) {
+            //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
+            AdHocPlannedStatement cachedPlan = m_literalCache.asMap().putIfAbsent(sql, plan);
+            assert(cachedPlan == null || cachedPlan.equals(plan));
+        }
+    }
+
+    /**
+     * Drop every cached plan. Used when the inputs to plan selection, such as table statistics, change
+     * without a change to the catalog.
+     */
+    public void invalidateAll() {
+        m_literalCache.invalidateAll();
+        m_coreCache.invalidateAll();
+    }
+
+    /**
+     * Add a variant to the parameterized plans of {@code parsedToken} unless an equal variant is already cached.
+     *
+     * @return the equal variant already in the cache or {@code null} if {@code variant} was added
+     */
+    private BoundPlan addBoundPlan(String parsedToken, BoundPlan variant) {
+        synchronized (m_coreUpdateLocks[(parsedToken.hashCode() & Integer.MAX_VALUE) % m_coreUpdateLocks.length]) {
+            List<BoundPlan> boundVariants = m_coreCache.getIfPresent(parsedToken);
+            List<BoundPlan> updated;
             if (boundVariants == null) {
-                boundVariants = new ArrayList<BoundPlan>();
-                m_coreCache.put(parsedToken, boundVariants);
-                // Note that there is an edge case in which more than one plan is getting counted as one
-                // "plan insertion". This only happens when two different plans arose from the same parameterized
+                // Note that there is an edge case in which more than one plan is cached under one token.
+                // This only happens when two different plans arose from the same parameterized
                 // query (token) because one invocation used the correct constants to trigger an expression index and
-                // another invocation did not.  These are not counted separately (which would have to happen below
-                // after each call to boundVariants.add) because they are not evicted separately.
-                // It seems saner to use consistent units when counting insertions vs. evictions.
-                ++m_planInsertions;
+                // another invocation did not. These are not evicted separately.
+                updated = Collections.singletonList(variant);
             } else {
                 for (BoundPlan boundPlan : boundVariants) {
-                    if (boundPlan.equals(unmatched)) {
-                        matched = boundPlan;
-                        break;
-                    }
-                }
-                if (matched != null) {
-                    // if a different core is found, reuse it
-                    // this is useful when updating the literal cache
-                    if (unmatched.m_core != matched.m_core) {
-                        plan = new AdHocPlannedStatement(planIn, matched.m_core);
-                        plan.setBoundConstants(matched.m_constants);
+                    if (boundPlan.equals(variant)) {
+                        return boundPlan;
                     }
                 }
+                updated = new ArrayList<>(boundVariants.size() + 1);
+                updated.addAll(boundVariants);
+                updated.add(variant);
+                updated = Collections.unmodifiableList(updated);
             }
-            if (matched == null) {
-                // Don't count insertions (of possibly repeated tokens) here
-                //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
-                boundVariants.add(unmatched);
-            }
-        }
-
-        // then deal with the L1 cache
-        if (! hasUserQuestionMarkParameters) {
-            AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
-            if (cachedPlan == null) {
-                //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
-                m_literalCache.put(sql, plan);
-                ++m_literalInsertions;
-            }
-            else {
-                assert(cachedPlan.equals(plan));
-            }
+            // replace the list so that it is reweighed and readers never see it change
+            m_coreCache.put(parsedToken, updated);
+            return null;
         }
     }
 
@@ -365,7 +351,7 @@ public class AdHocCompilerCache implements Serializable {
      * @return  literal cache size as a count
      */
     public int getLiteralCacheSize() {
-        return m_literalCache.size();
+        return (int) m_literalCache.size();
     }
 
     /**
@@ -373,6 +359,20 @@ public class AdHocCompilerCache implements Serializable {
      * @return  core cache size as a count
      */
     public int getCoreCacheSize() {
-        return m_coreCache.size();
+        return (int) m_coreCache.size();
+    }
+
+    /**
+     * @return number of plans evicted from the literal cache since it was created
+     */
+    public long getLiteralCacheEvictions() {
+        return m_literalCache.stats().evictionCount();
+    }
+
+    /**
+     * @return number of parameterized plans evicted from the core cache since it was created
+     */
+    public long getCoreCacheEvictions() {
+        return m_coreCache.stats().evictionCount();
     }
 }
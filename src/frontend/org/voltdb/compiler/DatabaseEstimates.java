@@ -18,22 +18,52 @@
 package org.voltdb.compiler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 public class DatabaseEstimates {
 
+    // Analyzed tables are never estimated below this many rows, so that statistics
+    // collected while a table was still being loaded do not make scans look free.
+    public static final long MIN_ANALYZED_TUPLES = Long.getLong("ANALYZE_MIN_ESTIMATED_TUPLES", 1000);
+
     public static class TableEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        // Statistics collected by @Analyze, or null if the table has not been analyzed
+        public TableStatistics statistics = null;
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
 
+    private final Map<String, TableStatistics> m_statistics;
+
+    public DatabaseEstimates() {
+        this(Collections.<String, TableStatistics>emptyMap());
+    }
+
+    /**
+     * @param statistics collected statistics by table name, used in place of the default estimates
+     */
+    public DatabaseEstimates(Map<String, TableStatistics> statistics) {
+        m_statistics = statistics;
+    }
+
     public TableEstimates getEstimatesForTable(String tableName) {
-        if (tables.containsKey(tableName) == false)
-            tables.put(tableName, new TableEstimates());
+        TableEstimates estimates = tables.get(tableName);
+        if (estimates == null) {
+            estimates = new TableEstimates();
+            TableStatistics statistics = m_statistics.get(tableName);
+            if (statistics != null) {
+                estimates.maxTuples = Math.max(statistics.getRowCount(), MIN_ANALYZED_TUPLES);
+                estimates.minTuples = estimates.maxTuples;
+                estimates.statistics = statistics;
+            }
+            tables.put(tableName, estimates);
+        }
 
-        return tables.get(tableName);
+        return estimates;
     }
 }
@@ -20,7 +20,15 @@ package org.voltdb.compiler;
 import static org.voltdb.planner.QueryPlanner.fragmentizePlan;
 import static org.voltdb.plannerv2.utils.VoltRelUtil.calciteToVoltDBPlan;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.RelTraitSet;
@@ -36,6 +44,7 @@ import org.apache.calcite.tools.RelConversionException;
 import org.apache.calcite.tools.ValidationException;
 import org.hsqldb_voltpatches.HSQLInterface;
 import org.hsqldb_voltpatches.HSQLInterface.HSQLParseException;
+import org.json_voltpatches.JSONException;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.PlannerStatsCollector;
 import org.voltdb.PlannerStatsCollector.CacheUse;
@@ -43,6 +52,7 @@ import org.voltdb.StatsAgent;
 import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.PlanningErrorException;
 import org.voltdb.planner.CompiledPlan;
 import org.voltdb.planner.CorePlan;
@@ -62,24 +72,42 @@ import org.voltdb.sysprocs.AdHocNTBase;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.Encoder;
 
+import com.google_voltpatches.common.collect.ImmutableMap;
+
 /**
  * Planner tool accepts an already compiled VoltDB catalog and then
  * interactively accept SQL and outputs plans on standard out.
  *
  * Used only for AdHoc queries.
+ *
+ * Statements are planned concurrently by up to {@link #PLANNER_POOL_SIZE} threads. Each statement
+ * which needs to be parsed borrows an HSQL instance loaded with the schema from a pool which is
+ * grown on demand. Lookups in the literal plan cache do not need an HSQL instance.
  */
 public class PlannerTool {
     private static final VoltLogger hostLog = new VoltLogger("HOST");
     private static final VoltLogger compileLog = new VoltLogger("COMPILE");
 
-    private Database m_database;
-    private byte[] m_catalogHash;
-    private AdHocCompilerCache m_cache;
-    private SchemaPlus m_schemaPlus;
-    private long m_adHocLargeFallbackCount = 0;
-    private long m_adHocLargeModeCount = 0;
+    // Maximum number of statements which can be planned at the same time, each needs its own HSQL instance
+    static final int PLANNER_POOL_SIZE = Integer.getInteger("ADHOC_PLANNER_POOL_SIZE",
+            Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() / 2)));
+
+    private volatile Database m_database;
+    private volatile byte[] m_catalogHash;
+    private volatile AdHocCompilerCache m_cache;
+    private volatile SchemaPlus m_schemaPlus;
+    // Statistics collected by @Analyze by table name. Replaced as a whole, guarded by this for updates.
+    private volatile Map<String, TableStatistics> m_tableStatistics = ImmutableMap.of();
+    // Statistics last loaded from the catalog jar, so catalog updates which do not change them keep cached plans
+    private byte[] m_catalogTableStatistics = null;
+    private final AtomicLong m_adHocLargeFallbackCount = new AtomicLong();
+    private final AtomicLong m_adHocLargeModeCount = new AtomicLong();
 
     private final HSQLInterface m_hsql;
+    // HSQL instances which are not currently being used to plan a statement
+    private final BlockingQueue<HSQLInterface> m_idleHsql = new LinkedBlockingQueue<>();
+    // Number of HSQL instances which have been created, guarded by m_idleHsql
+    private int m_hsqlCount;
 
     private static PlannerStatsCollector m_plannerStats;
 
@@ -100,24 +128,9 @@ public class PlannerTool {
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
 
         // LOAD HSQL
-        m_hsql = HSQLInterface.loadHsqldb(ParameterizationInfo.getParamStateManager());
-        String binDDL = m_database.getSchema();
-        String ddl = CompressionService.decodeBase64AndDecompress(binDDL);
-        String[] commands = ddl.split("\n");
-        for (String command : commands) {
-            String decoded_cmd = Encoder.hexDecodeToString(command);
-            decoded_cmd = decoded_cmd.trim();
-            if (decoded_cmd.isEmpty()) {
-                continue;
-            }
-            try {
-                m_hsql.runDDLCommand(decoded_cmd);
-            } catch (HSQLParseException e) {
-                // need a good error message here
-                throw new RuntimeException("Error creating hsql: " + e.getMessage() + " in DDL statement: " + decoded_cmd);
-            }
-        }
-        hostLog.debug("hsql loaded");
+        m_hsql = loadHsql();
+        m_idleHsql.add(m_hsql);
+        m_hsqlCount = 1;
 
         // Create and register a singleton planner stats collector, if this is the first time.
         if (m_plannerStats == null) {
@@ -151,16 +164,139 @@ public class PlannerTool {
         return this;
     }
 
+    /**
+     * @return the statistics currently used to plan statements, by table name
+     */
+    public Map<String, TableStatistics> getTableStatistics() {
+        return m_tableStatistics;
+    }
+
+    /**
+     * Start planning with newly collected table statistics. Statistics for tables which are
+     * not in the catalog, or whose definition has changed since they were collected, are ignored.
+     * Cached plans are dropped so that statements are replanned with the new statistics.
+     */
+    public synchronized void updateTableStatistics(Collection<TableStatistics> statistics) {
+        Map<String, TableStatistics> updated = new HashMap<>(m_tableStatistics);
+        for (TableStatistics tableStatistics : statistics) {
+            updated.put(tableStatistics.getTableName(), tableStatistics);
+        }
+        m_tableStatistics = retainCurrentStatistics(updated);
+        m_cache.invalidateAll();
+    }
+
+    /**
+     * Start planning with the statistics which {@code @Analyze} stored in the catalog jar, if they differ from the
+     * statistics loaded from the previous catalog
+     *
+     * @param json contents of {@link TableStatistics#CATALOG_JAR_ENTRY} or {@code null} if the jar has none
+     */
+    public synchronized PlannerTool loadTableStatistics(byte[] json) {
+        if (json == null || Arrays.equals(json, m_catalogTableStatistics)) {
+            return this;
+        }
+        try {
+            updateTableStatistics(TableStatistics.fromJSONArray(new String(json, StandardCharsets.UTF_8)));
+            m_catalogTableStatistics = json;
+        } catch (JSONException e) {
+            hostLog.warn("Ignoring table statistics in the catalog which could not be parsed: " + e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Keep using the statistics of {@code previous} for the tables whose definitions did not change.
+     * Called when the planner tool is recreated for a schema change.
+     */
+    public synchronized PlannerTool inheritTableStatistics(PlannerTool previous) {
+        if (previous != null) {
+            m_tableStatistics = retainCurrentStatistics(previous.m_tableStatistics);
+            m_catalogTableStatistics = previous.m_catalogTableStatistics;
+        }
+        return this;
+    }
+
+    private ImmutableMap<String, TableStatistics> retainCurrentStatistics(Map<String, TableStatistics> statistics) {
+        ImmutableMap.Builder<String, TableStatistics> builder = ImmutableMap.builder();
+        for (TableStatistics tableStatistics : statistics.values()) {
+            Table table = m_database.getTables().get(tableStatistics.getTableName());
+            if (table != null && table.getSignature().equals(tableStatistics.getSignature())) {
+                builder.put(tableStatistics.getTableName(), tableStatistics);
+            }
+        }
+        return builder.build();
+    }
+
+    private HSQLInterface loadHsql() {
+        HSQLInterface hsql = HSQLInterface.loadHsqldb(ParameterizationInfo.getParamStateManager());
+        String binDDL = m_database.getSchema();
+        String ddl = CompressionService.decodeBase64AndDecompress(binDDL);
+        String[] commands = ddl.split("\n");
+        for (String command : commands) {
+            String decoded_cmd = Encoder.hexDecodeToString(command);
+            decoded_cmd = decoded_cmd.trim();
+            if (decoded_cmd.isEmpty()) {
+                continue;
+            }
+            try {
+                hsql.runDDLCommand(decoded_cmd);
+            } catch (HSQLParseException e) {
+                // need a good error message here
+                throw new RuntimeException("Error creating hsql: " + e.getMessage() + " in DDL statement: " + decoded_cmd);
+            }
+        }
+        hostLog.debug("hsql loaded");
+        return hsql;
+    }
+
+    /**
+     * Take an idle HSQL instance from the pool, creating a new one if none are idle and the pool is not full,
+     * otherwise wait for one to be returned. The instance must be returned with {@link #releaseHsql(HSQLInterface)}.
+     */
+    private HSQLInterface borrowHsql() {
+        HSQLInterface hsql = m_idleHsql.poll();
+        if (hsql != null) {
+            return hsql;
+        }
+        boolean create = false;
+        synchronized (m_idleHsql) {
+            if (m_hsqlCount < PLANNER_POOL_SIZE) {
+                ++m_hsqlCount;
+                create = true;
+            }
+        }
+        if (create) {
+            try {
+                return loadHsql();
+            } catch (RuntimeException e) {
+                synchronized (m_idleHsql) {
+                    --m_hsqlCount;
+                }
+                throw e;
+            }
+        }
+        try {
+            return m_idleHsql.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to plan a statement", e);
+        }
+    }
+
+    private void releaseHsql(HSQLInterface hsql) {
+        m_idleHsql.add(hsql);
+    }
+
     public HSQLInterface getHSQLInterface() {
         return m_hsql;
     }
 
     public long getAdHocLargeFallbackCount() {
-        return m_adHocLargeFallbackCount;
+        return m_adHocLargeFallbackCount.get();
     }
 
     public long getAdHocLargeModeCount() {
-        return m_adHocLargeModeCount;
+        return m_adHocLargeModeCount.get();
     }
 
     public AdHocPlannedStatement planSqlForTest(String sqlIn) {
@@ -175,16 +311,16 @@ public class PlannerTool {
     /**
      * Stripped down compile that is ONLY used to plan default procedures.
      */
-    public synchronized CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
+    public CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
         TrivialCostModel costModel = new TrivialCostModel();
         DatabaseEstimates estimates = new DatabaseEstimates();
 
         CompiledPlan plan = null;
-        // This try-with-resources block acquires a global lock on all planning
-        // This is required until we figure out how to do parallel planning.
+        HSQLInterface hsql = borrowHsql();
+        // This try-with-resources block locks the HSQL instance for the duration of planning
         try (QueryPlanner planner = new QueryPlanner(
                 sql, "PlannerTool", "PlannerToolProc", m_database,
-                partitioning, m_hsql, estimates, !VoltCompiler.DEBUG_MODE,
+                partitioning, hsql, estimates, !VoltCompiler.DEBUG_MODE,
                 costModel, null, null, DeterminismMode.FASTER, false, false)) {
 
             // do the expensive full planning.
@@ -205,6 +341,8 @@ public class PlannerTool {
                 throw new RuntimeException("SQL error while compiling query: " + e.getMessage() + loggedMsg, e);
             }
             throw new RuntimeException("SQL error while compiling query: " + e.toString() + loggedMsg, e);
+        } finally {
+            releaseHsql(hsql);
         }
 
         if (plan == null) {
@@ -300,7 +438,7 @@ public class PlannerTool {
      * @param task the query to plan.
      * @return a planned statement.
      */
-    public synchronized AdHocPlannedStatement planSqlCalcite(SqlTask task)
+    public AdHocPlannedStatement planSqlCalcite(SqlTask task)
             throws ValidationException, RelConversionException, PlannerFallbackException {
         CompiledPlan plan = getCompiledPlanCalcite(
                 // TODO: we need a reliable way to sync Calcite's SchemaPlus from VoltDB's Catalog,
@@ -317,7 +455,7 @@ public class PlannerTool {
         // return new AdHocPlannedStatement(plan, core);
     }
 
-    public synchronized AdHocPlannedStatement planSql(
+    public AdHocPlannedStatement planSql(
             String sql, StatementPartitioning partitioning, boolean isExplainMode, final Object[] userParams,
             boolean isSwapTables, boolean isLargeQuery) {
         // large_mode_ratio will force execution of SQL queries to use the "large" path (for read-only queries)
@@ -325,13 +463,13 @@ public class PlannerTool {
         if (m_largeModeRatio > 0 && !isLargeQuery) {
             if (m_largeModeRatio >= 1 || m_largeModeRatio > ThreadLocalRandom.current().nextDouble()) {
                 isLargeQuery = true;
-                m_adHocLargeModeCount++;
+                m_adHocLargeModeCount.incrementAndGet();
             }
         }
         CacheUse cacheUse = CacheUse.FAIL;
-        if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
-        }
+        // read once so a concurrent catalog update is not seen half way through planning
+        final AdHocCompilerCache cache = m_cache;
+        final Long statsStartTime = m_plannerStats == null ? null : m_plannerStats.startConcurrentStatsCollection();
         try {
             if ((sql == null) || (sql = sql.trim()).isEmpty()) {    // remove any spaces or newlines
                 throw new RuntimeException("Can't plan empty or null SQL.");
@@ -350,7 +488,7 @@ public class PlannerTool {
             // point it seems worthwhile to cache such plans, we can explore it.
             if (partitioning.isInferred() && !isLargeQuery) {
                 // Check the literal cache for a match.
-                AdHocPlannedStatement cachedPlan = m_cache.getWithSQL(sql);
+                AdHocPlannedStatement cachedPlan = cache.getWithSQL(sql);
                 if (cachedPlan != null) {
                     cacheUse = CacheUse.HIT1;
                     return cachedPlan;
@@ -363,13 +501,22 @@ public class PlannerTool {
             // PLAN THE STMT
             //////////////////////
 
-            final SqlPlanner planner = new SqlPlanner(m_database, partitioning, m_hsql, sql,
-                    isLargeQuery, isSwapTables, isExplainMode, m_adHocLargeFallbackCount, userParams, m_cache, compileLog);
+            final SqlPlanner planner;
+            final HSQLInterface hsql = borrowHsql();
+            try {
+                planner = new SqlPlanner(m_database, partitioning, hsql, sql,
+                        isLargeQuery, isSwapTables, isExplainMode, userParams, cache,
+                        new DatabaseEstimates(m_tableStatistics), compileLog);
+            } finally {
+                releaseHsql(hsql);
+            }
             final CompiledPlan plan = planner.getCompiledPlan();
             final AdHocPlannedStatement adhocPlan = planner.getAdhocPlan();
             assert (plan == null) != (adhocPlan == null) : "It should be either planned or cached";
             partitioning = planner.getPartitioning();
-            m_adHocLargeFallbackCount = planner.getAdHocLargeFallBackCount();
+            if (planner.isLargeQueryFallback()) {
+                m_adHocLargeFallbackCount.incrementAndGet();
+            }
             if (adhocPlan != null) {
                 cacheUse = CacheUse.HIT2;   // IMPORTANT
                 return adhocPlan;
@@ -392,14 +539,16 @@ public class PlannerTool {
                     core.setPartitioningParamValue(partitioning.getInferredPartitioningValue());
                     assert (parsedToken != null);
                     // Again, plans with inferred partitioning are the only ones supported in the cache.
-                    m_cache.put(sql, parsedToken, ahps, planner.getExtractedLiterals(), planner.hasQuestionMark(),
+                    cache.put(sql, parsedToken, ahps, planner.getExtractedLiterals(), planner.hasQuestionMark(),
                             planner.hasExceptionWhenParameterized());
                 }
                 return ahps;
             }
         } finally {
             if (m_plannerStats != null) {
-                m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
+                m_plannerStats.updateCacheEvictions(cache.getLiteralCacheEvictions(), cache.getCoreCacheEvictions());
+                m_plannerStats.endConcurrentStatsCollection(statsStartTime, cache.getLiteralCacheSize(),
+                        cache.getCoreCacheSize(), cacheUse, -1);
             }
         }
     }
@@ -43,6 +43,7 @@ final class SqlPlanner {
     private final boolean m_isLargeQuery, m_isSwapTables, m_isExplainMode;
     private final Object[] m_userParams;
     private final AdHocCompilerCache m_cache;
+    private final DatabaseEstimates m_estimates;
     private final VoltLogger m_logger;
     // outcomes
     private final CompiledPlan m_plan;
@@ -51,13 +52,13 @@ final class SqlPlanner {
     private boolean m_wrongNumberParameters = false;
     private boolean m_hasExceptionWhenParameterized = false;
     private StatementPartitioning m_partitioning;
-    private long m_adHocLargeFallbackCount;
+    private boolean m_largeQueryFallback = false;
     private String m_parsedToken;
     private String[] m_extractedLiterals;
 
     SqlPlanner(Database database, StatementPartitioning partitioning, HSQLInterface hsql, String sql,
-            boolean isLargeQuery, boolean isSwapTables, boolean isExplainMode, long adHocLargeFallbackCount,
-            Object[] userParams, AdHocCompilerCache cache, VoltLogger logger) {
+            boolean isLargeQuery, boolean isSwapTables, boolean isExplainMode,
+            Object[] userParams, AdHocCompilerCache cache, DatabaseEstimates estimates, VoltLogger logger) {
         m_database = database;
         m_partitioning = partitioning;
         m_hsql = hsql;
@@ -65,9 +66,9 @@ final class SqlPlanner {
         m_isLargeQuery = isLargeQuery;
         m_isSwapTables = isSwapTables;
         m_isExplainMode = isExplainMode;
-        m_adHocLargeFallbackCount = adHocLargeFallbackCount;
         m_userParams = userParams;
         m_cache = cache;
+        m_estimates = estimates;
         m_logger = logger;
         m_plan = cacheOrPlan();
     }
@@ -88,8 +89,11 @@ final class SqlPlanner {
         return m_hasExceptionWhenParameterized;
     }
 
-    long getAdHocLargeFallBackCount() {
-        return m_adHocLargeFallbackCount;
+    /**
+     * @return {@code true} if the statement was not planned in the requested large query mode
+     */
+    boolean isLargeQueryFallback() {
+        return m_largeQueryFallback;
     }
 
     String getParsedToken() {
@@ -140,18 +144,18 @@ final class SqlPlanner {
             m_partitioning = plan.getStatementPartitioning();
         }
         if (plan.getIsLargeQuery() != m_isLargeQuery) {
-            ++m_adHocLargeFallbackCount;
+            m_largeQueryFallback = true;
         }
         m_hasExceptionWhenParameterized = planner.wasBadPameterized();
         return plan;
     }
 
     private CompiledPlan cacheOrPlan() {
-        // This try-with-resources block acquires a global lock on all planning
-        // This is required until we figure out how to do parallel planning.
+        // This try-with-resources block locks the HSQL instance used for parsing, which can only
+        // parse one statement at a time. Statements using other HSQL instances are planned in parallel.
         try (QueryPlanner planner = new QueryPlanner(
                 m_sql, "PlannerTool", "PlannerToolProc", m_database,
-                m_partitioning, m_hsql, new DatabaseEstimates(), !VoltCompiler.DEBUG_MODE, new TrivialCostModel(),
+                m_partitioning, m_hsql, m_estimates, !VoltCompiler.DEBUG_MODE, new TrivialCostModel(),
                 null, null, DeterminismMode.FASTER, m_isLargeQuery, false)) {
             if (m_isSwapTables) {
                 planner.planSwapTables();
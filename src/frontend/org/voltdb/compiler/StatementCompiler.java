@@ -201,8 +201,8 @@ public abstract class StatementCompiler {
         CompiledPlan plan = null;
 
         try {
-            // This try-with-resources block acquires a global lock on all planning
-            // This is required until we figure out how to do parallel planning.
+            // This try-with-resources block locks the HSQL instance used for parsing, which can only
+            // parse one statement at a time. Statements using other HSQL instances are planned in parallel.
             try (QueryPlanner planner = new QueryPlanner(
                     sql, stmtName, procName,  db,
                     partitioning, hsql, estimates, false,
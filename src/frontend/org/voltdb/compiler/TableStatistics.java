@@ -0,0 +1,444 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+
+import com.google_voltpatches.common.collect.ImmutableMap;
+
+/**
+ * Statistics collected for one table by {@code @Analyze}: the row count plus, per column, an estimate of the number
+ * of distinct values, the number of nulls and optionally an equi-width histogram of the non-null values. The
+ * planner uses these in place of the fixed guesses in {@link DatabaseEstimates} to estimate selectivity.
+ * <p>
+ * Instances are immutable and shared between planner threads.
+ */
+public final class TableStatistics {
+    /** Fraction of rows assumed to match an equality predicate when nothing better is known */
+    public static final double DEFAULT_EQUALITY_SELECTIVITY = 0.1;
+    /** Fraction of rows assumed to match a range predicate when nothing better is known */
+    public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3.0;
+
+    /**
+     * Entry in the catalog jar which holds the statistics of every analyzed table, so they are part of the catalog
+     * on every host and survive restarts
+     */
+    public static final String CATALOG_JAR_ENTRY = "statistics/table_statistics.json";
+
+    private final String m_tableName;
+    private final String m_signature;
+    private final long m_rowCount;
+    private final long m_analyzedAt;
+    private final Map<String, ColumnStatistics> m_columns;
+
+    public TableStatistics(String tableName, String signature, long rowCount, long analyzedAt,
+            Map<String, ColumnStatistics> columns) {
+        m_tableName = tableName;
+        m_signature = signature;
+        m_rowCount = rowCount;
+        m_analyzedAt = analyzedAt;
+        m_columns = ImmutableMap.copyOf(columns);
+    }
+
+    public String getTableName() {
+        return m_tableName;
+    }
+
+    /**
+     * @return the catalog signature of the table when it was analyzed. Statistics are discarded when the table
+     *         definition no longer matches.
+     */
+    public String getSignature() {
+        return m_signature;
+    }
+
+    public long getRowCount() {
+        return m_rowCount;
+    }
+
+    /**
+     * @return time the statistics were collected in milliseconds since the epoch
+     */
+    public long getAnalyzedAt() {
+        return m_analyzedAt;
+    }
+
+    /**
+     * @param columnName name of the column
+     * @return the statistics for {@code columnName} or {@code null} if none were collected
+     */
+    public ColumnStatistics getColumn(String columnName) {
+        return m_columns.get(columnName);
+    }
+
+    public Map<String, ColumnStatistics> getColumns() {
+        return m_columns;
+    }
+
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        stringer.object();
+        stringer.keySymbolValuePair("table", m_tableName);
+        stringer.keySymbolValuePair("signature", m_signature);
+        stringer.keySymbolValuePair("rowCount", m_rowCount);
+        stringer.keySymbolValuePair("analyzedAt", m_analyzedAt);
+        stringer.key("columns").array();
+        for (ColumnStatistics column : m_columns.values()) {
+            column.toJSONString(stringer);
+        }
+        stringer.endArray();
+        stringer.endObject();
+    }
+
+    /**
+     * @return {@code statistics} as a JSON array as stored in {@link #CATALOG_JAR_ENTRY}
+     */
+    public static String toJSONString(Collection<TableStatistics> statistics) throws JSONException {
+        JSONStringer stringer = new JSONStringer();
+        stringer.array();
+        for (TableStatistics tableStatistics : statistics) {
+            tableStatistics.toJSONString(stringer);
+        }
+        stringer.endArray();
+        return stringer.toString();
+    }
+
+    /**
+     * @param json a JSON array of table statistics as written by {@link #toJSONString(Collection)}
+     */
+    public static List<TableStatistics> fromJSONArray(String json) throws JSONException {
+        JSONArray jtables = new JSONArray(json);
+        List<TableStatistics> statistics = new ArrayList<>(jtables.length());
+        for (int i = 0; i < jtables.length(); ++i) {
+            statistics.add(fromJSONObject(jtables.getJSONObject(i)));
+        }
+        return statistics;
+    }
+
+    public static TableStatistics fromJSONObject(JSONObject jobj) throws JSONException {
+        ImmutableMap.Builder<String, ColumnStatistics> columns = ImmutableMap.builder();
+        JSONArray jcolumns = jobj.getJSONArray("columns");
+        for (int i = 0; i < jcolumns.length(); ++i) {
+            ColumnStatistics column = ColumnStatistics.fromJSONObject(jcolumns.getJSONObject(i));
+            columns.put(column.getColumnName(), column);
+        }
+        return new TableStatistics(jobj.getString("table"), jobj.getString("signature"), jobj.getLong("rowCount"),
+                jobj.getLong("analyzedAt"), columns.build());
+    }
+
+    /**
+     * Statistics for one column. All counts are of rows, not values.
+     */
+    public static final class ColumnStatistics {
+        private final String m_columnName;
+        private final long m_rowCount;
+        // Estimated number of distinct non-null values, or -1 if unknown
+        private final long m_distinctValues;
+        private final long m_nullCount;
+        // Equi-width histogram of the non-null values between m_min and m_max, or null
+        private final double m_min;
+        private final double m_max;
+        private final long[] m_buckets;
+
+        public ColumnStatistics(String columnName, long rowCount, long distinctValues, long nullCount) {
+            this(columnName, rowCount, distinctValues, nullCount, 0, 0, null);
+        }
+
+        public ColumnStatistics(String columnName, long rowCount, long distinctValues, long nullCount, double min,
+                double max, long[] buckets) {
+            assert buckets == null || buckets.length > 0;
+            m_columnName = columnName;
+            m_rowCount = rowCount;
+            m_distinctValues = distinctValues;
+            m_nullCount = nullCount;
+            m_min = min;
+            m_max = max;
+            m_buckets = buckets == null ? null : buckets.clone();
+        }
+
+        public String getColumnName() {
+            return m_columnName;
+        }
+
+        /**
+         * @return estimated number of distinct non-null values or {@code -1} if unknown
+         */
+        public long getDistinctValues() {
+            return m_distinctValues;
+        }
+
+        public long getNullCount() {
+            return m_nullCount;
+        }
+
+        /**
+         * @return number of buckets in the histogram, {@code 0} if there is no histogram
+         */
+        public int getHistogramBuckets() {
+            return m_buckets == null ? 0 : m_buckets.length;
+        }
+
+        /**
+         * Estimate the fraction of rows with a particular value of this column
+         *
+         * @param value the value being looked up, or {@code null} if it is not known at plan time
+         * @return estimated fraction of rows matching, between 0 and 1
+         */
+        public double equalitySelectivity(Double value) {
+            if (m_rowCount <= 0) {
+                return 0;
+            }
+            if (m_distinctValues < 0) {
+                return DEFAULT_EQUALITY_SELECTIVITY;
+            }
+            long distinct = Math.max(1, m_distinctValues);
+            if (value != null && m_buckets != null) {
+                // Assume the distinct values are spread evenly across the non-empty buckets but let the bucket
+                // counts capture skew in how many rows each value has.
+                int bucket = bucketOf(value);
+                if (bucket < 0) {
+                    return 0;
+                }
+                long distinctPerBucket = Math.max(1, distinct / nonEmptyBuckets());
+                return Math.min(1.0, (double) m_buckets[bucket] / distinctPerBucket / m_rowCount);
+            }
+            return (double) (m_rowCount - m_nullCount) / distinct / m_rowCount;
+        }
+
+        /**
+         * Estimate the fraction of rows with a value of this column in a range
+         *
+         * @param low  lower bound or {@code null} if unbounded or not known at plan time
+         * @param high upper bound or {@code null} if unbounded or not known at plan time
+         * @return estimated fraction of rows matching, between 0 and 1
+         */
+        public double rangeSelectivity(Double low, Double high) {
+            if (m_rowCount <= 0) {
+                return 0;
+            }
+            if (m_buckets == null || (low == null && high == null)) {
+                return DEFAULT_RANGE_SELECTIVITY;
+            }
+            double lo = low == null ? m_min : Math.max(low, m_min);
+            double hi = high == null ? m_max : Math.min(high, m_max);
+            if (lo > hi) {
+                return 0;
+            }
+            if (m_max == m_min) {
+                return (double) (m_rowCount - m_nullCount) / m_rowCount;
+            }
+
+            double width = (m_max - m_min) / m_buckets.length;
+            double rows = 0;
+            for (int i = 0; i < m_buckets.length; ++i) {
+                double bucketLow = m_min + i * width;
+                double bucketHigh = bucketLow + width;
+                double overlap = Math.min(hi, bucketHigh) - Math.max(lo, bucketLow);
+                if (overlap > 0) {
+                    rows += m_buckets[i] * (overlap / width);
+                }
+            }
+            return Math.min(1.0, rows / m_rowCount);
+        }
+
+        private int bucketOf(double value) {
+            if (value < m_min || value > m_max) {
+                return -1;
+            }
+            if (m_max == m_min) {
+                return 0;
+            }
+            int bucket = (int) ((value - m_min) / (m_max - m_min) * m_buckets.length);
+            return Math.min(bucket, m_buckets.length - 1);
+        }
+
+        private int nonEmptyBuckets() {
+            int count = 0;
+            for (long bucket : m_buckets) {
+                if (bucket > 0) {
+                    ++count;
+                }
+            }
+            return Math.max(1, count);
+        }
+
+        void toJSONString(JSONStringer stringer) throws JSONException {
+            stringer.object();
+            stringer.keySymbolValuePair("name", m_columnName);
+            stringer.keySymbolValuePair("rowCount", m_rowCount);
+            stringer.keySymbolValuePair("distinct", m_distinctValues);
+            stringer.keySymbolValuePair("nulls", m_nullCount);
+            if (m_buckets != null) {
+                stringer.key("min").value(m_min);
+                stringer.key("max").value(m_max);
+                stringer.key("buckets").array();
+                for (long bucket : m_buckets) {
+                    stringer.value(bucket);
+                }
+                stringer.endArray();
+            }
+            stringer.endObject();
+        }
+
+        static ColumnStatistics fromJSONObject(JSONObject jobj) throws JSONException {
+            long[] buckets = null;
+            double min = 0, max = 0;
+            if (jobj.has("buckets")) {
+                JSONArray jbuckets = jobj.getJSONArray("buckets");
+                buckets = new long[jbuckets.length()];
+                for (int i = 0; i < buckets.length; ++i) {
+                    buckets[i] = jbuckets.getLong(i);
+                }
+                min = jobj.getDouble("min");
+                max = jobj.getDouble("max");
+            }
+            return new ColumnStatistics(jobj.getString("name"), jobj.getLong("rowCount"), jobj.getLong("distinct"),
+                    jobj.getLong("nulls"), min, max, buckets);
+        }
+    }
+
+    /**
+     * Builds the statistics of one column from the rows sampled from each partition. Every sample is scaled up by
+     * the ratio of the table row count to the number of rows sampled.
+     * <p>
+     * Distinct values are estimated per partition first. When nearly every sampled value is distinct the column is
+     * treated as unique and the sampled count is scaled up, otherwise the sample is assumed to have seen every value.
+     * Partitions hold disjoint values of the partitioning column and of unique columns so their estimates are
+     * summed. Other values are assumed to repeat across partitions so the largest estimate is used.
+     */
+    public static final class ColumnSampler {
+        // Fraction of sampled values which must be distinct for the column to be treated as unique
+        private static final double UNIQUE_FRACTION = 0.9;
+
+        private final String m_columnName;
+        private final boolean m_partitionColumn;
+        private final int m_histogramBuckets;
+        private long m_sampledRows = 0;
+        private long m_sampledNonNull = 0;
+        private final List<long[]> m_partitionDistinct = new ArrayList<>();
+        private boolean m_distinctKnown = true;
+        private final List<double[]> m_values = new ArrayList<>();
+
+        /**
+         * @param columnName       name of the column
+         * @param partitionColumn  {@code true} if the table is partitioned on this column
+         * @param histogramBuckets number of histogram buckets or {@code 0} for no histogram
+         */
+        public ColumnSampler(String columnName, boolean partitionColumn, int histogramBuckets) {
+            m_columnName = columnName;
+            m_partitionColumn = partitionColumn;
+            m_histogramBuckets = histogramBuckets;
+        }
+
+        public String getColumnName() {
+            return m_columnName;
+        }
+
+        public boolean hasHistogram() {
+            return m_histogramBuckets > 0;
+        }
+
+        /**
+         * Add the sample from one partition
+         *
+         * @param sampledRows number of rows sampled
+         * @param nonNull     number of sampled rows with a non-null value
+         * @param distinct    number of distinct non-null values sampled or {@code -1} if unknown
+         * @param values      non-null values sampled for the histogram or {@code null} if there is no histogram
+         */
+        public void addPartition(long sampledRows, long nonNull, long distinct, double[] values) {
+            m_sampledRows += sampledRows;
+            m_sampledNonNull += nonNull;
+            if (distinct < 0) {
+                m_distinctKnown = false;
+            } else {
+                m_partitionDistinct.add(new long[] { Math.min(distinct, nonNull), nonNull });
+            }
+            if (values != null) {
+                m_values.add(values);
+            }
+        }
+
+        /**
+         * @param rowCount number of rows in the table
+         * @param unique   {@code true} if a unique index on this column alone guarantees the non-null values are
+         *                 distinct
+         * @return statistics of the column scaled up to {@code rowCount} rows
+         */
+        public ColumnStatistics build(long rowCount, boolean unique) {
+            final double scale = m_sampledRows == 0 ? 0 : (double) rowCount / m_sampledRows;
+            final long nonNull = Math.min(rowCount, Math.round(m_sampledNonNull * scale));
+            final long nullCount = rowCount - nonNull;
+
+            long distinct = -1;
+            if (unique) {
+                distinct = nonNull;
+            } else if (m_distinctKnown) {
+                long sum = 0;
+                long max = 0;
+                boolean allUnique = true;
+                for (long[] partition : m_partitionDistinct) {
+                    long estimate = partition[0];
+                    if (partition[0] >= UNIQUE_FRACTION * partition[1]) {
+                        estimate = Math.round(partition[0] * scale);
+                    } else {
+                        allUnique = false;
+                    }
+                    sum += estimate;
+                    max = Math.max(max, estimate);
+                }
+                distinct = Math.min(nonNull, m_partitionColumn || allUnique ? sum : max);
+            }
+
+            if (m_histogramBuckets <= 0 || m_values.isEmpty()) {
+                return new ColumnStatistics(m_columnName, rowCount, distinct, nullCount);
+            }
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double[] values : m_values) {
+                for (double value : values) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            if (min > max) {
+                return new ColumnStatistics(m_columnName, rowCount, distinct, nullCount);
+            }
+            long[] sampled = new long[m_histogramBuckets];
+            for (double[] values : m_values) {
+                for (double value : values) {
+                    int bucket = min == max ? 0 : (int) ((value - min) / (max - min) * m_histogramBuckets);
+                    // The maximum value lands one past the last bucket
+                    ++sampled[Math.min(bucket, m_histogramBuckets - 1)];
+                }
+            }
+            long[] buckets = new long[m_histogramBuckets];
+            for (int i = 0; i < buckets.length; ++i) {
+                buckets[i] = Math.round(sampled[i] * scale);
+            }
+            return new ColumnStatistics(m_columnName, rowCount, distinct, nullCount, min, max, buckets);
+        }
+    }
+}
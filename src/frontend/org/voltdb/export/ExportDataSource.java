@@ -27,8 +27,10 @@ import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
@@ -61,7 +63,6 @@ import org.voltdb.iv2.MpInitiator;
 import org.voltdb.snmp.SnmpTrapSender;
 import org.voltdb.utils.BinaryDequeReader;
 
-import com.google_voltpatches.common.base.Preconditions;
 import com.google_voltpatches.common.base.Throwables;
 import com.google_voltpatches.common.collect.ImmutableList;
 import com.google_voltpatches.common.io.Files;
@@ -128,8 +129,9 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     private final Semaphore m_bufferPushPermits = new Semaphore(16);
 
     private volatile ListeningExecutorService m_es;
-    // A place to keep unfinished export buffer when processor shuts down.
-    private final AtomicReference<AckingContainer> m_pendingContainer = new AtomicReference<>();
+    // A place to keep unfinished export buffers when processor shuts down or when a decoder which keeps
+    // several buffers in flight has to send them again, ordered by start sequence number.
+    private final ConcurrentSkipListMap<Long, AckingContainer> m_pendingContainers = new ConcurrentSkipListMap<>();
     // Is EDS from catalog or from disk pdb?
     private volatile boolean m_isInCatalog;
     private final Generation m_generation;
@@ -420,15 +422,14 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
             return;
         }
 
-        // Check whether a pending container was completely acked
-        AckingContainer pend = m_pendingContainer.get();
-        if (pend != null) {
-            if (releaseSeqNo > pend.m_lastSeqNo) {
+        // Check whether pending containers were completely acked
+        Map.Entry<Long, AckingContainer> pend;
+        while ((pend = m_pendingContainers.firstEntry()) != null && releaseSeqNo > pend.getValue().m_lastSeqNo) {
+            if (m_pendingContainers.remove(pend.getKey(), pend.getValue())) {
                 if (exportLog.isDebugEnabled()) {
-                    exportLog.debug("Discarding via ack a pending " + pend);
+                    exportLog.debug("Discarding via ack a pending " + pend.getValue());
                 }
-                m_pendingContainer.set(null);
-                pend.internalDiscard();
+                pend.getValue().internalDiscard();
             }
         }
 
@@ -869,9 +870,10 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                     }
                     m_pollTask = null;
 
-                    // Discard the pending container, shortcutting the standard discard logic
-                    AckingContainer ack = m_pendingContainer.getAndSet(null);
-                    if (ack != null) {
+                    // Discard the pending containers, shortcutting the standard discard logic
+                    Map.Entry<Long, AckingContainer> pend;
+                    while ((pend = m_pendingContainers.pollFirstEntry()) != null) {
+                        AckingContainer ack = pend.getValue();
                         if (exportLog.isDebugEnabled()) {
                             exportLog.debug("Discard pending container, lastSeqNo: " + ack.getLastSeqNo());
                         }
@@ -923,15 +925,47 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         VoltDB.getExportManager().onClosedSource(m_tableName, m_partitionId);
     }
 
-    // Needs to be thread-safe, EDS executor, export decoder and site thread both touch m_pendingContainer.
+    // Needs to be thread-safe, EDS executor, export decoder and site thread both touch m_pendingContainers.
+    // Pending containers are polled again in sequence number order before any unpolled buffer.
     public void setPendingContainer(AckingContainer container) {
-        Preconditions.checkNotNull(m_pendingContainer.get() != null, "Pending container must be null.");
         if (m_closed) {
             // A very slow export decoder must have noticed the export processor shutting down
             exportLog.info("Discarding stale pending container");
             container.internalDiscard();
         } else {
-            m_pendingContainer.set(container);
+            AckingContainer previous = m_pendingContainers.put(container.m_startSeqNo, container);
+            if (previous != null && previous != container) {
+                // The same buffer was polled twice, only one copy needs to be exported again
+                previous.internalDiscard();
+            }
+        }
+    }
+
+    /**
+     * Return containers which were polled but not acknowledged so that they are polled again, in order, before any
+     * unpolled buffer. Used by decoders which keep several buffers in flight when one of them has to be sent again.
+     *
+     * @param containers polled containers with their buffers positioned at the first row
+     */
+    public void repollContainers(List<AckingContainer> containers) {
+        try {
+            m_es.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (AckingContainer container : containers) {
+                        setPendingContainer(container);
+                    }
+                    // Satisfy a poll which is waiting for new buffers
+                    if (m_pollTask != null) {
+                        pollImpl(m_pollTask);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException rej) {
+            exportLog.info("Discarding containers to repoll from a closed source");
+            for (AckingContainer container : containers) {
+                container.internalDiscard();
+            }
         }
     }
 
@@ -1018,10 +1052,11 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
      */
     private boolean pollPendingContainer(PollTask pollTask) {
 
-        AckingContainer cont = m_pendingContainer.getAndSet(null);
-        if (cont == null) {
+        Map.Entry<Long, AckingContainer> pend = m_pendingContainers.pollFirstEntry();
+        if (pend == null) {
             return false;
         }
+        AckingContainer cont = pend.getValue();
 
         try {
             // The pending container satisfies the poll
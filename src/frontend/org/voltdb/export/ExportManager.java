@@ -53,6 +53,7 @@ import org.voltdb.client.ProcedureCallback;
 import org.voltdb.export.ExportDataSource.StreamStartAction;
 import org.voltdb.iv2.MpInitiator;
 import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.PbdGroupCommitScheduler;
 
 import com.google_voltpatches.common.base.Preconditions;
 import com.google_voltpatches.common.collect.HashMultimap;
@@ -516,6 +517,8 @@ public class ExportManager implements ExportManagerInterface
         if (generation != null) {
             generation.shutdown();
         }
+        // The stream PBDs were closed by the generation
+        PbdGroupCommitScheduler.shutdownInstance();
         ExportDataProcessor proc = m_processor.getAndSet(null);
         if (proc != null) {
             proc.shutdown();
@@ -37,6 +37,8 @@ import org.voltdb.utils.BinaryDeque.BinaryDequeTruncator;
 import org.voltdb.utils.BinaryDeque.BinaryDequeValidator;
 import org.voltdb.utils.BinaryDeque.TruncatorResponse;
 import org.voltdb.utils.BinaryDequeReader;
+import org.voltdb.utils.CompressionCodec;
+import org.voltdb.utils.PbdGroupCommitScheduler;
 import org.voltdb.utils.PersistentBinaryDeque;
 import org.voltdb.utils.PersistentBinaryDeque.ByteBufferTruncatorResponse;
 
@@ -80,6 +82,9 @@ public class StreamBlockQueue {
 
     public static final String EXPORT_DISABLE_COMPRESSION_OPTION = "EXPORT_DISABLE_COMPRESSION";
     private static final boolean DISABLE_COMPRESSION = Boolean.getBoolean(EXPORT_DISABLE_COMPRESSION_OPTION);
+    public static final String EXPORT_COMPRESSION_CODEC_OPTION = "EXPORT_COMPRESSION_CODEC";
+    private static final CompressionCodec COMPRESSION_CODEC = DISABLE_COMPRESSION ? null
+            : CompressionCodec.fromProperty(EXPORT_COMPRESSION_CODEC_OPTION, CompressionCodec.SNAPPY);
 
     /**
      * Deque containing reference to stream blocks that are in memory. Some of these
@@ -425,8 +430,9 @@ public class StreamBlockQueue {
 
         m_persistentDeque = PersistentBinaryDeque.builder(m_nonce, new File(m_path), exportLog)
                 .initialExtraHeader(metadata, serializer)
-                .compression(!DISABLE_COMPRESSION)
+                .compression(COMPRESSION_CODEC)
                 .deleteExisting(deleteExisting)
+                .groupCommit(PbdGroupCommitScheduler.instance())
                 .build();
 
         m_reader = m_persistentDeque.openForRead(m_nonce);
@@ -45,9 +45,11 @@ import org.voltdb.exportclient.ExportClientBase;
 import org.voltdb.exportclient.ExportDecoderBase;
 import org.voltdb.exportclient.ExportDecoderBase.RestartBlockException;
 import org.voltdb.exportclient.ExportRow;
+import org.voltdb.exportclient.ExportRowBatch;
 import org.voltdb.exportclient.ExportRowSchema;
 
 import com.google_voltpatches.common.base.Preconditions;
+import com.google_voltpatches.common.util.concurrent.Futures;
 import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 
 public class GuestProcessor implements ExportDataProcessor {
@@ -62,6 +64,8 @@ public class GuestProcessor implements ExportDataProcessor {
     private Map<String, String> m_targetsByTableName = new HashMap<>();
 
     private final List<Pair<ExportDecoderBase, AdvertisedDataSource>> m_decoders = new ArrayList<Pair<ExportDecoderBase, AdvertisedDataSource>>();
+    // Blocks sent by decoders which keep several blocks in flight
+    private final List<InFlightBlocks> m_inFlightBlocks = new ArrayList<>();
 
     private volatile boolean m_startPolling = false;
 
@@ -201,8 +205,13 @@ public class GuestProcessor implements ExportDataProcessor {
             final ExportDecoderBase edb = m_client.constructExportDecoder(ads);
             Pair<ExportDecoderBase, AdvertisedDataSource> pair = Pair.of(edb, ads);
             m_decoders.add(pair);
+            InFlightBlocks inFlight = null;
+            if (edb.getMaxInFlightBytes() > 0) {
+                inFlight = new InFlightBlocks(m_source, edb);
+                m_inFlightBlocks.add(inFlight);
+            }
             final ListenableFuture<AckingContainer> fut = m_source.poll();
-            addBlockListener(m_source, fut, edb);
+            addBlockListener(m_source, fut, edb, inFlight);
         }
 
         // This runnable executes the starting sequence on the {@code ExportDataSource}
@@ -305,12 +314,16 @@ public class GuestProcessor implements ExportDataProcessor {
     private void addBlockListener(
             final ExportDataSource source,
             final ListenableFuture<AckingContainer> fut,
-            final ExportDecoderBase edb) {
+            final ExportDecoderBase edb,
+            final InFlightBlocks inFlight) {
         /*
          * The listener runs in the thread specified by the EDB.
          *
          * For JDBC we want a dedicated thread to block on calls to the remote database
          * so the data source thread can overflow data to disk.
+         *
+         * If the EDB keeps blocks in flight the block is handed to inFlight once it has been sent,
+         * and acknowledged when the EDB and all blocks before it have been acknowledged.
          */
 
         if (fut == null) {
@@ -340,12 +353,17 @@ public class GuestProcessor implements ExportDataProcessor {
                         // Extract the sp handle of the last committed row in the block, if present
                         long committedTxnId = 0L;
 
+                        if (inFlight != null && !inFlight.accept(cont, startPosition)) {
+                            // Returned to the source until blocks which failed before it have been sent again
+                            cont = null;
+                        }
+
                         /*
                          * If there is an error processing the block the decoder thinks is recoverable
                          * start the block from the beginning and repeat until it is processed.
                          * Also allow the decoder to request exponential backoff
                          */
-                        while (!m_shutdown) {
+                        while (cont != null && !m_shutdown) {
                             try {
                                 final ByteBuffer buf = cont.b();
                                 buf.position(startPosition);
@@ -357,41 +375,61 @@ public class GuestProcessor implements ExportDataProcessor {
                                     EXPORTLOG.debug("Processing " + cont + " on " + source);
                                     start = System.nanoTime();
                                 }
-                                while (buf.hasRemaining() && !m_shutdown) {
-                                    int length = buf.getInt();
-                                    byte[] rowdata = new byte[length];
-                                    buf.get(rowdata, 0, length);
-
+                                if (edb.isBatchDecoder()) {
+                                    ExportRowBatch batch = null;
                                     try {
                                         cont.updateStartTime(System.currentTimeMillis());
-                                        ExportRow schema = edb.getExportRowSchema();
-                                        if (schema == null || schema.generation != cont.getSchema().generation) {
-                                            // Note {@code ExportRowSchema} is a special {@code ExportRow}
-                                            ExportRowSchema newSchema = cont.getSchema();
-                                            if (EXPORTLOG.isDebugEnabled()) {
-                                                EXPORTLOG.debug("Set schema to: " + newSchema);
-                                            }
-                                            edb.setExportRowSchema(newSchema);
-                                        }
-                                        row = ExportRow.decodeRow(edb.getExportRowSchema(), source.getPartitionId(),
-                                                rowdata);
+                                        updateSchema(edb, cont);
+                                        batch = new ExportRowBatch(edb.getExportRowSchema(), source.getPartitionId(),
+                                                buf);
                                     } catch (IOException ioe) {
-                                        EXPORTLOG.warn("Failed decoding row for partition " + source.getPartitionId()
+                                        EXPORTLOG.warn("Failed decoding block for partition " + source.getPartitionId()
                                                 + ". " + ioe.getMessage());
-                                        cont.discard();
+                                        discard(cont, startPosition, inFlight);
                                         cont = null;
-                                        break;
                                     }
-                                    if (firstRowOfBlock) {
-                                        edb.onBlockStart(row);
-                                        firstRowOfBlock = false;
+                                    if (batch != null && batch.getRowCount() > 0) {
+                                        edb.onBlockStart(batch.getRow(0));
+                                        edb.processBatch(batch);
+                                        row = batch.getRow(batch.getRowCount() - 1);
+                                        if (committedTxnId == 0) {
+                                            committedTxnId = extractCommittedTxnId(batch, cont.getCommittedSeqNo());
+                                        }
                                     }
-                                    edb.processRow(row);
-                                    if (committedTxnId == 0) {
-                                        committedTxnId = extractCommittedTxnId(row, cont.getCommittedSeqNo());
+                                } else {
+                                    while (buf.hasRemaining() && !m_shutdown) {
+                                        int length = buf.getInt();
+                                        byte[] rowdata = new byte[length];
+                                        buf.get(rowdata, 0, length);
+
+                                        try {
+                                            cont.updateStartTime(System.currentTimeMillis());
+                                            updateSchema(edb, cont);
+                                            row = ExportRow.decodeRow(edb.getExportRowSchema(), source.getPartitionId(),
+                                                    rowdata);
+                                        } catch (IOException ioe) {
+                                            EXPORTLOG.warn("Failed decoding row for partition "
+                                                    + source.getPartitionId() + ". " + ioe.getMessage());
+                                            discard(cont, startPosition, inFlight);
+                                            cont = null;
+                                            break;
+                                        }
+                                        if (firstRowOfBlock) {
+                                            edb.onBlockStart(row);
+                                            firstRowOfBlock = false;
+                                        }
+                                        edb.processRow(row);
+                                        if (committedTxnId == 0) {
+                                            committedTxnId = extractCommittedTxnId(row, cont.getCommittedSeqNo());
+                                        }
                                     }
                                 }
-                                if (row != null) {
+                                ListenableFuture<?> acked = null;
+                                if (inFlight != null) {
+                                    if (cont != null) {
+                                        acked = row == null ? Futures.immediateFuture(null) : edb.onBlockSent(row);
+                                    }
+                                } else if (row != null) {
                                     edb.onBlockCompletion(row);
                                 }
                                 if (EXPORTLOG.isDebugEnabled()) {
@@ -414,7 +452,11 @@ public class GuestProcessor implements ExportDataProcessor {
                                         // record its sp handle
                                         cont.setCommittedTxnId(committedTxnId);
                                     }
-                                    cont.discard();
+                                    if (acked != null) {
+                                        inFlight.add(cont, startPosition, acked);
+                                    } else {
+                                        cont.discard();
+                                    }
                                     cont = null;
                                 }
                                 break;
@@ -437,6 +479,11 @@ public class GuestProcessor implements ExportDataProcessor {
                                 }
                             }
                         }
+                        if (inFlight != null && !m_shutdown) {
+                            // Bound the bytes in flight and send failed blocks again before polling the next block
+                            inFlight.awaitCapacity(edb.getMaxInFlightBytes());
+                            inFlight.repollFailed();
+                        }
                         //Don't discard the block also set the start position to the beginning.
                         if (m_shutdown && cont != null) {
                             if (EXPORTLOG.isDebugEnabled()) {
@@ -468,12 +515,33 @@ public class GuestProcessor implements ExportDataProcessor {
                     }
                 }
                 if (!m_shutdown) {
-                    addBlockListener(source, source.poll(), edb);
+                    addBlockListener(source, source.poll(), edb, inFlight);
                 }
             }
         }, edb.getExecutor());
     }
 
+    // Acknowledge a container which could not be decoded, in order with the blocks in flight if there are any
+    private static void discard(AckingContainer cont, int startPosition, InFlightBlocks inFlight) {
+        if (inFlight == null) {
+            cont.discard();
+        } else {
+            inFlight.add(cont, startPosition, Futures.immediateFuture(null));
+        }
+    }
+
+    private static void updateSchema(ExportDecoderBase edb, AckingContainer cont) {
+        ExportRow schema = edb.getExportRowSchema();
+        if (schema == null || schema.generation != cont.getSchema().generation) {
+            // Note {@code ExportRowSchema} is a special {@code ExportRow}
+            ExportRowSchema newSchema = cont.getSchema();
+            if (EXPORTLOG.isDebugEnabled()) {
+                EXPORTLOG.debug("Set schema to: " + newSchema);
+            }
+            edb.setExportRowSchema(newSchema);
+        }
+    }
+
     /**
      * If the row is the last committed row, return the SpHandle, otherwise return 0
      *
@@ -498,6 +566,22 @@ public class GuestProcessor implements ExportDataProcessor {
         return ret;
     }
 
+    /**
+     * If the batch contains the last committed row, return its SpHandle, otherwise return 0
+     */
+    private long extractCommittedTxnId(ExportRowBatch batch, long committedSeqNo) {
+        if (committedSeqNo == ExportDataSource.NULL_COMMITTED_SEQNO) {
+            return 0;
+        }
+        long[] seqNos = batch.getLongColumn(ExportRow.SEQUENCE_NUMBER_COLUMN);
+        for (int i = 0; i < seqNos.length; ++i) {
+            if (seqNos[i] == committedSeqNo) {
+                return batch.getLong(i, 0);
+            }
+        }
+        return 0;
+    }
+
     @Override
     public void shutdown() {
         synchronized (this) {
@@ -526,6 +610,13 @@ public class GuestProcessor implements ExportDataProcessor {
             }
         }
         m_decoders.clear();
+        synchronized (this) {
+            // Blocks which have not been acknowledged are polled again by the next processor
+            for (InFlightBlocks inFlight : m_inFlightBlocks) {
+                inFlight.close();
+            }
+            m_inFlightBlocks.clear();
+        }
         for (ExportClientBase client : m_clientsByTarget.values()) {
             client.shutdown();
         }
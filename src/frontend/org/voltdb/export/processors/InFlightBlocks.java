@@ -0,0 +1,265 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.export.processors;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.export.AckingContainer;
+import org.voltdb.export.ExportDataSource;
+import org.voltdb.exportclient.ExportDecoderBase;
+import org.voltdb.exportclient.ExportDecoderBase.RestartBlockException;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
+/**
+ * Blocks which were sent by a decoder which keeps several blocks in flight, see
+ * {@link ExportDecoderBase#getMaxInFlightBytes()}.
+ * <p>
+ * Blocks are acknowledged to the export stream in the order they were sent once they and all of the blocks before them
+ * have been acknowledged by the decoder. When a block fails it and all of the blocks after it are returned to the
+ * {@link ExportDataSource} so that they are polled and sent again in order before any new block.
+ */
+class InFlightBlocks {
+    private static final VoltLogger EXPORTLOG = new VoltLogger("EXPORT");
+
+    private final ExportDataSource m_source;
+    private final ExportDecoderBase m_decoder;
+    private final ArrayDeque<Block> m_blocks = new ArrayDeque<>();
+    // Containers returned to the source which have not been polled again yet
+    private final Set<AckingContainer> m_repolled = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Container returned to the source because it was polled before the containers in m_repolled
+    private AckingContainer m_deferred;
+    private long m_bytes = 0;
+    private boolean m_repollScheduled = false;
+    private boolean m_closed = false;
+    // Amount of backoff to use before sending failed blocks again, grows on repeated failures
+    private int m_backoffQuantity = 0;
+
+    private static final class Block {
+        final AckingContainer m_cont;
+        final int m_startPosition;
+        final int m_size;
+        final ListenableFuture<?> m_acked;
+
+        Block(AckingContainer cont, int startPosition, ListenableFuture<?> acked) {
+            m_cont = cont;
+            m_startPosition = startPosition;
+            m_size = cont.b().limit() - startPosition;
+            m_acked = acked;
+        }
+
+        // Only valid once m_acked is done
+        Throwable getFailure() {
+            try {
+                Futures.getDone(m_acked);
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (CancellationException e) {
+                return e;
+            }
+        }
+
+        boolean hasFailed() {
+            return m_acked.isDone() && getFailure() != null;
+        }
+    }
+
+    InFlightBlocks(ExportDataSource source, ExportDecoderBase decoder) {
+        m_source = source;
+        m_decoder = decoder;
+    }
+
+    /**
+     * Check whether a polled container can be processed now. A container which was polled before the blocks that
+     * failed were returned to the source has to wait until they have been sent again.
+     *
+     * @param cont          polled container
+     * @param startPosition position of the first row in the container
+     * @return {@code true} if {@code cont} can be processed, {@code false} if it was returned to the source
+     */
+    synchronized boolean accept(AckingContainer cont, int startPosition) {
+        if (m_repolled.remove(cont) || m_repolled.isEmpty()) {
+            return true;
+        }
+        if (cont == m_deferred) {
+            // Nothing was polled before it again so the returned containers were acknowledged by another replica
+            m_deferred = null;
+            m_repolled.clear();
+            return true;
+        }
+        if (EXPORTLOG.isDebugEnabled()) {
+            EXPORTLOG.debug("Deferring " + cont + " until failed blocks have been sent again on " + m_source);
+        }
+        m_deferred = cont;
+        cont.b().position(startPosition);
+        m_source.repollContainers(Collections.singletonList(cont));
+        return false;
+    }
+
+    /**
+     * Add a block which is acknowledged once {@code acked} and the futures of all blocks added before it complete
+     *
+     * @param cont          container of the block
+     * @param startPosition position of the first row in the container
+     * @param acked         future returned by {@link ExportDecoderBase#onBlockSent(org.voltdb.exportclient.ExportRow)}
+     */
+    void add(AckingContainer cont, int startPosition, ListenableFuture<?> acked) {
+        Block block = new Block(cont, startPosition, acked);
+        synchronized (this) {
+            if (m_closed) {
+                repoll(Collections.singletonList(block));
+                return;
+            }
+            m_blocks.add(block);
+            m_bytes += block.m_size;
+        }
+        acked.addListener(this::acknowledge, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Wait until there are at most {@code maxBytes} in flight, the oldest block failed or this was closed
+     */
+    synchronized void awaitCapacity(long maxBytes) throws InterruptedException {
+        while (m_bytes > maxBytes && !m_closed && !headFailed()) {
+            wait();
+        }
+    }
+
+    /**
+     * If the oldest block failed return it and all of the blocks after it to the source so that they are polled
+     * again. Must be called from the decoder's executor so that failed blocks are not interleaved with the block which
+     * is being processed.
+     */
+    void repollFailed() throws InterruptedException {
+        List<Block> failed;
+        Throwable failure;
+        int backoff = 0;
+        synchronized (this) {
+            m_repollScheduled = false;
+            if (m_closed || !headFailed()) {
+                return;
+            }
+            failure = m_blocks.peek().getFailure();
+            failed = new ArrayList<>(m_blocks);
+            m_blocks.clear();
+            m_bytes = 0;
+            if (failure instanceof RestartBlockException && ((RestartBlockException) failure).requestBackoff) {
+                // Same backoff as when a block is restarted by GuestProcessor: capped at 8 seconds
+                if (m_backoffQuantity == 0) {
+                    m_backoffQuantity = 10 + (int) (10 * ThreadLocalRandom.current().nextDouble());
+                } else if (m_backoffQuantity < 8000) {
+                    m_backoffQuantity += (m_backoffQuantity * .5);
+                    m_backoffQuantity += (m_backoffQuantity * .5 * ThreadLocalRandom.current().nextDouble());
+                }
+                backoff = m_backoffQuantity;
+            }
+            notifyAll();
+        }
+        EXPORTLOG.warn("Sending " + failed.size() + " export blocks again on " + m_source + " after failure: "
+                + failure);
+        if (backoff > 0) {
+            Thread.sleep(backoff);
+        }
+        synchronized (this) {
+            if (!m_closed) {
+                for (Block block : failed) {
+                    m_repolled.add(block.m_cont);
+                }
+            }
+        }
+        repoll(failed);
+    }
+
+    /**
+     * Return all blocks in flight to the source, called when the processor shuts down
+     */
+    void close() {
+        List<Block> blocks;
+        synchronized (this) {
+            m_closed = true;
+            blocks = new ArrayList<>(m_blocks);
+            m_blocks.clear();
+            m_bytes = 0;
+            notifyAll();
+        }
+        if (!blocks.isEmpty()) {
+            repoll(blocks);
+        }
+    }
+
+    private boolean headFailed() {
+        Block head = m_blocks.peek();
+        return head != null && head.hasFailed();
+    }
+
+    // Discard acknowledged blocks from the head of the queue
+    private void acknowledge() {
+        synchronized (this) {
+            Block head;
+            while ((head = m_blocks.peek()) != null && head.m_acked.isDone() && head.getFailure() == null) {
+                m_blocks.poll();
+                m_bytes -= head.m_size;
+                m_backoffQuantity = 0;
+                // Discarded while holding the lock so blocks are acknowledged to the stream in order
+                head.m_cont.discard();
+            }
+            notifyAll();
+            if (m_closed || m_repollScheduled || !headFailed()) {
+                return;
+            }
+            m_repollScheduled = true;
+        }
+        // The decoder may be idle waiting for a new block, so send the failed blocks again from its executor
+        try {
+            m_decoder.getExecutor().execute(() -> {
+                try {
+                    repollFailed();
+                } catch (InterruptedException e) {
+                    EXPORTLOG.warn("Interrupted sending export blocks again on " + m_source);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The decoder was shut down, close() will return the blocks to the source
+            if (EXPORTLOG.isDebugEnabled()) {
+                EXPORTLOG.debug("Decoder shut down before failed blocks were sent again on " + m_source);
+            }
+        }
+    }
+
+    private void repoll(List<Block> blocks) {
+        List<AckingContainer> containers = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            block.m_cont.b().position(block.m_startPosition);
+            containers.add(block.m_cont);
+        }
+        m_source.repollContainers(containers);
+    }
+}
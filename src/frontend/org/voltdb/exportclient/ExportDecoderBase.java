@@ -21,6 +21,7 @@ package org.voltdb.exportclient;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.export.AdvertisedDataSource;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 
 
@@ -33,6 +34,9 @@ public abstract class ExportDecoderBase {
     public static final int INTERNAL_FIELD_COUNT = ExportRow.INTERNAL_FIELD_COUNT;
     public static final int PARTITION_ID_INDEX = 3;
 
+    // Set to fall back to row at a time decoding for decoders which support batches
+    private static final boolean DISABLE_BATCH_DECODING = Boolean.getBoolean("DISABLE_EXPORT_BATCH_DECODING");
+
     // Default executor service, using a thread terminating after 1s keepAlive
     private static final ListeningExecutorService DEFAULT_EXECUTOR = CoreUtils.getCachedSingleThreadExecutor(
             "Default Export Decoder thread", 1000);
@@ -113,6 +117,39 @@ public abstract class ExportDecoderBase {
         throw new UnsupportedOperationException("processRow must be implemented.");
     }
 
+    /**
+     * Whether this decoder processes whole blocks with {@link #processBatch(ExportRowBatch)} instead of calling
+     * {@link #processRow(ExportRow)} for each row. Decoders which override {@code processBatch} should return
+     * {@link #isBatchDecodingEnabled()}.
+     *
+     * @return {@code true} if {@link #processBatch(ExportRowBatch)} should be called
+     */
+    public boolean isBatchDecoder() {
+        return false;
+    }
+
+    /**
+     * @return {@code false} if batch decoding has been disabled with the system property
+     *         {@code DISABLE_EXPORT_BATCH_DECODING}
+     */
+    public static boolean isBatchDecodingEnabled() {
+        return !DISABLE_BATCH_DECODING;
+    }
+
+    /**
+     * Process all of the rows in a block from the Export stream. Only called if {@link #isBatchDecoder()} returns
+     * {@code true}. {@link #onBlockStart(ExportRow)} is called before and {@link #onBlockCompletion(ExportRow)} after
+     * this method.
+     * <p>
+     * The batch refers to the block so it must not be used after this method returns.
+     *
+     * @param batch all of the rows in the block
+     * @throws org.voltdb.exportclient.ExportDecoderBase.RestartBlockException
+     */
+    public void processBatch(ExportRowBatch batch) throws RestartBlockException {
+        throw new UnsupportedOperationException("processBatch must be implemented.");
+    }
+
     abstract public void sourceNoLongerAdvertised(AdvertisedDataSource source);
 
     /**
@@ -124,6 +161,33 @@ public abstract class ExportDecoderBase {
     public void onBlockCompletion(ExportRow row) throws RestartBlockException {
     }
 
+    /**
+     * Maximum number of bytes of blocks which may have been sent by this decoder without being acknowledged. When this
+     * is greater than 0 {@link #onBlockSent(ExportRow)} is called instead of {@link #onBlockCompletion(ExportRow)} and
+     * the next block is processed without waiting for the previous blocks to be acknowledged.
+     *
+     * @return maximum number of bytes in flight or 0 if each block must complete before the next one is processed
+     */
+    public long getMaxInFlightBytes() {
+        return 0;
+    }
+
+    /**
+     * Finalize operation upon block completion for decoders which keep several blocks in flight. Only called if
+     * {@link #getMaxInFlightBytes()} is greater than 0.
+     * <p>
+     * Blocks are acknowledged to the export stream in order once the returned futures complete. If a future fails the
+     * block and all of the blocks sent after it are processed again, with a backoff if the failure is a
+     * {@link RestartBlockException} which requests one.
+     *
+     * @param row The last row for the block
+     * @return future which completes once all rows of the block have been acknowledged by the target
+     * @throws org.voltdb.exportclient.ExportDecoderBase.RestartBlockException
+     */
+    public ListenableFuture<?> onBlockSent(ExportRow row) throws RestartBlockException {
+        throw new UnsupportedOperationException("onBlockSent must be implemented.");
+    }
+
     /**
      * Notify that a new block of data is going to be processed now
      * @param row first row of the block.
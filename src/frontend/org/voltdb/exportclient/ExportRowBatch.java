@@ -0,0 +1,412 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.exportclient;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.voltdb.VoltType;
+import org.voltdb.compiler.DDLCompiler;
+import org.voltdb.exportclient.ExportRow.ROW_OPERATION;
+import org.voltdb.types.TimestampType;
+
+/**
+ * A column oriented view of all of the rows in an export block.
+ * <p>
+ * The rows are not copied out of the block. When the batch is created the block is scanned once to find the offset
+ * of every column value. Values are only decoded when a column is requested, and then a whole column at a time:
+ * <ul>
+ * <li>TINYINT, SMALLINT, INTEGER, BIGINT and TIMESTAMP columns are decoded into a {@code long[]}. Timestamps are in
+ * microseconds.</li>
+ * <li>FLOAT columns are decoded into a {@code double[]}.</li>
+ * <li>VARCHAR and VARBINARY values are byte slices of the block which can be read with {@link #getValueOffset(int,
+ * int)} and {@link #getValueLength(int, int)} or decoded with {@link #getString(int, int)} and
+ * {@link #getBytes(int, int)}.</li>
+ * <li>All other types are decoded to the same objects as {@link ExportRow#values} by {@link #getObject(int, int)}.</li>
+ * </ul>
+ * A batch refers to the buffer of the block so it is only valid until the decoder returns from
+ * {@link ExportDecoderBase#processBatch(ExportRowBatch)}.
+ */
+public class ExportRowBatch {
+    // Marks a null value in m_valueOffsets
+    private static final int NULL_OFFSET = -1;
+
+    private final ExportRow m_schema;
+    private final int m_partitionId;
+    private final ByteBuffer m_buffer;
+    private final int m_rowCount;
+    private final int m_columnCount;
+    private final int m_partitionColIndex;
+    // Offset of each value in m_buffer, indexed by row * m_columnCount + column
+    private final int[] m_valueOffsets;
+
+    // Lazily decoded columns
+    private final long[][] m_longColumns;
+    private final double[][] m_doubleColumns;
+    private final Object[][] m_objectColumns;
+
+    /**
+     * Index all of the rows in {@code buffer} from its position to its limit
+     *
+     * @param schema      schema of the rows in the block
+     * @param partitionId partition which produced the block
+     * @param buffer      block data which is a sequence of length prefixed rows
+     * @throws IOException If the rows do not match the schema
+     */
+    public ExportRowBatch(ExportRow schema, int partitionId, ByteBuffer buffer) throws IOException {
+        if (schema == null) {
+            throw new IOException("Export block with no schema found without prior block with schema.");
+        }
+        m_schema = schema;
+        m_partitionId = partitionId;
+        m_buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        m_columnCount = schema.types.size();
+
+        int rowCount = 0;
+        for (int position = m_buffer.position(); position < m_buffer.limit(); ++rowCount) {
+            position += Integer.BYTES + m_buffer.getInt(position);
+        }
+        m_rowCount = rowCount;
+        m_valueOffsets = new int[m_rowCount * m_columnCount];
+        m_partitionColIndex = indexRows();
+
+        m_longColumns = new long[m_columnCount][];
+        m_doubleColumns = new double[m_columnCount][];
+        m_objectColumns = new Object[m_columnCount][];
+    }
+
+    // Find the offset of every value without decoding it. Returns the partition column index
+    private int indexRows() throws IOException {
+        VoltType[] types = m_schema.types.toArray(new VoltType[m_columnCount]);
+        int nullBytes = ((m_columnCount + 7) & -8) >> 3;
+        int partitionColIndex = -1;
+        int position = m_buffer.position();
+        for (int row = 0; row < m_rowCount; ++row) {
+            int rowEnd = position + Integer.BYTES + m_buffer.getInt(position);
+            position += Integer.BYTES;
+            partitionColIndex = m_buffer.getInt(position);
+            int columnCount = m_buffer.getInt(position + Integer.BYTES);
+            assert (columnCount <= DDLCompiler.MAX_COLUMNS);
+            if (columnCount != m_columnCount) {
+                throw new IOException(String.format("Read %d columns from row but expected %d columns: %s",
+                        columnCount, m_columnCount, m_schema));
+            }
+            int nullFlags = position + 2 * Integer.BYTES;
+            position = nullFlags + nullBytes;
+
+            int index = row * m_columnCount;
+            for (int column = 0; column < m_columnCount; ++column, ++index) {
+                // Null flags are one bit per column, 0x80 >> (column % 8) of byte column / 8
+                if ((m_buffer.get(nullFlags + (column >> 3)) & (0x80 >>> (column & 7))) != 0) {
+                    m_valueOffsets[index] = NULL_OFFSET;
+                    continue;
+                }
+                m_valueOffsets[index] = position;
+                position += valueSize(types[column], position);
+            }
+            if (position != rowEnd) {
+                throw new IOException("Row " + row + " of export block does not match the schema " + m_schema);
+            }
+        }
+        return partitionColIndex;
+    }
+
+    private int valueSize(VoltType type, int position) throws IOException {
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case FLOAT:
+        case TIMESTAMP:
+        case GEOGRAPHY_POINT:
+            return type.getLengthInBytesForFixedTypesWithoutCheck();
+        case STRING:
+        case VARBINARY:
+        case GEOGRAPHY:
+            return Integer.BYTES + m_buffer.getInt(position);
+        case DECIMAL:
+            // scale, precision bytes and then the unscaled value
+            return 2 + m_buffer.get(position + 1);
+        default:
+            throw new IOException("Invalid column type: " + type);
+        }
+    }
+
+    public ExportRow getSchema() {
+        return m_schema;
+    }
+
+    public String getTableName() {
+        return m_schema.tableName;
+    }
+
+    public long getGeneration() {
+        return m_schema.generation;
+    }
+
+    public List<String> getColumnNames() {
+        return m_schema.names;
+    }
+
+    public List<VoltType> getColumnTypes() {
+        return m_schema.types;
+    }
+
+    public int getPartitionId() {
+        return m_partitionId;
+    }
+
+    public int getRowCount() {
+        return m_rowCount;
+    }
+
+    public int getColumnCount() {
+        return m_columnCount;
+    }
+
+    public int getPartitionColumnIndex() {
+        return m_partitionColIndex;
+    }
+
+    /**
+     * @return the buffer which holds the values of this batch. Its position and limit must not be changed
+     */
+    public ByteBuffer getBuffer() {
+        return m_buffer;
+    }
+
+    public boolean isNull(int row, int column) {
+        return m_valueOffsets[row * m_columnCount + column] == NULL_OFFSET;
+    }
+
+    /**
+     * @return the offset in {@link #getBuffer()} of the first byte of a variable length value, after its length, or
+     *         {@code -1} if the value is null
+     */
+    public int getValueOffset(int row, int column) {
+        int offset = m_valueOffsets[row * m_columnCount + column];
+        return offset == NULL_OFFSET ? NULL_OFFSET : offset + Integer.BYTES;
+    }
+
+    /**
+     * @return the length of a variable length value or {@code -1} if the value is null
+     */
+    public int getValueLength(int row, int column) {
+        int offset = m_valueOffsets[row * m_columnCount + column];
+        return offset == NULL_OFFSET ? NULL_OFFSET : m_buffer.getInt(offset);
+    }
+
+    /**
+     * Decode an integer or timestamp column. Null values are 0 and must be checked with {@link #isNull(int, int)}
+     *
+     * @return the values of {@code column} for every row
+     */
+    public long[] getLongColumn(int column) {
+        long[] values = m_longColumns[column];
+        if (values == null) {
+            VoltType type = m_schema.types.get(column);
+            values = new long[m_rowCount];
+            for (int row = 0, index = column; row < m_rowCount; ++row, index += m_columnCount) {
+                int offset = m_valueOffsets[index];
+                if (offset == NULL_OFFSET) {
+                    continue;
+                }
+                switch (type) {
+                case TINYINT:
+                    values[row] = m_buffer.get(offset);
+                    break;
+                case SMALLINT:
+                    values[row] = m_buffer.getShort(offset);
+                    break;
+                case INTEGER:
+                    values[row] = m_buffer.getInt(offset);
+                    break;
+                case BIGINT:
+                case TIMESTAMP:
+                    values[row] = m_buffer.getLong(offset);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Column " + column + " of type " + type + " is not an integer");
+                }
+            }
+            m_longColumns[column] = values;
+        }
+        return values;
+    }
+
+    /**
+     * Decode a float column. Null values are 0 and must be checked with {@link #isNull(int, int)}
+     *
+     * @return the values of {@code column} for every row
+     */
+    public double[] getDoubleColumn(int column) {
+        double[] values = m_doubleColumns[column];
+        if (values == null) {
+            VoltType type = m_schema.types.get(column);
+            if (type != VoltType.FLOAT) {
+                throw new IllegalArgumentException("Column " + column + " of type " + type + " is not a float");
+            }
+            values = new double[m_rowCount];
+            for (int row = 0, index = column; row < m_rowCount; ++row, index += m_columnCount) {
+                int offset = m_valueOffsets[index];
+                if (offset != NULL_OFFSET) {
+                    values[row] = m_buffer.getDouble(offset);
+                }
+            }
+            m_doubleColumns[column] = values;
+        }
+        return values;
+    }
+
+    public long getLong(int row, int column) {
+        return getLongColumn(column)[row];
+    }
+
+    public double getDouble(int row, int column) {
+        return getDoubleColumn(column)[row];
+    }
+
+    /**
+     * @return a VARCHAR value or {@code null}
+     */
+    public String getString(int row, int column) {
+        int offset = getValueOffset(row, column);
+        if (offset == NULL_OFFSET) {
+            return null;
+        }
+        int length = getValueLength(row, column);
+        if (m_buffer.hasArray()) {
+            return new String(m_buffer.array(), m_buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        copyValue(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a copy of a VARCHAR or VARBINARY value or {@code null}
+     */
+    public byte[] getBytes(int row, int column) {
+        int offset = getValueOffset(row, column);
+        if (offset == NULL_OFFSET) {
+            return null;
+        }
+        byte[] bytes = new byte[getValueLength(row, column)];
+        copyValue(offset, bytes);
+        return bytes;
+    }
+
+    private void copyValue(int offset, byte[] to) {
+        ByteBuffer value = m_buffer.duplicate();
+        value.position(offset);
+        value.get(to);
+    }
+
+    /**
+     * Decode a value to the same object which is in {@link ExportRow#values}
+     *
+     * @return the value or {@code null}
+     */
+    public Object getObject(int row, int column) {
+        if (isNull(row, column)) {
+            return null;
+        }
+        Object[] cached = m_objectColumns[column];
+        if (cached != null) {
+            return cached[row];
+        }
+
+        VoltType type = m_schema.types.get(column);
+        switch (type) {
+        case TINYINT:
+            return (byte) getLong(row, column);
+        case SMALLINT:
+            return (short) getLong(row, column);
+        case INTEGER:
+            return (int) getLong(row, column);
+        case BIGINT:
+            return getLong(row, column);
+        case TIMESTAMP:
+            return new TimestampType(getLong(row, column));
+        case FLOAT:
+            return getDouble(row, column);
+        case STRING:
+            return getString(row, column);
+        case VARBINARY:
+            return getBytes(row, column);
+        default:
+            // DECIMAL and geospatial values are rare so they are decoded a column at a time with the row decoder
+            cached = new Object[m_rowCount];
+            for (int r = 0, index = column; r < m_rowCount; ++r, index += m_columnCount) {
+                int offset = m_valueOffsets[index];
+                if (offset != NULL_OFFSET) {
+                    ByteBuffer value = m_buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                    value.position(offset);
+                    cached[r] = type.decodeValue(value);
+                }
+            }
+            m_objectColumns[column] = cached;
+            return cached[row];
+        }
+    }
+
+    /**
+     * @return the value of the partition column or the partition ID if the row has no partition column value
+     */
+    public Object getPartitionValue(int row) {
+        Object value = null;
+        if (m_partitionColIndex >= 0 && m_partitionColIndex < m_columnCount) {
+            value = getObject(row, m_partitionColIndex);
+        }
+        return value == null ? m_partitionId : value;
+    }
+
+    public long getSequenceNumber(int row) {
+        return getLong(row, ExportRow.SEQUENCE_NUMBER_COLUMN);
+    }
+
+    public ROW_OPERATION getOperation(int row) {
+        return ROW_OPERATION.values()[(int) getLong(row, ExportRow.INTERNAL_OPERATION_COLUMN)];
+    }
+
+    /**
+     * Decode all of the values of a row for exporters which still need an {@code Object[]}
+     *
+     * @return the values of {@code row}
+     */
+    public Object[] getValues(int row) {
+        Object[] values = new Object[m_columnCount];
+        for (int column = 0; column < m_columnCount; ++column) {
+            values[column] = getObject(row, column);
+        }
+        return values;
+    }
+
+    /**
+     * @return {@code row} as an {@link ExportRow} which is identical to the one produced by
+     *         {@link ExportRow#decodeRow(ExportRow, int, ByteBuffer)}
+     */
+    public ExportRow getRow(int row) {
+        return new ExportRow(m_schema.tableName, m_schema.names, m_schema.types, m_schema.lengths, getValues(row),
+                getPartitionValue(row), m_partitionColIndex, m_partitionId, m_schema.generation);
+    }
+}
@@ -17,11 +17,16 @@
 
 package org.voltdb.exportclient;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -43,8 +48,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.json_voltpatches.JSONObject;
@@ -77,6 +84,11 @@ public class ExportToFileClient extends ExportClientBase {
     private static final int LOG_RATE_LIMIT = 10; // seconds
     private static final int EXPORT_DELIM_NUM_CHARACTERS = 4;
     private static final String DEFAULT_DATE_FORMAT = "yyyyMMddHHmmss";
+    // Size of the buffer between the CSV writer and the file so that writes to the file are large and sequential
+    private static final int WRITE_BUFFER_SIZE = Integer.getInteger("EXPORT_FILE_WRITE_BUFFER_SIZE", 1024 * 1024);
+    // Initial size of the buffer each decoder formats a block into when decoding partitions in parallel
+    private static final int BLOCK_BUFFER_SIZE = 256 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
 
     // Prefix for the batch folders (or files if not batched) being written to.
     // It is removed when the folder (or files) get rolled.
@@ -129,15 +141,86 @@ public class ExportToFileClient extends ExportClientBase {
     // date formatter time zone
     protected TimeZone m_timeZone;
 
+    // decode and format each partition on its own thread and append whole blocks to the table files
+    protected boolean m_parallel;
+    protected Compression m_compression;
+
+    // rows and bytes written for each table since throughput was last reported
+    protected final Map<String, TableThroughput> m_throughput = new ConcurrentHashMap<>();
+    private long m_throughputStartMs = System.currentTimeMillis();
+
+    public enum Compression {
+        NONE(""),
+        GZIP(".gz");
+
+        final String m_extension;
+
+        Compression(String extension) {
+            m_extension = extension;
+        }
+    }
+
+    /**
+     * Number of rows and bytes written to the files of a table. Bytes are counted after compression.
+     */
+    static class TableThroughput {
+        final LongAdder m_rows = new LongAdder();
+        final LongAdder m_bytes = new LongAdder();
+
+        // Log and reset the counts collected over the last elapsedSecs
+        void report(String tableName, double elapsedSecs) {
+            long rows = m_rows.sumThenReset();
+            long bytes = m_bytes.sumThenReset();
+            if (rows > 0 || bytes > 0) {
+                m_logger.infoFmt("Exported %d rows (%.0f rows/s) and %d bytes (%.2f MB/s) of table %s to files in %.1f seconds",
+                        rows, rows / elapsedSecs, bytes, bytes / elapsedSecs / (1024 * 1024), tableName, elapsedSecs);
+            }
+        }
+    }
+
+    // Counts the bytes written to an export file
+    static class CountingOutputStream extends FilterOutputStream {
+        private final LongAdder m_bytes;
+
+        CountingOutputStream(OutputStream out, LongAdder bytes) {
+            super(out);
+            m_bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            m_bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            m_bytes.add(len);
+        }
+    }
+
+    // Buffer of formatted rows which can be appended to a file without copying
+    static class BlockBuffer extends CharArrayWriter {
+        BlockBuffer(int initialSize) {
+            super(initialSize);
+        }
+
+        void appendTo(CSVWriter writer) {
+            writer.writeFormatted(buf, 0, count);
+        }
+    }
+
     //For test
     public static String TEST_VOLTDB_ROOT = null;
 
     /**
-     * This export client requires decoding all table partitions in same thread.
+     * This export client requires decoding all table partitions in same thread unless partitions write whole blocks
+     * in parallel.
      */
     @Override
     public DecodingPolicy getDecodingPolicy() {
-        return DecodingPolicy.BY_TABLE;
+        return m_parallel ? DecodingPolicy.BY_PARTITION_TABLE : DecodingPolicy.BY_TABLE;
     }
 
     class DecoderMetaData {
@@ -539,7 +622,8 @@ public class ExportToFileClient extends ExportClientBase {
             return null;
         }
 
-        CSVWriter getWriter(String tableName, long generation) throws IOException {
+        // Synchronized because in parallel mode every partition of a table fetches the writer of a new file at once
+        synchronized CSVWriter getWriter(String tableName, long generation) throws IOException {
             FileHandle handle = new FileHandle(tableName, generation);
             CSVWriter writer = m_writers.get(handle);
             if (writer != null)
@@ -554,19 +638,13 @@ public class ExportToFileClient extends ExportClientBase {
                 throw new RuntimeException();
             }
             try {
-                OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(newFile, false), StandardCharsets.UTF_8);
-                if (m_fullDelimiters != null) {
-                    writer = new CSVWriter(new BufferedWriter(osw, 4096 * 4),
-                            m_fullDelimiters[0], m_fullDelimiters[1], m_fullDelimiters[2], String.valueOf(m_fullDelimiters[3]));
-                }
-                else if (m_delimiter == ',') {
-                    // CSV
-                    writer = new CSVWriter(new BufferedWriter(osw, 4096 * 4), m_delimiter);
-                }
-                else {
-                    // TSV
-                    writer = CSVWriter.getTSVWriter(new BufferedWriter(osw, 4096 * 4));
+                OutputStream out = new BufferedOutputStream(new CountingOutputStream(
+                        new FileOutputStream(newFile, false), getThroughput(tableName).m_bytes), WRITE_BUFFER_SIZE);
+                if (m_compression == Compression.GZIP) {
+                    out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
                 }
+                OutputStreamWriter osw = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                writer = createCSVWriter(new BufferedWriter(osw, 4096 * 4));
             }
             catch (Exception e) {
                 if (e instanceof IOException) {
@@ -636,6 +714,37 @@ public class ExportToFileClient extends ExportClientBase {
     }
 
 
+    CSVWriter createCSVWriter(Writer writer) {
+        if (m_fullDelimiters != null) {
+            return new CSVWriter(writer,
+                    m_fullDelimiters[0], m_fullDelimiters[1], m_fullDelimiters[2], String.valueOf(m_fullDelimiters[3]));
+        }
+        else if (m_delimiter == ',') {
+            // CSV
+            return new CSVWriter(writer, m_delimiter);
+        }
+        else {
+            // TSV
+            return CSVWriter.getTSVWriter(writer);
+        }
+    }
+
+    TableThroughput getThroughput(String tableName) {
+        return m_throughput.computeIfAbsent(tableName, k -> new TableThroughput());
+    }
+
+    /**
+     * Log the rows and bytes written for each table since the last report and reset the counts
+     */
+    void reportThroughput() {
+        long now = System.currentTimeMillis();
+        double elapsedSecs = Math.max(now - m_throughputStartMs, 1) / 1000.0;
+        m_throughputStartMs = now;
+        for (Entry<String, TableThroughput> entry : m_throughput.entrySet()) {
+            entry.getValue().report(entry.getKey(), elapsedSecs);
+        }
+    }
+
     // This class outputs exported rows converted to CSV or TSV values
     // for the table named in the constructor's AdvertisedDataSource
     class ExportToFileDecoder extends ExportDecoderBase {
@@ -645,6 +754,10 @@ public class ExportToFileClient extends ExportClientBase {
         private CSVWriter m_writer;
         private final CSVWriterDecoder m_csvWriterDecoder;
         private ListeningExecutorService m_es;
+        private TableThroughput m_tableThroughput;
+        // When decoding in parallel rows are formatted into the block buffer and appended to m_writer once per block
+        private final BlockBuffer m_blockBuffer;
+        private final CSVWriter m_blockWriter;
 
         public ExportToFileDecoder(AdvertisedDataSource source) {
             super(source);
@@ -665,6 +778,20 @@ public class ExportToFileClient extends ExportClientBase {
                 .skipInternalFields(m_skipinternal)
                 ;
             m_csvWriterDecoder = builder.build();
+
+            if (m_parallel) {
+                m_blockBuffer = new BlockBuffer(BLOCK_BUFFER_SIZE);
+                m_blockWriter = createCSVWriter(m_blockBuffer);
+            }
+            else {
+                m_blockBuffer = null;
+                m_blockWriter = null;
+            }
+        }
+
+        // Rows are written to the block buffer when decoding in parallel
+        private CSVWriter getRowWriter() {
+            return m_parallel ? m_blockWriter : m_writer;
         }
 
         private void resetWriter() {
@@ -736,6 +863,7 @@ public class ExportToFileClient extends ExportClientBase {
             if (m_metaData.generation != row.generation) {
                 // generation change, update the meta-data and writers
                 m_metaData = new DecoderMetaData(row.tableName, row.generation, row.partitionId);
+                m_tableThroughput = getThroughput(row.tableName);
                 setSchemaForSource(row.names, row.types);
                 resetWriter();
                 m_batchLock.writeLock().lock();
@@ -743,12 +871,15 @@ public class ExportToFileClient extends ExportClientBase {
                     // TODO: if same export client is getting used, unregisterSelf(not implemented) during generation change
                     registerSelf(row);
                     if (VoltDB.getExportManager().getExportMode() == ExportMode.BASIC && m_es == null) {
-                        ListeningExecutorService executor = m_decoderExecutor.get(row.tableName);
+                        // In parallel mode each partition is formatted by its own thread
+                        String executorName = m_parallel ? row.tableName + " partition " + row.partitionId
+                                : row.tableName;
+                        ListeningExecutorService executor = m_decoderExecutor.get(executorName);
                         if (executor == null) {
                             executor = CoreUtils.getListeningSingleThreadExecutor(
-                                "File Export decoder for table " + row.tableName + CoreUtils.MEDIUM_STACK_SIZE
+                                "File Export decoder for table " + executorName + CoreUtils.MEDIUM_STACK_SIZE
                                 );
-                            m_decoderExecutor.put(row.tableName, executor);
+                            m_decoderExecutor.put(executorName, executor);
                         }
                         m_es = executor;
 
@@ -779,6 +910,11 @@ public class ExportToFileClient extends ExportClientBase {
             try {
                 m_firstBlockTask.run();
                 m_writer = m_firstBlockTask.get();
+                if (m_parallel) {
+                    // Discard anything left from a block which was restarted
+                    m_blockWriter.checkError();
+                    m_blockBuffer.reset();
+                }
             }
             catch (Exception e) {
                 // if writeSchema or getWriter method fails, it will throw IOException
@@ -806,7 +942,8 @@ public class ExportToFileClient extends ExportClientBase {
         public boolean processRow(ExportRow rd) throws RestartBlockException {
             // reader lock is acquired in on-block start
             try {
-                m_csvWriterDecoder.decode(rd.generation, rd.tableName, rd.types, rd.names, m_writer,rd.values);
+                m_csvWriterDecoder.decode(rd.generation, rd.tableName, rd.types, rd.names, getRowWriter(), rd.values);
+                m_tableThroughput.m_rows.increment();
             }
             catch (IOException io) {
                 m_logger.rateLimitedError(LOG_RATE_LIMIT, "failed to to process export row %s", Throwables.getStackTraceAsString(io));
@@ -815,12 +952,36 @@ public class ExportToFileClient extends ExportClientBase {
             return true;
         }
 
+        @Override
+        public boolean isBatchDecoder() {
+            return isBatchDecodingEnabled();
+        }
+
+        @Override
+        public void processBatch(ExportRowBatch batch) throws RestartBlockException {
+            // reader lock is acquired in on-block start
+            try {
+                m_csvWriterDecoder.decode(batch, getRowWriter());
+                m_tableThroughput.m_rows.add(batch.getRowCount());
+            }
+            catch (IOException io) {
+                m_logger.rateLimitedError(LOG_RATE_LIMIT, "failed to to process export block %s", Throwables.getStackTraceAsString(io));
+            }
+        }
+
         /**
          * Release the current batch folder.
          * @throws RestartBlockException
          */
         @Override
         public void onBlockCompletion(ExportRow row) throws RestartBlockException {
+            if (m_parallel) {
+                // checkError flushes the formatted rows into the block buffer which is appended in a single write
+                // while the reader lock still prevents the file from being rolled
+                m_blockWriter.checkError();
+                m_blockBuffer.appendTo(m_writer);
+                m_blockBuffer.reset();
+            }
             m_batchLock.readLock().unlock();
             // checkError on PrintWriter inside m_writer also does the flush, so no need to call flush explicitly
             if (m_writer.checkError()) {
@@ -878,6 +1039,7 @@ public class ExportToFileClient extends ExportClientBase {
         finally {
             m_batchLock.writeLock().unlock();
         }
+        reportThroughput();
     }
 
     /**
@@ -900,6 +1062,7 @@ public class ExportToFileClient extends ExportClientBase {
             m_batchLock.writeLock().unlock();
         }
         previous.closeAllWriters();
+        reportThroughput();
     }
 
     public String getVoltDBRootPath() {
@@ -995,6 +1158,14 @@ public class ExportToFileClient extends ExportClientBase {
         BinaryEncoding encoding = BinaryEncoding.valueOf(
                 conf.getProperty("binaryencoding", "HEX").trim().toUpperCase());
         boolean uniquenames = Boolean.parseBoolean(conf.getProperty("uniquenames"));
+        boolean parallel = Boolean.parseBoolean(conf.getProperty("parallel", "false"));
+        Compression compression;
+        try {
+            compression = Compression.valueOf(conf.getProperty("compression", "none").trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Error: 'compression' property must be one of NONE or GZIP");
+        }
 
         //Dont do actual config in check mode.
         boolean configcheck = Boolean.parseBoolean(conf.getProperty(ExportManager.CONFIG_CHECK_ONLY, "false"));
@@ -1019,7 +1190,9 @@ public class ExportToFileClient extends ExportClientBase {
                 withSchema,
                 tz,
                 encoding,
-                uniquenames);
+                uniquenames,
+                parallel,
+                compression);
     }
 
     private void configureInternal(
@@ -1035,9 +1208,11 @@ public class ExportToFileClient extends ExportClientBase {
                               final boolean withSchema,
                               final TimeZone tz,
                               final BinaryEncoding be,
-                              final boolean uniquenames) {
+                              final boolean uniquenames,
+                              final boolean parallel,
+                              final Compression compression) {
         m_delimiter = delimiter;
-        m_extension = (delimiter == ',') ? ".csv" : ".tsv";
+        m_extension = ((delimiter == ',') ? ".csv" : ".tsv") + compression.m_extension;
         m_nonce = nonce;
         m_outDir = outdir;
         m_tableDecoders = new HashMap<>();
@@ -1059,6 +1234,8 @@ public class ExportToFileClient extends ExportClientBase {
         m_batched = batched;
         m_withSchema = withSchema;
         m_uniquenames = uniquenames;
+        m_parallel = parallel;
+        m_compression = compression;
 
         if (fullDelimiters != null) {
             fullDelimiters = StringEscapeUtils.unescapeHtml4(fullDelimiters);
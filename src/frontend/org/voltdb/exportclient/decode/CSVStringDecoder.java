@@ -23,12 +23,14 @@ import java.io.StringWriter;
 import au.com.bytecode.opencsv_voltpatches.CSVWriter;
 import java.util.List;
 import org.voltdb.VoltType;
+import org.voltdb.exportclient.ExportRowBatch;
 
 public class CSVStringDecoder extends RowDecoder<String, RuntimeException> {
 
     protected final StringArrayDecoder m_stringArrayDecoder;
     protected final CSVWriter m_writer;
     protected final StringBuffer m_writerDestination;
+    private String[] m_fields;
 
     protected CSVStringDecoder(StringArrayDecoder stringArrayDecoder) {
         super(stringArrayDecoder);
@@ -48,6 +50,17 @@ public class CSVStringDecoder extends RowDecoder<String, RuntimeException> {
         return csvLine;
     }
 
+    /**
+     * Convert {@code row} of {@code batch} into a CSV line
+     */
+    public String decode(ExportRowBatch batch, int row) throws RuntimeException {
+        m_fields = m_stringArrayDecoder.decode(batch, row, m_fields);
+        m_writer.writeNext(m_fields);
+        String csvLine = m_writerDestination.toString();
+        m_writerDestination.setLength(0);
+        return csvLine;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.List;
 
 import org.voltdb.VoltType;
+import org.voltdb.exportclient.ExportRowBatch;
 
 import au.com.bytecode.opencsv_voltpatches.CSVWriter;
 
@@ -39,6 +40,19 @@ public class CSVWriterDecoder extends RowDecoder<CSVWriter, IOException> {
         return to;
     }
 
+    /**
+     * Write all of the rows in {@code batch} to {@code to}
+     */
+    public CSVWriter decode(ExportRowBatch batch, CSVWriter to) throws IOException {
+        String[] fields = null;
+        for (int row = 0; row < batch.getRowCount(); ++row) {
+            // writeNext does not hold on to the array so it is reused for every row
+            fields = m_stringArrayDecoder.decode(batch, row, fields);
+            to.writeNext(fields);
+        }
+        return to;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -18,6 +18,7 @@
 package org.voltdb.exportclient.decode;
 
 import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,7 @@ import java.util.TimeZone;
 import org.voltdb.VoltType;
 import org.voltdb.common.Constants;
 import org.voltdb.exportclient.ExportDecoderBase.BinaryEncoding;
+import org.voltdb.exportclient.ExportRowBatch;
 import org.voltdb.exportclient.decode.DecodeType.SimpleVisitor;
 import org.voltdb.types.GeographyPointValue;
 import org.voltdb.types.GeographyValue;
@@ -72,24 +74,7 @@ public class StringArrayDecoder extends RowDecoder<String[], RuntimeException> {
                 fields != null && fields.length > m_firstFieldOffset,
                 "null or inapropriately sized export row array"
         );
-        /*
-         * Builds a list of string formatters that reflects the row
-         * column types.
-         */
-        StringFieldDecoder [] fieldDecoders;
-        if (!m_fieldDecoders.containsKey(generation)) {
-            int fieldCount = 0;
-            Map<String, DecodeType> typeMap = getTypeMap(generation, types, names);
-            ImmutableList.Builder<StringFieldDecoder> lb = ImmutableList.builder();
-            for (org.voltdb.exportclient.decode.DecodeType dt: typeMap.values()) {
-                lb.add(dt.accept(decodingVisitor, fieldCount++, null));
-            }
-
-            fieldDecoders = lb.build().toArray(new StringFieldDecoder[0]);
-            m_fieldDecoders.put(generation, fieldDecoders);
-        } else {
-            fieldDecoders = m_fieldDecoders.get(generation);
-        }
+        StringFieldDecoder [] fieldDecoders = getFieldDecoders(generation, types, names);
         if (to == null || to.length < fieldDecoders.length) {
             to = new String[fieldDecoders.length];
         }
@@ -104,54 +89,101 @@ public class StringArrayDecoder extends RowDecoder<String[], RuntimeException> {
         return to;
     }
 
+    /**
+     * Converts the values of a row in an export batch into an array of their string representations. Numbers,
+     * strings and timestamps are formatted straight from the batch columns without boxing them.
+     */
+    public String[] decode(ExportRowBatch batch, int row, String[] to) throws RuntimeException {
+        StringFieldDecoder [] fieldDecoders = getFieldDecoders(batch.getGeneration(), batch.getColumnTypes(),
+                batch.getColumnNames());
+        if (to == null || to.length < fieldDecoders.length) {
+            to = new String[fieldDecoders.length];
+        }
+        int columnCount = batch.getColumnCount();
+        for (
+                int i = m_firstFieldOffset, j = 0;
+                i < columnCount && j < fieldDecoders.length;
+                ++i, ++j
+        ) {
+            fieldDecoders[j].decode(to, batch, row, i);
+        }
+
+        return to;
+    }
+
+    /*
+     * Builds a list of string formatters that reflects the row
+     * column types.
+     */
+    private StringFieldDecoder [] getFieldDecoders(long generation, List<VoltType> types, List<String> names) {
+        StringFieldDecoder [] fieldDecoders = m_fieldDecoders.get(generation);
+        if (fieldDecoders == null) {
+            int fieldCount = 0;
+            Map<String, DecodeType> typeMap = getTypeMap(generation, types, names);
+            ImmutableList.Builder<StringFieldDecoder> lb = ImmutableList.builder();
+            for (org.voltdb.exportclient.decode.DecodeType dt: typeMap.values()) {
+                lb.add(dt.accept(decodingVisitor, fieldCount++, null));
+            }
+
+            fieldDecoders = lb.build().toArray(new StringFieldDecoder[0]);
+            m_fieldDecoders.put(generation, fieldDecoders);
+        }
+        return fieldDecoders;
+    }
+
     static abstract class StringFieldDecoder implements FieldDecoder<String[], RuntimeException> {
         protected final int m_fieldIndex;
 
         StringFieldDecoder(int fieldIndex) {
             m_fieldIndex = fieldIndex;
         }
+
+        /**
+         * Decode {@code column} of {@code row} in a batch. By default the value is decoded to the same object as in
+         * an export row and formatted by {@link #decode(Object, Object)}
+         */
+        void decode(String[] to, ExportRowBatch batch, int row, int column) throws RuntimeException {
+            decode(to, batch.getObject(row, column));
+        }
+    }
+
+    final class IntegerFieldDecoder extends StringFieldDecoder {
+        IntegerFieldDecoder(int fieldIndex) {
+            super(fieldIndex);
+        }
+
+        @Override
+        public final void decode(String[] to, Object field) throws RuntimeException {
+            to[m_fieldIndex] = field != null ? field.toString() : m_nullRepresentation;
+        }
+
+        @Override
+        final void decode(String[] to, ExportRowBatch batch, int row, int column) throws RuntimeException {
+            to[m_fieldIndex] = batch.isNull(row, column) ? m_nullRepresentation
+                    : Long.toString(batch.getLong(row, column));
+        }
     }
 
     final SimpleVisitor<StringFieldDecoder,Integer> decodingVisitor = new SimpleVisitor<StringFieldDecoder,Integer>() {
 
         @Override
         public StringFieldDecoder visitTinyInt(Integer p, Object v) throws RuntimeException {
-            return new StringFieldDecoder(p) {
-                @Override
-                public final void decode(String[] to, Object field) throws RuntimeException {
-                    to[m_fieldIndex] = field != null ? field.toString() : m_nullRepresentation;
-                }
-            };
+            return new IntegerFieldDecoder(p);
         }
 
         @Override
         public StringFieldDecoder visitSmallInt(Integer p, Object v) throws RuntimeException {
-            return new StringFieldDecoder(p) {
-                @Override
-                public final void decode(String[] to, Object field) throws RuntimeException {
-                    to[m_fieldIndex] = field != null ? field.toString() : m_nullRepresentation;
-                }
-            };
+            return new IntegerFieldDecoder(p);
         }
 
         @Override
         public StringFieldDecoder visitInteger(Integer p, Object v) throws RuntimeException {
-            return new StringFieldDecoder(p) {
-                @Override
-                public final void decode(String[] to, Object field) throws RuntimeException {
-                    to[m_fieldIndex] = field != null ? field.toString() : m_nullRepresentation;
-                }
-            };
+            return new IntegerFieldDecoder(p);
         }
 
         @Override
         public StringFieldDecoder visitBigInt(Integer p, Object v) throws RuntimeException {
-            return new StringFieldDecoder(p) {
-                @Override
-                public final void decode(String[] to, Object field) throws RuntimeException {
-                    to[m_fieldIndex] = field != null ? field.toString() : m_nullRepresentation;
-                }
-            };
+            return new IntegerFieldDecoder(p);
         }
 
         @Override
@@ -161,6 +193,12 @@ public class StringArrayDecoder extends RowDecoder<String[], RuntimeException> {
                 public final void decode(String[] to, Object field) throws RuntimeException {
                     to[m_fieldIndex] = field != null ? field.toString() : m_nullRepresentation;
                 }
+
+                @Override
+                final void decode(String[] to, ExportRowBatch batch, int row, int column) throws RuntimeException {
+                    to[m_fieldIndex] = batch.isNull(row, column) ? m_nullRepresentation
+                            : Double.toString(batch.getDouble(row, column));
+                }
             };
         }
 
@@ -168,6 +206,7 @@ public class StringArrayDecoder extends RowDecoder<String[], RuntimeException> {
         public StringFieldDecoder visitTimestamp(Integer p, Object v) throws RuntimeException {
             return new StringFieldDecoder(p) {
                 final SimpleDateFormat m_df = (SimpleDateFormat)m_dateFormatter.clone();
+                final Date m_date = new Date();
                 @Override
                 public final void decode(String[] to, Object field) throws RuntimeException {
                     if (field == null) {
@@ -177,6 +216,17 @@ public class StringArrayDecoder extends RowDecoder<String[], RuntimeException> {
                     TimestampType ts = (TimestampType)field;
                     to[m_fieldIndex] = m_df.format(ts.asApproximateJavaDate());
                 }
+
+                @Override
+                final void decode(String[] to, ExportRowBatch batch, int row, int column) throws RuntimeException {
+                    if (batch.isNull(row, column)) {
+                        to[m_fieldIndex] = m_nullRepresentation;
+                        return;
+                    }
+                    // Same truncation to milliseconds as TimestampType
+                    m_date.setTime(batch.getLong(row, column) / 1000);
+                    to[m_fieldIndex] = m_df.format(m_date);
+                }
             };
         }
 
@@ -187,6 +237,12 @@ public class StringArrayDecoder extends RowDecoder<String[], RuntimeException> {
                 public final void decode(String[] to, Object field) throws RuntimeException {
                     to[m_fieldIndex] = field != null ? (String)field : m_nullRepresentation;
                 }
+
+                @Override
+                final void decode(String[] to, ExportRowBatch batch, int row, int column) throws RuntimeException {
+                    String value = batch.getString(row, column);
+                    to[m_fieldIndex] = value != null ? value : m_nullRepresentation;
+                }
             };
         }
 
@@ -29,10 +29,12 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.avro.generic.GenericRecord;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
@@ -50,7 +52,9 @@ import org.voltdb.exportclient.ExportClientBase;
 import org.voltdb.exportclient.ExportClientLogger;
 import org.voltdb.exportclient.ExportDecoderBase;
 import org.voltdb.exportclient.ExportDecoderBase.BinaryEncoding;
+import org.voltdb.exportclient.ExportDecoderBase.RestartBlockException;
 import org.voltdb.exportclient.ExportRow;
+import org.voltdb.exportclient.ExportRowBatch;
 import org.voltdb.exportclient.decode.AvroDecoder;
 import org.voltdb.exportclient.decode.CSVStringDecoder;
 import org.voltdb.serdes.EncodeFormat;
@@ -58,7 +62,9 @@ import org.voltdb.serdes.EncodeFormat;
 import com.google_voltpatches.common.base.Splitter;
 import com.google_voltpatches.common.collect.ImmutableList;
 import com.google_voltpatches.common.collect.ImmutableMap;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
 
@@ -78,11 +84,15 @@ public class KafkaExportClient extends ExportClientBase {
     private final static String OLD_PARTITIONER = "partitioner.class";
     private final static String ACKS_TIMEOUT = "acks.retry.timeout";
     private final static String LEGACY_ACKS = "request.required.acks";
+    private final static String INFLIGHT_MAX_BYTES_PN = "inflight.max.bytes";
     public final static String ENCODE_FORMAT = "type";
 
     static final String SCHEMA_REGISTRY_URL_CONFIG = "schema.registry.url";
 
     private final static String MAX_BLOCK_MS_DEFAULT = "60000";
+    // Producer defaults when blocks are kept in flight, larger batches which wait a little to fill up
+    private final static String INFLIGHT_BATCH_SIZE_DEFAULT = "65536";
+    private final static String INFLIGHT_LINGER_MS_DEFAULT = "5";
 
     private final static Splitter COMMA_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
     private final static Splitter PERIOD_SPLITTER = Splitter.on(".").omitEmptyStrings().trimResults();
@@ -105,6 +115,8 @@ public class KafkaExportClient extends ExportClientBase {
     Map<String, String> m_tablePartitionColumns;
     boolean m_pollFutures = false;
     int m_acksTimeout = 5_000;
+    // When greater than 0 blocks are sent without waiting for the previous blocks to be acknowledged
+    long m_maxInFlightBytes = 0;
 
     @Override
     public void configure(Properties config) throws Exception {
@@ -241,7 +253,24 @@ public class KafkaExportClient extends ExportClientBase {
         }
         m_producerConfig.setProperty(ProducerConfig.BUFFER_MEMORY_CONFIG, buffSize);
 
-        String batchSize = "1024";
+        try {
+            m_maxInFlightBytes = Long.parseLong(config.getProperty(INFLIGHT_MAX_BYTES_PN, "0").trim());
+            if (m_maxInFlightBytes < 0) {
+                throw new IllegalArgumentException(
+                        "\"" + INFLIGHT_MAX_BYTES_PN + "\" must be >= 0"
+                        );
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "\"" + INFLIGHT_MAX_BYTES_PN + "\" must be a long", e
+                    );
+        }
+        m_producerConfig.remove(INFLIGHT_MAX_BYTES_PN);
+        if (m_maxInFlightBytes > 0 && !config.containsKey(ProducerConfig.LINGER_MS_CONFIG)) {
+            m_producerConfig.setProperty(ProducerConfig.LINGER_MS_CONFIG, INFLIGHT_LINGER_MS_DEFAULT);
+        }
+
+        String batchSize = m_maxInFlightBytes > 0 ? INFLIGHT_BATCH_SIZE_DEFAULT : "1024";
         try {
             batchSize = config.getProperty(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
             if (Integer.parseInt(batchSize) <= 0) {
@@ -309,14 +338,51 @@ public class KafkaExportClient extends ExportClientBase {
         return new KafkaExportDecoder(source);
     }
 
+    Producer<String, Object> createProducer(Properties config) {
+        return new KafkaProducer<>(config);
+    }
+
+    /**
+     * Completes once all of the records sent for a block have been acknowledged, or fails as soon as one of them fails
+     */
+    static class BlockAcks {
+        final SettableFuture<Object> m_acked = SettableFuture.create();
+        // Records which have not been acknowledged plus one until the whole block has been sent
+        private final AtomicInteger m_pending = new AtomicInteger(1);
+
+        void sending() {
+            m_pending.incrementAndGet();
+        }
+
+        void onCompletion(Exception e) {
+            if (e != null) {
+                m_acked.setException(new RestartBlockException("Send operation failed to complete", e, true));
+            }
+            release();
+        }
+
+        ListenableFuture<?> sent() {
+            release();
+            return m_acked;
+        }
+
+        private void release() {
+            if (m_pending.decrementAndGet() == 0) {
+                m_acked.set(null);
+            }
+        }
+    }
+
     class KafkaExportDecoder extends ExportDecoderBase {
 
         String m_topic = null;
         Properties m_decoderProducerConfig;
-        KafkaProducer<String, Object> m_producer;
+        Producer<String, Object> m_producer;
         Map<String, AvroDecoder> m_tableAvroDecoderMap;
         CSVStringDecoder m_csvDecoder;
         final List<Future<RecordMetadata>> m_futures = new ArrayList<>();
+        // Acknowledgements of the block being sent when blocks are kept in flight
+        BlockAcks m_blockAcks;
         private final AtomicBoolean m_failure = new AtomicBoolean(false);
         final ListeningExecutorService m_es;
         private volatile boolean m_primed = false;
@@ -371,7 +437,7 @@ public class KafkaExportClient extends ExportClientBase {
             }
             if (!m_primed) try {
                 setClientId();
-                m_producer = new KafkaProducer<>(m_decoderProducerConfig);
+                m_producer = createProducer(m_decoderProducerConfig);
             }
             catch (ConfigException e) {
                 LOG.error("Unable to instantiate a Kafka producer", e);
@@ -430,10 +496,26 @@ public class KafkaExportClient extends ExportClientBase {
             }
         }
 
+        @Override
+        public long getMaxInFlightBytes() {
+            return m_maxInFlightBytes;
+        }
+
+        @Override
+        public ListenableFuture<?> onBlockSent(ExportRow row) throws RestartBlockException {
+            BlockAcks acks = m_blockAcks;
+            m_blockAcks = null;
+            return acks.sent();
+        }
+
         @Override
         public void onBlockStart(ExportRow row) throws RestartBlockException {
             checkOnFirstRow();
             if (m_topic == null) populateTopic(row.tableName);
+            if (m_maxInFlightBytes > 0) {
+                // Records of a block which is restarted are tracked again from the beginning
+                m_blockAcks = new BlockAcks();
+            }
         }
 
         @Override
@@ -451,9 +533,44 @@ public class KafkaExportClient extends ExportClientBase {
                 String decoded = m_csvDecoder.decode(rd.generation, rd.tableName, rd.types, rd.names, null, rd.values);
                 krec = new ProducerRecord<>(m_topic, pval, decoded);
             }
+            send(krec);
+            return true;
+        }
+
+        @Override
+        public boolean isBatchDecoder() {
+            return isBatchDecodingEnabled();
+        }
+
+        @Override
+        public void processBatch(ExportRowBatch batch) throws RestartBlockException {
+            checkOnFirstRow();
+            AvroDecoder avroDecoder = null;
+            if (m_encodeFormat == EncodeFormat.AVRO) {
+                avroDecoder = m_tableAvroDecoderMap.computeIfAbsent(batch.getTableName(),
+                        k -> new AvroDecoder.Builder().build());
+            }
+            for (int row = 0; row < batch.getRowCount(); ++row) {
+                String pval = batch.getPartitionValue(row).toString();
+                ProducerRecord<String, Object> krec;
+                if (avroDecoder != null) {
+                    GenericRecord avroRecord = avroDecoder.decode(batch.getGeneration(), batch.getTableName(),
+                            batch.getColumnTypes(), batch.getColumnNames(), null, batch.getValues(row));
+                    krec = new ProducerRecord<>(m_topic, pval, avroRecord);
+                } else {
+                    krec = new ProducerRecord<>(m_topic, pval, m_csvDecoder.decode(batch, row));
+                }
+                send(krec);
+            }
+        }
 
+        private void send(ProducerRecord<String, Object> krec) throws RestartBlockException {
+            final BlockAcks acks = m_blockAcks;
             try {
-                m_futures.add(m_producer.send(krec, new Callback() {
+                if (acks != null) {
+                    acks.sending();
+                }
+                Future<RecordMetadata> fut = m_producer.send(krec, new Callback() {
                     @Override
                     public void onCompletion(RecordMetadata metadata, Exception e) {
                         if (e != null){
@@ -461,15 +578,20 @@ public class KafkaExportClient extends ExportClientBase {
                                     m_decoderProducerConfig.getProperty(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
                             m_failure.compareAndSet(false, true);
                         }
+                        if (acks != null) {
+                            acks.onCompletion(e);
+                        }
                     }
-                }));
+                });
+                if (acks == null) {
+                    m_futures.add(fut);
+                }
             } catch (KafkaException e) {
                 LOG.warn("Unable to send %s", e, krec);
                 throw new RestartBlockException("Unable to send message", e, true);
             } catch(IllegalStateException e) { // thrown if a catalog update closes the producer through pause()
                 throw new RestartBlockException("IllegalStateException, possibly because kafka producer was closed", e, false);
             }
-            return true;
         }
 
         @Override
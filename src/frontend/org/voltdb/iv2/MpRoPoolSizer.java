@@ -0,0 +1,133 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.iv2;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides how many read-only sites the {@link MpRoSitePool} may keep busy at once.
+ * <p>
+ * The limit is raised by one when a read at the head of the backlog has waited longer than the grow threshold
+ * for a full pool and the host has spare CPU, at most once per grow interval. It is lowered by one for each whole
+ * shrink interval which passes without any read having to wait. A limit which was lowered below the initial limit
+ * is restored to the initial limit as soon as a read has to wait, so a burst after an idle period does not have to
+ * wait for the pool to grow back one site at a time.
+ * <p>
+ * Not thread safe, all calls are made while holding the {@link MpTransactionTaskQueue} lock. Times are
+ * {@link System#nanoTime()} values supplied by the caller.
+ */
+class MpRoPoolSizer {
+    private final int m_initialLimit;
+    private final int m_minLimit;
+    private final int m_maxLimit;
+    private final long m_growWaitNanos;
+    private final long m_growIntervalNanos;
+    private final long m_shrinkIntervalNanos;
+    private final double m_maxLoadPerCpu;
+    private final DoubleSupplier m_loadPerCpu;
+
+    private int m_limit;
+    // Last time the pool was full while a read was waiting for a site
+    private long m_lastSaturated;
+    private long m_lastGrow;
+    // Last time the limit was changed
+    private long m_lastResize;
+
+    /**
+     * @param initialLimit        limit to start with
+     * @param minLimit            the limit is never shrunk below this
+     * @param maxLimit            the limit is never grown above this
+     * @param growWaitNanos       how long a read must wait on a full pool before the pool grows
+     * @param growIntervalNanos   minimum time between two increases of the limit
+     * @param shrinkIntervalNanos how long no read may wait before the limit is lowered, if this is {@code 0} or
+     *                            less the limit is never lowered
+     * @param maxLoadPerCpu       the pool only grows while the load per CPU is below this value
+     * @param loadPerCpu          supplier of the current load per CPU or a negative value if it is not known
+     * @param now                 current time
+     */
+    MpRoPoolSizer(int initialLimit, int minLimit, int maxLimit, long growWaitNanos, long growIntervalNanos,
+            long shrinkIntervalNanos, double maxLoadPerCpu, DoubleSupplier loadPerCpu, long now) {
+        assert minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit;
+        m_initialLimit = initialLimit;
+        m_minLimit = minLimit;
+        m_maxLimit = maxLimit;
+        m_growWaitNanos = growWaitNanos;
+        m_growIntervalNanos = growIntervalNanos;
+        m_shrinkIntervalNanos = shrinkIntervalNanos;
+        m_maxLoadPerCpu = maxLoadPerCpu;
+        m_loadPerCpu = loadPerCpu;
+        m_limit = initialLimit;
+        m_lastSaturated = now;
+        m_lastGrow = now - growIntervalNanos;
+        m_lastResize = now;
+    }
+
+    int limit() {
+        return m_limit;
+    }
+
+    /**
+     * Called when the pool is full and a read is waiting for a site.
+     *
+     * @param headWaitNanos how long the read at the head of the backlog has been waiting
+     * @param now           current time
+     * @return {@code true} if the limit was raised
+     */
+    boolean saturated(long headWaitNanos, long now) {
+        m_lastSaturated = now;
+        if (m_limit < m_initialLimit) {
+            m_limit = m_initialLimit;
+            m_lastGrow = now;
+            m_lastResize = now;
+            return true;
+        }
+        if (m_limit >= m_maxLimit || headWaitNanos < m_growWaitNanos || now - m_lastGrow < m_growIntervalNanos) {
+            return false;
+        }
+        double load = m_loadPerCpu.getAsDouble();
+        if (load >= m_maxLoadPerCpu) {
+            return false;
+        }
+        ++m_limit;
+        m_lastGrow = now;
+        m_lastResize = now;
+        return true;
+    }
+
+    /**
+     * Called when a read is dispatched or completes to see if the limit should be lowered. The limit is lowered
+     * by one for each whole shrink interval in which no read had to wait, so a pool which has been idle for a
+     * long time shrinks as soon as it is used again. It is never lowered below the number of busy sites.
+     *
+     * @param busy number of sites in use
+     * @param now  current time
+     * @return {@code true} if the limit was lowered
+     */
+    boolean maybeShrink(int busy, long now) {
+        if (m_limit <= m_minLimit || m_shrinkIntervalNanos <= 0) {
+            return false;
+        }
+        long steps = (now - Math.max(m_lastSaturated, m_lastResize)) / m_shrinkIntervalNanos;
+        int newLimit = (int) Math.max(Math.max(m_minLimit, busy), m_limit - steps);
+        if (newLimit >= m_limit) {
+            return false;
+        }
+        m_limit = newLimit;
+        m_lastResize = now;
+        return true;
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.voltdb.iv2;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -26,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
@@ -33,18 +36,44 @@ import org.voltdb.BackendTarget;
 import org.voltdb.CatalogContext;
 import org.voltdb.LoadedProcedureSet;
 import org.voltdb.StarvationTracker;
+import org.voltdb.stats.MpReadQueueStats;
 
 /**
  * Provide a pool of MP Read-only sites to do MP RO work.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
  * to be done while holding its lock.
+ * <p>
+ * The number of sites which may be busy at once starts at MPI_READ_POOL_SIZE and is adjusted by an
+ * {@link MpRoPoolSizer} between MPI_READ_POOL_MIN_SIZE and MPI_READ_POOL_MAX_SIZE: it grows while reads wait
+ * for a full pool and there is spare CPU, and shrinks again once reads have stopped waiting for a while.
+ * Both bounds default to MPI_READ_POOL_SIZE, which gives a fixed size pool.
  */
 class MpRoSitePool {
     final static VoltLogger tmLog = new VoltLogger("TM");
 
-    static final int MAX_POOL_SIZE = Integer.getInteger("MPI_READ_POOL_SIZE", 3);
+    static final int DEFAULT_POOL_SIZE = Math.max(1, Integer.getInteger("MPI_READ_POOL_SIZE", 3));
+    // Shrinking below MPI_READ_POOL_SIZE is opt in, a pool which shrank while idle is restored to
+    // MPI_READ_POOL_SIZE as soon as a read has to wait
+    static final int MIN_POOL_SIZE = Math.max(1,
+            Math.min(DEFAULT_POOL_SIZE, Integer.getInteger("MPI_READ_POOL_MIN_SIZE", DEFAULT_POOL_SIZE)));
+    // Growing past MPI_READ_POOL_SIZE is opt in. Every site's MP response budget is a share of the total budget
+    // divided by this ceiling, so a higher ceiling also gives every read a smaller budget.
+    static final int MAX_POOL_SIZE = Math.max(DEFAULT_POOL_SIZE,
+            Integer.getInteger("MPI_READ_POOL_MAX_SIZE", DEFAULT_POOL_SIZE));
     static final int INITIAL_POOL_SIZE = 1;
 
+    // How long a read must wait for a full pool before the pool is grown
+    static final long GROW_WAIT_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Long.getLong("MPI_READ_POOL_GROW_WAIT_MS", 20));
+    // Minimum time between growing the pool
+    static final long GROW_INTERVAL_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Long.getLong("MPI_READ_POOL_GROW_INTERVAL_MS", 100));
+    // How long no read may wait for a site before the pool is shrunk
+    static final long SHRINK_INTERVAL_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Long.getLong("MPI_READ_POOL_SHRINK_INTERVAL_MS", 60_000));
+    // The pool is only grown while the system load average per processor is below this value
+    static final double MAX_LOAD_PER_CPU = Integer.getInteger("MPI_READ_POOL_MAX_LOAD_PERCENT", 80) / 100.0;
+
     class MpRoSiteContext {
         final private SiteTaskerQueue m_queue;
         final private MpRoSite m_site;
@@ -113,6 +142,9 @@ class MpRoSitePool {
     private ThreadFactory m_poolThreadFactory;
     private volatile boolean m_shuttingDown = false;
 
+    private final MpRoPoolSizer m_sizer;
+    private final MpReadQueueStats m_queueStats = new MpReadQueueStats();
+
     MpRoSitePool(
             long siteId,
             BackendTarget backend,
@@ -129,7 +161,16 @@ class MpRoSitePool {
             CoreUtils.getThreadFactory("RO MP Site - " + CoreUtils.hsIdToString(m_siteId),
                     CoreUtils.MEDIUM_STACK_SIZE);
 
-        tmLog.info("Setting maximum size of MPI read pool to: " + MAX_POOL_SIZE);
+        m_sizer = new MpRoPoolSizer(DEFAULT_POOL_SIZE, MIN_POOL_SIZE, MAX_POOL_SIZE, GROW_WAIT_NANOS,
+                GROW_INTERVAL_NANOS, SHRINK_INTERVAL_NANOS, MAX_LOAD_PER_CPU, MpRoSitePool::loadPerCpu,
+                System.nanoTime());
+
+        if (MIN_POOL_SIZE == MAX_POOL_SIZE) {
+            tmLog.info("Setting size of MPI read pool to: " + MAX_POOL_SIZE);
+        } else {
+            tmLog.info("Setting size of MPI read pool to: " + DEFAULT_POOL_SIZE + ", adjusting between "
+                    + MIN_POOL_SIZE + " and " + MAX_POOL_SIZE);
+        }
 
         // Construct the initial pool
         for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
@@ -203,7 +244,36 @@ class MpRoSitePool {
         if (m_shuttingDown) {
             return false;
         }
-        return (!m_idleSites.isEmpty() || m_busySites.size() < MAX_POOL_SIZE);
+        return m_busySites.size() < m_sizer.limit();
+    }
+
+    /**
+     * Called when the pool cannot accept work and a read is waiting for a site. This may grow the pool.
+     *
+     * @param headWaitNanos how long the read at the head of the backlog has been waiting
+     * @return {@code true} if the pool can now accept work
+     */
+    boolean saturated(long headWaitNanos)
+    {
+        if (m_shuttingDown || !m_sizer.saturated(headWaitNanos, System.nanoTime())) {
+            return false;
+        }
+        tmLog.info("Growing MPI read pool to " + m_sizer.limit() + " sites after a read waited "
+                + TimeUnit.NANOSECONDS.toMillis(headWaitNanos) + "ms");
+        return canAcceptWork();
+    }
+
+    /**
+     * Record the time a read of {@code procName} waited in the backlog before it was given a site
+     */
+    void recordQueueWait(String procName, long waitNanos)
+    {
+        m_queueStats.recordWait(procName, waitNanos);
+    }
+
+    MpReadQueueStats getQueueStats()
+    {
+        return m_queueStats;
     }
 
     /**
@@ -234,6 +304,7 @@ class MpRoSitePool {
             }
             site = m_idleSites.pop();
             m_busySites.put(txnId, site);
+            maybeShrink();
         }
         site.offer(task);
         return true;
@@ -263,6 +334,29 @@ class MpRoSitePool {
             site.shutdown();
             m_allSites.remove(site);
         }
+
+        maybeShrink();
+    }
+
+    private void maybeShrink()
+    {
+        if (m_sizer.maybeShrink(m_busySites.size(), System.nanoTime())) {
+            tmLog.info("Shrinking MPI read pool to " + m_sizer.limit() + " sites");
+            // Release the least recently used idle sites which are above the new limit
+            while (m_idleSites.size() > INITIAL_POOL_SIZE
+                    && m_idleSites.size() + m_busySites.size() > m_sizer.limit()) {
+                MpRoSiteContext idle = m_idleSites.removeLast();
+                idle.shutdown();
+                m_allSites.remove(idle);
+            }
+        }
+    }
+
+    private static double loadPerCpu()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = os.getSystemLoadAverage();
+        return load < 0 ? load : load / os.getAvailableProcessors();
     }
 
     void shutdown()
@@ -49,6 +49,8 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     private final Map<Long, TransactionTask> m_currentWrites = new HashMap<Long, TransactionTask>();
     private final Map<Long, TransactionTask> m_currentReads = new HashMap<Long, TransactionTask>();
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
+    // Time at which each read in the backlog was offered, used to track how long reads wait for a site
+    private final Map<Long, Long> m_readOfferTimes = new HashMap<>();
 
     private MpRoSitePool m_sitePool = null;
 
@@ -92,6 +94,9 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     synchronized void offer(TransactionTask task)
     {
         Iv2Trace.logTransactionTaskQueueOffer(task);
+        if (task.getTransactionState().isReadOnly()) {
+            m_readOfferTimes.put(task.getTxnId(), System.nanoTime());
+        }
         m_backlog.addLast(task);
         taskQueueOffer();
     }
@@ -170,6 +175,12 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
             tmLog.debug("MpTTQ: restarting:" + next.toShortString());
         }
     }
+    private long readWaitNanos(TransactionTask task, long now)
+    {
+        Long offerTime = m_readOfferTimes.get(task.getTxnId());
+        return offerTime == null ? 0 : now - offerTime;
+    }
+
     private void taskQueueOffer(TransactionTask task)
     {
         Iv2Trace.logSiteTaskerQueueOffer(task);
@@ -207,11 +218,14 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                 }
             }
             else if (m_currentWrites.isEmpty()) {
+                long now = System.nanoTime();
                 while (task != null && task.getTransactionState().isReadOnly() &&
-                       m_sitePool.canAcceptWork())
+                       (m_sitePool.canAcceptWork() || m_sitePool.saturated(readWaitNanos(task, now))))
                 {
                     task = m_backlog.pollFirst();
                     assert(task.getTransactionState().isReadOnly());
+                    m_sitePool.recordQueueWait(getProcName(task), readWaitNanos(task, now));
+                    m_readOfferTimes.remove(task.getTxnId());
                     m_currentReads.put(task.getTxnId(), task);
                     taskQueueOffer(task);
                     retval = true;
@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.CatalogContext;
@@ -27,9 +28,12 @@ import org.voltdb.VoltDB;
 import org.voltdb.client.Priority;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.compiler.deploymentfile.PriorityPolicyType;
+import org.voltdb.compiler.deploymentfile.SiteQueueKindType;
+import org.voltdb.compiler.deploymentfile.SiteQueueType;
 import org.voltdb.compiler.deploymentfile.SystemSettingsType;
 import org.voltdb.utils.AdaptivePriorityQueue;
 import org.voltdb.utils.BlockingAdaptivePriorityQueue;
+import org.voltdb.utils.BlockingRingBufferQueue;
 
 /**
  * A class managing the priority policy on a running system.
@@ -39,10 +43,13 @@ import org.voltdb.utils.BlockingAdaptivePriorityQueue;
  * <p>
  * The policy defines the types of queues used by the SP and MP sites based
  * on the attributes of the {@link PriorityPolicyType} object from the deployment.
+ * When priorities are disabled, the SP queue implementation is chosen by the
+ * {@link SiteQueueType} settings.
  */
 public class PriorityPolicy {
     // Defined as volatile for weak synchronization
     private static volatile PriorityPolicyType s_activePolicy = null;
+    private static volatile SiteQueueType s_siteQueue = null;
     static final VoltLogger hostLog = new VoltLogger("HOST");
 
     // Backward compatibility: old snapshot priority as a delay factor, will be deprecated
@@ -58,6 +65,11 @@ public class PriorityPolicy {
     static BlockingQueue<SiteTasker> getSpTaskQueue() {
         PriorityPolicyType pp = getActivePolicy();
         if (!pp.isEnabled()) {
+            SiteQueueType sq = getSiteQueue();
+            if (sq.getType() == SiteQueueKindType.RING) {
+                return new BlockingRingBufferQueue<SiteTasker>(sq.getCapacity(),
+                        TimeUnit.MICROSECONDS.toNanos(sq.getSpin()));
+            }
             return new LinkedTransferQueue<SiteTasker>();
         }
 
@@ -211,6 +223,33 @@ public class PriorityPolicy {
         return s_activePolicy;
     }
 
+    /**
+     * Lazily cache the SP site queue settings and return them
+     *
+     * @return {@link SiteQueueType}, the active site queue settings
+     */
+    static SiteQueueType getSiteQueue() {
+        if (s_siteQueue == null) {
+            // Don't care if this is done concurrently by multiple threads
+            CatalogContext cata = VoltDB.instance().getCatalogContext();
+            DeploymentType depl = cata != null ? cata.getDeploymentSafely() : null;
+            s_siteQueue = getSiteQueueFromDeployment(depl);
+        }
+        return s_siteQueue;
+    }
+
+    /**
+     * Get the SP site queue settings from a deployment
+     *
+     * @param depl {@link DeploymentType} or (@code null} if mocked environment
+     * @return {@link SiteQueueType}, initialized with proper defaults
+     */
+    public static SiteQueueType getSiteQueueFromDeployment(DeploymentType depl) {
+        SystemSettingsType sys = depl == null ? null : depl.getSystemsettings();
+        SiteQueueType sq = sys == null ? null : sys.getSitequeue();
+        return sq == null ? new SiteQueueType() : sq;
+    }
+
     /**
      * Get a transaction policy from a deployment
      *
@@ -24,6 +24,8 @@ import org.voltdb.catalog.CatalogDiffEngine;
 import org.voltdb.compiler.CatalogChangeResult;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.compiler.deploymentfile.PriorityPolicyType;
+import org.voltdb.compiler.deploymentfile.SiteQueueKindType;
+import org.voltdb.compiler.deploymentfile.SiteQueueType;
 import org.voltdb.compiler.deploymentfile.SystemSettingsType;
 
 /**
@@ -46,6 +48,11 @@ public class PriorityPolicyValidator extends CatalogValidator {
             // On first deployment, validated by xsd
             if (!ppNew.isEnabled()) {
                 s_logger.info("No priorities used for transactions");
+                SiteQueueType sq = PriorityPolicy.getSiteQueueFromDeployment(newDep);
+                if (sq.getType() == SiteQueueKindType.RING) {
+                    s_logger.info(String.format("SP sites use ring buffer queues: capacity %d, spin %d us",
+                            sq.getCapacity(), sq.getSpin()));
+                }
             }
             else {
                 s_logger.info(PriorityPolicy.toString(ppNew, "Priorities used for transactions"));
@@ -57,6 +64,10 @@ public class PriorityPolicyValidator extends CatalogValidator {
                     s_logger.warn("The snapshot priority under 'systemsettings' is superseded "
                             + "by the snapshot priority under 'priorities' and will be ignored");
                 }
+                if (PriorityPolicy.getSiteQueueFromDeployment(newDep).getType() != SiteQueueKindType.LINKED) {
+                    s_logger.warn("The 'sitequeue' type under 'systemsettings' is ignored "
+                            + "when priorities are enabled");
+                }
             }
         }
         return true;
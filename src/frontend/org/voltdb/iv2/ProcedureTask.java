@@ -63,12 +63,14 @@ abstract public class ProcedureTask extends TransactionTask
 
         try {
             Object[] callerParams = null;
+            ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
             /*
              * Parameters are lazily deserialized. We may not find out until now
              * that the parameter set is corrupt
              */
             try {
-                callerParams = taskMessage.getParameters();
+                callerParams = runner == null ? taskMessage.getParameters()
+                        : runner.getInvocationParameters(taskMessage.getStoredProcedureInvocation());
             } catch (RuntimeException e) {
                 Writer result = new StringWriter();
                 PrintWriter pw = new PrintWriter(result);
@@ -85,7 +87,6 @@ abstract public class ProcedureTask extends TransactionTask
             }
 
             ClientResponseImpl cr = null;
-            ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
             if (runner == null) {
                 String error =
                         "Procedure " + m_procName + " is not present in the catalog. "  +
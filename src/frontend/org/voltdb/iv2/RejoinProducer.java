@@ -34,6 +34,8 @@ import org.voltdb.SiteProcedureConnection;
 import org.voltdb.SnapshotCompletionInterest.SnapshotCompletionEvent;
 import org.voltdb.SnapshotCompletionMonitor.ExportSnapshotTuple;
 import org.voltdb.SnapshotSaveAPI;
+import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.messaging.RejoinMessage;
 import org.voltdb.messaging.RejoinMessage.Type;
@@ -41,6 +43,7 @@ import org.voltdb.rejoin.StreamSnapshotDataTarget;
 import org.voltdb.rejoin.StreamSnapshotSink;
 import org.voltdb.rejoin.StreamSnapshotSink.RestoreWork;
 import org.voltdb.rejoin.TaskLog;
+import org.voltdb.stats.RejoinStats;
 
 /**
  * Manages the lifecycle of snapshot serialization to a site
@@ -50,11 +53,15 @@ public class RejoinProducer extends JoinProducerBase {
     private static final VoltLogger REJOINLOG = new VoltLogger("REJOIN");
     private static final long INITIAL_DATA_TIMEOUT_MS = Long.getLong("REJOIN_INITIAL_DATA_TIMEOUT_MS",
             TimeUnit.HOURS.toMillis(1));
+    // Time a single turn of the producer may spend restoring queued blocks before yielding the site
+    private static final long RESTORE_BUDGET_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Long.getLong("REJOIN_RESTORE_BUDGET_MS", 10));
 
     private final AtomicBoolean m_currentlyRejoining;
     private static ScheduledFuture<?> m_timeFuture;
     private Mailbox m_streamSnapshotMb = null;
     private StreamSnapshotSink m_rejoinSiteProcessor = null;
+    private RejoinStats m_stats = null;
 
     // Barrier that prevents the finish task for firing until all sites have finished the stream snapshot
     private static AtomicInteger s_streamingSiteCount;
@@ -228,7 +235,12 @@ public class RejoinProducer extends JoinProducerBase {
     {
         m_coordinatorHsId = message.m_sourceHSId;
         m_streamSnapshotMb = VoltDB.instance().getHostMessenger().createMailbox();
-        m_rejoinSiteProcessor = new StreamSnapshotSink(m_streamSnapshotMb);
+        m_stats = new RejoinStats(m_mailbox.getHSId(), m_partitionId);
+        StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
+        if (statsAgent != null) {
+            statsAgent.registerStatsSource(StatsSelector.REJOIN, m_mailbox.getHSId(), m_stats);
+        }
+        m_rejoinSiteProcessor = new StreamSnapshotSink(m_streamSnapshotMb, m_stats);
         // Start the watchdog so if we never get data it will notice
         kickWatchdog(TimerCallback.initialTimer());
 
@@ -297,17 +309,32 @@ public class RejoinProducer extends JoinProducerBase {
             // Set enabled to false for the views we found.
             siteConnection.setViewsEnabled(m_commaSeparatedNameOfViewsToPause, false);
         }
+        // Restore queued blocks until the queue is empty or the budget for this turn is used up. The EE of a site
+        // loads one block at a time so blocks are restored back to back rather than one per turn of the task queue.
         boolean sourcesReady = false;
-        RestoreWork rejoinWork = m_rejoinSiteProcessor.poll(m_snapshotBufferAllocator);
-        if (rejoinWork != null) {
-            restoreBlock(rejoinWork, siteConnection);
-            sourcesReady = true;
-        }
+        final long start = System.nanoTime();
+        do {
+            RestoreWork rejoinWork = m_rejoinSiteProcessor.poll(m_snapshotBufferAllocator);
+            if (rejoinWork != null) {
+                restoreBlock(rejoinWork, siteConnection);
+                sourcesReady = true;
+            } else if (m_rejoinSiteProcessor.queuedBlocks() == 0) {
+                break;
+            }
+        } while (!m_rejoinSiteProcessor.isEOF() && System.nanoTime() - start < RESTORE_BUDGET_NANOS);
 
         if (m_rejoinSiteProcessor.isEOF() == false) {
             returnToTaskQueue(sourcesReady);
         } else {
-            REJOINLOG.debug(m_whoami + "Rejoin snapshot transfer is finished");
+            if (m_stats != null) {
+                m_stats.complete();
+                REJOINLOG.info(String.format("%sRejoin snapshot transfer is finished, restored %.2f MB in %.1f seconds (%.2f MB/s)",
+                        m_whoami, m_stats.getBytesRestored() / (1024D * 1024D), m_stats.getElapsedMillis() / 1000D,
+                        m_stats.getRestoreMBPerSec()));
+                m_stats = null;
+            } else {
+                REJOINLOG.debug(m_whoami + "Rejoin snapshot transfer is finished");
+            }
             m_rejoinSiteProcessor.close();
 
             boolean allSitesFinishStreaming;
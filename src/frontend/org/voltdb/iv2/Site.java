@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
@@ -28,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
@@ -179,6 +182,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     // Manages pending tasks.
     final SiteTaskerQueue m_pendingSiteTasks;
 
+    // Reused holder for tasks drained in one batch when SITE_TASK_DRAIN_BATCH_SIZE > 1
+    private final ArrayList<SiteTasker> m_drainedSiteTasks = SiteTaskerQueue.DRAIN_BATCH_SIZE > 1 ?
+            new ArrayList<>(SiteTaskerQueue.DRAIN_BATCH_SIZE) : null;
+    private final BooleanSupplier m_drainRunning = () -> m_shouldContinue && m_runningState.isRunning();
+    private final Consumer<SiteTasker> m_drainRunner = this::runTask;
+
     private final TickProducer m_tickProducer;
 
     /*
@@ -919,13 +928,11 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             while (m_shouldContinue) {
                 if (m_runningState.isRunning()) {
                     // Normal operation blocks the site thread on the sitetasker queue.
-                    SiteTasker task = m_pendingSiteTasks.take();
-                    if (task instanceof TransactionTask) {
-                        m_currentTxnId = ((TransactionTask)task).getTxnId();
-                        m_lastTxnTime = EstTime.currentTimeMillis();
+                    if (m_drainedSiteTasks != null) {
+                        runDrainedTasks();
+                    } else {
+                        runTask(m_pendingSiteTasks.take());
                     }
-                    Iv2Trace.logSiteTaskerQueueTake(task, false, false);
-                    task.run(getSiteProcedureConnection());
                 } else if (m_runningState.isReplaying()) {
                     // Rejoin operation poll and try to do some catchup work. Tasks
                     // are responsible for logging any rejoin work they might have.
@@ -1000,6 +1007,28 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         }
     }
 
+    private void runTask(SiteTasker task)
+    {
+        if (task instanceof TransactionTask) {
+            m_currentTxnId = ((TransactionTask)task).getTxnId();
+            m_lastTxnTime = EstTime.currentTimeMillis();
+        }
+        Iv2Trace.logSiteTaskerQueueTake(task, false, false);
+        task.run(getSiteProcedureConnection());
+    }
+
+    /*
+     * Drain a bounded batch of ready tasks in one queue operation and run them to
+     * completion back to back. If a task takes the site out of the running state the
+     * rest of the batch goes back to the head of the queue, so the replay and rejoin
+     * paths handle them exactly as if they had been taken one at a time.
+     */
+    private void runDrainedTasks() throws InterruptedException
+    {
+        m_pendingSiteTasks.runBatch(m_drainedSiteTasks, SiteTaskerQueue.DRAIN_BATCH_SIZE, m_drainRunning,
+                m_drainRunner);
+    }
+
     ParticipantTransactionState global_replay_mpTxn = null;
     boolean replayFromTaskLog(MinimumRatioMaintainer mrm) throws IOException
     {
@@ -17,7 +17,12 @@
 
 package org.voltdb.iv2;
 
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.QueueDepthTracker;
@@ -26,7 +31,15 @@ import org.voltdb.StarvationTracker;
 /** SiteTaskerScheduler orders SiteTaskers for execution. */
 public class SiteTaskerQueue
 {
+    /**
+     * Maximum number of tasks the site drains from the queue in one operation and
+     * runs back to back. The default of 1 keeps the classic one-task-per-take mode.
+     */
+    static final int DRAIN_BATCH_SIZE = Math.max(1, Integer.getInteger("SITE_TASK_DRAIN_BATCH_SIZE", 1));
+
     private final BlockingQueue<SiteTasker> m_tasks = PriorityPolicy.getSpTaskQueue();
+    // Tasks taken in a batch which were not run, they come before m_tasks and were already accounted as polled
+    private final Deque<SiteTasker> m_unrun = new ConcurrentLinkedDeque<>();
     private StarvationTracker m_starvationTracker;
     private QueueDepthTracker m_queueDepthTracker;
     private int m_partitionId;
@@ -53,7 +66,11 @@ public class SiteTaskerQueue
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
+        SiteTasker task = m_unrun.poll();
+        if (task != null) {
+            return task;
+        }
+        task = m_tasks.poll();
 
         if (task == null) {
             m_starvationTracker.beginStarvation();
@@ -71,10 +88,77 @@ public class SiteTaskerQueue
         }
     }
 
+    /**
+     * Block on the site tasker queue until at least one task is ready, then move up to
+     * {@code maxTasks} ready tasks into {@code batch} in a single drain. Starvation and
+     * queue depth accounting is done once for the whole batch.
+     *
+     * @param batch list receiving the tasks in queue order
+     * @param maxTasks upper bound on the number of tasks moved
+     * @return number of tasks added to {@code batch}, always at least one
+     */
+    public int takeBatch(List<SiteTasker> batch, int maxTasks) throws InterruptedException
+    {
+        assert maxTasks > 0;
+        if (!m_unrun.isEmpty()) {
+            int count = 0;
+            SiteTasker task;
+            while (count < maxTasks && (task = m_unrun.poll()) != null) {
+                batch.add(task);
+                ++count;
+            }
+            return count;
+        }
+        final int start = batch.size();
+        int drained = m_tasks.drainTo(batch, maxTasks);
+        if (drained == 0) {
+            m_starvationTracker.beginStarvation();
+            try {
+                batch.add(CoreUtils.queueSpinTake(m_tasks));
+            } finally {
+                m_starvationTracker.endStarvation();
+            }
+            drained = 1 + m_tasks.drainTo(batch, maxTasks - 1);
+        }
+        m_queueDepthTracker.pollUpdate(batch, start);
+        return drained;
+    }
+
+    /**
+     * Take a batch of tasks with {@link #takeBatch(List, int)} and run them in order while {@code running} is true.
+     * If a task stops the site from running, for example by starting a rejoin, the tasks after it are returned to
+     * the head of this queue so that the next {@link #peek()}, {@link #poll()} or {@link #take()} returns them.
+     *
+     * @param batch    empty list used to hold the batch, cleared before returning
+     * @param maxTasks upper bound on the number of tasks taken
+     * @param running  checked before each task is run
+     * @param runner   runs a task
+     */
+    void runBatch(List<SiteTasker> batch, int maxTasks, BooleanSupplier running, Consumer<SiteTasker> runner)
+            throws InterruptedException
+    {
+        takeBatch(batch, maxTasks);
+        int next = 0;
+        try {
+            while (next < batch.size() && running.getAsBoolean()) {
+                runner.accept(batch.get(next++));
+            }
+        } finally {
+            for (int i = batch.size() - 1; i >= next; i--) {
+                m_unrun.addFirst(batch.get(i));
+            }
+            batch.clear();
+        }
+    }
+
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        SiteTasker task = m_tasks.poll();
+        SiteTasker task = m_unrun.poll();
+        if (task != null) {
+            return task;
+        }
+        task = m_tasks.poll();
         if (task != null) {
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime(), task.getPriority());
         }
@@ -84,11 +168,12 @@ public class SiteTaskerQueue
     // Non-blocking peek on the site tasker queue.
     public SiteTasker peek()
     {
-        return m_tasks.peek();
+        SiteTasker task = m_unrun.peek();
+        return task != null ? task : m_tasks.peek();
     }
 
     public boolean isEmpty() {
-        return m_tasks.isEmpty();
+        return m_unrun.isEmpty() && m_tasks.isEmpty();
     }
 
     public void setStarvationTracker(StarvationTracker tracker) {
@@ -101,10 +186,11 @@ public class SiteTaskerQueue
     }
 
     public int size() {
-        return m_tasks.size();
+        return m_unrun.size() + m_tasks.size();
     }
 
     public void clear() {
+        m_unrun.clear();
         m_tasks.clear();
     }
 }
@@ -28,12 +28,13 @@ import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.Pair;
 import org.voltdb.dtxn.TransactionState;
 
-import com.google_voltpatches.common.collect.Collections2;
-import com.google_voltpatches.common.collect.ImmutableSet;
+import com.google_voltpatches.common.collect.ImmutableList;
 import com.google_voltpatches.common.collect.Maps;
 
 public class TransactionTaskQueue
@@ -44,6 +45,7 @@ public class TransactionTaskQueue
     final protected SiteTaskerQueue m_taskQueue;
 
     final private Scoreboard m_scoreboard;
+    final private ReentrantLock m_scoreboardLock = new ReentrantLock();
     private boolean m_scoreboardEnabled;
 
     public static class CompletionCounter {
@@ -53,54 +55,112 @@ public class TransactionTaskQueue
         boolean missingTxn = false;
     }
 
+    /*
+     * Each site's scoreboard is guarded by its own lock, so sites receiving MP fragments or
+     * completions only touch their own stripe and read the others one at a time. The shared
+     * s_lock is only taken by an arrival that observes a complete round, and by membership
+     * changes. Releasing a round holds s_lock and every scoreboard lock, and re-checks the
+     * round first because several of the last arrivals may observe it complete at once.
+     */
     private static class ScoreboardContainer {
         final SiteTaskerQueue taskQueue;
         final Scoreboard siteScoreboard;
-        public ScoreboardContainer(SiteTaskerQueue queue,Scoreboard scoreboard) {
+        final ReentrantLock lock;
+        public ScoreboardContainer(SiteTaskerQueue queue, Scoreboard scoreboard, ReentrantLock scoreboardLock) {
             taskQueue = queue;
             siteScoreboard = scoreboard;
+            lock = scoreboardLock;
         }
     }
     private static class RelativeSiteOffset {
         // Todo: deprecated m_lowestSiteId
         private int m_lowestSiteId = Integer.MIN_VALUE;
-        private int m_siteCount = 0;
+        private volatile int m_siteCount = 0;
 
         // Reverse order to release countdown latch in EE to avoid context switch
+        // Mutated under s_lock, readers use the immutable m_containers snapshot
         private Map<Integer, ScoreboardContainer> m_scoreboardContainers = Maps.newTreeMap(Collections.reverseOrder());
-        private ImmutableSet<Scoreboard> m_scoreBoards = ImmutableSet.of();
+        private volatile ImmutableList<ScoreboardContainer> m_containers = ImmutableList.of();
+
         void resetScoreboards(int firstSiteId, int siteCount) {
             m_scoreboardContainers.clear();
-            m_scoreBoards = ImmutableSet.of();
+            m_containers = ImmutableList.of();
             m_lowestSiteId = firstSiteId;
             m_siteCount = siteCount;
         }
 
-        void initializeScoreboard(int siteId, SiteTaskerQueue queue, Scoreboard scoreboard) {
+        void initializeScoreboard(int siteId, SiteTaskerQueue queue, Scoreboard scoreboard, ReentrantLock lock) {
             assert(m_lowestSiteId != Integer.MIN_VALUE);
             assert(siteId >= m_lowestSiteId && siteId-m_lowestSiteId < m_siteCount);
-            m_scoreboardContainers.put(siteId, new ScoreboardContainer(queue, scoreboard));
-            ImmutableSet.Builder<Scoreboard> builder = ImmutableSet.builder();
-            builder.addAll(Collections2.transform(m_scoreboardContainers.values(), sc -> sc.siteScoreboard));
-            m_scoreBoards = builder.build();
+            m_scoreboardContainers.put(siteId, new ScoreboardContainer(queue, scoreboard, lock));
+            m_containers = ImmutableList.copyOf(m_scoreboardContainers.values());
         }
 
         void removeScoreboard(int siteId) {
             ScoreboardContainer con = m_scoreboardContainers.remove(siteId);
             assert(con != null);
-            ImmutableSet.Builder<Scoreboard> builder = ImmutableSet.builder();
-            builder.addAll(Collections2.transform(m_scoreboardContainers.values(), sc -> sc.siteScoreboard));
-            m_scoreBoards = builder.build();
+            m_containers = ImmutableList.copyOf(m_scoreboardContainers.values());
             m_siteCount--;
         }
 
+        // Count the leading sites whose stashed fragment matches, locking one scoreboard at a time.
+        int scoreFragmentTask(long txnId, long timestamp) {
+            int fragmentScore = 0;
+            for (ScoreboardContainer con : m_containers) {
+                con.lock.lock();
+                try {
+                    if (!con.siteScoreboard.matchFragmentTask(txnId, timestamp)) {
+                        break;
+                    }
+                } finally {
+                    con.lock.unlock();
+                }
+                fragmentScore++;
+            }
+            return fragmentScore;
+        }
+
+        // Count the leading sites whose first stashed completion matches, locking one scoreboard at a time.
+        void scoreCompleteTransactionTask(long txnId, long timestamp, CompletionCounter counter) {
+            for (ScoreboardContainer con : m_containers) {
+                con.lock.lock();
+                try {
+                    if (!con.siteScoreboard.matchCompleteTransactionTask(txnId, timestamp)) {
+                        break;
+                    }
+                    counter.missingTxn |= con.siteScoreboard.peekFirst().getSecond();
+                } finally {
+                    con.lock.unlock();
+                }
+                // At repair time MPI may send many rounds of CompleteTxnMessage due to the fact that
+                // many SPI leaders are promoted, each round of CompleteTxnMessages share the same
+                // timestamp, so at TransactionTaskQueue level it only counts messages from the same round.
+                counter.completionCount++;
+            }
+        }
+
+        // Called with s_lock held, locks are always taken in container order.
+        ImmutableList<ScoreboardContainer> lockScoreboards() {
+            ImmutableList<ScoreboardContainer> containers = m_containers;
+            for (ScoreboardContainer con : containers) {
+                con.lock.lock();
+            }
+            return containers;
+        }
+
+        void unlockScoreboards(ImmutableList<ScoreboardContainer> containers) {
+            for (ScoreboardContainer con : containers.reverse()) {
+                con.lock.unlock();
+            }
+        }
+
         // All sites receives FragmentTask messages, time to fire the task.
         void releaseStashedFragments(long txnId) {
             if (hostLog.isDebugEnabled()) {
                 hostLog.debug("release stashed fragment messages:" + TxnEgo.txnIdToString(txnId));
             }
             long lastTxnId = 0;
-            for (ScoreboardContainer con : m_scoreboardContainers.values()) {
+            for (ScoreboardContainer con : m_containers) {
                 TransactionTask task = con.siteScoreboard.getFragmentTask();
                 assert(lastTxnId == 0 || lastTxnId == task.getTxnId());
                 lastTxnId = task.getTxnId();
@@ -123,7 +183,7 @@ public class TransactionTaskQueue
                 }
 
                 CompletionCounter nextTaskCounter = new CompletionCounter();
-                for (ScoreboardContainer con : m_scoreboardContainers.values()) {
+                for (ScoreboardContainer con : m_containers) {
                     // only release completions at head of queue
                     Pair<CompleteTransactionTask, Boolean> task = con.siteScoreboard
                             .pollFirstCompletionTask(nextTaskCounter);
@@ -147,18 +207,19 @@ public class TransactionTaskQueue
             }
         }
 
-        ImmutableSet<Scoreboard> getScoreboards() {
-            return m_scoreBoards;
-        }
-
         int getSiteCount() {
             return m_siteCount;
         }
 
         // should only be used for debugging purpose
         private void dumpStashedMpWrites(StringBuilder builder) {
-            for (ScoreboardContainer con : m_scoreboardContainers.values()) {
-                builder.append("\nQueue " + con.taskQueue.getPartitionId() + ":" + con.siteScoreboard);
+            for (ScoreboardContainer con : m_containers) {
+                con.lock.lock();
+                try {
+                    builder.append("\nQueue " + con.taskQueue.getPartitionId() + ":" + con.siteScoreboard);
+                } finally {
+                    con.lock.unlock();
+                }
             }
         }
     }
@@ -222,7 +283,7 @@ public class TransactionTaskQueue
 
     void initializeScoreboard(int siteId) {
         synchronized (s_lock) {
-            s_stashedMpWrites.initializeScoreboard(siteId, m_taskQueue, m_scoreboard);
+            s_stashedMpWrites.initializeScoreboard(siteId, m_taskQueue, m_scoreboard, m_scoreboardLock);
         }
     }
 
@@ -306,10 +367,11 @@ public class TransactionTaskQueue
     }
 
     private void coordinatedTaskQueueOffer(TransactionTask task) {
-        synchronized (s_lock) {
-            long taskTimestamp = -1;
-            long taskTxnId = -1;
-            boolean isFragTask = false;
+        long taskTimestamp = -1;
+        long taskTxnId = -1;
+        boolean isFragTask = false;
+        m_scoreboardLock.lock();
+        try {
             if (task instanceof CompleteTransactionTask) {
                 taskTimestamp = ((CompleteTransactionTask)task).getTimestamp();
                 taskTxnId = ((CompleteTransactionTask)task).getMsgTxnId();
@@ -322,45 +384,59 @@ public class TransactionTaskQueue
                 m_scoreboard.addFragmentTask(ft);
                 isFragTask = true;
             }
+        } finally {
+            m_scoreboardLock.unlock();
+        }
 
-            int fragmentScore = 0;
-            int completionScore = 0;
-            boolean missingTxn = false;
-            if (isFragTask) {
-                for (Scoreboard sb : s_stashedMpWrites.getScoreboards()) {
-                    if (!sb.matchFragmentTask(taskTxnId, taskTimestamp)) {
-                        break;
-                    }
-                    fragmentScore++;
-                }
-            } else {
-                for (Scoreboard sb : s_stashedMpWrites.getScoreboards()) {
-                    if (!sb.matchCompleteTransactionTask(taskTxnId, taskTimestamp)) {
-                        break;
-                    }
-                    missingTxn |= sb.peekFirst().getSecond();
-                    // At repair time MPI may send many rounds of CompleteTxnMessage due to the fact that
-                    // many SPI leaders are promoted, each round of CompleteTxnMessages share the same
-                    // timestamp, so at TransactionTaskQueue level it only counts messages from the same round.
-                    completionScore++;
+        int fragmentScore = 0;
+        CompletionCounter completions = new CompletionCounter();
+        if (isFragTask) {
+            fragmentScore = s_stashedMpWrites.scoreFragmentTask(taskTxnId, taskTimestamp);
+        } else {
+            s_stashedMpWrites.scoreCompleteTransactionTask(taskTxnId, taskTimestamp, completions);
+        }
+
+        if (hostLog.isDebugEnabled()) {
+            StringBuilder sb = new StringBuilder("MP Write Scoreboard Received " + task + "\nFrags: "
+                    + fragmentScore + "/" + s_stashedMpWrites.getSiteCount() + " Comps: " + completions.completionCount + "/"
+                    + s_stashedMpWrites.getSiteCount() + ".\n");
+            s_stashedMpWrites.dumpStashedMpWrites(sb);
+            hostLog.debug(sb.toString());
+        }
+        if (completions.completionCount == s_stashedMpWrites.getSiteCount()) {
+            // The initial completion may have been executed but not yet been removed from
+            // m_outstandingTxns yet because the CompletionResponse has not been processed.
+            releaseCompleteTxnsIfMatched(taskTxnId, taskTimestamp, task.m_txnState.isDone());
+        }
+        else if (fragmentScore == s_stashedMpWrites.getSiteCount() && completions.completionCount == 0) {
+            releaseFragmentsIfMatched(taskTxnId, taskTimestamp);
+        }
+    }
+
+    private static void releaseFragmentsIfMatched(long txnId, long timestamp) {
+        synchronized (s_lock) {
+            ImmutableList<ScoreboardContainer> locked = s_stashedMpWrites.lockScoreboards();
+            try {
+                if (s_stashedMpWrites.scoreFragmentTask(txnId, timestamp) == s_stashedMpWrites.getSiteCount()) {
+                    s_stashedMpWrites.releaseStashedFragments(txnId);
                 }
+            } finally {
+                s_stashedMpWrites.unlockScoreboards(locked);
             }
+        }
+    }
 
-            if (hostLog.isDebugEnabled()) {
-                StringBuilder sb = new StringBuilder("MP Write Scoreboard Received " + task + "\nFrags: "
-                        + fragmentScore + "/" + s_stashedMpWrites.getSiteCount() + " Comps: " + completionScore + "/"
-                        + s_stashedMpWrites.getSiteCount() + ".\n");
-                s_stashedMpWrites.dumpStashedMpWrites(sb);
-                hostLog.debug(sb.toString());
-            }
-            if (completionScore == s_stashedMpWrites.getSiteCount()) {
-                // The initial completion may have been executed but not yet been removed from
-                // m_outstandingTxns yet because the CompletionResponse has not been processed.
-                missingTxn |= task.m_txnState.isDone();
-                s_stashedMpWrites.releaseStashedCompleteTxns(missingTxn, taskTxnId);
-            }
-            else if (fragmentScore == s_stashedMpWrites.getSiteCount() && completionScore == 0) {
-                s_stashedMpWrites.releaseStashedFragments(task.getTxnId());
+    private static void releaseCompleteTxnsIfMatched(long txnId, long timestamp, boolean missingTxn) {
+        synchronized (s_lock) {
+            ImmutableList<ScoreboardContainer> locked = s_stashedMpWrites.lockScoreboards();
+            try {
+                CompletionCounter completions = new CompletionCounter();
+                s_stashedMpWrites.scoreCompleteTransactionTask(txnId, timestamp, completions);
+                if (completions.completionCount == s_stashedMpWrites.getSiteCount()) {
+                    s_stashedMpWrites.releaseStashedCompleteTxns(missingTxn || completions.missingTxn, txnId);
+                }
+            } finally {
+                s_stashedMpWrites.unlockScoreboards(locked);
             }
         }
     }
@@ -369,30 +445,25 @@ public class TransactionTaskQueue
         if (!m_scoreboardEnabled) {
             return;
         }
-        synchronized (s_lock) {
-            long taskTxnId = missingTxnCompletion.getMsgTxnId();
-            long taskTimestamp = missingTxnCompletion.getTimestamp();
+        long taskTxnId = missingTxnCompletion.getMsgTxnId();
+        long taskTimestamp = missingTxnCompletion.getTimestamp();
+        m_scoreboardLock.lock();
+        try {
             m_scoreboard.addCompletedTransactionTask(missingTxnCompletion, true);
-            int completionScore = 0;
-            for (Scoreboard sb : s_stashedMpWrites.getScoreboards()) {
-                if (!sb.matchCompleteTransactionTask(taskTxnId, taskTimestamp)) {
-                    break;
-                }
-                // At repair time MPI may send many rounds of CompleteTxnMessage due to the fact that
-                // many SPI leaders are promoted, each round of CompleteTxnMessages share the same
-                // timestamp, so at TransactionTaskQueue level it only counts messages from the same round.
-                completionScore++;
-            }
+        } finally {
+            m_scoreboardLock.unlock();
+        }
+        CompletionCounter completions = new CompletionCounter();
+        s_stashedMpWrites.scoreCompleteTransactionTask(taskTxnId, taskTimestamp, completions);
 
-            if (hostLog.isDebugEnabled()) {
-                StringBuilder sb = new StringBuilder("MP Write Scoreboard Received unmatched " + missingTxnCompletion
-                        + "\nComps: " + completionScore + "/" + s_stashedMpWrites.getSiteCount());
-                s_stashedMpWrites.dumpStashedMpWrites(sb);
-                hostLog.debug(sb.toString());
-            }
-            if (completionScore == s_stashedMpWrites.getSiteCount()) {
-                s_stashedMpWrites.releaseStashedCompleteTxns(true, taskTxnId);
-            }
+        if (hostLog.isDebugEnabled()) {
+            StringBuilder sb = new StringBuilder("MP Write Scoreboard Received unmatched " + missingTxnCompletion
+                    + "\nComps: " + completions.completionCount + "/" + s_stashedMpWrites.getSiteCount());
+            s_stashedMpWrites.dumpStashedMpWrites(sb);
+            hostLog.debug(sb.toString());
+        }
+        if (completions.completionCount == s_stashedMpWrites.getSiteCount()) {
+            releaseCompleteTxnsIfMatched(taskTxnId, taskTimestamp, true);
         }
     }
 
@@ -510,8 +581,11 @@ public class TransactionTaskQueue
             }
         }
         sb.append("\n\tScoreboard:").append("\n");
-        synchronized (s_lock) {
+        m_scoreboardLock.lock();
+        try {
             sb.append("\t").append(m_scoreboard.toString());
+        } finally {
+            m_scoreboardLock.unlock();
         }
     }
 
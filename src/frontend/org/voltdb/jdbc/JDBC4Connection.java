@@ -45,10 +45,18 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
     public static final String COMMIT_THROW_EXCEPTION = "jdbc.committhrowexception";
     public static final String ROLLBACK_THROW_EXCEPTION = "jdbc.rollbackthrowexception";
     public static final String QUERYTIMEOUT_UNIT = "jdbc.querytimeout.unit";
+    // Maximum number of statements of a batch which are outstanding at once, 1 executes them one at a time. Statements
+    // which are outstanding together may execute in any order so only raise it when the statements are independent.
+    public static final String BATCH_WINDOW = "jdbc.batchwindow";
+    public static final int DEFAULT_BATCH_WINDOW = 1;
+    // Read selects through a server side cursor, fetchSize rows at a time, when the statement has a fetch size
+    public static final String CURSOR_FETCH = "jdbc.cursorfetch";
 
     protected final JDBC4ClientConnection NativeConnection;
     protected final String User;
     protected TimeUnit queryTimeOutUnit = TimeUnit.SECONDS;
+    protected int batchWindow = DEFAULT_BATCH_WINDOW;
+    protected boolean cursorFetch = false;
     private boolean isClosed = false;
     private Properties props;
     private boolean autoCommit = true;
@@ -61,6 +69,13 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
         if (this.props.getProperty(JDBC4Connection.QUERYTIMEOUT_UNIT, "Seconds").equalsIgnoreCase("milliseconds")) {
             this.queryTimeOutUnit = TimeUnit.MILLISECONDS;
         }
+        try {
+            this.batchWindow = Math.max(1, Integer.parseInt(
+                    this.props.getProperty(JDBC4Connection.BATCH_WINDOW, Integer.toString(DEFAULT_BATCH_WINDOW)).trim()));
+        } catch (NumberFormatException e) {
+            this.batchWindow = DEFAULT_BATCH_WINDOW;
+        }
+        this.cursorFetch = Boolean.parseBoolean(this.props.getProperty(JDBC4Connection.CURSOR_FETCH, "false").trim());
     }
 
     private void checkClosed() throws SQLException
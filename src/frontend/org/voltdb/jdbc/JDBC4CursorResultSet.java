@@ -0,0 +1,188 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jdbc;
+
+import java.sql.SQLException;
+
+import org.voltdb.VoltTable;
+
+// A forward only ResultSet which reads the rows of a server side cursor one chunk at a time.
+// Only the current chunk is held by the client and the next chunk is fetched when next() moves past the last row
+// of the current chunk. The cursor is released by the server once the last chunk is fetched, or when this is closed.
+public class JDBC4CursorResultSet extends JDBC4ResultSet {
+    // Cursor ID returned by the server when there are no more chunks, see ResultCursorManager.NO_CURSOR
+    static final long NO_CURSOR = -1;
+
+    private final JDBC4Statement statement;
+    private final int maxRows;
+    private long cursorId;
+    private int row = 0;
+    private boolean afterLast = false;
+
+    JDBC4CursorResultSet(JDBC4Statement sourceStatement, VoltTable rows, VoltTable cursorState, int maxRows)
+            throws SQLException {
+        super(sourceStatement, rows);
+        this.statement = sourceStatement;
+        this.maxRows = maxRows;
+        this.cursorId = readCursorId(cursorState);
+        this.table.resetRowPosition();
+    }
+
+    private static long readCursorId(VoltTable cursorState) {
+        cursorState.resetRowPosition();
+        cursorState.advanceRow();
+        return cursorState.getLong(0);
+    }
+
+    private boolean maxRowsReached() {
+        return this.maxRows > 0 && this.row >= this.maxRows;
+    }
+
+    // Moves the cursor forward one row from its current position, fetching the next chunk of rows when needed.
+    @Override
+    public boolean next() throws SQLException {
+        checkClosed();
+        if (this.afterLast) {
+            return false;
+        }
+        if (maxRowsReached()) {
+            this.afterLast = true;
+            closeCursor();
+            return false;
+        }
+        while (!this.table.advanceRow()) {
+            if (this.cursorId == NO_CURSOR) {
+                this.afterLast = true;
+                return false;
+            }
+            VoltTable[] tables = this.statement.executeCursorProcedure("@AdHocCursorFetch", this.cursorId);
+            this.table = tables[0];
+            this.table.resetRowPosition();
+            this.cursorId = readCursorId(tables[1]);
+        }
+        this.row++;
+        return true;
+    }
+
+    private void closeCursor() throws SQLException {
+        if (this.cursorId != NO_CURSOR) {
+            long id = this.cursorId;
+            this.cursorId = NO_CURSOR;
+            this.statement.executeCursorProcedure("@AdHocCursorClose", id);
+        }
+    }
+
+    // Releases the rows held by the server if they have not all been read.
+    @Override
+    public void close() throws SQLException {
+        if (isClosed()) {
+            return;
+        }
+        try {
+            closeCursor();
+        } finally {
+            super.close();
+        }
+    }
+
+    // Retrieves the current row number.
+    @Override
+    public int getRow() throws SQLException {
+        checkClosed();
+        return this.afterLast ? 0 : this.row;
+    }
+
+    // Retrieves the type of this ResultSet object.
+    @Override
+    public int getType() throws SQLException {
+        checkClosed();
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        checkClosed();
+        return this.row == 0 && !this.afterLast;
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        checkClosed();
+        return this.afterLast;
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        checkClosed();
+        return this.row == 1 && !this.afterLast;
+    }
+
+    // The last row of a chunk is only the last row of the result when there are no more chunks.
+    @Override
+    public boolean isLast() throws SQLException {
+        checkClosed();
+        if (this.row == 0 || this.afterLast) {
+            return false;
+        }
+        return maxRowsReached()
+                || (this.cursorId == NO_CURSOR && this.table.getActiveRowIndex() == this.table.getRowCount() - 1);
+    }
+
+    // A cursor can only be read forward.
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+}
@@ -25,16 +25,17 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.parser.JDBCParser;
 import org.voltdb.parser.SQLLexer;
 import org.voltdb.parser.JDBCParser.ParsedCall;
@@ -114,36 +115,43 @@ public class JDBC4Statement implements java.sql.Statement
         }
 
         protected VoltTable[] execute(JDBC4ClientConnection connection, long timeout, TimeUnit queryTimeOutUnit) throws SQLException {
+            if (this.type == TYPE_EXEC) {
+                return executeProcedure(connection, timeout, queryTimeOutUnit, this.sql[0], this.parameters);
+            } else {
+                return executeProcedure(connection, timeout, queryTimeOutUnit, "@AdHoc", this.sql[0]);
+            }
+        }
+
+        /**
+         * Execute this select through a server side cursor which returns at most {@code fetchSize} rows at a time
+         *
+         * @return the first chunk of rows followed by the cursor state
+         */
+        protected VoltTable[] openCursor(JDBC4ClientConnection connection, long timeout, TimeUnit queryTimeOutUnit,
+                int fetchSize) throws SQLException {
+            Object[] params;
+            if (this.type == TYPE_EXEC) {
+                // Parameterized @AdHoc so parameters already starts with the query text
+                params = new Object[this.parameters.length + 1];
+                System.arraycopy(this.parameters, 0, params, 1, this.parameters.length);
+            } else {
+                params = new Object[] { null, this.sql[0] };
+            }
+            params[0] = fetchSize;
+            return executeProcedure(connection, timeout, queryTimeOutUnit, "@AdHocCursorOpen", params);
+        }
+
+        static VoltTable[] executeProcedure(JDBC4ClientConnection connection, long timeout, TimeUnit queryTimeOutUnit,
+                String procedure, Object... params) throws SQLException {
             try
             {
-                if (this.type == TYPE_EXEC) {
-                    return connection.execute(this.sql[0], timeout, queryTimeOutUnit, this.parameters).getResults();
-                } else {
-                    return connection.execute("@AdHoc", timeout, queryTimeOutUnit, this.sql[0]).getResults();
-                }
+                return connection.execute(procedure, timeout, queryTimeOutUnit, params).getResults();
             }
             catch(ProcCallException e)
             {
                 ClientResponse response = e.getClientResponse();
                 if (response != null) {
-                    // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
-                    // for connection problems.
-                    switch (response.getStatus()) {
-                    case ClientResponse.CONNECTION_LOST:
-                        throw SQLError.get(e, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", e.getMessage());
-                    case ClientResponse.CONNECTION_TIMEOUT:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", e.getMessage());
-                    case ClientResponse.SERVER_UNAVAILABLE:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", e.getMessage());
-                    case ClientResponse.USER_ABORT:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "USER_ABORT", e.getMessage());
-                    case ClientResponse.UNEXPECTED_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", e.getMessage());
-                    case ClientResponse.GRACEFUL_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", e.getMessage());
-                    default:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), e.getMessage());
-                    }
+                    throw responseError(e, response);
                 } else {
                     throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
                 }
@@ -154,6 +162,50 @@ public class JDBC4Statement implements java.sql.Statement
             }
         }
 
+        /**
+         * Execute this statement without waiting for the response, which is passed to {@code callback}
+         *
+         * @return {@code false} if the call could not be queued, in which case {@code callback} will not be called
+         */
+        protected boolean executeAsync(JDBC4ClientConnection connection, long timeout, TimeUnit queryTimeOutUnit,
+                ProcedureCallback callback) throws SQLException {
+            try
+            {
+                if (this.type == TYPE_EXEC) {
+                    return connection.executeAsync(callback, timeout, queryTimeOutUnit, this.sql[0], this.parameters);
+                } else {
+                    return connection.executeAsync(callback, timeout, queryTimeOutUnit, "@AdHoc", this.sql[0]);
+                }
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+        }
+
+        // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
+        // for connection problems.
+        static SQLException responseError(Exception cause, ClientResponse response)
+        {
+            String message = response.getStatusString();
+            switch (response.getStatus()) {
+            case ClientResponse.CONNECTION_LOST:
+                return SQLError.get(cause, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", message);
+            case ClientResponse.CONNECTION_TIMEOUT:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", message);
+            case ClientResponse.SERVER_UNAVAILABLE:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", message);
+            case ClientResponse.USER_ABORT:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "USER_ABORT", message);
+            case ClientResponse.UNEXPECTED_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", message);
+            case ClientResponse.GRACEFUL_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", message);
+            default:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), message);
+            }
+        }
+
         public static boolean isUpdateResult(VoltTable table)
         {
             return ((table.getColumnName(0).length() == 0 || table.getColumnName(0).equals("modified_tuples"))&& table.getRowCount() == 1 && table.getColumnCount() == 1 && table.getColumnType(0) == VoltType.BIGINT);
@@ -293,6 +345,30 @@ public class JDBC4Statement implements java.sql.Statement
         this.result = createTrimmedResultSet(this.tableResults[this.tableResultIndex]);
     }
 
+    // Only queries which are expected to be large set a fetch size so only those are read through a cursor
+    private boolean useCursor(VoltSQL query)
+    {
+        return this.sourceConnection.cursorFetch && this.fetchSize > 0 && query.isQueryOfType(VoltSQL.TYPE_SELECT);
+    }
+
+    private void setCurrentCursorResult(VoltSQL query) throws SQLException
+    {
+        // Release any open cursor before opening another
+        setCurrentResult(null, -1);
+        VoltTable[] tables = query.openCursor(this.sourceConnection.NativeConnection, this.m_timeout,
+                this.sourceConnection.queryTimeOutUnit, this.fetchSize);
+        this.tableResults = new VoltTable[] { tables[0] };
+        this.tableResultIndex = 0;
+        this.result = new JDBC4CursorResultSet(this, tables[0], tables[1], maxRows);
+    }
+
+    // Used by cursor result sets to fetch more rows or close the cursor with this statement's timeout
+    VoltTable[] executeCursorProcedure(String procedure, long cursorId) throws SQLException
+    {
+        return VoltSQL.executeProcedure(this.sourceConnection.NativeConnection, this.m_timeout,
+                this.sourceConnection.queryTimeOutUnit, procedure, cursorId);
+    }
+
     private void closeAllOpenResults() throws SQLException
     {
         if (this.openResults != null)
@@ -360,6 +436,10 @@ public class JDBC4Statement implements java.sql.Statement
     public void close() throws SQLException
     {
         // close resultset too
+        if (this.result instanceof JDBC4CursorResultSet) {
+            // Release the server side cursor now instead of waiting for it to expire
+            closeCurrentResult();
+        }
         this.isClosed = true;
     }
 
@@ -368,7 +448,11 @@ public class JDBC4Statement implements java.sql.Statement
         checkClosed();
         if (query.isQueryOfType(VoltSQL.TYPE_SELECT,VoltSQL.TYPE_EXEC))
         {
-            setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout,this.sourceConnection.queryTimeOutUnit), -1);
+            if (useCursor(query)) {
+                setCurrentCursorResult(query);
+            } else {
+                setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout,this.sourceConnection.queryTimeOutUnit), -1);
+            }
             return true;
         }
         else
@@ -411,7 +495,73 @@ public class JDBC4Statement implements java.sql.Statement
         throw SQLError.noSupport();
     }
 
+    /**
+     * Tracks the responses of the statements of a batch which are executed asynchronously. At most
+     * {@code window} statements are outstanding at once.
+     */
+    private static class BatchTracker
+    {
+        private final Semaphore permits;
+        private final int window;
+        private final ClientResponse[] responses;
+        private volatile boolean failed = false;
+
+        BatchTracker(int size, int window)
+        {
+            this.window = window;
+            this.permits = new Semaphore(window);
+            this.responses = new ClientResponse[size];
+        }
+
+        void acquire() throws SQLException
+        {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
+            }
+        }
+
+        void release()
+        {
+            permits.release();
+        }
+
+        ProcedureCallback callback(final int index)
+        {
+            return new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse response)
+                {
+                    if (response.getStatus() != ClientResponse.SUCCESS) {
+                        failed = true;
+                    }
+                    // The semaphore release publishes the response to the waiting thread
+                    responses[index] = response;
+                    permits.release();
+                }
+            };
+        }
+
+        boolean hasFailed()
+        {
+            return failed;
+        }
+
+        // Wait for all outstanding statements to complete
+        void awaitOutstanding() throws SQLException
+        {
+            permits.acquireUninterruptibly(window);
+            permits.release(window);
+        }
+    }
+
     // Submits a batch of commands to the database for execution and if all commands execute successfully, returns an array of update counts.
+    // Statements are executed in batch order one at a time unless jdbc.batchwindow allows more to be outstanding at once,
+    // in which case they may execute out of order. When a statement fails no further
+    // statements are sent, the statements already sent are allowed to complete and the BatchUpdateException holds
+    // an update count for each statement which was sent, with EXECUTE_FAILED for those which failed.
     @Override
     public int[] executeBatch() throws SQLException
     {
@@ -421,41 +571,81 @@ public class JDBC4Statement implements java.sql.Statement
             return new int[0];
         }
 
-        int[] updateCounts = new int[batch.size()];
-        // keep a running total of update counts
-        int runningUpdateCount = 0;
+        final int size = batch.size();
+        BatchTracker tracker = new BatchTracker(size, sourceConnection.batchWindow);
+        SQLException sendFailure = null;
 
-        int i = 0;
+        int sent = 0;
         try {
-            for (; i < batch.size(); i++) {
-
-                setCurrentResult(
-                        null,
-                        (int) batch.get(i).execute(
-                                sourceConnection.NativeConnection,
-                                this.m_timeout,
-                                sourceConnection.queryTimeOutUnit)[0].fetchRow(
-                                0).getLong(0));
-                updateCounts[i] = this.lastUpdateCount;
-                runningUpdateCount += this.lastUpdateCount;
+            for (; sent < size; sent++) {
+                tracker.acquire();
+                if (tracker.hasFailed()) {
+                    tracker.release();
+                    break;
+                }
+                boolean queued;
+                try {
+                    queued = batch.get(sent).executeAsync(
+                            sourceConnection.NativeConnection,
+                            this.m_timeout,
+                            sourceConnection.queryTimeOutUnit,
+                            tracker.callback(sent));
+                } catch (SQLException x) {
+                    tracker.release();
+                    sendFailure = x;
+                    break;
+                }
+                if (!queued) {
+                    tracker.release();
+                    sendFailure = SQLError.get(SQLError.CONNECTION_FAILURE, "Client is shut down");
+                    break;
+                }
             }
-        } catch (SQLException x) {
-            updateCounts[i] = EXECUTE_FAILED;
-            throw new BatchUpdateException(Arrays.copyOf(updateCounts, i + 1),
-                    x);
         } finally {
+            tracker.awaitOutstanding();
             clearBatch();
         }
-        // replace the update count from the last statement with the update count
-        // from the last batch.
-        this.lastUpdateCount = runningUpdateCount;
+
+        int[] updateCounts = new int[sendFailure == null ? sent : sent + 1];
+        // keep a running total of update counts
+        int runningUpdateCount = 0;
+        SQLException firstFailure = null;
+        for (int i = 0; i < sent; i++) {
+            ClientResponse response = tracker.responses[i];
+            if (response.getStatus() == ClientResponse.SUCCESS) {
+                updateCounts[i] = (int) response.getResults()[0].fetchRow(0).getLong(0);
+                runningUpdateCount += updateCounts[i];
+            } else {
+                updateCounts[i] = EXECUTE_FAILED;
+                if (firstFailure == null) {
+                    firstFailure = VoltSQL.responseError(null, response);
+                }
+            }
+        }
+        if (sendFailure != null) {
+            updateCounts[sent] = EXECUTE_FAILED;
+            if (firstFailure == null) {
+                firstFailure = sendFailure;
+            }
+        }
+        if (firstFailure != null) {
+            throw new BatchUpdateException(firstFailure.getMessage(), firstFailure.getSQLState(), updateCounts,
+                    firstFailure);
+        }
+
+        // the update count is the total of the whole batch
+        setCurrentResult(null, runningUpdateCount);
 
         return updateCounts;
     }
 
     protected ResultSet executeQuery(VoltSQL query) throws SQLException
     {
-        setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout, this.sourceConnection.queryTimeOutUnit), -1);
+        if (useCursor(query)) {
+            setCurrentCursorResult(query);
+        } else {
+            setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout, this.sourceConnection.queryTimeOutUnit), -1);
+        }
         return this.result;
     }
 
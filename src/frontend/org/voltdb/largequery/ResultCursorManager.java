@@ -0,0 +1,465 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.largequery;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Holds the results of queries which are being fetched by a client in chunks of rows.
+ *
+ * A query result is split into chunks of the requested fetch size when the cursor is opened. The first chunk is
+ * returned immediately and the rest are kept until they are fetched, closed, the connection which opened the cursor
+ * is closed or the cursor sits idle for longer than {@link #IDLE_TIMEOUT_MS}. When a result is larger than
+ * {@link #SPILL_THRESHOLD_BYTES} the pending chunks are written to the large query swap directory through the
+ * {@link LargeBlockManager} so that open cursors do not pin the heap. A host holds at most {@link #MAX_OPEN_CURSORS}
+ * cursors and {@link #MAX_PENDING_BYTES} bytes of pending rows, opening a cursor beyond either limit fails.
+ *
+ * Cursor IDs encode the ID of the host which owns the cursor so requests for a cursor can be routed to its host. The
+ * rest of the ID is random and a cursor can only be read or closed by the user who opened it from the same client
+ * address.
+ */
+public class ResultCursorManager {
+    private static final VoltLogger log = new VoltLogger("HOST");
+
+    /** Cursors which have not been fetched from for this long are released */
+    static final long IDLE_TIMEOUT_MS = Long.getLong("CURSOR_IDLE_TIMEOUT_MS", TimeUnit.MINUTES.toMillis(5));
+    /** Results which are larger than this are spilled to disk while the cursor is open */
+    static final int SPILL_THRESHOLD_BYTES = Integer.getInteger("CURSOR_SPILL_THRESHOLD_BYTES", 8 * 1024 * 1024);
+    /** Maximum number of cursors which can be open on a host */
+    static final int MAX_OPEN_CURSORS = Integer.getInteger("CURSOR_MAX_OPEN", 1000);
+    /** Maximum number of bytes of rows, in memory or spilled, which open cursors on a host can hold */
+    static final long MAX_PENDING_BYTES = Long.getLong("CURSOR_MAX_PENDING_BYTES", 1024L * 1024 * 1024);
+
+    /** Cursor ID returned when the whole result fit in the first chunk */
+    public static final long NO_CURSOR = -1;
+
+    /** Schema of the table which follows the rows in each cursor response */
+    public static final ColumnInfo[] CURSOR_STATE_SCHEMA = new ColumnInfo[] {
+            new ColumnInfo("CURSOR_ID", VoltType.BIGINT),
+            new ColumnInfo("REMAINING_ROWS", VoltType.BIGINT)
+    };
+
+    private static ResultCursorManager INSTANCE = null;
+
+    private final int m_hostId;
+    private final long m_idleTimeoutMs;
+    private final int m_spillThreshold;
+    private final int m_maxCursors;
+    private final long m_maxPendingBytes;
+    private final long m_blockSiteId;
+    private final SecureRandom m_random = new SecureRandom();
+    private final Map<Long, Cursor> m_cursors = new HashMap<>();
+    private long m_pendingBytes = 0;
+    private long m_nextBlockId = 0;
+
+    /**
+     * Get the instance of ResultCursorManager for this host
+     */
+    public static synchronized ResultCursorManager getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ResultCursorManager(VoltDB.instance().getHostMessenger().getHostId(), IDLE_TIMEOUT_MS,
+                    SPILL_THRESHOLD_BYTES, MAX_OPEN_CURSORS, MAX_PENDING_BYTES);
+            // Idle cursors hold rows until they are expired so check for them even when no cursors are being opened
+            long period = Math.max(1000, IDLE_TIMEOUT_MS / 2);
+            final ResultCursorManager manager = INSTANCE;
+            VoltDB.instance().scheduleWork(manager::expireIdleCursors, period, period, TimeUnit.MILLISECONDS);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Release the cursors opened by a client connection which has been closed
+     *
+     * @param connectionId ID of the connection
+     */
+    public static void connectionClosed(long connectionId) {
+        ResultCursorManager manager;
+        synchronized (ResultCursorManager.class) {
+            manager = INSTANCE;
+        }
+        if (manager != null) {
+            manager.releaseConnection(connectionId);
+        }
+    }
+
+    ResultCursorManager(int hostId, long idleTimeoutMs, int spillThreshold, int maxCursors, long maxPendingBytes) {
+        m_hostId = hostId;
+        m_idleTimeoutMs = idleTimeoutMs;
+        m_spillThreshold = spillThreshold;
+        m_maxCursors = maxCursors;
+        m_maxPendingBytes = maxPendingBytes;
+        // Blocks are attributed to the client interface so they never collide with blocks stored by a site
+        m_blockSiteId = CoreUtils.getHSIdFromHostAndSite(hostId, HostMessenger.CLIENT_INTERFACE_SITE_ID);
+    }
+
+    /**
+     * @param cursorId ID of a cursor
+     * @return the ID of the host which owns the cursor
+     */
+    public static int getOwnerHostId(long cursorId) {
+        return CoreUtils.getHostIdFromHSId(cursorId);
+    }
+
+    /**
+     * @return {@code true} if the cursor with {@code cursorId} was opened on this host
+     */
+    public boolean isLocal(long cursorId) {
+        return cursorId != NO_CURSOR && getOwnerHostId(cursorId) == m_hostId;
+    }
+
+    /**
+     * Open a cursor over {@code result}.
+     *
+     * @param result        result of a query
+     * @param fetchSize     maximum number of rows to return in each chunk. If {@code fetchSize <= 0} all rows are
+     *                      returned in the first chunk
+     * @param user          name of the user who ran the query
+     * @param connectionId  ID of the client connection which ran the query
+     * @param clientAddress address of the client which ran the query
+     * @return the first chunk of rows followed by a table with the schema {@link #CURSOR_STATE_SCHEMA}
+     * @throws VoltAbortException If this host already holds too many cursors or too many rows for cursors
+     */
+    public VoltTable[] open(VoltTable result, int fetchSize, String user, long connectionId, String clientAddress) {
+        expireIdleCursors();
+
+        int rowCount = result.getRowCount();
+        if (fetchSize <= 0 || rowCount <= fetchSize) {
+            return response(result, NO_CURSOR, 0);
+        }
+
+        int resultSize = result.getSerializedSize();
+        boolean spill = LargeBlockManager.getInstance() != null && resultSize > m_spillThreshold;
+        long cursorId;
+        synchronized (this) {
+            if (m_cursors.size() >= m_maxCursors) {
+                throw new VoltAbortException("Too many cursors are open on this host, the limit is " + m_maxCursors);
+            }
+            if (m_pendingBytes + resultSize > m_maxPendingBytes) {
+                throw new VoltAbortException(String.format(
+                        "Open cursors on this host hold %d bytes of rows, a cursor over %d more bytes would exceed the"
+                        + " limit of %d bytes", m_pendingBytes, resultSize, m_maxPendingBytes));
+            }
+            // Reserve the space now and correct it once the chunks have been created
+            m_pendingBytes += resultSize;
+            do {
+                cursorId = CoreUtils.getHSIdFromHostAndSite(m_hostId, m_random.nextInt());
+            } while (cursorId == NO_CURSOR || m_cursors.containsKey(cursorId));
+            // Hold the ID while the chunks are created
+            m_cursors.put(cursorId, null);
+        }
+        Cursor cursor = new Cursor(cursorId, rowCount - fetchSize, user, connectionId, clientAddress);
+
+        VoltTable first = null;
+        try {
+            VoltTable chunk = new VoltTable(result.getTableSchema());
+            result.resetRowPosition();
+            while (result.advanceRow()) {
+                chunk.add(result);
+                if (chunk.getRowCount() == fetchSize) {
+                    if (first == null) {
+                        first = chunk;
+                    } else {
+                        cursor.m_chunks.add(createChunk(chunk, spill));
+                    }
+                    chunk = new VoltTable(result.getTableSchema());
+                }
+            }
+            if (chunk.getRowCount() > 0) {
+                cursor.m_chunks.add(createChunk(chunk, spill));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                m_cursors.remove(cursorId);
+                m_pendingBytes -= resultSize;
+            }
+            cursor.release();
+            throw e;
+        }
+
+        long pendingBytes = 0;
+        for (Chunk pending : cursor.m_chunks) {
+            pendingBytes += pending.m_size;
+        }
+        synchronized (this) {
+            m_pendingBytes += pendingBytes - resultSize;
+            m_cursors.put(cursorId, cursor);
+        }
+        return response(first, cursorId, cursor.m_remainingRows);
+    }
+
+    /**
+     * Fetch the next chunk of rows from a cursor. When the last chunk is returned the cursor is closed.
+     *
+     * @param cursorId      ID of cursor returned by {@link #open(VoltTable, int, String, long, String)}
+     * @param user          name of the user fetching the rows
+     * @param clientAddress address of the client fetching the rows
+     * @return the next chunk of rows followed by a table with the schema {@link #CURSOR_STATE_SCHEMA}
+     * @throws VoltAbortException If the cursor does not exist, belongs to another client or the chunk could not be
+     *                            read
+     */
+    public VoltTable[] fetch(long cursorId, String user, String clientAddress) {
+        Cursor cursor = getCursor(cursorId, user, clientAddress);
+        if (cursor == null) {
+            throw new VoltAbortException("Cursor " + cursorId + " does not exist or has expired");
+        }
+
+        synchronized (cursor) {
+            Chunk chunk = cursor.m_chunks.poll();
+            if (chunk == null) {
+                // Racing close or expiry
+                throw new VoltAbortException("Cursor " + cursorId + " does not exist or has expired");
+            }
+            cursor.m_lastAccess = System.currentTimeMillis();
+            synchronized (this) {
+                m_pendingBytes -= chunk.m_size;
+            }
+            VoltTable rows = chunk.load();
+            cursor.m_remainingRows -= rows.getRowCount();
+            if (cursor.m_chunks.isEmpty()) {
+                close(cursorId, user, clientAddress);
+                return response(rows, NO_CURSOR, 0);
+            }
+            return response(rows, cursorId, cursor.m_remainingRows);
+        }
+    }
+
+    /**
+     * Close a cursor and release any rows which have not been fetched
+     *
+     * @param cursorId      ID of cursor returned by {@link #open(VoltTable, int, String, long, String)}
+     * @param user          name of the user closing the cursor
+     * @param clientAddress address of the client closing the cursor
+     * @return {@code true} if the cursor was open and belonged to the client
+     */
+    public boolean close(long cursorId, String user, String clientAddress) {
+        Cursor cursor;
+        synchronized (this) {
+            cursor = m_cursors.get(cursorId);
+            if (cursor == null || !cursor.isOwnedBy(user, clientAddress)) {
+                return false;
+            }
+            m_cursors.remove(cursorId);
+        }
+        release(cursor);
+        return true;
+    }
+
+    /**
+     * @return the number of open cursors on this host
+     */
+    public synchronized int getOpenCursorCount() {
+        int count = 0;
+        for (Cursor cursor : m_cursors.values()) {
+            if (cursor != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of bytes of rows which open cursors on this host have not returned yet
+     */
+    public synchronized long getPendingBytes() {
+        return m_pendingBytes;
+    }
+
+    private synchronized Cursor getCursor(long cursorId, String user, String clientAddress) {
+        Cursor cursor = m_cursors.get(cursorId);
+        return cursor != null && cursor.isOwnedBy(user, clientAddress) ? cursor : null;
+    }
+
+    /**
+     * Release the cursors which have not been fetched from for longer than the idle timeout. Called periodically and
+     * whenever a cursor is opened.
+     */
+    void expireIdleCursors() {
+        long expireBefore = System.currentTimeMillis() - m_idleTimeoutMs;
+        List<Cursor> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Cursor> iter = m_cursors.values().iterator(); iter.hasNext();) {
+                Cursor cursor = iter.next();
+                if (cursor != null && cursor.m_lastAccess < expireBefore) {
+                    iter.remove();
+                    expired.add(cursor);
+                }
+            }
+        }
+        for (Cursor cursor : expired) {
+            log.info("Closing cursor " + cursor.m_id + " which has been idle for more than " + m_idleTimeoutMs + "ms");
+            release(cursor);
+        }
+    }
+
+    void releaseConnection(long connectionId) {
+        List<Cursor> closed = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Cursor> iter = m_cursors.values().iterator(); iter.hasNext();) {
+                Cursor cursor = iter.next();
+                if (cursor != null && cursor.m_connectionId == connectionId) {
+                    iter.remove();
+                    closed.add(cursor);
+                }
+            }
+        }
+        for (Cursor cursor : closed) {
+            release(cursor);
+        }
+    }
+
+    // Called outside of the manager lock since fetch holds a cursor lock while closing the cursor
+    private void release(Cursor cursor) {
+        long released = cursor.release();
+        synchronized (this) {
+            m_pendingBytes -= released;
+        }
+    }
+
+    private Chunk createChunk(VoltTable rows, boolean spill) {
+        if (!spill) {
+            return new Chunk(rows);
+        }
+        BlockId blockId;
+        synchronized (this) {
+            blockId = new BlockId(m_blockSiteId, m_nextBlockId++);
+        }
+        ByteBuffer block = PrivateVoltTableFactory.getTableDataReference(rows);
+        // The block manager executes tasks in order so a load will always follow the store
+        Future<LargeBlockResponse> stored = LargeBlockManager.getInstance()
+                .submitTask(LargeBlockTask.getStoreTask(blockId, block));
+        return new Chunk(blockId, block.remaining(), stored);
+    }
+
+    private static VoltTable[] response(VoltTable rows, long cursorId, long remainingRows) {
+        VoltTable state = new VoltTable(CURSOR_STATE_SCHEMA);
+        state.addRow(cursorId, remainingRows);
+        return new VoltTable[] { rows, state };
+    }
+
+    private static final class Cursor {
+        final long m_id;
+        final String m_user;
+        final long m_connectionId;
+        final String m_clientAddress;
+        final ArrayDeque<Chunk> m_chunks = new ArrayDeque<>();
+        long m_remainingRows;
+        volatile long m_lastAccess = System.currentTimeMillis();
+
+        Cursor(long id, long rowCount, String user, long connectionId, String clientAddress) {
+            m_id = id;
+            m_remainingRows = rowCount;
+            m_user = user;
+            m_connectionId = connectionId;
+            m_clientAddress = clientAddress;
+        }
+
+        // Fetches from other connections of the same client are accepted so that clients connected to several hosts
+        // can read a cursor through any of them
+        boolean isOwnedBy(String user, String clientAddress) {
+            return Objects.equals(m_user, user) && Objects.equals(m_clientAddress, clientAddress);
+        }
+
+        /**
+         * @return the number of bytes released
+         */
+        synchronized long release() {
+            long released = 0;
+            for (Chunk chunk : m_chunks) {
+                released += chunk.m_size;
+                chunk.release();
+            }
+            m_chunks.clear();
+            return released;
+        }
+    }
+
+    /**
+     * A chunk of rows which is either held in memory or stored as a large block
+     */
+    private static final class Chunk {
+        final VoltTable m_rows;
+        final BlockId m_blockId;
+        final int m_size;
+        final Future<LargeBlockResponse> m_stored;
+
+        Chunk(VoltTable rows) {
+            m_rows = rows;
+            m_blockId = null;
+            m_size = rows.getSerializedSize();
+            m_stored = null;
+        }
+
+        Chunk(BlockId blockId, int size, Future<LargeBlockResponse> stored) {
+            m_rows = null;
+            m_blockId = blockId;
+            m_size = size;
+            m_stored = stored;
+        }
+
+        VoltTable load() {
+            if (m_rows != null) {
+                return m_rows;
+            }
+            try {
+                checkResponse(m_stored.get());
+                ByteBuffer block = ByteBuffer.allocate(m_size);
+                checkResponse(LargeBlockManager.getInstance().submitTask(LargeBlockTask.getLoadTask(m_blockId, block))
+                        .get());
+                return PrivateVoltTableFactory.createVoltTableFromBuffer(block, true);
+            } catch (InterruptedException | ExecutionException e) {
+                throw new VoltAbortException("Failed to load cursor rows from block " + m_blockId + ": " + e);
+            } finally {
+                release();
+            }
+        }
+
+        void release() {
+            if (m_blockId != null) {
+                LargeBlockManager.getInstance().submitTask(LargeBlockTask.getReleaseTask(m_blockId));
+            }
+        }
+
+        private void checkResponse(LargeBlockResponse response) {
+            if (!response.wasSuccessful()) {
+                throw new VoltAbortException(
+                        "Failed to access cursor rows in block " + m_blockId + ": " + response.getException());
+            }
+        }
+    }
+}
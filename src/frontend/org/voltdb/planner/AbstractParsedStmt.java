@@ -75,8 +75,8 @@ public abstract class AbstractParsedStmt {
 
     protected String m_contentDeterminismMessage = null;
 
-     // Internal statement counter
-    public static int NEXT_STMT_ID = 0;
+    // Internal statement counter, per thread so that statements can be planned concurrently
+    private static final ThreadLocal<int[]> NEXT_STMT_ID = ThreadLocal.withInitial(() -> new int[1]);
 
     // The unique id to identify the statement
     private int m_stmtId;
@@ -199,10 +199,24 @@ public abstract class AbstractParsedStmt {
             throw new RuntimeException("Unexpected Element: " + stmtTypeElement.name);
         }
         // Set the unique id
-        retval.m_stmtId = NEXT_STMT_ID++;
+        retval.m_stmtId = nextStmtId();
         return retval;
     }
 
+    /**
+     * @return a new statement id which is unique within the statement being parsed by this thread
+     */
+    public static int nextStmtId() {
+        return NEXT_STMT_ID.get()[0]++;
+    }
+
+    /**
+     * @return the id which will be returned by the next call to {@link #nextStmtId()}
+     */
+    protected static int peekNextStmtId() {
+        return NEXT_STMT_ID.get()[0];
+    }
+
     /**
      * @param parsedStmt
      * @param sql
@@ -234,7 +248,7 @@ public abstract class AbstractParsedStmt {
             Database db, String joinOrder) {
 
         // reset the statement counters
-        NEXT_STMT_ID = 0;
+        NEXT_STMT_ID.get()[0] = 0;
         AbstractParsedStmt retval = getParsedStmt(parent, stmtTypeElement, paramValues, db);
 
         parse(retval, sql, stmtTypeElement, joinOrder);
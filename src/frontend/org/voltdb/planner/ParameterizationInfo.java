@@ -49,11 +49,9 @@ public class ParameterizationInfo {
     /**
      * Stores the current count of parameters that we've
      * assigned to the parameter vector in the EE.
-     *
-     * TODO: this will need to become thread safe
-     * when parallel planning is possible.
+     * It is thread local so that statements can be planned concurrently.
      */
-    static private int curParamIndex = 0;
+    static private final ThreadLocal<int[]> curParamIndex = ThreadLocal.withInitial(() -> new int[1]);
     // whether the query has been rewritten to use MV: when rewriting query, the query's predicates always gets shorter,
     // effectively reducing number of parameters.
     private boolean m_isRewritten = false;
@@ -65,9 +63,7 @@ public class ParameterizationInfo {
      * @return the next index
      */
     public static int getNextParamIndex() {
-        int nextOffset = curParamIndex;
-        ++curParamIndex;
-        return nextOffset;
+        return curParamIndex.get()[0]++;
     }
 
     public void rewrite() {
@@ -83,7 +79,7 @@ public class ParameterizationInfo {
      * a new statement.
      */
     public static void resetCurrentParamIndex() {
-        curParamIndex = 0;
+        curParamIndex.get()[0] = 0;
     }
 
     /**
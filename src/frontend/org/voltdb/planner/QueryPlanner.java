@@ -22,8 +22,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 
 import org.hsqldb_voltpatches.HSQLInterface;
@@ -90,14 +88,13 @@ public class QueryPlanner implements AutoCloseable {
 
     public final static String UPSERT_TAG = "isUpsert";
 
-    private static final Lock PLANNER_LOCK = new ReentrantLock();
-
     /**
      * Initialize planner with physical schema info and a reference to HSQLDB parser.
      *
-     * NOTE: Until the planner can handle planning multiple statements in parallel,
-     * creating an instance of this object will lock the global PLANNER_LOCK, which must
-     * be released by calling this class's close method.
+     * NOTE: An HSQLInterface can only parse one statement at a time, so creating an
+     * instance of this object will lock the lock of {@code HSQL}, which must be released
+     * by calling this class's close method. Statements using different HSQLInterfaces
+     * can be planned in parallel.
      *
      * This class implements AutoCloseable, so the easiest way to achieve this is like so:
      * try (QueryPlanner planner = new QueryPlanner(...)) {
@@ -122,7 +119,7 @@ public class QueryPlanner implements AutoCloseable {
             HSQLInterface HSQL, DatabaseEstimates estimates, boolean suppressDebugOutput, AbstractCostModel costModel,
             ScalarValueHints[] paramHints, String joinOrder, DeterminismMode detMode, boolean isLargeQuery,
             boolean isForView) {
-        PLANNER_LOCK.lock();
+        HSQL.getLock().lock();
         assert(sql != null);
         assert(stmtName != null);
         assert(procName != null);
@@ -151,7 +148,7 @@ public class QueryPlanner implements AutoCloseable {
 
     @Override
     public void close() {
-        PLANNER_LOCK.unlock();
+        m_HSQL.getLock().unlock();
     }
 
     /**
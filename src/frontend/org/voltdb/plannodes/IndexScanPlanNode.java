@@ -36,9 +36,12 @@ import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Index;
 import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.compiler.TableStatistics;
+import org.voltdb.compiler.TableStatistics.ColumnStatistics;
 import org.voltdb.exceptions.PlanningErrorException;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.ComparisonExpression;
+import org.voltdb.expressions.ConstantValueExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.OperatorExpression;
 import org.voltdb.expressions.TupleValueExpression;
@@ -659,7 +662,10 @@ public class IndexScanPlanNode extends AbstractScanPlanNode
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            // When the table has been analyzed the per-column factors come from its statistics instead.
+            double selectivity = tableEstimates.statistics == null ? Math.pow(0.10, keyWidth) :
+                estimateSelectivity(tableEstimates.statistics, keyWidth);
+            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * selectivity);
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
@@ -738,6 +744,89 @@ public class IndexScanPlanNode extends AbstractScanPlanNode
         //* enable to debug */ System.out.println("DEBUG: USING INDEX " + m_catalogIndex.getTypeName());
     }
 
+    /**
+     * Estimate the fraction of the table selected by the search keys and end expression from collected
+     * statistics. Each equality key contributes its column's equality selectivity and a trailing range key
+     * its column's range selectivity, bounded by any constants known at plan time. Columns without statistics
+     * and indexes on expressions use the same fixed factors as unanalyzed tables.
+     */
+    private double estimateSelectivity(TableStatistics statistics, double keyWidth) {
+        if (! m_catalogIndex.getExpressionsjson().isEmpty()) {
+            return Math.pow(0.10, keyWidth);
+        }
+        List<ColumnRef> indexedColumns = CatalogUtil.getSortedCatalogItems(m_catalogIndex.getColumns(), "index");
+        int keyCount = m_searchkeyExpressions.size();
+        // A fractional key width means the last key, or the end expression alone, is a range
+        int equalityKeys = (int) keyWidth;
+        double selectivity = 1.0;
+        for (int i = 0; i < equalityKeys; ++i) {
+            ColumnStatistics column = statistics.getColumn(indexedColumns.get(i).getColumn().getTypeName());
+            selectivity *= column == null ? 0.10 :
+                column.equalitySelectivity(constantAsDouble(m_searchkeyExpressions.get(i)));
+        }
+        if (keyWidth > equalityKeys) {
+            String columnName = indexedColumns.get(equalityKeys).getColumn().getTypeName();
+            ColumnStatistics column = statistics.getColumn(columnName);
+            if (column == null) {
+                selectivity *= Math.sqrt(0.10);
+            } else {
+                Double low = constantEndBound(columnName, true);
+                Double high = constantEndBound(columnName, false);
+                if (equalityKeys < keyCount) {
+                    Double key = constantAsDouble(m_searchkeyExpressions.get(equalityKeys));
+                    if (m_lookupType == IndexLookupType.GT || m_lookupType == IndexLookupType.GTE) {
+                        low = key;
+                    } else {
+                        high = key;
+                    }
+                }
+                selectivity *= column.rangeSelectivity(low, high);
+            }
+        }
+        return selectivity;
+    }
+
+    /**
+     * @return a bound on {@code columnName} set by a comparison with a constant in the end expression, or null
+     */
+    private Double constantEndBound(String columnName, boolean lower) {
+        if (m_endExpression == null) {
+            return null;
+        }
+        for (AbstractExpression expr : ExpressionUtil.uncombineAny(m_endExpression)) {
+            ExpressionType type = expr.getExpressionType();
+            boolean isLower = type == ExpressionType.COMPARE_GREATERTHAN ||
+                    type == ExpressionType.COMPARE_GREATERTHANOREQUALTO;
+            boolean isUpper = type == ExpressionType.COMPARE_LESSTHAN ||
+                    type == ExpressionType.COMPARE_LESSTHANOREQUALTO;
+            if ((lower ? isLower : isUpper) &&
+                    expr.getLeft() instanceof TupleValueExpression &&
+                    columnName.equals(((TupleValueExpression) expr.getLeft()).getColumnName())) {
+                Double bound = constantAsDouble(expr.getRight());
+                if (bound != null) {
+                    return bound;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Double constantAsDouble(AbstractExpression expr) {
+        if (!(expr instanceof ConstantValueExpression)) {
+            // Parameters are not known when the plan is selected
+            return null;
+        }
+        String value = ((ConstantValueExpression) expr).getValue();
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     @Override
     public void toJSONString(JSONStringer stringer) throws JSONException {
         super.toJSONString(stringer);
@@ -22,6 +22,7 @@ import java.nio.ByteBuffer;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.Mailbox;
@@ -30,11 +31,17 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
 import org.voltdb.SnapshotSiteProcessor;
+import org.voltdb.stats.RejoinStats;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.FixedDBBPool;
 
 /**
  * Receives snapshot data from a replica. This is used on a rejoining partition.
+ * <p>
+ * Acks are the credits which return snapshot buffers to the source. Up to {@link #ACK_WINDOW_BLOCKS} data and
+ * schema blocks which are queued, but not yet restored by the site, are acked as soon as they are received so the
+ * source can keep streaming while the site is busy. Once the window is full blocks are only acked after the site has
+ * taken them, which stops the source and bounds the memory held by the receiver.
  */
 public class StreamSnapshotDataReceiver extends StreamSnapshotBase
 implements Runnable {
@@ -47,9 +54,17 @@ implements Runnable {
     private final LinkedBlockingQueue<StreamSnapshotSink.DecodedContainer> m_queue =
             new LinkedBlockingQueue<StreamSnapshotSink.DecodedContainer>();
 
+    // Maximum number of queued blocks which are acked on receipt. 0 disables early acks
+    static final int ACK_WINDOW_BLOCKS = Integer.getInteger("REJOIN_ACK_WINDOW_BLOCKS", 32);
+
     private final Mailbox m_mb;
     private final Queue<BBContainer> m_dataBufferPool;
     private final Queue<BBContainer> m_compressedDataBufferPool;
+    private final StreamSnapshotAckSender m_ack;
+    private final int m_ackWindow;
+    private final RejoinStats m_stats;
+    // Number of queued blocks which have already been acked
+    private final AtomicInteger m_ackedInQueue = new AtomicInteger();
     private volatile boolean m_closed = false;
 
     private class TrackedDataBBContainer extends BBContainer {
@@ -79,10 +94,23 @@ implements Runnable {
     }
 
     public StreamSnapshotDataReceiver(Mailbox mb, Queue<BBContainer> dataPool, Queue<BBContainer> compressedDataPool) {
+        this(mb, dataPool, compressedDataPool, null, 0, null);
+    }
+
+    /**
+     * @param ack       sender used to ack blocks on receipt. May be {@code null} if {@code ackWindow} is 0
+     * @param ackWindow maximum number of queued blocks which are acked on receipt
+     * @param stats     optional rejoin statistics which are updated with every received block
+     */
+    StreamSnapshotDataReceiver(Mailbox mb, Queue<BBContainer> dataPool, Queue<BBContainer> compressedDataPool,
+            StreamSnapshotAckSender ack, int ackWindow, RejoinStats stats) {
         super();
         m_mb = mb;
         m_dataBufferPool = dataPool;
         m_compressedDataBufferPool = compressedDataPool;
+        m_ack = ack;
+        m_ackWindow = ack == null ? 0 : ackWindow;
+        m_stats = stats;
     }
 
     public void close() {
@@ -112,6 +140,26 @@ implements Runnable {
         return m_queue.size();
     }
 
+    /**
+     * Called once a block which was acked on receipt has been taken from the queue, freeing its slot in the window
+     */
+    void releaseAckedBlock() {
+        m_ackedInQueue.decrementAndGet();
+    }
+
+    /**
+     * Ack {@code block} now if it is a data or schema block and the window is not full. Only the receiver thread
+     * takes slots in the window so the check and increment do not race.
+     */
+    private void maybeAckOnReceipt(StreamSnapshotSink.DecodedContainer block) {
+        if ((block.m_msgType == StreamSnapshotMessageType.DATA || block.m_msgType == StreamSnapshotMessageType.SCHEMA)
+                && m_ackedInQueue.get() < m_ackWindow) {
+            m_ackedInQueue.incrementAndGet();
+            block.m_ackedOnReceipt = true;
+            m_ack.ack(block.m_srcHSId, false, block.m_dataTargetId, block.m_blockIndex);
+        }
+    }
+
     @Override
     public void run() {
         try {
@@ -157,7 +205,13 @@ implements Runnable {
                                     compressionBuffer,
                                     messageBuffer);
                     messageBuffer.limit(uncompressedSize);
-                    m_queue.offer(new StreamSnapshotSink.DecodedContainer(dataMsg.m_sourceHSId, dataMsg.getTargetId(), container));
+                    StreamSnapshotSink.DecodedContainer block =
+                            new StreamSnapshotSink.DecodedContainer(dataMsg.m_sourceHSId, dataMsg.getTargetId(), container);
+                    maybeAckOnReceipt(block);
+                    if (m_stats != null) {
+                        m_stats.blockReceived(uncompressedSize);
+                    }
+                    m_queue.offer(block);
                     success = true;
                 } finally {
                     if (!success && container != null) {
@@ -35,6 +35,7 @@ import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.dtxn.UndoAction;
 import org.voltdb.jni.ExecutionEngine.LoadTableCaller;
+import org.voltdb.stats.RejoinStats;
 import org.voltdb.utils.CachedByteBufferAllocator;
 
 import com.google_voltpatches.common.base.Preconditions;
@@ -51,6 +52,7 @@ public class StreamSnapshotSink {
     private static final VoltLogger rejoinLog = new VoltLogger("REJOIN");
 
     private final Mailbox m_mb;
+    private final RejoinStats m_stats;
     private StreamSnapshotDataReceiver m_in = null;
     private Thread m_inThread = null;
     private StreamSnapshotAckSender m_ack = null;
@@ -100,6 +102,8 @@ public class StreamSnapshotSink {
         final int m_blockIndex;
         final StreamSnapshotMessageType m_msgType;
         final int m_tableId;
+        // Set by the receiver if this block was acked when it was received instead of once it is processed
+        boolean m_ackedOnReceipt = false;
 
         public DecodedContainer(long srcHSId, long dataTargetId, BBContainer container) {
             m_srcHSId = srcHSId;
@@ -148,19 +152,30 @@ public class StreamSnapshotSink {
     }
 
     public StreamSnapshotSink(Mailbox mb)
+    {
+        this(mb, null);
+    }
+
+    /**
+     * @param mb    mailbox on which snapshot blocks are received
+     * @param stats optional statistics which are updated as blocks are received and taken by the site
+     */
+    public StreamSnapshotSink(Mailbox mb, RejoinStats stats)
     {
         Preconditions.checkArgument(mb != null);
         m_mb = mb;
+        m_stats = stats;
     }
 
     public long initialize(int sourceCount, Queue<BBContainer> dataPool, Queue<BBContainer> compressedDataPool) {
         // Expect sourceCount number of EOFs at the end
         m_expectedEOFs.set(sourceCount);
 
-        m_in = new StreamSnapshotDataReceiver(m_mb, dataPool, compressedDataPool);
+        m_ack = new StreamSnapshotAckSender(m_mb);
+        m_in = new StreamSnapshotDataReceiver(m_mb, dataPool, compressedDataPool, m_ack,
+                StreamSnapshotDataReceiver.ACK_WINDOW_BLOCKS, m_stats);
         m_inThread = new Thread(m_in, "Snapshot data receiver");
         m_inThread.setDaemon(true);
-        m_ack = new StreamSnapshotAckSender(m_mb);
         m_ackThread = new Thread(m_ack, "Snapshot ack sender");
         m_inThread.start();
         m_ackThread.start();
@@ -172,6 +187,14 @@ public class StreamSnapshotSink {
         return m_EOF;
     }
 
+    /**
+     * @return the number of received blocks which have not been taken by the site yet
+     */
+    public int queuedBlocks() {
+        StreamSnapshotDataReceiver in = m_in;
+        return in == null ? 0 : in.size();
+    }
+
     public void close() {
         if (m_in != null) {
             m_in.close();
@@ -313,6 +336,9 @@ public class StreamSnapshotSink {
                 block.position(StreamSnapshotDataTarget.contentOffset);
                 ByteBuffer nextChunk = getNextChunk(m_schemas.get(msg.m_tableId), block, resultBufferAllocator);
                 m_bytesReceived += nextChunk.remaining();
+                if (m_stats != null) {
+                    m_stats.blockRestored(nextChunk.remaining());
+                }
 
                 restoreWork = new TableRestoreWork(msg.m_tableId, nextChunk);
             }
@@ -320,9 +346,17 @@ public class StreamSnapshotSink {
             return restoreWork;
         } finally {
             msg.m_container.discard();
+            if (m_stats != null) {
+                m_stats.blockTaken();
+            }
 
-            // Queue ack to this block (after the container has been discarded)
-            m_ack.ack(msg.m_srcHSId, msg.m_msgType == StreamSnapshotMessageType.END, msg.m_dataTargetId, msg.m_blockIndex);
+            if (msg.m_ackedOnReceipt) {
+                m_in.releaseAckedBlock();
+            } else {
+                // Queue ack to this block (after the container has been discarded)
+                m_ack.ack(msg.m_srcHSId, msg.m_msgType == StreamSnapshotMessageType.END, msg.m_dataTargetId,
+                        msg.m_blockIndex);
+            }
         }
     }
 
@@ -0,0 +1,141 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.Histogram;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Statistics of the time multi-partition read procedures spend in the MPI backlog waiting for a read-only site
+ * from the {@code MpRoSitePool}. One row is reported per procedure, all wait times are in microseconds.
+ */
+public class MpReadQueueStats extends StatsSource {
+
+    public enum MpReadQueue implements StatsColumn {
+        PROCEDURE(VoltType.STRING),
+        INVOCATIONS(VoltType.BIGINT),
+        AVG_WAIT(VoltType.BIGINT),
+        P50_WAIT(VoltType.BIGINT),
+        P95_WAIT(VoltType.BIGINT),
+        P99_WAIT(VoltType.BIGINT),
+        MAX_WAIT(VoltType.BIGINT);
+
+        public final VoltType m_type;
+
+        MpReadQueue(VoltType type) {m_type = type;}
+
+        @Override
+        public VoltType getType() {
+            return m_type;
+        }
+    }
+
+    // Waits longer than an hour are recorded as an hour
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final Map<String, Waits> m_waits = new HashMap<>();
+
+    public MpReadQueueStats() {
+        super(false);
+    }
+
+    /**
+     * Record the time a read spent waiting for a site
+     *
+     * @param procName  name of the procedure
+     * @param waitNanos time between the read being offered and being dispatched to a site
+     */
+    public synchronized void recordWait(String procName, long waitNanos) {
+        m_waits.computeIfAbsent(procName, k -> new Waits()).record(waitNanos);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        List<Object> keys = new ArrayList<>();
+        synchronized (this) {
+            for (String procName : new TreeSet<>(m_waits.keySet())) {
+                keys.add(new RowKey(procName, interval));
+            }
+        }
+        return keys.iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns, MpReadQueue.values());
+    }
+
+    @Override
+    protected synchronized int updateStatsRow(Object rowKey, Object[] rowValues) {
+        int offset = super.updateStatsRow(rowKey, rowValues);
+
+        RowKey key = (RowKey) rowKey;
+        Waits waits = m_waits.get(key.m_procName);
+        AbstractHistogram histogram;
+        if (key.m_interval) {
+            histogram = waits.m_last.copy();
+            waits.m_total.add(waits.m_last);
+            waits.m_last.reset();
+        } else {
+            histogram = waits.m_total.copy();
+            histogram.add(waits.m_last);
+        }
+
+        rowValues[offset + MpReadQueue.PROCEDURE.ordinal()] = key.m_procName;
+        rowValues[offset + MpReadQueue.INVOCATIONS.ordinal()] = histogram.getTotalCount();
+        rowValues[offset + MpReadQueue.AVG_WAIT.ordinal()] = histogram.getTotalCount() > 0
+                ? (long) histogram.getMean() : 0L;
+        rowValues[offset + MpReadQueue.P50_WAIT.ordinal()] = histogram.getValueAtPercentile(50D);
+        rowValues[offset + MpReadQueue.P95_WAIT.ordinal()] = histogram.getValueAtPercentile(95D);
+        rowValues[offset + MpReadQueue.P99_WAIT.ordinal()] = histogram.getValueAtPercentile(99D);
+        rowValues[offset + MpReadQueue.MAX_WAIT.ordinal()] = histogram.getMaxValue();
+
+        return offset + MpReadQueue.values().length;
+    }
+
+    private static final class RowKey {
+        final String m_procName;
+        final boolean m_interval;
+
+        RowKey(String procName, boolean interval) {
+            m_procName = procName;
+            m_interval = interval;
+        }
+    }
+
+    private static final class Waits {
+        // Waits since the last interval collection
+        final AbstractHistogram m_last = new Histogram(HIGHEST_TRACKABLE_MICROS, 2);
+        // Waits up to the last interval collection
+        final AbstractHistogram m_total = new Histogram(HIGHEST_TRACKABLE_MICROS, 2);
+
+        void record(long waitNanos) {
+            m_last.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(waitNanos), HIGHEST_TRACKABLE_MICROS));
+        }
+    }
+}
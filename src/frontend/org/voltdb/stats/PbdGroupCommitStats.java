@@ -0,0 +1,146 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.stats;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+import com.google_voltpatches.common.collect.Iterators;
+
+/**
+ * Statistics of the group flushes done by {@link org.voltdb.utils.PbdGroupCommitScheduler}. The batch size of a
+ * flush is the number of offers made durable by it and the fsync latency is the time taken to sync all of the deques
+ * in the flush.
+ */
+public class PbdGroupCommitStats extends StatsSource {
+
+    public enum PbdGroupCommit implements StatsColumn {
+        FLUSH_COUNT(VoltType.BIGINT),
+        DEQUES_SYNCED(VoltType.BIGINT),
+        OFFERS_SYNCED(VoltType.BIGINT),
+        AVG_BATCH_SIZE(VoltType.BIGINT),
+        MAX_BATCH_SIZE(VoltType.BIGINT),
+        AVG_FSYNC_LATENCY(VoltType.BIGINT),
+        MAX_FSYNC_LATENCY(VoltType.BIGINT);
+
+        public final VoltType m_type;
+
+        PbdGroupCommit(VoltType type) {m_type = type;}
+
+        @Override
+        public VoltType getType() {
+            return m_type;
+        }
+    }
+
+    private final Flushes m_lastFlushes = new Flushes();
+    private final Flushes m_totalFlushes = new Flushes();
+
+    public PbdGroupCommitStats() {
+        super(false);
+    }
+
+    /**
+     * Record a group flush
+     *
+     * @param deques      number of deques which were synced
+     * @param offers      number of offers made durable by the flush
+     * @param fsyncNanos  time it took to sync all of the deques
+     */
+    public synchronized void flushed(int deques, long offers, long fsyncNanos) {
+        m_lastFlushes.add(deques, offers, fsyncNanos);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return Iterators.singletonIterator(interval);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns, PbdGroupCommit.values());
+    }
+
+    @Override
+    protected synchronized int updateStatsRow(Object rowKey, Object[] rowValues) {
+        int offset = super.updateStatsRow(rowKey, rowValues);
+
+        Boolean intervalCollection = (Boolean) rowKey;
+        if (intervalCollection) {
+            m_lastFlushes.populate(rowValues, offset);
+            m_totalFlushes.add(m_lastFlushes);
+            m_lastFlushes.reset();
+        } else {
+            Flushes total = new Flushes();
+            total.add(m_totalFlushes);
+            total.add(m_lastFlushes);
+            total.populate(rowValues, offset);
+        }
+
+        return offset + PbdGroupCommit.values().length;
+    }
+
+    private static final class Flushes {
+        long m_count;
+        long m_deques;
+        long m_offers;
+        long m_maxOffers;
+        long m_fsyncNanos;
+        long m_maxFsyncNanos;
+
+        void add(int deques, long offers, long fsyncNanos) {
+            m_count++;
+            m_deques += deques;
+            m_offers += offers;
+            m_maxOffers = Math.max(m_maxOffers, offers);
+            m_fsyncNanos += fsyncNanos;
+            m_maxFsyncNanos = Math.max(m_maxFsyncNanos, fsyncNanos);
+        }
+
+        void add(Flushes other) {
+            m_count += other.m_count;
+            m_deques += other.m_deques;
+            m_offers += other.m_offers;
+            m_maxOffers = Math.max(m_maxOffers, other.m_maxOffers);
+            m_fsyncNanos += other.m_fsyncNanos;
+            m_maxFsyncNanos = Math.max(m_maxFsyncNanos, other.m_maxFsyncNanos);
+        }
+
+        void reset() {
+            m_count = m_deques = m_offers = m_maxOffers = m_fsyncNanos = m_maxFsyncNanos = 0;
+        }
+
+        void populate(Object[] rowValues, int offset) {
+            rowValues[offset + PbdGroupCommit.FLUSH_COUNT.ordinal()] = m_count;
+            rowValues[offset + PbdGroupCommit.DEQUES_SYNCED.ordinal()] = m_deques;
+            rowValues[offset + PbdGroupCommit.OFFERS_SYNCED.ordinal()] = m_offers;
+            rowValues[offset + PbdGroupCommit.AVG_BATCH_SIZE.ordinal()] = m_count > 0 ? m_offers / m_count : 0L;
+            rowValues[offset + PbdGroupCommit.MAX_BATCH_SIZE.ordinal()] = m_maxOffers;
+            // Latencies are reported in microseconds
+            rowValues[offset + PbdGroupCommit.AVG_FSYNC_LATENCY.ordinal()] = m_count > 0
+                    ? TimeUnit.NANOSECONDS.toMicros(m_fsyncNanos / m_count) : 0L;
+            rowValues[offset + PbdGroupCommit.MAX_FSYNC_LATENCY.ordinal()] = TimeUnit.NANOSECONDS.toMicros(
+                    m_maxFsyncNanos);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Progress of the stream snapshot restored by a rejoining site. One row is reported for the site with the blocks and
+ * bytes received from the source, the table data restored so far and the restore throughput since the first block
+ * arrived. The row is kept after the transfer completes so the final throughput can still be read.
+ */
+public class RejoinStats extends SiteStatsSource {
+
+    public enum Rejoin implements StatsColumn {
+        PARTITION_ID(VoltType.INTEGER),
+        STATUS(VoltType.STRING),
+        BLOCKS_RECEIVED(VoltType.BIGINT),
+        BYTES_RECEIVED(VoltType.BIGINT),
+        BLOCKS_RESTORED(VoltType.BIGINT),
+        BYTES_RESTORED(VoltType.BIGINT),
+        QUEUED_BLOCKS(VoltType.INTEGER),
+        ELAPSED_MS(VoltType.BIGINT),
+        MB_PER_SEC(VoltType.FLOAT);
+
+        public final VoltType m_type;
+
+        Rejoin(VoltType type) {m_type = type;}
+
+        @Override
+        public VoltType getType() {
+            return m_type;
+        }
+    }
+
+    public static final String STATUS_WAITING = "WAITING";
+    public static final String STATUS_STREAMING = "STREAMING";
+    public static final String STATUS_COMPLETE = "COMPLETE";
+
+    private final int m_partitionId;
+
+    private final AtomicLong m_blocksReceived = new AtomicLong();
+    private final AtomicLong m_bytesReceived = new AtomicLong();
+    private final AtomicLong m_blocksRestored = new AtomicLong();
+    private final AtomicLong m_bytesRestored = new AtomicLong();
+    private final AtomicInteger m_queuedBlocks = new AtomicInteger();
+    // System.nanoTime() of the first received block and of completion, 0 if not reached yet
+    private volatile long m_startNanos = 0;
+    private volatile long m_endNanos = 0;
+
+    public RejoinStats(long siteId, int partitionId) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+    }
+
+    /**
+     * Record a block received from the source and queued for the site
+     *
+     * @param bytes uncompressed size of the block
+     */
+    public void blockReceived(int bytes) {
+        if (m_startNanos == 0) {
+            m_startNanos = System.nanoTime();
+        }
+        m_blocksReceived.incrementAndGet();
+        m_bytesReceived.addAndGet(bytes);
+        m_queuedBlocks.incrementAndGet();
+    }
+
+    /**
+     * Record that a block was taken from the queue by the site
+     */
+    public void blockTaken() {
+        m_queuedBlocks.decrementAndGet();
+    }
+
+    /**
+     * Record a block of table data handed to the site to be restored
+     *
+     * @param bytes size of the table data
+     */
+    public void blockRestored(int bytes) {
+        m_blocksRestored.incrementAndGet();
+        m_bytesRestored.addAndGet(bytes);
+    }
+
+    /**
+     * Record that the end of the stream has been reached
+     */
+    public void complete() {
+        if (m_startNanos == 0) {
+            m_startNanos = System.nanoTime();
+        }
+        m_endNanos = System.nanoTime();
+    }
+
+    /**
+     * @return milliseconds between the first block and completion or now if the transfer is still in progress
+     */
+    public long getElapsedMillis() {
+        long start = m_startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = m_endNanos;
+        return TimeUnit.NANOSECONDS.toMillis((end == 0 ? System.nanoTime() : end) - start);
+    }
+
+    /**
+     * @return megabytes of table data restored per second over {@link #getElapsedMillis()}
+     */
+    public double getRestoreMBPerSec() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0D : (m_bytesRestored.get() / (1024D * 1024D)) / (elapsed / 1000D);
+    }
+
+    public long getBytesRestored() {
+        return m_bytesRestored.get();
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return Collections.<Object>singletonList(m_partitionId).iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns, Rejoin.class);
+    }
+
+    @Override
+    protected int updateStatsRow(Object rowKey, Object[] rowValues) {
+        int offset = super.updateStatsRow(rowKey, rowValues);
+
+        String status = m_endNanos != 0 ? STATUS_COMPLETE : m_startNanos != 0 ? STATUS_STREAMING : STATUS_WAITING;
+        rowValues[offset + Rejoin.PARTITION_ID.ordinal()] = m_partitionId;
+        rowValues[offset + Rejoin.STATUS.ordinal()] = status;
+        rowValues[offset + Rejoin.BLOCKS_RECEIVED.ordinal()] = m_blocksReceived.get();
+        rowValues[offset + Rejoin.BYTES_RECEIVED.ordinal()] = m_bytesReceived.get();
+        rowValues[offset + Rejoin.BLOCKS_RESTORED.ordinal()] = m_blocksRestored.get();
+        rowValues[offset + Rejoin.BYTES_RESTORED.ordinal()] = m_bytesRestored.get();
+        rowValues[offset + Rejoin.QUEUED_BLOCKS.ordinal()] = m_queuedBlocks.get();
+        rowValues[offset + Rejoin.ELAPSED_MS.ordinal()] = getElapsedMillis();
+        rowValues[offset + Rejoin.MB_PER_SEC.ordinal()] = getRestoreMBPerSec();
+
+        return offset + Rejoin.values().length;
+    }
+}
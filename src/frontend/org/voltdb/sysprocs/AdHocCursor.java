@@ -0,0 +1,167 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.voltdb.ClientInterface;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltNTSystemProcedure;
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.largequery.ResultCursorManager;
+import org.voltdb.parser.SQLLexer;
+
+/**
+ * System procedures which let a client read the result of a query in chunks. The result is held by the
+ * {@link ResultCursorManager} of the host where the cursor was opened. Every response holds a chunk of rows followed
+ * by a table with the cursor ID and the number of rows which have not been fetched yet.
+ * <p>
+ * The procedure names start with {@code @AdHoc} so that they require the same permissions as {@code @AdHoc}. A cursor
+ * can only be fetched from or closed by the user who opened it, from the same client address.
+ */
+public class AdHocCursor {
+
+    /**
+     * Run a single select statement and return the first {@code fetchSize} rows.
+     * <p>
+     * Parameters are {@code fetchSize, sql, userParams...}
+     */
+    public static class Open extends CursorProcedure {
+        public CompletableFuture<ClientResponse> run(ParameterSet params) {
+            Object[] paramArray = params.toArray();
+            if (paramArray.length < 2 || !(paramArray[0] instanceof Number) || !(paramArray[1] instanceof String)) {
+                return CompletableFuture.completedFuture(new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE,
+                        new VoltTable[0], "@AdHocCursorOpen requires a fetch size and a query"));
+            }
+            int fetchSize = ((Number) paramArray[0]).intValue();
+            String sql = (String) paramArray[1];
+            if (!SQLLexer.isSelect(sql.trim())) {
+                return CompletableFuture.completedFuture(new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE,
+                        new VoltTable[0], "@AdHocCursorOpen only supports a single SELECT statement"));
+            }
+            String user = getUsername();
+            long connectionId = getConnectionId();
+            String clientAddress = getClientAddress();
+
+            return callProcedure("@AdHoc", Arrays.copyOfRange(paramArray, 1, paramArray.length)).thenApply(r -> {
+                if (r.getStatus() != ClientResponse.SUCCESS) {
+                    return r;
+                }
+                VoltTable[] results = r.getResults();
+                if (results.length != 1) {
+                    return new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE, new VoltTable[0],
+                            "@AdHocCursorOpen only supports a single SELECT statement");
+                }
+                try {
+                    return new ClientResponseImpl(ClientResponse.SUCCESS, ResultCursorManager.getInstance()
+                            .open(results[0], fetchSize, user, connectionId, clientAddress), null);
+                } catch (VoltAbortException e) {
+                    return new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE, new VoltTable[0], e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Return the next chunk of rows from a cursor. The cursor is closed once the last chunk has been returned.
+     */
+    public static class Fetch extends CursorProcedure {
+        public VoltTable[] run(long cursorId) throws InterruptedException, ExecutionException {
+            ResultCursorManager manager = ResultCursorManager.getInstance();
+            if (manager.isLocal(cursorId)) {
+                return manager.fetch(cursorId, getUsername(), getClientAddress());
+            }
+            return forwardToOwner("@AdHocCursorFetchOnHost", cursorId).getResults();
+        }
+    }
+
+    /**
+     * Fetch from a cursor on behalf of a client connected to another host. Parameters are
+     * {@code cursorId, user, clientAddress}.
+     */
+    public static class FetchOnHost extends CursorProcedure {
+        public VoltTable[] run(long cursorId, String user, String clientAddress) {
+            checkForwarded();
+            return ResultCursorManager.getInstance().fetch(cursorId, user, clientAddress);
+        }
+    }
+
+    /**
+     * Close a cursor before all of its rows have been fetched
+     */
+    public static class Close extends CursorProcedure {
+        public long run(long cursorId) throws InterruptedException, ExecutionException {
+            ResultCursorManager manager = ResultCursorManager.getInstance();
+            if (manager.isLocal(cursorId)) {
+                manager.close(cursorId, getUsername(), getClientAddress());
+            } else if (cursorId != ResultCursorManager.NO_CURSOR) {
+                forwardToOwner("@AdHocCursorCloseOnHost", cursorId);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Close a cursor on behalf of a client connected to another host. Parameters are
+     * {@code cursorId, user, clientAddress}.
+     */
+    public static class CloseOnHost extends CursorProcedure {
+        public long run(long cursorId, String user, String clientAddress) {
+            checkForwarded();
+            ResultCursorManager.getInstance().close(cursorId, user, clientAddress);
+            return 0;
+        }
+    }
+
+    abstract static class CursorProcedure extends VoltNTSystemProcedure {
+        String getClientAddress() {
+            InetSocketAddress address = getRemoteAddress();
+            return address == null || address.getAddress() == null ? null : address.getAddress().getHostAddress();
+        }
+
+        // The OnHost procedures trust the user and address they are passed so they only accept forwarded requests
+        void checkForwarded() {
+            if (getConnectionId() != ClientInterface.NT_ADAPTER_CID) {
+                throw new VoltAbortException("Cursor requests can only be forwarded by another host");
+            }
+        }
+
+        /**
+         * Send the request to the host which owns the cursor with the user and address of the client. Only the owner
+         * receives the request so a fetched chunk is always returned to the client.
+         */
+        ClientResponse forwardToOwner(String procName, long cursorId) throws InterruptedException, ExecutionException {
+            int owner = ResultCursorManager.getOwnerHostId(cursorId);
+            ClientResponse response = callNTProcedureOnHost(owner, procName, cursorId, getUsername(),
+                    getClientAddress()).get();
+            if (response == null) {
+                throw new VoltAbortException("Host " + owner + " which owns cursor " + cursorId + " is not available");
+            }
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                throw new VoltAbortException(response.getStatusString());
+            }
+            return response;
+        }
+    }
+}
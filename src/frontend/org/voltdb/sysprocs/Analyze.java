@@ -0,0 +1,339 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.json_voltpatches.JSONException;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.CatalogContext;
+import org.voltdb.TheHashinator;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltNTSystemProcedure;
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.ColumnRef;
+import org.voltdb.catalog.Index;
+import org.voltdb.catalog.Table;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.compiler.TableStatistics;
+import org.voltdb.compiler.TableStatistics.ColumnSampler;
+import org.voltdb.compiler.TableStatistics.ColumnStatistics;
+import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.InMemoryJarfile;
+
+/**
+ * Collect planner statistics for tables: the row count and, for each column, an estimate of the number of distinct
+ * values, the number of nulls and, for numeric and timestamp columns which are indexed, a histogram.
+ * <p>
+ * The row count is exact, {@code COUNT(*)} without a predicate is answered from the tuple count of each partition.
+ * Everything else is computed from a sample of at most {@code ANALYZE_SAMPLE_ROWS} rows taken from each partition
+ * with a single partition query, so analyzing a large table does not scan it. The samples are scaled up to the row
+ * count by {@link ColumnSampler}.
+ * <p>
+ * The statistics are stored in the catalog jar with {@code @UpdateClasses}, which installs them in the planner on
+ * every host and keeps them across restarts and rejoins. A cluster which does not use DDL for its schema cannot
+ * update classes so the statistics are only installed in memory on every host.
+ * <p>
+ * Usage: {@code exec @Analyze ''} to analyze all tables or {@code exec @Analyze 'T1,T2'} for specific tables.
+ * Statistics survive catalog updates which do not change a table's definition.
+ */
+public class Analyze extends VoltNTSystemProcedure {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    private static final int HISTOGRAM_BUCKETS = Integer.getInteger("ANALYZE_HISTOGRAM_BUCKETS", 32);
+    private static final int SAMPLE_ROWS = Integer.getInteger("ANALYZE_SAMPLE_ROWS", 10000);
+
+    public static final ColumnInfo[] RESULT_COLUMNS = {
+        new ColumnInfo("TABLE_NAME", VoltType.STRING),
+        new ColumnInfo("COLUMN_NAME", VoltType.STRING),
+        new ColumnInfo("ROW_COUNT", VoltType.BIGINT),
+        new ColumnInfo("DISTINCT_VALUES", VoltType.BIGINT),
+        new ColumnInfo("NULL_COUNT", VoltType.BIGINT),
+        new ColumnInfo("HISTOGRAM_BUCKETS", VoltType.INTEGER)
+    };
+
+    /**
+     * Install statistics collected by {@code @Analyze} on this host when they cannot be stored in the catalog
+     */
+    public static class AnalyzeOnHost extends VoltNTSystemProcedure {
+        public long run(String statisticsJson) throws JSONException {
+            VoltDB.instance().getCatalogContext().m_ptool
+                    .updateTableStatistics(TableStatistics.fromJSONArray(statisticsJson));
+            return 0;
+        }
+    }
+
+    public VoltTable run(String tableNames) throws InterruptedException, ExecutionException, JSONException,
+            IOException {
+        CatalogContext ctx = VoltDB.instance().getCatalogContext();
+        List<Table> tables = getValidatedTables(ctx, tableNames);
+        VoltTable partitionKeys = TheHashinator.getPartitionKeys(VoltType.INTEGER);
+
+        VoltTable result = new VoltTable(RESULT_COLUMNS);
+        List<TableStatistics> analyzed = new ArrayList<>(tables.size());
+        for (Table table : tables) {
+            TableStatistics statistics = analyzeTable(table, partitionKeys);
+            analyzed.add(statistics);
+            for (ColumnStatistics column : statistics.getColumns().values()) {
+                result.addRow(table.getTypeName(), column.getColumnName(), statistics.getRowCount(),
+                        column.getDistinctValues(), column.getNullCount(), column.getHistogramBuckets());
+            }
+        }
+
+        if (ctx.cluster.getUseddlschema()) {
+            storeInCatalog(ctx, analyzed);
+        } else {
+            hostLog.warn("@Analyze cannot store statistics in the catalog of a cluster which does not use DDL for "
+                    + "its schema. The statistics are lost when the cluster restarts.");
+            installOnAllHosts(analyzed);
+        }
+        hostLog.infoFmt("Analyzed %d tables", tables.size());
+        return result;
+    }
+
+    /*
+     * Add the statistics to the statistics of the other tables and replace the catalog jar entry. The catalog update
+     * installs them on every host.
+     */
+    private void storeInCatalog(CatalogContext ctx, List<TableStatistics> analyzed)
+            throws InterruptedException, ExecutionException, JSONException, IOException {
+        Map<String, TableStatistics> statistics = new TreeMap<>(ctx.m_ptool.getTableStatistics());
+        for (TableStatistics tableStatistics : analyzed) {
+            statistics.put(tableStatistics.getTableName(), tableStatistics);
+        }
+        InMemoryJarfile jarfile = new InMemoryJarfile();
+        jarfile.put(TableStatistics.CATALOG_JAR_ENTRY,
+                TableStatistics.toJSONString(statistics.values()).getBytes(StandardCharsets.UTF_8));
+        ClientResponse response = callProcedure("@UpdateClasses", jarfile.getFullJarBytes(), null).get();
+        if (response.getStatus() != ClientResponse.SUCCESS) {
+            throw new VoltAbortException("Failed to store statistics in the catalog: " + response.getStatusString());
+        }
+    }
+
+    private void installOnAllHosts(List<TableStatistics> analyzed)
+            throws InterruptedException, ExecutionException, JSONException {
+        Map<Integer, ClientResponse> responses = callNTProcedureOnAllHosts("@AnalyzeOnHost",
+                TableStatistics.toJSONString(analyzed)).get();
+        for (Entry<Integer, ClientResponse> e : responses.entrySet()) {
+            if (e.getValue().getStatus() != ClientResponse.SUCCESS) {
+                throw new VoltAbortException(String.format("Failed to install statistics on host %d: %s",
+                        e.getKey(), e.getValue().getStatusString()));
+            }
+        }
+    }
+
+    private static List<Table> getValidatedTables(CatalogContext ctx, String tableNames) {
+        List<Table> tables = new ArrayList<>();
+        if (tableNames == null || tableNames.trim().isEmpty()) {
+            for (Table table : ctx.database.getTables()) {
+                if (!CatalogUtil.isStream(ctx.database, table)) {
+                    tables.add(table);
+                }
+            }
+            return tables;
+        }
+        for (String tableName : tableNames.split(",")) {
+            tableName = tableName.trim();
+            Table table = ctx.database.getTables().getIgnoreCase(tableName);
+            if (table == null) {
+                throw new VoltAbortException(String.format("Table \"%s\" not found.", tableName));
+            }
+            if (CatalogUtil.isStream(ctx.database, table)) {
+                throw new VoltAbortException(String.format("Stream \"%s\" cannot be analyzed.", tableName));
+            }
+            tables.add(table);
+        }
+        return tables;
+    }
+
+    private TableStatistics analyzeTable(Table table, VoltTable partitionKeys)
+            throws InterruptedException, ExecutionException {
+        String tableName = quote(table.getTypeName());
+        List<Column> columns = CatalogUtil.getSortedCatalogItems(table.getColumns(), "index");
+        long rowCount = query("@AdHoc", String.format("SELECT COUNT(*) FROM %s;", tableName)).asScalarLong();
+
+        Set<String> uniqueColumns = new HashSet<>();
+        Set<String> indexedColumns = new HashSet<>();
+        for (Index index : table.getIndexes()) {
+            if (!index.getExpressionsjson().isEmpty()) {
+                continue;
+            }
+            List<ColumnRef> indexColumns = CatalogUtil.getSortedCatalogItems(index.getColumns(), "index");
+            if (index.getUnique() && indexColumns.size() == 1) {
+                uniqueColumns.add(indexColumns.get(0).getColumn().getTypeName());
+            }
+            for (ColumnRef ref : indexColumns) {
+                indexedColumns.add(ref.getColumn().getTypeName());
+            }
+        }
+
+        // One query for the non-null and approximate distinct counts of every column within the sample
+        String sample = String.format("(SELECT * FROM %s LIMIT %d) AS S", tableName, SAMPLE_ROWS);
+        StringBuilder counts = new StringBuilder("SELECT COUNT(*)");
+        // And one for the values of the columns which get a histogram
+        StringBuilder values = new StringBuilder();
+        Map<String, ColumnSampler> samplers = new LinkedHashMap<>();
+        for (Column column : columns) {
+            String columnName = quote(column.getTypeName());
+            counts.append(", COUNT(").append(columnName).append(')');
+            if (supportsApproxCountDistinct(column)) {
+                counts.append(", APPROX_COUNT_DISTINCT(").append(columnName).append(')');
+            }
+            String value = HISTOGRAM_BUCKETS > 0 && indexedColumns.contains(column.getTypeName())
+                    ? histogramValue(column) : null;
+            if (value != null) {
+                values.append(values.length() == 0 ? "SELECT " : ", ").append(value);
+            }
+            boolean partitionColumn = table.getPartitioncolumn() != null
+                    && table.getPartitioncolumn().getTypeName().equals(column.getTypeName());
+            samplers.put(column.getTypeName(),
+                    new ColumnSampler(column.getTypeName(), partitionColumn, value == null ? 0 : HISTOGRAM_BUCKETS));
+        }
+        counts.append(" FROM ").append(sample).append(';');
+        List<VoltTable> countSamples = querySample(table, counts.toString(), partitionKeys);
+        List<VoltTable> valueSamples = values.length() == 0 ? null
+                : querySample(table, values.append(" FROM ").append(sample).append(';').toString(), partitionKeys);
+
+        for (int partition = 0; partition < countSamples.size(); ++partition) {
+            VoltTable partitionCounts = countSamples.get(partition);
+            partitionCounts.advanceRow();
+            long sampledRows = partitionCounts.getLong(0);
+            VoltTable partitionValues = valueSamples == null ? null : valueSamples.get(partition);
+            int countColumn = 1;
+            int valueColumn = 0;
+            for (Column column : columns) {
+                ColumnSampler sampler = samplers.get(column.getTypeName());
+                long nonNull = partitionCounts.getLong(countColumn++);
+                long distinct = supportsApproxCountDistinct(column) ? partitionCounts.getLong(countColumn++) : -1;
+                double[] sampledValues = null;
+                if (sampler.hasHistogram()) {
+                    sampledValues = nonNullValues(partitionValues, valueColumn++);
+                }
+                sampler.addPartition(sampledRows, nonNull, distinct, sampledValues);
+            }
+        }
+
+        Map<String, ColumnStatistics> columnStatistics = new LinkedHashMap<>();
+        for (ColumnSampler sampler : samplers.values()) {
+            ColumnStatistics statistics = sampler.build(rowCount, uniqueColumns.contains(sampler.getColumnName()));
+            columnStatistics.put(statistics.getColumnName(), statistics);
+        }
+        return new TableStatistics(table.getTypeName(), table.getSignature(), rowCount, System.currentTimeMillis(),
+                columnStatistics);
+    }
+
+    /**
+     * @return expression which converts a numeric or timestamp column to the double bucketed by the histogram, or
+     *         {@code null} if the column type is not supported. Timestamps are bucketed by their microseconds since
+     *         the epoch.
+     */
+    private static String histogramValue(Column column) {
+        VoltType type = VoltType.get((byte) column.getType());
+        String columnName = quote(column.getTypeName());
+        if (type.isNumber()) {
+            return "CAST(" + columnName + " AS FLOAT)";
+        } else if (type == VoltType.TIMESTAMP) {
+            return "CAST(SINCE_EPOCH(MICROSECOND, " + columnName + ") AS FLOAT)";
+        }
+        return null;
+    }
+
+    private static double[] nonNullValues(VoltTable table, int column) {
+        double[] values = new double[table.getRowCount()];
+        int count = 0;
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            double value = table.getDouble(column);
+            if (!table.wasNull()) {
+                values[count++] = value;
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /*
+     * Run a query against the sample of every partition of a partitioned table, or once against a replicated table.
+     * @AdHocSpForTest is the ad hoc entry point which runs a statement on the partition of a given key.
+     */
+    private List<VoltTable> querySample(Table table, String sql, VoltTable partitionKeys)
+            throws InterruptedException, ExecutionException {
+        if (table.getIsreplicated()) {
+            return Collections.singletonList(query("@AdHoc", sql));
+        }
+        List<CompletableFuture<ClientResponse>> responses = new ArrayList<>(partitionKeys.getRowCount());
+        partitionKeys.resetRowPosition();
+        while (partitionKeys.advanceRow()) {
+            responses.add(callProcedure("@AdHocSpForTest", sql, (int) partitionKeys.getLong(1)));
+        }
+        List<VoltTable> results = new ArrayList<>(responses.size());
+        for (CompletableFuture<ClientResponse> response : responses) {
+            results.add(checkResponse(sql, response.get()));
+        }
+        return results;
+    }
+
+    private VoltTable query(String procedure, String sql) throws InterruptedException, ExecutionException {
+        return checkResponse(sql, callProcedure(procedure, sql).get());
+    }
+
+    private static VoltTable checkResponse(String sql, ClientResponse response) {
+        if (response.getStatus() != ClientResponse.SUCCESS) {
+            throw new VoltAbortException(String.format("Failed to analyze with \"%s\": %s", sql,
+                    response.getStatusString()));
+        }
+        return response.getResults()[0];
+    }
+
+    /**
+     * Quote a catalog identifier so names which are reserved words or contain special characters can be used in SQL
+     */
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    private static boolean supportsApproxCountDistinct(Column column) {
+        switch (VoltType.get((byte) column.getType())) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case DECIMAL:
+        case TIMESTAMP:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
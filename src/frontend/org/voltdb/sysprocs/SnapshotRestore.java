@@ -136,6 +136,11 @@ public class SnapshotRestore extends VoltSystemProcedure {
      */
     public static final int K_CHECK_UNIQUE_VIOLATIONS_REPLICATED = 1;
 
+    /*
+     * Restore throughput of the host, in MB of table data per second, added to the final results
+     */
+    static final String CNAME_MB_PER_SEC = "MB_PER_SEC";
+
     private static HashSet<String>  m_initializedTableSaveFileNames = new HashSet<String>();
     private static ArrayDeque<TableSaveFile> m_saveFiles = new ArrayDeque<TableSaveFile>();
 
@@ -567,6 +572,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
             long coordinatorHSId = (Long)params[0];
             Mailbox m = VoltDB.instance().getHostMessenger().createMailbox();
             m_mbox = m;
+            m_restoredBytes = 0;
+            final long runLoopStart = System.nanoTime();
             if (TRACE_LOG.isTraceEnabled()){
                 TRACE_LOG.trace(
                         "Entering async run loop at " + CoreUtils.hsIdToString(context.getSiteId()) +
@@ -649,15 +656,16 @@ public class SnapshotRestore extends VoltSystemProcedure {
                                                      e);
                         }
                     }
-                    //Null result table is intentional
                     //The results of the process are propagated through a future in performTableRestoreWork
-                    VoltTable emptyResult = constructResultsTable();
-                    return new DependencyPair.TableDependencyPair(SysProcFragmentId.PF_restoreAsyncRunLoop, emptyResult);
+                    //Only the amount of data this site restored is returned to compute the restore throughput
+                    VoltTable throughput = constructThroughputTable();
+                    throughput.addRow(m_hostId, m_restoredBytes, System.nanoTime() - runLoopStart);
+                    return new DependencyPair.TableDependencyPair(SysProcFragmentId.PF_restoreAsyncRunLoop, throughput);
                 }
             }
         } else if (fragmentId == SysProcFragmentId.PF_restoreAsyncRunLoopResults) {
-            VoltTable emptyResult = constructResultsTable();
-            return new DependencyPair.TableDependencyPair(SysProcFragmentId.PF_restoreAsyncRunLoopResults, emptyResult);
+            VoltTable result = VoltTableUtil.unionTables(dependencies.get(SysProcFragmentId.PF_restoreAsyncRunLoop));
+            return new DependencyPair.TableDependencyPair(SysProcFragmentId.PF_restoreAsyncRunLoopResults, result);
         }
 
         // called by: performDistributeReplicatedTable() and performDistributePartitionedTable
@@ -786,6 +794,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                         continue;//Should be equivalent to break
                     }
                     try {
+                        m_restoredBytes += c.b().remaining();
                         VoltTable table = converter.convert(c.b());
                         byte uniqueViolations[] = callLoadTable(context, table_name, table);
 
@@ -1270,7 +1279,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     null);
         }
         for (String warning : warnings) {
-            results[0].addRow(-1, "", -1, "", -1, "WARNING", warning);
+            results[0].addRow(-1, "", -1, "", -1, "WARNING", warning, 0.0);
         }
         return results;
     }
@@ -1460,6 +1469,55 @@ public class SnapshotRestore extends VoltSystemProcedure {
         }
     }
 
+    private static VoltTable constructThroughputTable()
+    {
+        return new VoltTable(
+                new ColumnInfo(CNAME_HOST_ID, CTYPE_ID),
+                new ColumnInfo("BYTES", VoltType.BIGINT),
+                new ColumnInfo("ELAPSED_NANOS", VoltType.BIGINT));
+    }
+
+    /**
+     * Copy the restore results adding the restore throughput of the host of each row. The throughput of a host is
+     * the table data read from save files by all of its sites divided by the time the longest of them took.
+     *
+     * @param results    restore results
+     * @param throughput rows from {@link #constructThroughputTable()} for every site
+     * @return restore results with a {@code MB_PER_SEC} column
+     */
+    static VoltTable addRestoreThroughput(VoltTable results, VoltTable throughput)
+    {
+        Map<Integer, long[]> hostBytesAndNanos = new HashMap<>();
+        throughput.resetRowPosition();
+        while (throughput.advanceRow()) {
+            long[] bytesAndNanos = hostBytesAndNanos.computeIfAbsent((int) throughput.getLong(CNAME_HOST_ID),
+                    h -> new long[2]);
+            bytesAndNanos[0] += throughput.getLong("BYTES");
+            bytesAndNanos[1] = Math.max(bytesAndNanos[1], throughput.getLong("ELAPSED_NANOS"));
+        }
+
+        ColumnInfo[] columns = new ColumnInfo[results.getColumnCount() + 1];
+        for (int i = 0; i < results.getColumnCount(); ++i) {
+            columns[i] = new ColumnInfo(results.getColumnName(i), results.getColumnType(i));
+        }
+        columns[columns.length - 1] = new ColumnInfo(CNAME_MB_PER_SEC, VoltType.FLOAT);
+        VoltTable withThroughput = new VoltTable(columns);
+        withThroughput.setStatusCode(results.getStatusCode());
+
+        Object[] row = new Object[columns.length];
+        results.resetRowPosition();
+        while (results.advanceRow()) {
+            for (int i = 0; i < results.getColumnCount(); ++i) {
+                row[i] = results.get(i, results.getColumnType(i));
+            }
+            long[] bytesAndNanos = hostBytesAndNanos.get((int) results.getLong(CNAME_HOST_ID));
+            row[columns.length - 1] = bytesAndNanos == null || bytesAndNanos[1] <= 0 ? 0.0
+                    : bytesAndNanos[0] / (1024.0 * 1024.0) / (bytesAndNanos[1] / 1_000_000_000.0);
+            withThroughput.addRow(row);
+        }
+        return withThroughput;
+    }
+
     private VoltTable constructResultsTable()
     {
         ColumnInfo[] result_columns = new ColumnInfo[7];
@@ -1519,7 +1577,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
     private static TableSaveFile getTableSaveFile(File saveFile, int readAheadChunks, Integer relevantPartitionIds[])
             throws IOException {
         FileInputStream savefile_input = new FileInputStream(saveFile);
-        TableSaveFile savefile = new TableSaveFile(savefile_input, readAheadChunks, relevantPartitionIds);
+        TableSaveFile savefile = new TableSaveFile(savefile_input, readAheadChunks, relevantPartitionIds, false,
+                saveFile.getParentFile());
         return savefile;
     }
 
@@ -2111,7 +2170,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
          * for restore. It will block on generating the response from the end of the run loop
          * the response doesn't contain any information
          */
-        distributeAsyncMailboxFragment(m.getHSId());
+        VoltTable[] throughput = distributeAsyncMailboxFragment(m.getHSId());
 
         //Wait for the thread that was created to terminate to prevent concurrent access.
         //It should already have finished if distributeAsyncMailboxFragment returned
@@ -2120,6 +2179,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
         es.shutdown();
         es.awaitTermination(365, TimeUnit.DAYS);
 
+        restore_results[0] = addRestoreThroughput(restore_results[0], throughput[0]);
         return restore_results;
     }
 
@@ -2182,6 +2242,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     continue;   // Should be equivalent to break
                 }
                 try {
+                    m_restoredBytes += c.b().remaining();
                     VoltTable table = converter.convert(c.b());
 
                     Map<Integer, byte[]> partitionedTables = null;
@@ -2360,6 +2421,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 byte compressedTable[] = null;
                 SynthesizedPlanFragment[] pfs = null;
                 try {
+                    m_restoredBytes += c.b().remaining();
                     VoltTable table = converter.convert(c.b());
 
                     if (asReplicated) {
@@ -2810,6 +2872,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
 
     private Mailbox m_mbox;
     private final Map<Long, Long> m_actualToGenerated = new HashMap<Long, Long>();
+    // Bytes of table data read from save files by this site during the current restore run loop
+    private long m_restoredBytes;
     private Database m_database;
     private long m_siteId;
     private int m_hostId;
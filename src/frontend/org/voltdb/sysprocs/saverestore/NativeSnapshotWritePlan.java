@@ -210,7 +210,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan<SnapshotRequestCo
 
                 NativeSnapshotDataTarget.Factory factory = NativeSnapshotDataTarget.getFactory(file_path, pathType, file_nonce,
                         hostId, context.getCluster().getTypeName(), context.getDatabase().getTypeName(),
-                        partitionCount, tracker.getPartitionsForHost(hostId), txnId, timestamp, isTruncationSnapshot);
+                        partitionCount, tracker.getPartitionsForHost(hostId), txnId, timestamp, isTruncationSnapshot,
+                        isTruncationSnapshot ? null : config.baseNonce);
 
                 NativeSnapshotWritePlan.createFileBasedCompletionTasks(file_path, pathType, file_nonce,
                         txnId, partitionTransactionIds, context, extraSnapshotData,
@@ -17,6 +17,7 @@
 
 package org.voltdb.sysprocs.saverestore;
 
+import java.io.File;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -39,11 +40,14 @@ public class SnapshotRequestConfig {
     public static final String JKEY_NEW_PARTITION_COUNT = "newPartitionCount";
     public static final String JKEY_TABLES = "tables";
     public static final String JKEY_SCHEMA_BUILDER = "schemaBuilder";
+    public static final String JKEY_BASE_NONCE = "baseNonce";
 
     public final boolean emptyConfig;
     public final List<SnapshotTableInfo> tables;
     public final Integer newPartitionCount;
     public final String truncationRequestId;
+    /** Nonce of the snapshot which an incremental snapshot is taken against or {@code null} for a full snapshot */
+    public final String baseNonce;
     private final HiddenColumnFilter hiddenColumnFilter;
 
     public static HiddenColumnFilter getHiddenColumnFilter(JSONObject jsonObject) {
@@ -86,6 +90,7 @@ public class SnapshotRequestConfig {
         this.tables = tables;
         this.newPartitionCount = newPartitionCount;
         truncationRequestId = null;
+        baseNonce = null;
         this.hiddenColumnFilter = schemaFilterType;
     }
 
@@ -96,15 +101,29 @@ public class SnapshotRequestConfig {
             emptyConfig = true;
             newPartitionCount = null;
             truncationRequestId = null;
+            baseNonce = null;
             hiddenColumnFilter = HiddenColumnFilter.NONE;
         } else {
             emptyConfig = false;
             newPartitionCount = (Integer) jsData.opt(JKEY_NEW_PARTITION_COUNT);
             truncationRequestId = (String) jsData.opt(SnapshotUtil.JSON_TRUNCATION_REQUEST_ID);
+            baseNonce = getBaseNonce(jsData);
             hiddenColumnFilter = getHiddenColumnFilter(jsData);
         }
     }
 
+    private static String getBaseNonce(JSONObject jsData) {
+        String nonce = jsData.optString(JKEY_BASE_NONCE, null);
+        if (nonce == null || nonce.trim().isEmpty()) {
+            return null;
+        }
+        nonce = nonce.trim();
+        if (nonce.contains("-") || nonce.contains(",") || nonce.contains("/") || nonce.contains(File.separator)) {
+            throw new IllegalArgumentException("Base snapshot nonce " + nonce + " contains a prohibited character");
+        }
+        return nonce;
+    }
+
     private static List<SnapshotTableInfo> getTablesToInclude(JSONObject jsData, Database catalogDatabase,
             boolean includeSystemTables)
     {
@@ -191,6 +210,9 @@ public class SnapshotRequestConfig {
         if (newPartitionCount != null) {
             stringer.keySymbolValuePair(JKEY_NEW_PARTITION_COUNT, newPartitionCount.longValue());
         }
+        if (baseNonce != null) {
+            stringer.keySymbolValuePair(JKEY_BASE_NONCE, baseNonce);
+        }
         stringer.keySymbolValuePair(JKEY_SCHEMA_BUILDER, getHiddenColumnFilter().name());
     }
 
@@ -19,6 +19,7 @@ package org.voltdb.sysprocs.saverestore;
 
 import java.io.Closeable;
 import java.io.EOFException;
+import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -26,11 +27,20 @@ import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.Checksum;
 
@@ -42,11 +52,12 @@ import org.json_voltpatches.JSONObject;
 import org.voltcore.TransactionIdManager;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.Bits;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.NativeLibraryLoader;
 import org.voltdb.messaging.FastDeserializer;
-import org.voltdb.utils.CompressionService;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.PosixAdvise;
 
 /**
@@ -76,7 +87,7 @@ public class TableSaveFile implements Closeable
         public void discard() {
             checkDoubleFree();
             synchronized (TableSaveFile.this) {
-                if (m_hasMoreChunks.get() == false) {
+                if (m_hasMoreChunks.get() == false && m_pendingChunks.isEmpty()) {
                     m_origin.discard();
                 } else {
                     m_buffers.add(m_origin);
@@ -93,6 +104,52 @@ public class TableSaveFile implements Closeable
     private static final int DEFAULT_CHUNKSIZE =
             org.voltdb.SnapshotSiteProcessor.m_snapshotBufferLength + (1024 * 256);
 
+    /**
+     * Threads shared by all save files to validate and decompress chunks while the chunk reader of each file
+     * reads ahead
+     */
+    private static final int DECODE_THREADS = Integer.getInteger("SNAPSHOT_RESTORE_DECODE_THREADS",
+            Math.max(1, CoreUtils.availableProcessors() / 2));
+    private static final ExecutorService s_decoders = createDecoders();
+
+    /**
+     * Length of the SHA-256 digest of the compressed chunk which follows the header of every chunk in version 3
+     * files. Unchanged chunks are matched against a base file by comparing digests so the base is never read back.
+     */
+    public static final int CHUNK_DIGEST_LENGTH = 32;
+
+    /**
+     * Maximum number of incremental snapshot files between a file and the full file at the start of its chain. Once
+     * the base is this deep the next incremental snapshot writes the full table so restore does not follow a chain of
+     * unbounded length.
+     */
+    public static final int MAX_INCREMENTAL_CHAIN_DEPTH = Integer.getInteger("SNAPSHOT_MAX_INCREMENTAL_CHAIN", 8);
+
+    private static final ThreadLocal<MessageDigest> s_chunkDigest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * @param chunk compressed chunk between its position and limit. The position of {@code chunk} is not changed.
+     * @return SHA-256 digest of {@code chunk} as written in the header of chunks in version 3 files
+     */
+    public static byte[] chunkDigest(ByteBuffer chunk) {
+        MessageDigest digest = s_chunkDigest.get();
+        digest.update(chunk.duplicate());
+        return digest.digest();
+    }
+
+    private static ExecutorService createDecoders() {
+        ThreadPoolExecutor decoders = new ThreadPoolExecutor(DECODE_THREADS, DECODE_THREADS, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), CoreUtils.getThreadFactory("Snapshot Chunk Decoder"));
+        decoders.allowCoreThreadTimeOut(true);
+        return decoders;
+    }
+
     public TableSaveFile(
             FileInputStream fis,
             int readAheadChunks,
@@ -105,7 +162,20 @@ public class TableSaveFile implements Closeable
             FileInputStream fis,
             int readAheadChunks,
             Integer[] relevantPartitionIds,
-            boolean continueOnCorruptedChunk) throws IOException
+            boolean continueOnCorruptedChunk) throws IOException {
+        this(fis, readAheadChunks, relevantPartitionIds, continueOnCorruptedChunk, null);
+    }
+
+    /**
+     * @param directory Directory holding the save file. Used to find the base file when the save file is from an
+     *                  incremental snapshot. If {@code null} chunks which reference the base file cannot be read.
+     */
+    public TableSaveFile(
+            FileInputStream fis,
+            int readAheadChunks,
+            Integer[] relevantPartitionIds,
+            boolean continueOnCorruptedChunk,
+            File directory) throws IOException
             {
                 m_fd = fis.getFD();
                 FileChannel dataIn = fis.getChannel();
@@ -246,7 +316,10 @@ public class TableSaveFile implements Closeable
                 m_tableName = fd.readString();
                 m_isReplicated = fd.readBoolean();
                 m_isCompressed = false;
+                m_compressionCodec = CompressionCodec.SNAPPY;
                 m_checksumType = ChecksumType.CRC32;
+                m_baseFileName = null;
+                m_chainDepth = 0;
                 if (!m_isReplicated) {
                     m_partitionIds = (int[])fd.readArray(int.class);
                     if (!m_completed) {
@@ -263,13 +336,15 @@ public class TableSaveFile implements Closeable
                     }
                 }
                 m_hasVersion2FormatChunks = false;
+                m_hasChunkDigests = false;
             } else {
-                assert(m_versionNum[3] == 1 || m_versionNum[3] == 2);
+                assert(m_versionNum[3] >= 1 && m_versionNum[3] <= 3);
                 if (m_versionNum[3] >= 2) {
                     m_hasVersion2FormatChunks = true;
                 } else {
                     m_hasVersion2FormatChunks = false;
                 }
+                m_hasChunkDigests = m_versionNum[3] >= 3;
                 int numJSONBytes = fd.readInt();
                 byte jsonBytes[] = new byte[numJSONBytes];
                 fd.readFully(jsonBytes);
@@ -291,7 +366,13 @@ public class TableSaveFile implements Closeable
                 m_tableName = obj.getString("tableName");
                 m_isReplicated = obj.getBoolean("isReplicated");
                 m_isCompressed = obj.optBoolean("isCompressed", false);
+                // Files written before the codec was recorded are always compressed with snappy
+                m_compressionCodec = CompressionCodec
+                        .fromName(obj.optString("compressionCodec", CompressionCodec.SNAPPY.name()));
                 m_checksumType = ChecksumType.valueOf(obj.optString("checksumType", "CRC32"));
+                // Only present in files of incremental snapshots
+                m_baseFileName = obj.optString("baseFile", null);
+                m_chainDepth = obj.optInt("chainDepth", m_baseFileName == null ? 0 : 1);
                 if (!m_isReplicated) {
                     JSONArray partitionIds = obj.getJSONArray("partitionIds");
                     m_partitionIds = new int[partitionIds.length()];
@@ -313,6 +394,10 @@ public class TableSaveFile implements Closeable
                     }
                 }
             }
+            m_firstChunkPosition = m_saveFile.position();
+            if (directory != null) {
+                openBaseOf(directory);
+            }
             /*
              * Several runtime exceptions can be thrown in valid failure cases where
              * a corrupt save file is being detected.
@@ -325,6 +410,8 @@ public class TableSaveFile implements Closeable
             throw new IOException(e);
         } catch (JSONException e) {
             throw new IOException(e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
         }
     }
 
@@ -371,6 +458,10 @@ public class TableSaveFile implements Closeable
         return m_isCompressed;
     }
 
+    public CompressionCodec getCompressionCodec() {
+        return m_compressionCodec;
+    }
+
     public int getTotalPartitions() {
         return m_totalPartitions;
     }
@@ -387,11 +478,204 @@ public class TableSaveFile implements Closeable
         return m_timestamp;
     }
 
+    /**
+     * @return name of the file this incremental snapshot file references unchanged chunks from or {@code null} if
+     *         this file holds all of the table data
+     */
+    public String getBaseFileName() {
+        return m_baseFileName;
+    }
+
+    /**
+     * Open a save file as the base of an incremental snapshot file. The returned file owns the opened stream.
+     *
+     * @param file save file to open
+     * @return the opened save file
+     * @throws IOException If the file could not be opened
+     */
+    public static TableSaveFile openBase(File file) throws IOException {
+        return openBase(file, -1);
+    }
+
+    /*
+     * chainDepth is the depth the file must have or -1 to accept any depth. Every base down the chain must be one
+     * step closer to the full file, which is checked before the next base is opened so a chain of files which
+     * reference each other cannot recurse without bound.
+     */
+    private static TableSaveFile openBase(File file, int chainDepth) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        TableSaveFile base = null;
+        try {
+            base = new TableSaveFile(fis, 1, null, false, null);
+            base.m_input = fis;
+            if (chainDepth >= 0 && base.m_chainDepth != chainDepth) {
+                throw new IOException("Base file " + file + " has chain depth " + base.m_chainDepth + " but "
+                        + chainDepth + " was expected");
+            }
+            base.openBaseOf(file.getParentFile());
+            return base;
+        } catch (IOException | RuntimeException e) {
+            if (base == null) {
+                fis.close();
+            } else {
+                base.close();
+            }
+            throw e;
+        }
+    }
+
+    private void openBaseOf(File directory) throws IOException {
+        if (m_baseFileName == null) {
+            return;
+        }
+        if (m_chainDepth < 1) {
+            throw new IOException("Incremental snapshot file references base file " + m_baseFileName
+                    + " but has chain depth " + m_chainDepth);
+        }
+        try {
+            m_base = openBase(new File(directory, m_baseFileName), m_chainDepth - 1);
+        } catch (IOException e) {
+            throw new IOException("Unable to open base file " + m_baseFileName + " of incremental snapshot", e);
+        }
+    }
+
+    /**
+     * @return number of incremental snapshot files between this file and the full file at the start of its chain.
+     *         {@code 0} if this file holds all of the table data.
+     */
+    public int getChainDepth() {
+        return m_chainDepth;
+    }
+
+    /**
+     * @return {@code true} if the header of each chunk is followed by the digest of the chunk so this file can be
+     *         the base of an incremental snapshot file
+     */
+    public boolean hasChunkDigests() {
+        return m_hasChunkDigests;
+    }
+
+    /**
+     * Test if this file holds a chunk which matches a chunk being written to an incremental snapshot file, either
+     * directly or through a reference to its own base file.
+     *
+     * @param partitionId of the chunk
+     * @param index       of the chunk among the chunks of {@code partitionId}
+     * @param length      of the compressed chunk
+     * @param crc         CRC32C of the compressed chunk
+     * @param digest      {@link #chunkDigest(ByteBuffer) digest} of the compressed chunk
+     * @return {@code true} if the chunk at {@code index} has the same length, CRC and digest
+     * @throws IOException If the chunk headers of the file could not be read
+     */
+    public boolean hasChunk(int partitionId, int index, int length, int crc, byte[] digest) throws IOException {
+        // A reference carries the digest of the chunk it references so the chain of base files is not followed
+        return getChunkLocation(partitionId, index).matches(length, crc, digest);
+    }
+
+    /*
+     * Read a chunk referenced by an incremental snapshot file into buffer, following the chain of base files
+     * if this file only holds a reference to it as well
+     */
+    private void readReferencedChunk(int partitionId, int index, int length, int crc, byte[] digest,
+            ByteBuffer buffer) throws IOException {
+        ChunkLocation location = getChunkLocation(partitionId, index);
+        if (!location.matches(length, crc, digest)) {
+            throw new IOException("Base file of table " + m_tableName + " does not hold chunk " + index
+                    + " of partition " + partitionId);
+        }
+        if (location.m_position < 0) {
+            if (m_base == null) {
+                throw new IOException("Base file " + m_baseFileName + " of table " + m_tableName + " is not available");
+            }
+            m_base.readReferencedChunk(partitionId, index, length, crc, digest, buffer);
+            return;
+        }
+        buffer.clear();
+        buffer.limit(length);
+        long position = location.m_position;
+        while (buffer.hasRemaining()) {
+            final int read = m_saveFile.read(buffer, position);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /*
+     * Chunks of replicated tables are matched regardless of which partition wrote them since a different site can
+     * write the table in each snapshot
+     */
+    private int chunkKey(int partitionId) {
+        return m_isReplicated ? 0 : partitionId;
+    }
+
+    private synchronized ChunkLocation getChunkLocation(int partitionId, int index) throws IOException {
+        if (m_chunkIndex == null) {
+            m_chunkIndex = indexChunks();
+        }
+        ArrayList<ChunkLocation> locations = m_chunkIndex.get(chunkKey(partitionId));
+        return locations == null || index >= locations.size() ? ChunkLocation.MISSING : locations.get(index);
+    }
+
+    /*
+     * Walk the chunk headers of the file to find where each chunk is. Indexing stops at the first header which
+     * is truncated or fails its CRC check so only valid chunks can be matched.
+     */
+    private HashMap<Integer, ArrayList<ChunkLocation>> indexChunks() throws IOException {
+        HashMap<Integer, ArrayList<ChunkLocation>> index = new HashMap<>();
+        if (!m_hasChunkDigests) {
+            return index;
+        }
+        final int headerLength = 16 + CHUNK_DIGEST_LENGTH;
+        final ByteBuffer header = ByteBuffer.allocate(headerLength);
+        long position = m_firstChunkPosition;
+        while (true) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (m_saveFile.read(header, position + header.position()) == -1) {
+                    return index;
+                }
+            }
+            if (chunkHeaderCRC(header.array()) != header.getInt(8)) {
+                return index;
+            }
+            final int length = header.getInt(0);
+            final byte[] digest = Arrays.copyOfRange(header.array(), 16, headerLength);
+            final ChunkLocation location;
+            if (length >= 0) {
+                location = new ChunkLocation(position + headerLength, length, header.getInt(12), digest);
+                position += headerLength + length;
+            } else if (m_baseFileName != null) {
+                location = new ChunkLocation(-1, ~length, header.getInt(12), digest);
+                position += headerLength;
+            } else {
+                return index;
+            }
+            index.computeIfAbsent(chunkKey(header.getInt(4)), k -> new ArrayList<>()).add(location);
+        }
+    }
+
+    /*
+     * The header CRC covers the length and partition ID of the chunk and, in version 3 files, the chunk digest which
+     * follows the 16 byte header
+     */
+    private int chunkHeaderCRC(byte[] header) {
+        final Checksum headerCRC = new PureJavaCrc32C();
+        headerCRC.update(header, 0, 8);
+        if (m_hasChunkDigests) {
+            headerCRC.update(header, 16, CHUNK_DIGEST_LENGTH);
+        }
+        return (int) headerCRC.getValue();
+    }
+
     @Override
     public void close() throws IOException {
         Thread chunkReader;
         synchronized (this) {
             m_hasMoreChunks.set(false);
+            m_closed = true;
             chunkReader = m_chunkReaderThread;
         }
 
@@ -405,6 +689,14 @@ public class TableSaveFile implements Closeable
         }
 
         synchronized (this) {
+            // Chunks still being decoded are discarded as they complete
+            while (m_decodingChunks > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
             while (!m_availableChunks.isEmpty()) {
                 m_availableChunks.poll().discard();
             }
@@ -418,6 +710,16 @@ public class TableSaveFile implements Closeable
         while ((cont = m_buffers.poll()) != null) {
             cont.discard();
         }
+        while ((cont = m_inputBuffers.poll()) != null) {
+            cont.discard();
+        }
+
+        if (m_base != null) {
+            m_base.close();
+        }
+        if (m_input != null) {
+            m_input.close();
+        }
     }
 
     public Set<Integer> getCorruptedPartitionIds() {
@@ -434,7 +736,7 @@ public class TableSaveFile implements Closeable
         if (m_chunkReaderException != null) {
             throw m_chunkReaderException;
         }
-        if (!m_hasMoreChunks.get()) {
+        if (!m_hasMoreChunks.get() && m_pendingChunks.isEmpty()) {
             final Container c = m_availableChunks.poll();
             return c;
         }
@@ -446,7 +748,7 @@ public class TableSaveFile implements Closeable
         }
 
         Container c = null;
-        while (c == null && (m_hasMoreChunks.get() || !m_availableChunks.isEmpty())) {
+        while (c == null && (m_hasMoreChunks.get() || !m_pendingChunks.isEmpty() || !m_availableChunks.isEmpty())) {
             c = m_availableChunks.poll();
             if (c == null) {
                 try {
@@ -471,7 +773,7 @@ public class TableSaveFile implements Closeable
         if (m_chunkReaderException != null) {
             throw m_chunkReaderException;
         }
-        return m_hasMoreChunks.get() || !m_availableChunks.isEmpty();
+        return m_hasMoreChunks.get() || !m_pendingChunks.isEmpty() || !m_availableChunks.isEmpty();
     }
 
     // thread safe file channels
@@ -487,6 +789,7 @@ public class TableSaveFile implements Closeable
     private final String m_tableName;
     private final boolean m_isReplicated;
     private final boolean m_isCompressed;
+    private final CompressionCodec m_compressionCodec;
     private final int m_partitionIds[];
     private final int m_totalPartitions;
     private final long m_txnId;
@@ -494,8 +797,28 @@ public class TableSaveFile implements Closeable
     private AtomicBoolean m_hasMoreChunks = new AtomicBoolean(true);
     private ConcurrentLinkedQueue<BBContainer> m_buffers = new ConcurrentLinkedQueue<BBContainer>();
     private final ArrayDeque<Container> m_availableChunks = new ArrayDeque<Container>();
+    // Buffers holding compressed chunks between the chunk reader and the decoders
+    private final ConcurrentLinkedQueue<BBContainer> m_inputBuffers = new ConcurrentLinkedQueue<BBContainer>();
+    // Chunks handed to the decoders, in file order, which have not been made available yet
+    private final ArrayDeque<PendingChunk> m_pendingChunks = new ArrayDeque<PendingChunk>();
+    private int m_decodingChunks = 0;
+    private boolean m_closed = false;
     private final HashSet<Integer> m_relevantPartitionIds;
     private final ChecksumType m_checksumType;
+    private final long m_firstChunkPosition;
+
+    /*
+     * Files of incremental snapshots write a reference to the chunk in the base file instead of chunks which have
+     * not changed since the base snapshot. A reference is a chunk header with the complement of the chunk length.
+     */
+    private final String m_baseFileName;
+    private TableSaveFile m_base = null;
+    // Number of incremental snapshot files between this file and the full file at the start of its chain
+    private final int m_chainDepth;
+    // Locations of the chunks of each partition, built when this file is used as a base
+    private HashMap<Integer, ArrayList<ChunkLocation>> m_chunkIndex = null;
+    // Stream owned by this file when it was opened by openBase
+    private FileInputStream m_input = null;
 
     /*
      * In version 2 the layout of chunks was rejiggered to do less work
@@ -504,6 +827,11 @@ public class TableSaveFile implements Closeable
      */
     private final boolean m_hasVersion2FormatChunks;
 
+    /*
+     * In version 3 the header of each chunk is followed by the digest of the compressed chunk
+     */
+    private final boolean m_hasChunkDigests;
+
     /**
      * Maintain a list of corrupted partitions. It is possible for uncorrupted partitions
      * to be recovered from a save file in the future
@@ -524,20 +852,84 @@ public class TableSaveFile implements Closeable
     private Thread m_chunkReaderThread = null;
     private IOException m_chunkReaderException = null;
 
+    /**
+     * A chunk which has been read from the file and is being decoded. Chunks can finish decoding out of order so
+     * they wait in {@link #m_pendingChunks} until all of the chunks before them are done.
+     */
+    private static final class ChunkLocation {
+        // Location of a chunk which is not in the file
+        static final ChunkLocation MISSING = new ChunkLocation(-1, -1, 0, null);
+
+        // Position of the compressed chunk or -1 if the chunk is a reference to the base file
+        final long m_position;
+        final int m_length;
+        final int m_crc;
+        final byte[] m_digest;
+
+        ChunkLocation(long position, int length, int crc, byte[] digest) {
+            m_position = position;
+            m_length = length;
+            m_crc = crc;
+            m_digest = digest;
+        }
+
+        boolean matches(int length, int crc, byte[] digest) {
+            return m_length == length && m_crc == crc && MessageDigest.isEqual(m_digest, digest);
+        }
+    }
+
+    private static final class PendingChunk {
+        boolean m_done = false;
+        // Decoded chunk or null if the chunk was skipped or failed
+        Container m_chunk = null;
+    }
+
+    private synchronized void addCorruptedPartitions(int... partitionIds) {
+        for (int partitionId : partitionIds) {
+            m_corruptedPartitions.add(partitionId);
+        }
+    }
+
+    /*
+     * Record the result of decoding a chunk and make all chunks which are done, up to the first one still
+     * being decoded, available in file order
+     */
+    private synchronized void chunkDecoded(PendingChunk pending, Container chunk, IOException failure) {
+        --m_decodingChunks;
+        pending.m_done = true;
+        pending.m_chunk = chunk;
+        if (failure != null) {
+            m_hasMoreChunks.set(false);
+            if (m_chunkReaderException == null) {
+                m_chunkReaderException = failure;
+            }
+        }
+        PendingChunk head;
+        while ((head = m_pendingChunks.peek()) != null && head.m_done) {
+            m_pendingChunks.poll();
+            if (head.m_chunk == null) {
+                m_chunkReads.release();
+            } else if (m_closed) {
+                head.m_chunk.discard();
+            } else {
+                m_availableChunks.offer(head.m_chunk);
+            }
+        }
+        notifyAll();
+    }
+
     /**
      * Thread to read chunks from the disk
      */
     private class ChunkReader implements Runnable {
+        // Number of chunks read for each partition, used to find chunks referenced in the base file
+        private final HashMap<Integer, Integer> m_chunkCounts = new HashMap<>();
 
         /*
          * The old method was out of hand. Going to start a new one with a different format
          * that should be easier to understand and validate.
          */
         private void readChunksV2() {
-            //For reading the compressed input.
-            final BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
-            final ByteBuffer fileInputBuffer = fileInputBufferC.b();
             long sinceLastFAdvise = Long.MAX_VALUE;
             long positionAtLastFAdvise = 0;
 
@@ -584,18 +976,17 @@ public class TableSaveFile implements Closeable
                 try {
                     m_chunkReads.acquire();
                 } catch (InterruptedException e) {
-                    fileInputBufferC.discard();
                     return;
                 }
                 boolean expectedAnotherChunk = false;
-                Container c = null;
+                BBContainer input = null;
                 try {
 
                     /*
                      * Get the length of the next chunk, partition id, crc for partition id, and length prefix,
-                     * and then the CRC of the compressed payload
+                     * and then the CRC of the compressed payload. Version 3 files follow that with the digest.
                      */
-                    ByteBuffer chunkLengthB = ByteBuffer.allocate(16);
+                    ByteBuffer chunkLengthB = ByteBuffer.allocate(16 + (m_hasChunkDigests ? CHUNK_DIGEST_LENGTH : 0));
                     while (chunkLengthB.hasRemaining()) {
                         final int read = m_saveFile.read(chunkLengthB);
                         if (read == -1) {
@@ -613,17 +1004,13 @@ public class TableSaveFile implements Closeable
                      * has corrupt chunks in the file.
                      */
                     assert(m_checksumType == ChecksumType.CRC32C);
-                    final Checksum partitionIdCRC = new PureJavaCrc32C();
                     final int nextChunkPartitionId = chunkLengthB.getInt(4);
                     final int nextChunkPartitionIdCRC = chunkLengthB.getInt(8);
 
-                    partitionIdCRC.update(chunkLengthB.array(), 0, 8);
-                    int generatedValue = (int)partitionIdCRC.getValue();
+                    int generatedValue = chunkHeaderCRC(chunkLengthB.array());
                     if (generatedValue != nextChunkPartitionIdCRC) {
                         chunkLengthB.position(0);
-                        for (int partitionId : m_partitionIds) {
-                            m_corruptedPartitions.add(partitionId);
-                        }
+                        addCorruptedPartitions(m_partitionIds);
                         throw new IOException("Chunk partition ID CRC check failed. " +
                                 "This corrupts all partitions in this file");
                     }
@@ -633,6 +1020,12 @@ public class TableSaveFile implements Closeable
                      */
                     final int nextChunkCRC = chunkLengthB.getInt(12);
 
+                    final int chunkIndex = m_chunkCounts.merge(chunkKey(nextChunkPartitionId), 1, Integer::sum) - 1;
+                    final boolean inBaseFile = nextChunkLength < 0 && m_baseFileName != null;
+                    if (inBaseFile) {
+                        nextChunkLength = ~nextChunkLength;
+                    }
+
                     /*
                      * Sanity check the length value to ensure there isn't
                      * a runtime exception or OOM.
@@ -641,110 +1034,47 @@ public class TableSaveFile implements Closeable
                         throw new IOException("Corrupted TableSaveFile chunk has negative chunk length");
                     }
 
+                    input = getInputBuffer();
+                    final ByteBuffer fileInputBuffer = input.b();
                     if (nextChunkLength > fileInputBuffer.capacity()) {
                         throw new IOException("Corrupted TableSaveFile chunk has unreasonable length " +
                                 "> DEFAULT_CHUNKSIZE bytes");
                     }
 
                     /*
-                     * Go fetch the compressed data so that the uncompressed size is known
-                     * and use that to set nextChunkLength to be the uncompressed length,
-                     * the code ahead that constructs the volt table is expecting
-                     * the uncompressed size/data since it is producing an uncompressed table
+                     * Go fetch the compressed data. Validating and decompressing it is CPU bound so it is
+                     * handed to the decoders while this thread goes on to read the next chunk.
                      */
-                    fileInputBuffer.clear();
-                    fileInputBuffer.limit(nextChunkLength);
-                    while (fileInputBuffer.hasRemaining()) {
-                        final int read = m_saveFile.read(fileInputBuffer);
-                        if (read == -1) {
-                            throw new EOFException();
+                    if (inBaseFile) {
+                        // Chunk was unchanged when this incremental snapshot was taken so it is in the base file
+                        if (m_base == null) {
+                            throw new IOException("Chunk of table " + m_tableName + " is in base file "
+                                    + m_baseFileName + " which was not opened");
                         }
-                        sinceLastFAdvise += read;
-                    }
-                    fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
-
-                    /*
-                     * Validate the rest of the chunk. This can fail if the data is corrupted
-                     * or the length value was corrupted.
-                     */
-                    final int calculatedCRC =
-                            DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
-                    if (calculatedCRC != nextChunkCRC) {
-                        m_corruptedPartitions.add(nextChunkPartitionId);
-                        if (m_continueOnCorruptedChunk) {
-                            m_chunkReads.release();
-                            continue;
-                        } else {
-                            throw new IOException("CRC mismatch in saved table chunk");
-                        }
-                    }
-
-                    /*
-                     * Now allocate space to store the chunk using the VoltTable serialization representation.
-                     * The chunk will contain an integer row count preceding it so it can
-                     * be sucked straight in. There is a little funny business to overwrite the
-                     * partition id that is not part of the serialization format
-                     */
-                    c = getOutputBuffer(nextChunkPartitionId);
-
-                    /*
-                     * If the length value is wrong or not all data made it to disk this read will
-                     * not complete correctly. There could be overflow, underflow etc.
-                     * so use a try finally block to indicate that all partitions are now corrupt.
-                     * The enclosing exception handlers will do the right thing WRT to
-                     * propagating the error and closing the file.
-                     */
-                    boolean completedRead = false;
-                    try {
-                        final ByteBuffer buf = c.b();
-                        /*
-                         * Assemble a VoltTable out of the chunk of tuples.
-                         * Put in the header that was cached in the constructor,
-                         * then copy the tuple data.
-                         */
-                        buf.clear();
-                        buf.limit(nextChunkLength  + m_tableHeader.capacity());
-                        m_tableHeader.position(0);
-                        buf.put(m_tableHeader);
-                        //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, buf);
-                        completedRead = true;
-                    } finally {
-                        if (!completedRead) {
-                            for (int partitionId : m_partitionIds) {
-                                m_corruptedPartitions.add(partitionId);
-                            }
-                            if (m_continueOnCorruptedChunk) {
-                                m_chunkReads.release();
-                                continue;
-                            } else {
-                                throw new IOException("Failed decompression of saved table chunk");
+                        m_base.readReferencedChunk(nextChunkPartitionId, chunkIndex, nextChunkLength,
+                                nextChunkCRC, Arrays.copyOfRange(chunkLengthB.array(), 16, chunkLengthB.capacity()),
+                                fileInputBuffer);
+                    } else {
+                        fileInputBuffer.clear();
+                        fileInputBuffer.limit(nextChunkLength);
+                        while (fileInputBuffer.hasRemaining()) {
+                            final int read = m_saveFile.read(fileInputBuffer);
+                            if (read == -1) {
+                                throw new EOFException();
                             }
+                            sinceLastFAdvise += read;
                         }
+                        fileInputBuffer.flip();
                     }
 
-                    /*
-                     * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
-                     * in case it is the length value that is corrupted
-                     */
-                    if (m_relevantPartitionIds != null) {
-                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            m_chunkReads.release();
-                            continue;
-                        }
-                    }
-
-                    /*
-                     * VoltTable wants the buffer at the home position 0
-                     */
-                    c.b().position(0);
-
+                    final PendingChunk pending = new PendingChunk();
+                    final BBContainer compressed = input;
                     synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
-                        c = null;
-                        TableSaveFile.this.notifyAll();
+                        m_pendingChunks.offer(pending);
+                        ++m_decodingChunks;
                     }
+                    input = null;
+                    s_decoders.execute(() -> decodeChunk(pending, compressed, nextChunkPartitionId, nextChunkCRC));
                 } catch (EOFException eof) {
                     synchronized (TableSaveFile.this) {
                         m_hasMoreChunks.set(false);
@@ -779,18 +1109,116 @@ public class TableSaveFile implements Closeable
                         TableSaveFile.this.notifyAll();
                     }
                 } finally {
-                    if (c != null) {
-                        c.discard();
+                    if (input != null) {
+                        m_inputBuffers.offer(input);
                     }
                 }
             }
-            fileInputBufferC.discard();
+        }
+
+        private BBContainer getInputBuffer() {
+            BBContainer c = m_inputBuffers.poll();
+            if (c == null) {
+                c = DBBPool.allocateDirect(m_compressionCodec.maxCompressedLength(DEFAULT_CHUNKSIZE));
+            }
+            return c;
+        }
+
+        /*
+         * Validate the CRC of a chunk read by readChunksV2 and decompress it into a table. Runs in the decoder pool.
+         */
+        private void decodeChunk(PendingChunk pending, BBContainer compressed, int partitionId, int expectedCRC) {
+            Container c = null;
+            IOException failure = null;
+            boolean completed = false;
+            try {
+                final ByteBuffer fileInputBuffer = compressed.b();
+                /*
+                 * Use the uncompressed size as the chunk length, the code ahead that constructs the
+                 * volt table is expecting the uncompressed size/data since it is producing an uncompressed table
+                 */
+                final int nextChunkLength = m_compressionCodec.uncompressedLength(fileInputBuffer);
+
+                /*
+                 * Validate the rest of the chunk. This can fail if the data is corrupted
+                 * or the length value was corrupted.
+                 */
+                final int calculatedCRC =
+                        DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
+                if (calculatedCRC != expectedCRC) {
+                    addCorruptedPartitions(partitionId);
+                    if (!m_continueOnCorruptedChunk) {
+                        throw new IOException("CRC mismatch in saved table chunk");
+                    }
+                } else if (m_relevantPartitionIds == null || m_relevantPartitionIds.contains(partitionId)) {
+                    /*
+                     * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
+                     * in case it is the length value that is corrupted
+                     */
+                    c = decompress(fileInputBuffer, nextChunkLength, partitionId);
+                }
+                completed = true;
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e);
+            } finally {
+                m_inputBuffers.offer(compressed);
+                if (!completed && failure == null) {
+                    // An error is propagating, still complete the chunk so readers are not left waiting for it
+                    failure = new IOException("Unexpected error decoding saved table chunk");
+                }
+                chunkDecoded(pending, c, failure);
+            }
+        }
+
+        /*
+         * Now allocate space to store the chunk using the VoltTable serialization representation.
+         * The chunk will contain an integer row count preceding it so it can
+         * be sucked straight in. There is a little funny business to overwrite the
+         * partition id that is not part of the serialization format
+         *
+         * If the length value is wrong or not all data made it to disk this read will
+         * not complete correctly. There could be overflow, underflow etc.
+         * so all partitions are now corrupt. Returns null if the chunk should be skipped.
+         */
+        private Container decompress(ByteBuffer fileInputBuffer, int nextChunkLength, int partitionId)
+                throws IOException {
+            final Container c = getOutputBuffer(partitionId);
+            try {
+                final ByteBuffer buf = c.b();
+                /*
+                 * Assemble a VoltTable out of the chunk of tuples.
+                 * Put in the header that was cached in the constructor,
+                 * then copy the tuple data. The header is shared by the decoders so copy from a duplicate.
+                 */
+                buf.clear();
+                buf.limit(nextChunkLength  + m_tableHeader.capacity());
+                final ByteBuffer tableHeader = m_tableHeader.duplicate();
+                tableHeader.position(0);
+                buf.put(tableHeader);
+                //Doesn't move buffer position, does change the limit
+                m_compressionCodec.decompress(fileInputBuffer, buf);
+
+                /*
+                 * VoltTable wants the buffer at the home position 0
+                 */
+                buf.position(0);
+                return c;
+            } catch (IOException | RuntimeException e) {
+                c.discard();
+                addCorruptedPartitions(m_partitionIds);
+                if (m_continueOnCorruptedChunk) {
+                    return null;
+                }
+                throw new IOException("Failed decompression of saved table chunk", e);
+            }
         }
 
         private void readChunks() {
             //For reading the compressed input.
             BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+                    DBBPool.allocateDirect(m_compressionCodec.maxCompressedLength(DEFAULT_CHUNKSIZE));
             ByteBuffer fileInputBuffer = fileInputBufferC.b();
             while (m_hasMoreChunks.get()) {
                 /*
@@ -885,7 +1313,7 @@ public class TableSaveFile implements Closeable
                             }
                         }
                         fileInputBuffer.flip();
-                        nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+                        nextChunkLength = m_compressionCodec.uncompressedLength(fileInputBuffer);
                     }
 
                     /*
@@ -931,7 +1359,7 @@ public class TableSaveFile implements Closeable
                         c.b().position(c.b().position() + 4);//Leave space for row count to be moved into
                         checksumStartPosition = c.b().position();
                         if (isCompressed()) {
-                            CompressionService.decompressBuffer(fileInputBuffer, c.b());
+                            m_compressionCodec.decompress(fileInputBuffer, c.b());
                             c.b().position(c.b().limit());
                         } else {
                             while (c.b().hasRemaining()) {
@@ -56,7 +56,8 @@ public interface BinaryDequeReader<M> {
      * Read and return the object at the current read position of this reader.
      * The entry will be removed once all active readers have read the entry.
      * @param ocf
-     * @return BBContainer with the bytes read. Null if there is nothing left to read.
+     * @return BBContainer with the bytes read. Null if there is nothing left to read. The buffer may be a read only
+     *         view of the underlying storage when the entry did not have to be copied into a container from ocf.
      * @throws IOException
      */
     public BBContainer poll(OutputContainerFactory ocf) throws IOException;
@@ -0,0 +1,313 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pre-sized, array backed multi-producer queue intended for a single consuming thread,
+ * such as an SP site draining its task queue.
+ * <p>
+ * Slots are claimed with a per-slot sequence number (bounded MPMC ring) so neither
+ * {@link #offer(Object)} nor {@link #poll()} allocate in steady state. Consumer side
+ * claims are CAS guarded as well, which keeps the odd {@link #clear()} or {@link #peek()}
+ * from another thread safe; they are simply uncontended in the normal single consumer case.
+ * <p>
+ * The queue never rejects an element. If the ring stays full for a short spin, elements
+ * go to an unbounded overflow queue and keep going there until the consumer has emptied
+ * it, preserving the offer order of each producer. Producers never block, so a consumer
+ * offering to its own full queue cannot deadlock.
+ * <p>
+ * A consumer waiting in {@link #take()} or {@link #poll(long, TimeUnit)} busy-spins for
+ * a configurable time and then parks until a producer unparks it.
+ *
+ * @param <T>
+ */
+public class BlockingRingBufferQueue<T> extends AbstractQueue<T> implements BlockingQueue<T> {
+
+    // Attempts a producer makes on a full ring before falling back to the overflow queue
+    private static final int FULL_RING_SPINS = 256;
+
+    private final int m_mask;
+    private final AtomicReferenceArray<T> m_buffer;
+    private final AtomicLongArray m_sequences;
+    private final AtomicLong m_head = new AtomicLong();
+    private final AtomicLong m_tail = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<T> m_overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger m_overflowCount = new AtomicInteger();
+
+    private final long m_spinNanos;
+    private volatile Thread m_waiter;
+
+    /**
+     * @param capacity number of ring slots, rounded up to a power of two
+     * @param spinNanos how long a waiting consumer busy-spins before parking
+     */
+    public BlockingRingBufferQueue(int capacity, long spinNanos) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid ring buffer capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        m_mask = size - 1;
+        m_buffer = new AtomicReferenceArray<>(size);
+        m_sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            m_sequences.set(i, i);
+        }
+        m_spinNanos = Math.max(0, spinNanos);
+    }
+
+    /**
+     * @return number of slots in the ring, excluding overflow
+     */
+    public int ringCapacity() {
+        return m_mask + 1;
+    }
+
+    private boolean ringOffer(T t) {
+        long pos = m_tail.get();
+        for (;;) {
+            int idx = (int) (pos & m_mask);
+            long dif = m_sequences.get(idx) - pos;
+            if (dif == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_buffer.lazySet(idx, t);
+                    // Publishes the element to the consumer
+                    m_sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = m_tail.get();
+            } else if (dif < 0) {
+                return false; // full
+            } else {
+                pos = m_tail.get();
+            }
+        }
+    }
+
+    private boolean ringOfferOrSpin(T t) {
+        for (int spins = 0; spins < FULL_RING_SPINS; spins++) {
+            if (ringOffer(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private T ringPoll() {
+        long pos = m_head.get();
+        for (;;) {
+            int idx = (int) (pos & m_mask);
+            long dif = m_sequences.get(idx) - (pos + 1);
+            if (dif == 0) {
+                if (m_head.compareAndSet(pos, pos + 1)) {
+                    T t = m_buffer.get(idx);
+                    m_buffer.lazySet(idx, null);
+                    // Hands the slot back to producers one lap later
+                    m_sequences.set(idx, pos + m_mask + 1);
+                    return t;
+                }
+                pos = m_head.get();
+            } else if (dif < 0) {
+                return null; // empty
+            } else {
+                pos = m_head.get();
+            }
+        }
+    }
+
+    private void signalNotEmpty() {
+        Thread waiter = m_waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    @Override
+    public boolean offer(T t) {
+        if (t == null) {
+            throw new NullPointerException();
+        }
+        if (m_overflowCount.get() != 0 || !ringOfferOrSpin(t)) {
+            // Count first so that later offers follow this one into the overflow queue
+            m_overflowCount.incrementAndGet();
+            m_overflow.offer(t);
+        }
+        signalNotEmpty();
+        return true;
+    }
+
+    @Override
+    public boolean offer(T t, long timeout, TimeUnit unit) {
+        return offer(t);
+    }
+
+    @Override
+    public void put(T t) {
+        offer(t);
+    }
+
+    @Override
+    public T poll() {
+        T t = ringPoll();
+        if (t == null && m_overflowCount.get() != 0) {
+            t = m_overflow.poll();
+            if (t != null) {
+                m_overflowCount.decrementAndGet();
+            }
+        }
+        return t;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(unit.toNanos(timeout), true);
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return await(0, false);
+    }
+
+    private T await(long timeoutNanos, boolean timed) throws InterruptedException {
+        T t = poll();
+        if (t != null) {
+            return t;
+        }
+        final long start = System.nanoTime();
+        // Busy-spin phase
+        while ((t = poll()) == null) {
+            long elapsed = System.nanoTime() - start;
+            if (timed && elapsed >= timeoutNanos) {
+                return null;
+            }
+            if (elapsed >= m_spinNanos) {
+                break;
+            }
+        }
+        if (t != null) {
+            return t;
+        }
+        // Park phase
+        m_waiter = Thread.currentThread();
+        try {
+            while ((t = poll()) == null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (timed) {
+                    long remaining = timeoutNanos - (System.nanoTime() - start);
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            return t;
+        } finally {
+            m_waiter = null;
+        }
+    }
+
+    @Override
+    public T peek() {
+        long pos = m_head.get();
+        int idx = (int) (pos & m_mask);
+        if (m_sequences.get(idx) == pos + 1) {
+            T t = m_buffer.get(idx);
+            if (t != null) {
+                return t;
+            }
+        }
+        return m_overflowCount.get() != 0 ? m_overflow.peek() : null;
+    }
+
+    @Override
+    public int size() {
+        long ringSize = m_tail.get() - m_head.get();
+        ringSize = Math.max(0, Math.min(ringSize, m_mask + 1));
+        return (int) ringSize + m_overflowCount.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        T t;
+        while (n < maxElements && (t = poll()) != null) {
+            c.add(t);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Weakly consistent snapshot of the queued elements, for diagnostics only.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        List<T> snapshot = new ArrayList<>();
+        final long tail = m_tail.get();
+        for (long pos = m_head.get(); pos < tail; pos++) {
+            int idx = (int) (pos & m_mask);
+            T t = m_buffer.get(idx);
+            if (t != null && m_sequences.get(idx) == pos + 1) {
+                snapshot.add(t);
+            }
+        }
+        snapshot.addAll(m_overflow);
+        return snapshot.iterator();
+    }
+}
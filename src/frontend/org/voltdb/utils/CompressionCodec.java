@@ -0,0 +1,249 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltcore.logging.VoltLogger;
+import org.xerial.snappy.Snappy;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Block compression codecs which can be used to compress direct {@link ByteBuffer}s.
+ * <p>
+ * All codecs follow the buffer conventions of {@link Snappy}: input is read from {@code position()} to
+ * {@code limit()} without modifying the input position, output is written starting at {@code position()} of the
+ * output buffer and on return the output limit is set to the end of the written data with the position unchanged.
+ * <p>
+ * The {@link #id()} of a codec is persisted along with compressed data so it must never be changed or reused.
+ */
+public enum CompressionCodec {
+    /** Snappy compression. This is the historical codec and is used when no codec is recorded with the data */
+    SNAPPY(0) {
+        @Override
+        public int maxCompressedLength(int uncompressedSize) {
+            return Snappy.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+            return Snappy.compress(uncompressed, compressed);
+        }
+
+        @Override
+        public int uncompressedLength(ByteBuffer compressed) throws IOException {
+            return Snappy.uncompressedLength(compressed);
+        }
+
+        @Override
+        public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+            return Snappy.uncompress(compressed, uncompressed);
+        }
+    },
+    /**
+     * LZ4 block compression. Trades a slightly lower compression ratio than snappy for faster compression and
+     * decompression. Each block is prefixed with its uncompressed length as a 4 byte big endian int.
+     */
+    LZ4(1) {
+        @Override
+        public int maxCompressedLength(int uncompressedSize) {
+            return LZ4_LENGTH_BYTES + s_lz4Compressor.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+            int uncompressedLength = uncompressed.remaining();
+            int start = compressed.position();
+            int dataStart = start + LZ4_LENGTH_BYTES;
+            int compressedLength;
+            try {
+                compressedLength = s_lz4Compressor.compress(uncompressed, uncompressed.position(), uncompressedLength,
+                        compressed, dataStart, compressed.limit() - dataStart);
+            } catch (LZ4Exception e) {
+                throw new IOException(e);
+            }
+            putLength(compressed, start, uncompressedLength);
+            compressed.limit(dataStart + compressedLength);
+            return LZ4_LENGTH_BYTES + compressedLength;
+        }
+
+        @Override
+        public int uncompressedLength(ByteBuffer compressed) throws IOException {
+            if (compressed.remaining() < LZ4_LENGTH_BYTES) {
+                throw new IOException("LZ4 block is too short to contain a length: " + compressed.remaining());
+            }
+            int length = getLength(compressed, compressed.position());
+            if (length < 0) {
+                throw new IOException("Invalid LZ4 uncompressed length: " + length);
+            }
+            return length;
+        }
+
+        @Override
+        public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+            int expected = uncompressedLength(compressed);
+            int start = uncompressed.position();
+            if (uncompressed.limit() - start < expected) {
+                throw new IOException("Output buffer too small for LZ4 block: " + (uncompressed.limit() - start)
+                        + " < " + expected);
+            }
+            int dataStart = compressed.position() + LZ4_LENGTH_BYTES;
+            int actual;
+            try {
+                actual = s_lz4Decompressor.decompress(compressed, dataStart, compressed.limit() - dataStart,
+                        uncompressed, start, expected);
+            } catch (LZ4Exception e) {
+                throw new IOException(e);
+            }
+            if (actual != expected) {
+                throw new IOException("LZ4 block decompressed to " + actual + " bytes, expected " + expected);
+            }
+            uncompressed.limit(start + actual);
+            return actual;
+        }
+    };
+
+    private static final VoltLogger s_logger = new VoltLogger("HOST");
+
+    private static final int LZ4_LENGTH_BYTES = Integer.BYTES;
+    private static final LZ4Compressor s_lz4Compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4SafeDecompressor s_lz4Decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private static final CompressionCodec[] s_byId;
+
+    static {
+        CompressionCodec[] values = values();
+        int maxId = 0;
+        for (CompressionCodec codec : values) {
+            maxId = Math.max(maxId, codec.m_id);
+        }
+        s_byId = new CompressionCodec[maxId + 1];
+        for (CompressionCodec codec : values) {
+            assert s_byId[codec.m_id] == null : "Duplicate codec id " + codec.m_id;
+            s_byId[codec.m_id] = codec;
+        }
+    }
+
+    private final int m_id;
+
+    private CompressionCodec(int id) {
+        m_id = id;
+    }
+
+    /**
+     * @return the persistent id of this codec
+     */
+    public int id() {
+        return m_id;
+    }
+
+    /**
+     * @param uncompressedSize size of data to be compressed
+     * @return the maximum size of the data after being compressed by this codec
+     */
+    public abstract int maxCompressedLength(int uncompressedSize);
+
+    /**
+     * Compress the remaining bytes of {@code uncompressed} into {@code compressed}
+     *
+     * @param uncompressed direct buffer holding the data to compress
+     * @param compressed   direct buffer into which the compressed data is written
+     * @return the size of the compressed data
+     * @throws IOException If the data could not be compressed
+     */
+    public abstract int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException;
+
+    /**
+     * @param compressed direct buffer holding a block compressed by this codec
+     * @return the size of the block once it is decompressed
+     * @throws IOException If the block is not valid
+     */
+    public abstract int uncompressedLength(ByteBuffer compressed) throws IOException;
+
+    /**
+     * Decompress the remaining bytes of {@code compressed} into {@code uncompressed}
+     *
+     * @param compressed   direct buffer holding a block compressed by this codec
+     * @param uncompressed direct buffer into which the uncompressed data is written
+     * @return the size of the uncompressed data
+     * @throws IOException If the block could not be decompressed
+     */
+    public abstract int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException;
+
+    /**
+     * @param id persistent id of a codec
+     * @return the codec with {@code id}
+     * @throws IllegalArgumentException If there is no codec with {@code id}
+     */
+    public static CompressionCodec fromId(int id) {
+        if (id < 0 || id >= s_byId.length || s_byId[id] == null) {
+            throw new IllegalArgumentException("Unknown compression codec id: " + id);
+        }
+        return s_byId[id];
+    }
+
+    /**
+     * @param name case insensitive name of a codec
+     * @return the codec with {@code name}
+     * @throws IllegalArgumentException If there is no codec with {@code name}
+     */
+    public static CompressionCodec fromName(String name) {
+        for (CompressionCodec codec : values()) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression codec: " + name);
+    }
+
+    /**
+     * Select the codec for a use site from a system property
+     *
+     * @param property     name of the system property
+     * @param defaultCodec codec to use if the property is not set or is not a valid codec name
+     * @return the selected codec
+     */
+    public static CompressionCodec fromProperty(String property, CompressionCodec defaultCodec) {
+        String name = System.getProperty(property);
+        if (name == null || name.trim().isEmpty()) {
+            return defaultCodec;
+        }
+        try {
+            return fromName(name.trim());
+        } catch (IllegalArgumentException e) {
+            s_logger.warn("Unknown compression codec " + name + " for " + property + ", using " + defaultCodec);
+            return defaultCodec;
+        }
+    }
+
+    private static void putLength(ByteBuffer buffer, int index, int length) {
+        buffer.put(index, (byte) (length >>> 24));
+        buffer.put(index + 1, (byte) (length >>> 16));
+        buffer.put(index + 2, (byte) (length >>> 8));
+        buffer.put(index + 3, (byte) length);
+    }
+
+    private static int getLength(ByteBuffer buffer, int index) {
+        return ((buffer.get(index) & 0xFF) << 24) | ((buffer.get(index + 1) & 0xFF) << 16)
+                | ((buffer.get(index + 2) & 0xFF) << 8) | (buffer.get(index + 3) & 0xFF);
+    }
+}
@@ -73,11 +73,15 @@ public final class CompressionService {
     }
 
     /*
-     * The executor service is only used if the VoltDB computation service is not available.
+     * Number of threads in a dedicated compression pool. When not set compression tasks are run on the VoltDB
+     * computation service and the executor service is only used if the computation service is not available.
      */
+    private static final int COMPRESSION_THREADS = Integer.getInteger("COMPRESSION_THREADS", 0);
+
     private static final ListeningExecutorService m_executor = MoreExecutors.listeningDecorator(
-            Executors.newFixedThreadPool(Math.max(2, CoreUtils.availableProcessors()),
-                                         CoreUtils.getThreadFactory("Compression service thread"))
+            Executors.newFixedThreadPool(
+                    COMPRESSION_THREADS > 0 ? COMPRESSION_THREADS : Math.max(2, CoreUtils.availableProcessors()),
+                    CoreUtils.getThreadFactory("Compression service thread"))
             );
 
     private static IOBuffers getBuffersForCompression(int length, boolean inputNotUsed) {
@@ -129,13 +133,18 @@ public final class CompressionService {
     }
 
     public static Future<BBContainer> compressAndCRC32cBufferAsync(final ByteBuffer inBuffer, final BBContainer outBufferC) {
+        return compressAndCRC32cBufferAsync(inBuffer, outBufferC, CompressionCodec.SNAPPY);
+    }
+
+    public static Future<BBContainer> compressAndCRC32cBufferAsync(final ByteBuffer inBuffer,
+            final BBContainer outBufferC, final CompressionCodec codec) {
         assert(inBuffer.isDirect());
         assert(outBufferC.b().isDirect());
         return submitCompressionTask(new Callable<BBContainer>() {
 
             @Override
             public BBContainer call() throws Exception {
-                compressAndCRC32cBuffer(inBuffer, outBufferC);
+                compressAndCRC32cBuffer(inBuffer, outBufferC, codec);
                 return outBufferC;
             }
 
@@ -152,13 +161,28 @@ public final class CompressionService {
      * @throws IOException
      */
     public static int compressAndCRC32cBuffer(ByteBuffer in, BBContainer outContainer) throws IOException {
+        return compressAndCRC32cBuffer(in, outContainer, CompressionCodec.SNAPPY);
+    }
+
+    /**
+     * Compress the contents of {@code in} with {@code codec} and put the compressed data preceded by an int CRC32c
+     * checksum in {@code outContainer}
+     *
+     * @param in           data to compress
+     * @param outContainer buffer to write crc and compressed data into
+     * @param codec        {@link CompressionCodec} to compress the data with
+     * @return number of compressed byte. Does not include crc size
+     * @throws IOException
+     */
+    public static int compressAndCRC32cBuffer(ByteBuffer in, BBContainer outContainer, CompressionCodec codec)
+            throws IOException {
         int crcSize = Integer.BYTES;
         final ByteBuffer out = outContainer.b();
         // Reserve 4-bytes for the CRC
         final int crcPosition = out.position();
         out.position(crcPosition + crcSize);
         final int crcCalcStart = out.position();
-        int result = compressBuffer(in, out);
+        int result = compressBuffer(in, out, codec);
         final int crc32c = DBBPool.getCRC32C(outContainer.address(), crcCalcStart, out.limit() - crcCalcStart);
         out.putInt(crcPosition, crc32c);
         return result;
@@ -170,6 +194,13 @@ public final class CompressionService {
         return Snappy.compress(buffer, output);
     }
 
+    public static int compressBuffer(ByteBuffer buffer, ByteBuffer output, CompressionCodec codec)
+            throws IOException {
+        assert(buffer.isDirect());
+        assert(output.isDirect());
+        return codec.compress(buffer, output);
+    }
+
     public static byte[] compressBuffer(ByteBuffer buffer) throws IOException {
         assert(buffer.isDirect());
         IOBuffers buffers = getBuffersForCompression(buffer.remaining(), true);
@@ -377,7 +408,7 @@ public final class CompressionService {
 
     public static <T> ListenableFuture<T> submitCompressionTask(Callable<T> task) {
         VoltDBInterface instance = VoltDB.instance();
-        if (VoltDB.instance() != null) {
+        if (COMPRESSION_THREADS <= 0 && instance != null) {
             ListeningExecutorService es = instance.getComputationService();
             if (es != null) {
                 return es.submit(task);
@@ -40,6 +40,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 
 import org.voltcore.logging.VoltLogger;
@@ -47,6 +48,7 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.Pair;
+import org.voltcore.utils.VoltUnsafe;
 import org.voltdb.utils.BinaryDeque.EntryUpdater;
 import org.voltdb.utils.BinaryDeque.OutputContainerFactory;
 import org.voltdb.utils.BinaryDeque.TruncatorResponse.Status;
@@ -66,6 +68,8 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
     private static final int VERSION = 3;
     private static final int COMPATIBLE_VERSION = 3;
     private static final Random RANDOM = new Random();
+    // Read entries of final segments directly out of a read only mapping of the file
+    static final boolean MMAP_READS = Boolean.parseBoolean(System.getProperty("PBD_MMAP_READS", "true"));
 
     private final Map<String, SegmentReader> m_readCursors = new HashMap<>();
     private final Map<String, SegmentReader> m_closedCursors = new HashMap<>();
@@ -90,7 +94,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
     private long m_startId = INVALID_ID;
     private long m_endId = INVALID_ID;
     private long m_timestamp = INVALID_TIMESTAMP;
-    private boolean m_compress;
+    private CompressionCodec m_codec;
     private int m_segmentRandomId;
     private int m_extraHeaderSize = 0;
     // Not guaranteed to be valid unless m_extraHeaderSize > 0
@@ -98,6 +102,8 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
 
     private DBBPool.BBContainer m_segmentHeaderBuf = null;
     private DBBPool.BBContainer m_entryHeaderBuf = null;
+    // Mapping shared by the readers of a final segment, created on first read
+    private SegmentMapping m_mapping = null;
     Boolean INJECT_PBD_CHECKSUM_ERROR = Boolean.getBoolean("INJECT_PBD_CHECKSUM_ERROR");
 
     PBDRegularSegment(long id, File file, VoltLogger usageSpecificLog,
@@ -120,6 +126,24 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
             m_entryHeaderBuf.discard();
             m_entryHeaderBuf = null;
         }
+        releaseMapping();
+    }
+
+    /**
+     * @return the mapping of this segment for reading. Only valid for a final segment which is not written to
+     */
+    private SegmentMapping getMapping() throws IOException {
+        if (m_mapping == null) {
+            m_mapping = new SegmentMapping(m_fc.map(MapMode.READ_ONLY, 0, m_fc.size()));
+        }
+        return m_mapping;
+    }
+
+    private void releaseMapping() {
+        if (m_mapping != null) {
+            m_mapping.release();
+            m_mapping = null;
+        }
     }
 
     @Override
@@ -166,7 +190,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
         }
 
         if (m_closed) {
-            open(false, false, false);
+            open(false, false, null);
         }
         SegmentReader reader = new SegmentReader(cursorId);
         m_readCursors.put(cursorId, reader);
@@ -181,12 +205,14 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
 
     @Override
     void openForTruncate() throws IOException {
-        open(true, false, false);
+        open(true, false, null);
+        // The file is about to be modified so it must not be read through a mapping
+        releaseMapping();
     }
 
     @Override
-    void openNewSegment(boolean compress) throws IOException {
-        open(true, true, compress);
+    void openNewSegment(CompressionCodec codec) throws IOException {
+        open(true, true, codec);
     }
 
     /**
@@ -203,7 +229,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
         return m_extraHeaderSize;
     }
 
-    private void open(boolean forWrite, boolean emptyFile, boolean compress) throws IOException {
+    private void open(boolean forWrite, boolean emptyFile, CompressionCodec codec) throws IOException {
         if (!m_closed) {
             throw new IOException("Segment is already opened");
         }
@@ -224,7 +250,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
             setFinal(false);
             m_segmentRandomId = RANDOM.nextInt();
             initNumEntries(0, 0);
-            m_compress = compress;
+            m_codec = codec;
             m_isActive = true;
         }
         if (forWrite) {
@@ -251,7 +277,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
         boolean wasClosed = false;
         if (m_closed) {
             wasClosed = true;
-            open(false, false, false);
+            open(false, false, null);
         }
         try {
             if (m_fc.size() >= SEGMENT_HEADER_BYTES) {
@@ -530,7 +556,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
      * @throws IOException
      */
     private void asUpdateFrom(Collection<UpdateEntry> entries, PBDRegularSegment<M> original) throws IOException {
-        openNewSegment(original.m_compress);
+        openNewSegment(original.m_codec);
         writeExtraHeader(original.getExtraHeader());
 
         m_startId = original.m_startId;
@@ -539,9 +565,9 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
 
         for (UpdateEntry entry : entries) {
             if (entry.m_isCopy) {
-                writeEntry(entry.m_data, -1, entry.m_isCompressed);
+                writeEntry(entry.m_data, -1, entry.m_codec);
             } else {
-                writeEntry(entry.m_data, maxCompressedSize(entry.m_data), false);
+                writeEntry(entry.m_data, maxCompressedSize(entry.m_data), null);
             }
 
             ++m_numOfEntries;
@@ -556,7 +582,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
     Pair<PBDSegment<M>, Boolean> updateEntries(EntryUpdater<? super M> updater) throws IOException {
         Deque<UpdateEntry> entries = new ArrayDeque<>(m_numOfEntries);
         if (m_closed) {
-            open(false, false, false);
+            open(false, false, null);
         }
 
         PBDRegularSegment<M> updatedSegment = null;
@@ -658,6 +684,10 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
      * @throws IOException
      */
     void setFinal(boolean isFinal) throws IOException {
+        if (!isFinal) {
+            // The file is about to be modified so readers must go back to reading through the channel
+            releaseMapping();
+        }
         if (isFinal != m_isFinal) {
             if (PBDSegment.setFinal(m_file, isFinal)) {
                 if (!isFinal) {
@@ -793,6 +823,13 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
         m_syncedSinceLastEdit = true;
     }
 
+    @Override
+    FileChannel getUnsyncedChannel() {
+        // The channel is forced without holding the PBD lock so bypass the wrapper which would mark the segment
+        // unstable if it is closed concurrently
+        return m_closed || m_syncedSinceLastEdit ? null : m_fc.m_delegate;
+    }
+
     @Override
     boolean hasAllFinishedReading() throws IOException {
         if (m_closed) {
@@ -830,7 +867,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
             return -1;
         }
 
-        int written = writeEntry(buf, maxCompressedSize, false);
+        int written = writeEntry(buf, maxCompressedSize, null);
 
         // Update segment header
         updateHeaderDataAfterOffer(remaining, startId, endId, timestamp);
@@ -843,19 +880,20 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
      */
     private int maxCompressedSize(ByteBuffer buffer) {
         int length = buffer.remaining();
-        return m_compress && length >= 32 && buffer.isDirect() ? CompressionService.maxCompressedLength(length) : -1;
+        return m_codec != null && length >= 32 && buffer.isDirect() ? m_codec.maxCompressedLength(length) : -1;
     }
 
     /**
      * Append a new entry to the end of this segment
      *
      * @param buffer            containing the entry
-     * @param maxCompressedSize the max size this entry will compress to or {@code -1} if it should not be compressed
-     * @param isPreCompressed   {@code true} if {@code buffer} contains an already compressed entry
+     * @param maxCompressedSize  the max size this entry will compress to or {@code -1} if it should not be compressed
+     * @param preCompressedCodec {@link CompressionCodec} which compressed {@code buffer} or {@code null} if
+     *                           {@code buffer} is not an already compressed entry
      * @return The number of bytes written
      * @throws IOException
      */
-    private int writeEntry(ByteBuffer buffer, int maxCompressedSize, boolean isPreCompressed)
+    private int writeEntry(ByteBuffer buffer, int maxCompressedSize, CompressionCodec preCompressedCodec)
             throws IOException {
         m_syncedSinceLastEdit = false;
         DBBPool.BBContainer compressedContainer = null;
@@ -868,16 +906,16 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
             if (maxCompressedSize > 0) {
                 compressedContainer = DBBPool.allocateDirectAndPool(maxCompressedSize);
                 ByteBuffer compressed = compressedContainer.b();
-                final int compressedSize = CompressionService.compressBuffer(buffer.asReadOnlyBuffer(), compressed);
+                final int compressedSize = m_codec.compress(buffer.asReadOnlyBuffer(), compressed);
 
                 // Only bother with compression overhead if it actually saves some space
                 if (compressedSize < buffer.remaining() * 0.9) {
                     compressed.limit(compressedSize);
-                    flags |= PBDSegment.FLAG_COMPRESSED;
+                    flags |= PBDSegment.compressionFlags(m_codec);
                     toWrite = compressed;
                 }
-            } else if (isPreCompressed) {
-                flags |= PBDSegment.FLAG_COMPRESSED;
+            } else if (preCompressedCodec != null) {
+                flags |= PBDSegment.compressionFlags(preCompressedCodec);
             }
 
             writeEntryHeader(toWrite, flags);
@@ -1046,10 +1084,13 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
         private int m_discardCount = 0;
         private boolean m_readerClosed = false;
         private CRC32 m_crcReader = new CRC32();
+        // The truncator and scanner may modify the entries they read or the file itself so they never use the mapping
+        private final boolean m_mappable;
 
         public SegmentReader(String cursorId) throws IOException {
             assert(cursorId != null);
             m_cursorId = cursorId;
+            m_mappable = MMAP_READS && !TRUNCATOR_CURSOR.equals(cursorId) && !SCANNER_CURSOR.equals(cursorId);
             m_readOffset = SEGMENT_HEADER_BYTES + getExtraHeaderSize();
         }
 
@@ -1101,6 +1142,10 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
                 return null;
             }
 
+            if (m_mappable && m_isFinal && !m_isActive && !m_fc.m_writable) {
+                return pollMapped(factory, maxSize, checkCrc);
+            }
+
             final long writePos = m_fc.position();
             m_fc.position(m_readOffset);
 
@@ -1122,13 +1167,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
                 final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
                 final int uncompressedLen;
 
-                if (length < 1 || length > PBDSegment.CHUNK_SIZE - PBDSegment.SEGMENT_HEADER_BYTES) {
-                    throw new IOException ("File corruption detected in " + m_file.getName() + ": invalid entry length.");
-                }
-
-                if (entryId != m_segmentRandomId + currentEntryId() + 1) {
-                    throw new IOException("File corruption detected in " + m_file.getName() + ": invalid entry id.");
-                }
+                validateEntryHeader(length, entryId);
 
                 DBBPool.BBContainer retcont = null;
                 try {
@@ -1137,13 +1176,14 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
                         try {
                             fillBuffer(compressedBuf.b(), entryId, flags, entryCRC, checkCrc);
 
-                            uncompressedLen = CompressionService.uncompressedLength(compressedBuf.bDR());
+                            final CompressionCodec codec = compressionCodec(flags);
+                            uncompressedLen = codec.uncompressedLength(compressedBuf.bDR());
                             if (uncompressedLen > maxSize) {
                                 return null;
                             }
                             retcont = factory.getContainer(uncompressedLen);
                             retcont.b().limit(uncompressedLen);
-                            CompressionService.decompressBuffer(compressedBuf.bDR(), retcont.b());
+                            codec.decompress(compressedBuf.bDR(), retcont.b());
                         } finally {
                             compressedBuf.discard();
                         }
@@ -1167,22 +1207,113 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
                     throw t;
                 }
 
-                m_bytesRead += uncompressedLen;
-                m_objectReadIndex++;
-
-                m_readOffset = m_fc.position();
-                return new DBBPool.DBBDelegateContainer(retcont) {
-                    @Override
-                    public void discard() {
-                        super.discard();
-                        m_discardCount++;
-                    }
-                };
+                return entryRead(retcont, uncompressedLen, m_fc.position());
             } finally {
                 m_fc.position(writePos);
             }
         }
 
+        /**
+         * Poll the next entry of a final segment out of the segment's mapping. Uncompressed entries are returned as a
+         * read only slice of the mapping instead of being copied into a container from {@code factory}.
+         */
+        private DBBPool.BBContainer pollMapped(OutputContainerFactory factory, int maxSize, boolean checkCrc)
+                throws IOException {
+            final SegmentMapping mapping = getMapping();
+            final ByteBuffer map = mapping.m_buffer;
+            final int entryStart = (int) m_readOffset;
+
+            if (entryStart + ENTRY_HEADER_BYTES > map.capacity()) {
+                throw new EOFException("EOF encountered reading " + m_file + " at position " + entryStart
+                        + " expected to be able to read " + ENTRY_HEADER_BYTES + " more bytes");
+            }
+
+            final int entryCRC = map.getInt(entryStart + ENTRY_HEADER_CRC_OFFSET);
+            final int length = map.getInt(entryStart + ENTRY_HEADER_TOTAL_BYTES_OFFSET);
+
+            if (length > maxSize) {
+                return null;
+            }
+
+            final int entryId = map.getInt(entryStart + ENTRY_HEADER_ENTRY_ID_OFFSET);
+            final char flags = map.getChar(entryStart + ENTRY_HEADER_FLAG_OFFSET);
+            final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+            final int uncompressedLen;
+
+            validateEntryHeader(length, entryId);
+
+            final int dataStart = entryStart + ENTRY_HEADER_BYTES;
+            if (dataStart + length > map.capacity()) {
+                throw new EOFException("EOF encountered reading " + m_file + " at position " + dataStart
+                        + " expected to be able to read " + length + " more bytes");
+            }
+
+            ByteBuffer entry = map.duplicate();
+            entry.limit(dataStart + length).position(dataStart);
+            entry = entry.slice();
+
+            if (checkCrc) {
+                if (entryCRC != PBDUtils.calculateEntryCrc(m_crcReader, entry.duplicate(), entryId, flags)
+                        || INJECT_PBD_CHECKSUM_ERROR) {
+                    throw new IOException("File corruption detected in " + m_file.getName() + ": checksum error. "
+                            + "Truncate the file to last safe point.");
+                }
+            }
+
+            DBBPool.BBContainer retcont = null;
+            try {
+                if (compressed) {
+                    final CompressionCodec codec = compressionCodec(flags);
+                    uncompressedLen = codec.uncompressedLength(entry);
+                    if (uncompressedLen > maxSize) {
+                        return null;
+                    }
+                    retcont = factory.getContainer(uncompressedLen);
+                    retcont.b().limit(uncompressedLen);
+                    codec.decompress(entry, retcont.b());
+                } else {
+                    uncompressedLen = length;
+                    retcont = mapping.slice(entry);
+                }
+            } catch (IOException e) {
+                if (retcont != null) {
+                    retcont.discard();
+                }
+                throw new IOException("Error reading segment " + m_file.getName(), e);
+            } catch (Throwable t) {
+                if (retcont != null) {
+                    retcont.discard();
+                }
+                throw t;
+            }
+
+            return entryRead(retcont, uncompressedLen, dataStart + length);
+        }
+
+        private void validateEntryHeader(int length, int entryId) throws IOException {
+            if (length < 1 || length > PBDSegment.CHUNK_SIZE - PBDSegment.SEGMENT_HEADER_BYTES) {
+                throw new IOException ("File corruption detected in " + m_file.getName() + ": invalid entry length.");
+            }
+
+            if (entryId != m_segmentRandomId + currentEntryId() + 1) {
+                throw new IOException("File corruption detected in " + m_file.getName() + ": invalid entry id.");
+            }
+        }
+
+        private DBBPool.BBContainer entryRead(DBBPool.BBContainer retcont, int uncompressedLen, long nextOffset) {
+            m_bytesRead += uncompressedLen;
+            m_objectReadIndex++;
+
+            m_readOffset = nextOffset;
+            return new DBBPool.DBBDelegateContainer(retcont) {
+                @Override
+                public void discard() {
+                    super.discard();
+                    m_discardCount++;
+                }
+            };
+        }
+
         int currentEntryId() {
             return m_objectReadIndex;
         }
@@ -1296,7 +1427,7 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
         @Override
         public void reopen() throws IOException {
             if (m_readerClosed) {
-                open(false, false, false);
+                open(false, false, null);
                 m_readerClosed = false;
             }
             m_closedCursors.remove(m_cursorId);
@@ -1386,13 +1517,53 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
         }
     }
 
+    /**
+     * Read only mapping of a final segment file shared by all readers of the segment. The segment holds one reference
+     * while it is open and every entry returned as a slice of the mapping holds another, so the file is only unmapped
+     * after the segment has been closed and all of those entries have been discarded.
+     */
+    private static final class SegmentMapping {
+        final MappedByteBuffer m_buffer;
+        private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+        SegmentMapping(MappedByteBuffer buffer) {
+            m_buffer = buffer;
+        }
+
+        /**
+         * @param entry slice of {@link #m_buffer}
+         * @return container for {@code entry} which holds a reference to this mapping until it is discarded
+         */
+        BBContainer slice(ByteBuffer entry) {
+            int count = m_refCount.getAndIncrement();
+            assert(count > 0) : "Slicing a released segment mapping";
+            return new BBContainer(entry) {
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    release();
+                }
+            };
+        }
+
+        void release() {
+            int count = m_refCount.decrementAndGet();
+            if (count == 0) {
+                VoltUnsafe.cleanDirectBuffer(m_buffer);
+            } else {
+                assert(count > 0) : "Broken refcounting of a segment mapping";
+            }
+        }
+    }
+
     /**
      * Class to hold the metadata for an entry which was visited by
      * {@link PBDRegularSegment#updateEntries(EntryUpdater)}
      */
     private static final class UpdateEntry {
         final boolean m_isCopy;
-        final boolean m_isCompressed;
+        // Codec which compressed m_data or null if m_data is not compressed
+        final CompressionCodec m_codec;
         final ByteBuffer m_data;
         final int m_dataLength;
 
@@ -1405,16 +1576,16 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
          */
         static UpdateEntry copy(ByteBuffer headerAndData) throws IOException {
             int length;
-            boolean compressed = isCompressed(headerAndData);
-            if (compressed) {
+            CompressionCodec codec = codec(headerAndData);
+            if (codec != null) {
                 ByteBuffer duplicate = headerAndData.asReadOnlyBuffer();
                 duplicate.position(ENTRY_HEADER_BYTES);
-                length = CompressionService.uncompressedLength(duplicate);
+                length = codec.uncompressedLength(duplicate);
             } else {
                 length = headerAndData.getInt(ENTRY_HEADER_TOTAL_BYTES_OFFSET);
             }
 
-            return copy(headerAndData, compressed, length);
+            return copy(headerAndData, codec, length);
         }
 
         /**
@@ -1423,14 +1594,15 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
          * @param headerAndData {@link ByteBuffer} holding the header and entry data for the original entry
          * @param length        uncompressed length of the entry data
          * @return {@link UpdateEntry} instance
+         * @throws IOException
          */
-        static UpdateEntry copy(ByteBuffer headerAndData, int length) {
-            return copy(headerAndData, isCompressed(headerAndData), length);
+        static UpdateEntry copy(ByteBuffer headerAndData, int length) throws IOException {
+            return copy(headerAndData, codec(headerAndData), length);
         }
 
-        private static UpdateEntry copy(ByteBuffer headerAndData, boolean compressed, int length) {
+        private static UpdateEntry copy(ByteBuffer headerAndData, CompressionCodec codec, int length) {
             headerAndData.position(ENTRY_HEADER_BYTES);
-            return new UpdateEntry(true, compressed, headerAndData.slice(), length);
+            return new UpdateEntry(true, codec, headerAndData.slice(), length);
         }
 
         /**
@@ -1440,16 +1612,17 @@ class PBDRegularSegment<M> extends PBDSegment<M> {
          * @return {@link UpdateEntry} instance
          */
         static UpdateEntry entry(ByteBuffer entry) {
-            return new UpdateEntry(false, false, entry, entry.remaining());
+            return new UpdateEntry(false, null, entry, entry.remaining());
         }
 
-        private static boolean isCompressed(ByteBuffer entryHeader) {
-            return (entryHeader.getChar(ENTRY_HEADER_FLAG_OFFSET) & FLAG_COMPRESSED) == FLAG_COMPRESSED;
+        private static CompressionCodec codec(ByteBuffer entryHeader) throws IOException {
+            char flags = entryHeader.getChar(ENTRY_HEADER_FLAG_OFFSET);
+            return (flags & FLAG_COMPRESSED) == FLAG_COMPRESSED ? compressionCodec(flags) : null;
         }
 
-        UpdateEntry(boolean copy, boolean compressed, ByteBuffer data, int dataLength) {
+        UpdateEntry(boolean copy, CompressionCodec codec, ByteBuffer data, int dataLength) {
             m_isCopy = copy;
-            m_isCompressed = compressed;
+            m_codec = codec;
             m_data = data;
             m_dataLength = dataLength;
         }
@@ -20,6 +20,7 @@ package org.voltdb.utils;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
@@ -65,6 +66,10 @@ public abstract class PBDSegment<M> {
 
     static final char NO_FLAGS = 0;
     static final char FLAG_COMPRESSED = 1;
+    // Bits 1-3 of the entry flags hold the id of the CompressionCodec of a compressed entry. The id of snappy is 0
+    // so entries written before the codec was recorded are still read with the correct codec
+    static final int FLAG_CODEC_SHIFT = 1;
+    static final char FLAG_CODEC_MASK = 0x7 << FLAG_CODEC_SHIFT;
 
     // Export Segment Entry Header layout (each segment has multiple entries):
     //  - crc of segment entry (4 bytes),
@@ -150,10 +155,10 @@ public abstract class PBDSegment<M> {
     /**
      * Open and initialize this segment as a new segment
      *
-     * @param compress whether or not entries should be compressed by default
+     * @param codec {@link CompressionCodec} used to compress entries by default or {@code null} for no compression
      * @throws IOException
      */
-    abstract void openNewSegment(boolean compress) throws IOException;
+    abstract void openNewSegment(CompressionCodec codec) throws IOException;
 
     /**
      * Open the segment for read and possible truncation
@@ -170,6 +175,12 @@ public abstract class PBDSegment<M> {
 
     abstract void sync() throws IOException;
 
+    /**
+     * @return the channel which has to be forced for the writes since the last {@link #sync()} to be durable or
+     *         {@code null} if there are none
+     */
+    abstract FileChannel getUnsyncedChannel();
+
     abstract boolean hasAllFinishedReading() throws IOException;
 
     /**
@@ -264,6 +275,27 @@ public abstract class PBDSegment<M> {
      */
     abstract boolean isActive();
 
+    /**
+     * @param codec {@link CompressionCodec} used to compress an entry
+     * @return the entry flags for an entry compressed with {@code codec}
+     */
+    static char compressionFlags(CompressionCodec codec) {
+        return (char) (FLAG_COMPRESSED | (codec.id() << FLAG_CODEC_SHIFT));
+    }
+
+    /**
+     * @param flags of a compressed entry
+     * @return the {@link CompressionCodec} which was used to compress the entry
+     * @throws IOException If {@code flags} do not reference a known codec
+     */
+    static CompressionCodec compressionCodec(char flags) throws IOException {
+        try {
+            return CompressionCodec.fromId((flags & FLAG_CODEC_MASK) >>> FLAG_CODEC_SHIFT);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
     public static boolean setFinal(File file, boolean isFinal) {
 
         try {
@@ -0,0 +1,213 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.logging.Level;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.stats.PbdGroupCommitStats;
+import org.voltdb.utils.PersistentBinaryDeque.GroupSync;
+
+/**
+ * Scheduler shared by {@link PersistentBinaryDeque}s which syncs every deque offered to since its last sync in
+ * periodic group flushes. Rather than each deque leaving all of its segment to be forced when the segment is finished,
+ * the offers made to all deques in an interval are made durable by a single flush. This bounds how long an offer is
+ * only in the page cache and spreads the writeback of segments over their lifetime.
+ * <p>
+ * A flush only holds the lock of each deque while collecting the segments to force. The segments are forced after the
+ * lock is released, by up to {@link #SYNC_THREADS} threads so that one slow fsync does not delay the other deques.
+ */
+public class PbdGroupCommitScheduler {
+    private static final VoltLogger LOG = new VoltLogger("HOST");
+
+    /**
+     * Upper bound in milliseconds between an offer and the start of the group flush which syncs it. Group commit is
+     * disabled unless this is set to a value greater than {@code 0}.
+     */
+    public static final int INTERVAL_MS = Integer.getInteger("PBD_GROUP_COMMIT_INTERVAL_MS", 0);
+    /** Maximum number of deques forced at once by a group flush */
+    public static final int SYNC_THREADS = Integer.getInteger("PBD_GROUP_COMMIT_SYNC_THREADS", 4);
+
+    private static PbdGroupCommitScheduler s_instance;
+
+    private final Set<PersistentBinaryDeque<?>> m_pending = ConcurrentHashMap.newKeySet();
+    private final PbdGroupCommitStats m_stats = new PbdGroupCommitStats();
+    private final ScheduledThreadPoolExecutor m_scheduler;
+    private final ExecutorService m_syncers;
+
+    /**
+     * @return the scheduler shared by all deques or {@code null} if group commit is not enabled by setting
+     *         {@link #INTERVAL_MS} to a value greater than {@code 0}
+     */
+    public static synchronized PbdGroupCommitScheduler instance() {
+        if (s_instance == null && INTERVAL_MS > 0) {
+            s_instance = new PbdGroupCommitScheduler(INTERVAL_MS);
+        }
+        return s_instance;
+    }
+
+    /**
+     * Stop the shared scheduler, called once the deques which use it have been closed
+     */
+    public static synchronized void shutdownInstance() {
+        if (s_instance != null) {
+            s_instance.shutdown();
+            s_instance = null;
+        }
+    }
+
+    /**
+     * @param intervalMs delay between group flushes. If {@code 0} flushes are only done by calling {@link #flush()}
+     *                   and deques are forced by the calling thread
+     */
+    PbdGroupCommitScheduler(int intervalMs) {
+        if (intervalMs > 0) {
+            m_scheduler = CoreUtils.getScheduledThreadPoolExecutor("PBD Group Commit", 1, CoreUtils.SMALL_STACK_SIZE);
+            m_scheduler.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+            m_syncers = SYNC_THREADS > 1 ? CoreUtils.getListeningExecutorService("PBD Group Commit Sync", SYNC_THREADS)
+                    : null;
+        } else {
+            m_scheduler = null;
+            m_syncers = null;
+        }
+    }
+
+    public PbdGroupCommitStats getStats() {
+        return m_stats;
+    }
+
+    /**
+     * Called by a deque on its first offer since it was last synced by this scheduler
+     */
+    void register(PersistentBinaryDeque<?> pbd) {
+        m_pending.add(pbd);
+    }
+
+    /**
+     * Called by a deque when it is closed
+     */
+    void unregister(PersistentBinaryDeque<?> pbd) {
+        m_pending.remove(pbd);
+    }
+
+    /**
+     * Sync all deques which have registered since the last flush
+     */
+    void flush() {
+        if (m_pending.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<GroupSync> syncs = new ArrayList<>(m_pending.size());
+        for (Iterator<PersistentBinaryDeque<?>> iter = m_pending.iterator(); iter.hasNext();) {
+            PersistentBinaryDeque<?> pbd = iter.next();
+            // Remove before syncing so an offer which misses this sync registers the deque again
+            iter.remove();
+            GroupSync sync = pbd.prepareGroupSync();
+            if (sync != null) {
+                syncs.add(sync);
+            }
+        }
+
+        int deques = 0;
+        long offers = 0;
+        if (m_syncers == null || syncs.size() == 1) {
+            for (GroupSync sync : syncs) {
+                int synced = force(sync);
+                if (synced > 0) {
+                    ++deques;
+                    offers += synced;
+                }
+            }
+        } else {
+            // Each sync thread forces every SYNC_THREADS'th deque
+            int threads = Math.min(SYNC_THREADS, syncs.size());
+            List<Future<long[]>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; ++i) {
+                final int first = i;
+                futures.add(m_syncers.submit(() -> {
+                    long[] synced = new long[2];
+                    for (int j = first; j < syncs.size(); j += threads) {
+                        int count = force(syncs.get(j));
+                        if (count > 0) {
+                            ++synced[0];
+                            synced[1] += count;
+                        }
+                    }
+                    return synced;
+                }));
+            }
+            for (Future<long[]> future : futures) {
+                try {
+                    long[] synced = future.get();
+                    deques += synced[0];
+                    offers += synced[1];
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    LOG.error("Unexpected error in PBD group commit", e.getCause());
+                }
+            }
+        }
+
+        if (deques > 0) {
+            m_stats.flushed(deques, offers, System.nanoTime() - start);
+        }
+    }
+
+    private static int force(GroupSync sync) {
+        try {
+            return sync.force();
+        } catch (IOException e) {
+            sync.m_pbd.getUsageSpecificLog().rateLimitedLog(TimeUnit.MINUTES.toSeconds(1), Level.ERROR, e,
+                    "Group commit failed to sync PBD %s", sync.m_pbd.getNonce());
+        } catch (Throwable t) {
+            LOG.error("Unexpected error in PBD group commit of " + sync.m_pbd.getNonce(), t);
+        }
+        return 0;
+    }
+
+    void shutdown() {
+        if (m_scheduler != null) {
+            // Wait for a flush in progress before stopping the threads it uses
+            m_scheduler.shutdown();
+            try {
+                m_scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (m_syncers != null) {
+            m_syncers.shutdown();
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.voltdb.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
@@ -65,7 +66,7 @@ class PbdQuarantinedSegment<M> extends PBDSegment<M> {
     }
 
     @Override
-    void openNewSegment(boolean compress) {
+    void openNewSegment(CompressionCodec codec) {
         throw new UnsupportedOperationException();
     }
 
@@ -89,6 +90,11 @@ class PbdQuarantinedSegment<M> extends PBDSegment<M> {
     @Override
     void sync() {}
 
+    @Override
+    FileChannel getUnsyncedChannel() {
+        return null;
+    }
+
     @Override
     boolean hasAllFinishedReading() {
         return true;
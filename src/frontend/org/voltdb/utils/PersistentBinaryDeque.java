@@ -21,6 +21,8 @@ import static java.util.Objects.requireNonNull;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -795,7 +797,7 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
 
     private final File m_path;
     private final String m_nonce;
-    private final boolean m_compress;
+    private final CompressionCodec m_compressionCodec;
     private final PBDSegmentFactory m_pbdSegmentFactory;
     private boolean m_initializedFromExistingFiles = false;
 
@@ -821,6 +823,10 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
     private long m_entriesClosedSinceUpdate;
     // The amount of time in nanosecond a segment can be left open for write since the segment is constructed.
     private long m_segmentRollTimeLimitNs = Long.MAX_VALUE;
+    // Shared scheduler which syncs this PBD after offers or null if segments are only synced when finished
+    private final PbdGroupCommitScheduler m_groupCommit;
+    // Number of offers since the last sync by m_groupCommit
+    private int m_offersSinceGroupSync;
 
     /**
      * Create a persistent binary deque with the specified nonce and storage back at the specified path. This is a
@@ -837,7 +843,8 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
         m_path = builder.m_path;
         m_nonce = builder.m_nonce;
         m_usageSpecificLog = builder.m_logger;
-        m_compress = builder.m_useCompression;
+        m_compressionCodec = builder.m_compressionCodec;
+        m_groupCommit = builder.m_groupCommit;
         m_extraHeader = builder.m_initialExtraHeader;
         m_extraHeaderSerializer = builder.m_extraHeaderSerializer;
         m_pbdSegmentFactory = builder.m_pbdSegmentFactory;
@@ -1262,7 +1269,7 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
         PBDSegment<M> segment = m_pbdSegmentFactory.create(segmentId, file, m_usageSpecificLog,
                 m_extraHeaderSerializer);
         try {
-            segment.openNewSegment(m_compress);
+            segment.openNewSegment(m_compressionCodec);
             if (extraHeader != null) {
                 segment.writeExtraHeader(extraHeader);
             }
@@ -1356,6 +1363,9 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
 
         m_numObjects++;
         callBytesAdded(written);
+        if (m_groupCommit != null && m_offersSinceGroupSync++ == 0) {
+            m_groupCommit.register(this);
+        }
         return new Pair<>(written, segment);
     }
 
@@ -1712,6 +1722,70 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
         return true;
     }
 
+    /**
+     * Sync this PBD on behalf of {@link PbdGroupCommitScheduler}
+     *
+     * @return number of offers made durable by this sync
+     * @throws IOException If there was an error syncing a segment
+     */
+    int groupSync() throws IOException {
+        GroupSync sync = prepareGroupSync();
+        return sync == null ? 0 : sync.force();
+    }
+
+    /**
+     * Collect the segment channels which have to be forced for the offers since the last group sync to be durable.
+     * The channels are forced by {@link GroupSync#force()} after the lock of this PBD is released so that offers and
+     * polls are not blocked by the fsync.
+     *
+     * @return the sync to perform or {@code null} if there were no offers since the last group sync
+     */
+    synchronized GroupSync prepareGroupSync() {
+        int offers = m_offersSinceGroupSync;
+        m_offersSinceGroupSync = 0;
+        if (m_closed || offers == 0) {
+            return null;
+        }
+        List<FileChannel> channels = new ArrayList<>(1);
+        for (PBDSegment<M> segment : m_segments.values()) {
+            FileChannel channel = segment.getUnsyncedChannel();
+            if (channel != null) {
+                channels.add(channel);
+            }
+        }
+        return new GroupSync(this, offers, channels);
+    }
+
+    /**
+     * Segment channels of a PBD collected by {@link PersistentBinaryDeque#prepareGroupSync()}
+     */
+    static final class GroupSync {
+        final PersistentBinaryDeque<?> m_pbd;
+        private final int m_offers;
+        private final List<FileChannel> m_channels;
+
+        GroupSync(PersistentBinaryDeque<?> pbd, int offers, List<FileChannel> channels) {
+            m_pbd = pbd;
+            m_offers = offers;
+            m_channels = channels;
+        }
+
+        /**
+         * @return number of offers made durable by this sync
+         * @throws IOException If there was an error forcing a segment
+         */
+        int force() throws IOException {
+            for (FileChannel channel : m_channels) {
+                try {
+                    channel.force(true);
+                } catch (ClosedChannelException e) {
+                    // The segment was finished, which syncs it, or deleted since the sync was prepared
+                }
+            }
+            return m_offers;
+        }
+    }
+
     @Override
     public synchronized void sync() throws IOException {
         if (m_closed) {
@@ -1756,6 +1830,9 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
         }
 
         stopRetentionPolicyEnforcement();
+        if (m_groupCommit != null) {
+            m_groupCommit.unregister(this);
+        }
         if (m_gapWriter != null) {
             m_gapWriter.close();
         }
@@ -2095,12 +2172,13 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
         final String m_nonce;
         final File m_path;
         final VoltLogger m_logger;
-        boolean m_useCompression = false;
+        CompressionCodec m_compressionCodec = null;
         boolean m_deleteExisting = false;
         BinaryDequeSerializer<M> m_extraHeaderSerializer;
         M m_initialExtraHeader;
         PBDSegmentFactory m_pbdSegmentFactory = PBDRegularSegment::new;
         boolean m_requiresId = false;
+        PbdGroupCommitScheduler m_groupCommit;
 
         private Builder(String nonce, File path, VoltLogger logger) {
             super();
@@ -2111,11 +2189,12 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
 
         private Builder(Builder<?> builder, M extraHeader, BinaryDequeSerializer<M> serializer) {
             this(builder.m_nonce, builder.m_path, builder.m_logger);
-            m_useCompression = builder.m_useCompression;
+            m_compressionCodec = builder.m_compressionCodec;
             m_initialExtraHeader = extraHeader;
             m_extraHeaderSerializer = serializer;
             m_pbdSegmentFactory = builder.m_pbdSegmentFactory;
             m_requiresId = builder.m_requiresId;
+            m_groupCommit = builder.m_groupCommit;
         }
 
         /**
@@ -2127,7 +2206,21 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
          * @return An updated {@link Builder} instance
          */
         public Builder<M> compression(boolean enabled) {
-            m_useCompression = enabled;
+            m_compressionCodec = enabled ? CompressionCodec.SNAPPY : null;
+            return this;
+        }
+
+        /**
+         * Set the {@link CompressionCodec} used to compress entries or {@code null} to disable compression. Entries
+         * are always read with the codec which compressed them so the codec can be changed between restarts.
+         * <p>
+         * Default: {@code null}
+         *
+         * @param codec {@link CompressionCodec} to use to compress entries
+         * @return An updated {@link Builder} instance
+         */
+        public Builder<M> compression(CompressionCodec codec) {
+            m_compressionCodec = codec;
             return this;
         }
 
@@ -2173,6 +2266,20 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
             return this;
         }
 
+        /**
+         * Set the {@link PbdGroupCommitScheduler} which syncs this PBD after offers. Without one segments are only
+         * synced when they are finished or when {@link PersistentBinaryDeque#sync()} is called.
+         * <p>
+         * Default: {@code null}
+         *
+         * @param groupCommit scheduler to register with after offers or {@code null}
+         * @return An updated {@link Builder} instance
+         */
+        public Builder<M> groupCommit(PbdGroupCommitScheduler groupCommit) {
+            m_groupCommit = groupCommit;
+            return this;
+        }
+
         /**
          * @return A new instance of {@link PersistentBinaryDeque} constructed by this builder
          * @throws IOException If there was an error constructing the instance
@@ -22,6 +22,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.hsqldb_voltpatches.VoltXMLElement.VoltXMLDiff;
 import org.hsqldb_voltpatches.index.Index;
@@ -109,12 +112,22 @@ public class HSQLInterface {
     static {
         emptySchema.attributes.put("name", XML_SCHEMA_NAME);
     }
-    static int instanceId = 0;
+    static final AtomicInteger instanceId = new AtomicInteger();
+
+    // Held while a statement is being compiled with this instance, since a session can only be used by one thread
+    private final Lock m_lock = new ReentrantLock();
 
     private HSQLInterface(Session sessionProxy) {
         this.sessionProxy = sessionProxy;
     }
 
+    /**
+     * @return the lock which must be held while compiling statements with this instance
+     */
+    public Lock getLock() {
+        return m_lock;
+    }
+
     @Override
     public void finalize() {
         final Database db = sessionProxy.getDatabase();
@@ -148,8 +161,8 @@ public class HSQLInterface {
         // This ensures that all VoltDB data paths use the same timezone for representing time.
         TimeZone.setDefault(TimeZone.getTimeZone("GMT+0"));
 
-        String name = "hsqldbinstance-" + String.valueOf(instanceId) + "-" + String.valueOf(System.currentTimeMillis());
-        instanceId++;
+        String name = "hsqldbinstance-" + String.valueOf(instanceId.getAndIncrement()) + "-"
+                + String.valueOf(System.currentTimeMillis());
 
         HsqlProperties props = new HsqlProperties();
         try {
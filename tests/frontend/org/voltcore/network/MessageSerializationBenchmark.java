@@ -0,0 +1,188 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+import org.voltcore.messaging.VoltMessage;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.SerializationBufferPool;
+
+/**
+ * Manual benchmark of the heap allocated per serialized message. Compares {@link VoltMessage#toBuffer(VoltMessage)}
+ * with serializing into a {@link SerializationBufferPool} buffer and measures writing messages through a
+ * {@link PicoNIOWriteStream}, which serializes messages larger than a network pool buffer into pooled buffers.
+ * <p>
+ * Allocation is measured with {@code com.sun.management.ThreadMXBean}. The strict memory checking build records an
+ * allocation site in every buffer container, build with {@code -Djmemcheck=NO_MEMCHECK} for representative numbers.
+ *
+ * Usage: MessageSerializationBenchmark [messages] [sizes...]
+ */
+public class MessageSerializationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean s_threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static class PayloadMessage extends VoltMessage {
+        private final byte[] m_payload;
+
+        PayloadMessage(int size) {
+            m_payload = new byte[size];
+            for (int i = 0; i < size; ++i) {
+                m_payload[i] = (byte) i;
+            }
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return super.getSerializedSize() + Integer.BYTES + m_payload.length;
+        }
+
+        @Override
+        protected void initFromBuffer(ByteBuffer buf) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void flattenToBuffer(ByteBuffer buf) {
+            buf.put(m_subject);
+            buf.putInt(m_payload.length);
+            buf.put(m_payload);
+        }
+    }
+
+    // Serialize the message into a pooled buffer the way NIOWriteStreamBase does for large writes
+    private static BBContainer toPooledBuffer(VoltMessage message) throws IOException {
+        BBContainer cont = SerializationBufferPool.acquire(message.getSerializedSize());
+        try {
+            message.flattenToBuffer(cont.b());
+            cont.b().flip();
+        } catch (IOException | RuntimeException e) {
+            cont.discard();
+            throw e;
+        }
+        return cont;
+    }
+
+    private static class SinkChannel implements GatheringByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long written = 0;
+            for (int i = offset; i < offset + length; ++i) {
+                written += write(srcs[i]);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private interface Serializer {
+        void run(VoltMessage message) throws IOException;
+    }
+
+    private static void measure(String name, int size, int messages, Serializer serializer) throws IOException {
+        VoltMessage message = new PayloadMessage(size);
+        // Warm up the pools and the JIT
+        for (int i = 0; i < Math.min(messages, 10_000); ++i) {
+            serializer.run(message);
+        }
+        long tid = Thread.currentThread().getId();
+        long startBytes = s_threadBean.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; ++i) {
+            serializer.run(message);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = s_threadBean.getThreadAllocatedBytes(tid) - startBytes;
+        System.out.printf("%-15s %9d bytes: %10.1f bytes allocated/msg %10.0f msgs/s%n", name, size,
+                (double) allocated / messages, messages * 1e9 / elapsed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int[] sizes = { 256, 16 * 1024, 48 * 1024, 256 * 1024, 1024 * 1024 };
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; ++i) {
+                sizes[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        NetworkDBBPool pool = new NetworkDBBPool(64);
+        PicoNIOWriteStream stream = new PicoNIOWriteStream();
+        SinkChannel channel = new SinkChannel();
+        for (int size : sizes) {
+            int count = (int) Math.max(1000, (long) messages * 256 / Math.max(256, size));
+            measure("toBuffer", size, count, m -> VoltMessage.toBuffer(m));
+            measure("toPooledBuffer", size, count, m -> toPooledBuffer(m).discard());
+            measure("writeStream", size, count, m -> {
+                stream.enqueue(new DeferredSerialization() {
+                    @Override
+                    public void serialize(ByteBuffer buf) throws IOException {
+                        m.flattenToBuffer(buf);
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+
+                    @Override
+                    public int getSerializedSize() {
+                        return m.getSerializedSize();
+                    }
+                });
+                stream.serializeQueuedWrites(pool);
+                while (!stream.isEmpty()) {
+                    stream.drainTo(channel);
+                }
+            });
+        }
+        stream.shutdown();
+        pool.clear();
+    }
+}
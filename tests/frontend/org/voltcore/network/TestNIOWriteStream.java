@@ -50,6 +50,7 @@
 
 package org.voltcore.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -57,8 +58,13 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.EstTimeUpdater;
 import org.voltdb.AdmissionControlGroup;
@@ -203,11 +209,178 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
+            return write(Arrays.copyOfRange(srcs, offset, offset + length));
+        }
+    }
+
+
+    /**
+     * Channel that records what is written to it, accepting at most a fixed number of bytes per write
+     * and in total
+     */
+    private static class RecordingChannel implements GatheringByteChannel {
+        final ByteArrayOutputStream m_written = new ByteArrayOutputStream();
+        final int m_maxPerWrite;
+        int m_budget = Integer.MAX_VALUE;
+
+        RecordingChannel(int maxPerWrite) {
+            m_maxPerWrite = maxPerWrite;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return (int) write(new ByteBuffer[] { src }, 0, 1);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) throws IOException {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            int written = 0;
+            int max = Math.min(m_maxPerWrite, m_budget);
+            for (int i = offset; i < offset + length && written < max; i++) {
+                while (srcs[i].hasRemaining() && written < max) {
+                    m_written.write(srcs[i].get());
+                    written++;
+                }
+            }
+            m_budget -= written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static DeferredSerialization directTailWrite(final ByteBuffer header, final ByteBuffer tail,
+            final AtomicInteger discarded) {
+        return new DeferredSerialization() {
+            @Override
+            public void serialize(ByteBuffer buf) {
+                fail("Direct tail should not be copied");
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public int getSerializedSize() {
+                return header.remaining() + tail.remaining();
+            }
+
+            @Override
+            public int getDirectTailSize() {
+                return tail.remaining();
+            }
+
+            @Override
+            public void serializeWithDirectTail(ByteBuffer buf, Collection<BBContainer> tailContainers) {
+                buf.put(header.duplicate());
+                tailContainers.add(new BBContainer(tail.slice()) {
+                    @Override
+                    public void discard() {
+                        checkDoubleFree();
+                        discarded.incrementAndGet();
+                    }
+                });
+            }
+        };
+    }
+
+    public void testDirectTail() throws IOException {
+        for (int maxPerWrite : new int[] { Integer.MAX_VALUE, 7, 1 }) {
+            MockPort port = new MockPort();
+            VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+            AtomicInteger discarded = new AtomicInteger();
+
+            ByteBuffer expected = ByteBuffer.allocate(10 + 100 + 10 + 100 + 4);
+            ByteBuffer header = ByteBuffer.allocate(10);
+            ByteBuffer tail = ByteBuffer.allocateDirect(100);
+            for (int i = 0; i < 10; i++) {
+                header.put((byte) -i);
+            }
+            for (int i = 0; i < 100; i++) {
+                tail.put((byte) i);
+            }
+            header.flip();
+            tail.flip();
+            expected.put(header.duplicate()).put(tail.duplicate());
+            expected.put(header.duplicate()).put(tail.duplicate());
+            expected.put(new byte[] { 1, 2, 3, 4 });
+
+            wstream.enqueue(directTailWrite(header, tail, discarded));
+            wstream.enqueue(directTailWrite(header, tail, discarded));
+            wstream.enqueue(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }));
+            wstream.serializeQueuedWrites(pool);
+
+            RecordingChannel channel = new RecordingChannel(maxPerWrite);
+            int written = 0;
+            while (!wstream.isEmpty()) {
+                written += wstream.drainTo(channel);
+            }
+            assertEquals(expected.capacity(), written);
+            assertTrue(Arrays.equals(expected.array(), channel.m_written.toByteArray()));
+            assertEquals(2, discarded.get());
+            wstream.shutdown();
+        }
+    }
+
+    public void testMixedSizeWrites() throws IOException {
+        // Pool buffers are 4 bytes so writes that don't fit in the rest of a pool buffer start a new one and
+        // larger writes are serialized to their own buffer
+        final int[] sizes = { 3, 2, 10, 1, 4, 6, 3, 5 };
+        for (int maxPerWrite : new int[] { Integer.MAX_VALUE, 7, 1 }) {
+            MockPort port = new MockPort();
+            VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            byte next = 0;
+            for (int size : sizes) {
+                ByteBuffer buf = ByteBuffer.allocate(size);
+                while (buf.hasRemaining()) {
+                    expected.write(next);
+                    buf.put(next++);
+                }
+                buf.flip();
+                wstream.enqueue(buf);
+            }
+            wstream.serializeQueuedWrites(pool);
+
+            RecordingChannel channel = new RecordingChannel(maxPerWrite);
+            int written = 0;
+            while (!wstream.isEmpty()) {
+                written += wstream.drainTo(channel);
+            }
+            assertEquals(expected.size(), written);
+            assertTrue(Arrays.equals(expected.toByteArray(), channel.m_written.toByteArray()));
+            wstream.shutdown();
         }
     }
 
+    public void testDirectTailDiscardedOnShutdown() throws IOException {
+        MockPort port = new MockPort();
+        VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+        AtomicInteger discarded = new AtomicInteger();
+        ByteBuffer tail = ByteBuffer.allocateDirect(100);
+        wstream.enqueue(directTailWrite(ByteBuffer.allocate(10), tail, discarded));
+        wstream.serializeQueuedWrites(pool);
+        RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+        channel.m_budget = 50;
+        assertEquals(50, wstream.drainTo(channel));
+        assertFalse(wstream.isEmpty());
+        assertEquals(0, discarded.get());
+        wstream.shutdown();
+        assertEquals(1, discarded.get());
+    }
 
     public void testSink() throws IOException {
         MockChannel channel = new MockChannel(MockChannel.SINK, 0);
@@ -358,7 +531,8 @@ public class TestNIOWriteStream extends TestCase {
         boolean threwException = false;
         try {
             wstream.serializeQueuedWrites(pool);
-            //First write will succeed leaving 2 in first buffer and 4 in next
+            //The first write is larger than a pool buffer so it gets a buffer of its own.
+            //Writing that will succeed leaving the 4 in the next buffer
             wstream.drainTo( channel);
         } catch (IOException e) {
             threwException = true;
@@ -366,7 +540,7 @@ public class TestNIOWriteStream extends TestCase {
         assertTrue(threwException);
         //Since ACG limit is 2 bytes we should be in backpressure.
         assertTrue(acg.hasBackPressure());
-        assertEquals(6, acg.getPendingBytes());
+        assertEquals(4, acg.getPendingBytes());
         wstream.shutdown();
         //We should be out of backpressure.
         assertFalse(acg.hasBackPressure());
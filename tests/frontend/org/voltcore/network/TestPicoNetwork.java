@@ -196,4 +196,37 @@ public class TestPicoNetwork extends TestCase {
             rawChannel.read(buf);
         }
     }
+
+    @Test
+    public void testBatchedWrites() throws Exception {
+        final int messageCount = 10;
+        for (int i = 0; i < messageCount; i++) {
+            ByteBuffer buf = ByteBuffer.allocate(12);
+            buf.putInt(8);
+            buf.putLong(i);
+            buf.flip();
+            pn.enqueue(buf);
+        }
+
+        ByteBuffer received = ByteBuffer.allocate(12 * messageCount);
+        while (received.hasRemaining()) {
+            rawChannel.read(received);
+        }
+        received.flip();
+        for (int i = 0; i < messageCount; i++) {
+            assertEquals(8, received.getInt());
+            assertEquals(i, received.getLong());
+        }
+
+        long[] stats = pn.getIOStats(false).get().get(0L).getSecond();
+        // bytes written, batches flushed and messages in those batches
+        assertEquals(12 * messageCount, stats[2]);
+        assertTrue(stats[4] >= 1 && stats[4] <= messageCount);
+        assertEquals(messageCount, stats[5]);
+
+        long[] interval = pn.getIOStats(true).get().get(0L).getSecond();
+        assertEquals(stats[4], interval[4]);
+        interval = pn.getIOStats(true).get().get(0L).getSecond();
+        assertEquals(0, interval[4]);
+    }
 }
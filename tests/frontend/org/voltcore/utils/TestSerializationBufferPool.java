@@ -0,0 +1,146 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+public class TestSerializationBufferPool {
+    private final AtomicLong m_idleBytes = new AtomicLong();
+    private final SerializationBufferPool m_pool =
+            new SerializationBufferPool(64 * 1024, 16 * 1024, m_idleBytes, Long.MAX_VALUE);
+
+    @After
+    public void tearDown() {
+        m_pool.clear();
+    }
+
+    @Test
+    public void testExactCapacity() {
+        for (int size : new int[] { 0, 1, 4095, 4096, 4097, 50000, 64 * 1024, 64 * 1024 + 1 }) {
+            BBContainer cont = m_pool.get(size);
+            ByteBuffer b = cont.b();
+            assertTrue(b.isDirect());
+            assertEquals(size, b.capacity());
+            assertEquals(0, b.position());
+            assertEquals(size, b.limit());
+            cont.discard();
+        }
+    }
+
+    @Test
+    public void testBufferReused() {
+        BBContainer cont = m_pool.get(5000);
+        cont.b().putInt(0, 0xCAFEBABE);
+        cont.discard();
+        assertEquals(1, m_pool.idleBuffers());
+
+        // Same size class so the same memory comes back
+        cont = m_pool.get(7000);
+        assertEquals(0, m_pool.idleBuffers());
+        assertEquals(0xCAFEBABE, cont.b().getInt(0));
+        assertEquals(0, cont.b().position());
+        assertEquals(7000, cont.b().limit());
+        cont.discard();
+    }
+
+    @Test
+    public void testIdleBuffersBounded() {
+        // 16KB per class allows 4 idle 4KB buffers and 1 idle 64KB buffer
+        BBContainer[] small = new BBContainer[6];
+        for (int i = 0; i < small.length; ++i) {
+            small[i] = m_pool.get(100);
+        }
+        BBContainer[] large = new BBContainer[2];
+        for (int i = 0; i < large.length; ++i) {
+            large[i] = m_pool.get(60000);
+        }
+        for (BBContainer cont : small) {
+            cont.discard();
+        }
+        for (BBContainer cont : large) {
+            cont.discard();
+        }
+        assertEquals(5, m_pool.idleBuffers());
+        assertEquals(4 * 4096 + 64 * 1024, m_idleBytes.get());
+    }
+
+    @Test
+    public void testIdleBytesBoundedAcrossPools() {
+        // Two pools sharing a 12KB total keep at most three idle 4KB buffers between them
+        AtomicLong idleBytes = new AtomicLong();
+        SerializationBufferPool first = new SerializationBufferPool(64 * 1024, 16 * 1024, idleBytes, 12 * 1024);
+        SerializationBufferPool second = new SerializationBufferPool(64 * 1024, 16 * 1024, idleBytes, 12 * 1024);
+        try {
+            BBContainer[] conts = new BBContainer[4];
+            for (int i = 0; i < conts.length; ++i) {
+                conts[i] = (i % 2 == 0 ? first : second).get(100);
+            }
+            for (BBContainer cont : conts) {
+                cont.discard();
+            }
+            assertEquals(3, first.idleBuffers() + second.idleBuffers());
+            assertEquals(12 * 1024, idleBytes.get());
+
+            // Reusing a buffer frees room for another
+            BBContainer cont = first.get(100);
+            assertEquals(8 * 1024, idleBytes.get());
+            cont.discard();
+            assertEquals(12 * 1024, idleBytes.get());
+        } finally {
+            first.clear();
+            second.clear();
+        }
+        assertEquals(0, idleBytes.get());
+    }
+
+    @Test
+    public void testOversizedNotPooled() {
+        m_pool.get(64 * 1024 + 1).discard();
+        assertEquals(0, m_pool.idleBuffers());
+    }
+
+    @Test
+    public void testDiscardOnAnotherThread() throws Exception {
+        final BBContainer cont = m_pool.get(100);
+        Thread t = new Thread(() -> cont.discard());
+        t.start();
+        t.join();
+        assertEquals(1, m_pool.idleBuffers());
+    }
+
+    @Test
+    public void testThreadLocalAcquire() {
+        BBContainer cont = SerializationBufferPool.acquire(10000);
+        assertEquals(10000, cont.b().capacity());
+        cont.discard();
+    }
+}
@@ -0,0 +1,138 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestTimerWheel {
+    private TimerWheel m_wheel;
+
+    @After
+    public void tearDown() {
+        if (m_wheel != null) {
+            m_wheel.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimeoutFires() throws Exception {
+        m_wheel = new TimerWheel("test wheel", 5, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        m_wheel.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testTimeoutLongerThanOneRotation() throws Exception {
+        // 4 buckets of 5ms is a 20ms rotation, so this needs several rounds
+        m_wheel = new TimerWheel("test wheel", 5, TimeUnit.MILLISECONDS, 3);
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        m_wheel.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        m_wheel = new TimerWheel("test wheel", 5, TimeUnit.MILLISECONDS, 8);
+        AtomicInteger fired = new AtomicInteger();
+        TimerWheel.Timeout timeout = m_wheel.schedule(fired::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        m_wheel.schedule(latch::countDown, 60, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    public void testExpiredCannotBeCancelled() throws Exception {
+        m_wheel = new TimerWheel("test wheel", 1, TimeUnit.MILLISECONDS, 16);
+        CountDownLatch latch = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = m_wheel.schedule(latch::countDown, 0, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void testConcurrentScheduleAndCancel() throws Exception {
+        m_wheel = new TimerWheel("test wheel", 1, TimeUnit.MILLISECONDS, 64);
+        int threadCount = 4;
+        int perThread = 10_000;
+        AtomicInteger fired = new AtomicInteger();
+        CountDownLatch kept = new CountDownLatch(threadCount * perThread / 2);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; ++t) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perThread; ++i) {
+                    boolean cancel = (i & 1) == 0;
+                    TimerWheel.Timeout timeout = m_wheel.schedule(() -> {
+                        if (cancel) {
+                            fired.incrementAndGet();
+                        } else {
+                            kept.countDown();
+                        }
+                    }, cancel ? 10_000 : i % 200, TimeUnit.MILLISECONDS);
+                    if (cancel) {
+                        assertTrue(timeout.cancel());
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(kept.await(30, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    public void testScheduleAfterShutdown() {
+        m_wheel = new TimerWheel("test wheel", 5, TimeUnit.MILLISECONDS, 8);
+        m_wheel.shutdown();
+        assertTrue(m_wheel.isShutdown());
+        try {
+            m_wheel.schedule(() -> {}, 1, TimeUnit.MILLISECONDS);
+            fail("schedule should fail after shutdown");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
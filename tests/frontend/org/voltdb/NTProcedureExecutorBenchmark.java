@@ -0,0 +1,110 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltcore.utils.CoreUtils;
+
+/**
+ * Manual benchmark of the executors which can run NT and compound procedures. Each invocation models a fan-out
+ * compound procedure: every stage issues a number of transactional sub-calls and blocks until all of them have
+ * responded. Sub-calls are completed by a scheduler after a fixed latency, standing in for the sites. The
+ * invocations are run on a fixed platform thread pool of {@code NTPROC_THREADS} threads, the same as the primary
+ * NT executor, and then on the virtual thread per task executor used with {@code -DNTPROC_VIRTUAL_THREADS=true}.
+ * The virtual thread run is skipped unless the benchmark is run with Java 21 or newer.
+ *
+ * Usage: NTProcedureExecutorBenchmark [invocations] [stages] [fanout] [latency ms]
+ */
+public class NTProcedureExecutorBenchmark {
+
+    private static final int POOL_THREADS = Integer.getInteger("NTPROC_THREADS",
+            Math.max(CoreUtils.availableProcessors(), 4));
+
+    private static void measure(String name, ExecutorService exec, ScheduledExecutorService sites, int invocations,
+            int stages, int fanout, int latencyMs) throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(invocations);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < invocations; ++i) {
+            exec.execute(() -> {
+                int current = running.incrementAndGet();
+                peak.accumulateAndGet(current, Math::max);
+                try {
+                    for (int stage = 0; stage < stages; ++stage) {
+                        CompletableFuture<?>[] calls = new CompletableFuture<?>[fanout];
+                        for (int call = 0; call < fanout; ++call) {
+                            CompletableFuture<Object> response = new CompletableFuture<>();
+                            sites.schedule(() -> response.complete(null), latencyMs, TimeUnit.MILLISECONDS);
+                            calls[call] = response;
+                        }
+                        CompletableFuture.allOf(calls).join();
+                    }
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        exec.shutdown();
+
+        System.out.printf("%-16s %,10.0f invocations/s  peak concurrent invocations %,d  elapsed %,d ms%n", name,
+                invocations * 1e9 / elapsed, peak.get(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int invocations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int stages = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int fanout = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int latencyMs = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        System.out.printf("%,d invocations, %d stages of %d sub-calls, %d ms sub-call latency, %d pool threads%n",
+                invocations, stages, fanout, latencyMs, POOL_THREADS);
+
+        ScheduledExecutorService sites = Executors.newScheduledThreadPool(4);
+        try {
+            measure("platform pool", Executors.newFixedThreadPool(POOL_THREADS), sites, invocations, stages, fanout,
+                    latencyMs);
+
+            ExecutorService virtual = CoreUtils.getVirtualThreadPerTaskExecutor("NTPServiceThread-");
+            if (virtual == null) {
+                System.out.println("virtual threads  not supported by Java " + System.getProperty("java.version"));
+            } else {
+                measure("virtual threads", virtual, sites, invocations, stages, fanout, latencyMs);
+            }
+        } finally {
+            sites.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Manual benchmark measuring the heap allocated per invocation when decoding the parameters of a voter style
+ * procedure, {@code run(long phoneNumber, int contestantNumber, long maxVotesPerPhoneNumber)}. The legacy path
+ * deserializes a {@link ParameterSet} and converts each parameter with {@link ParameterConverter}, the direct path
+ * reads the arguments with {@link ParameterView#toArguments(Class[])}. Allocation is measured with the per thread
+ * allocation counter of the hotspot {@link com.sun.management.ThreadMXBean}.
+ *
+ * Usage: ParameterDecodeBenchmark [invocations] [iterations]
+ */
+public class ParameterDecodeBenchmark {
+
+    private static final Class<?>[] VOTE_TYPES = { long.class, int.class, long.class };
+
+    private interface Decoder {
+        Object[] decode(ByteBuffer params) throws Exception;
+    }
+
+    private static Object[] decodeParameterSet(ByteBuffer params) throws Exception {
+        Object[] args = ParameterSet.fromByteBuffer(params.duplicate()).toArray();
+        for (int i = 0; i < VOTE_TYPES.length; ++i) {
+            args[i] = ParameterConverter.tryToMakeCompatible(VOTE_TYPES[i], args[i], false);
+        }
+        return args;
+    }
+
+    private static Object[] decodeView(ByteBuffer params) {
+        return ParameterView.of(params).toArguments(VOTE_TYPES);
+    }
+
+    private static long run(ByteBuffer[] invocations, Decoder decoder) throws Exception {
+        long sum = 0;
+        for (ByteBuffer params : invocations) {
+            Object[] args = decoder.decode(params);
+            sum += (Long) args[0] + (Integer) args[1];
+        }
+        return sum;
+    }
+
+    private static void measure(String name, ByteBuffer[] invocations, int iterations, Decoder decoder)
+            throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // warm up so both paths are compiled before measuring
+        run(invocations, decoder);
+
+        long checksum = 0;
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            checksum += run(invocations, decoder);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+        long count = (long) invocations.length * iterations;
+        System.out.printf("%-13s %8.1f bytes/invocation %8.1f ns/invocation (checksum %d)%n", name,
+                (double) allocated / count, (double) elapsed / count, checksum);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int invocationCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ByteBuffer[] invocations = new ByteBuffer[invocationCount];
+        for (int i = 0; i < invocationCount; ++i) {
+            // clients send the phone number and max votes as longs but the contestant number as a narrower type
+            ParameterSet params = ParameterSet.fromArrayNoCopy(6175550000L + i, (short) (i % 6 + 1), 2L);
+            ByteBuffer buf = ByteBuffer.allocate(params.getSerializedSize());
+            params.flattenToBuffer(buf);
+            buf.flip();
+            invocations[i] = buf;
+        }
+
+        for (int round = 0; round < 3; ++round) {
+            measure("ParameterSet", invocations, iterations, ParameterDecodeBenchmark::decodeParameterSet);
+            measure("ParameterView", invocations, iterations, ParameterDecodeBenchmark::decodeView);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.client.ClientResponse;
+
+import junit.framework.TestCase;
+
+public class TestDirectResultBuffer extends TestCase {
+
+    private static VoltTable makeTable(int rows, int valueLength) {
+        VoltTable table = new VoltTable(new ColumnInfo("ID", VoltType.BIGINT), new ColumnInfo("VAL", VoltType.STRING));
+        char[] chars = new char[valueLength];
+        for (int i = 0; i < rows; i++) {
+            Arrays.fill(chars, (char) ('a' + i % 26));
+            table.addRow(i, new String(chars));
+        }
+        return table;
+    }
+
+    // A table backed by direct memory, like the ones read from the EE's output buffer
+    private static VoltTable asEETable(VoltTable table) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(table.getSerializedSize());
+        table.flattenToBuffer(buf);
+        buf.flip();
+        return PrivateVoltTableFactory.createVoltTableFromSharedBuffer(buf);
+    }
+
+    @Test
+    public void testCopyOf() {
+        VoltTable source = makeTable(10, 20);
+        VoltTable eeTable = asEETable(source);
+        assertFalse(DirectResultBuffer.shouldCopy(eeTable));
+        assertTrue(DirectResultBuffer.shouldCopy(asEETable(makeTable(300, 1024))));
+        assertFalse(DirectResultBuffer.shouldCopy(makeTable(300, 1024)));
+
+        VoltTable copy = DirectResultBuffer.copyOf(eeTable);
+        DirectResultBuffer direct = DirectResultBuffer.of(copy);
+        assertNotNull(direct);
+        assertNull(DirectResultBuffer.of(eeTable));
+        assertFalse(DirectResultBuffer.shouldCopy(copy));
+        assertTrue(source.hasSameContents(copy));
+        assertEquals(source.getSerializedSize(), direct.getSerializedSize());
+
+        // Already has its own copy, must not be moved to the heap again
+        copy.convertToHeapBuffer();
+        assertSame(direct, DirectResultBuffer.of(copy));
+        assertTrue(source.hasSameContents(copy));
+
+        // The container holds the serialized table, length prefix included
+        BBContainer cont = direct.retain();
+        ByteBuffer expected = ByteBuffer.allocate(source.getSerializedSize());
+        source.flattenToBuffer(expected);
+        expected.flip();
+        assertEquals(0, cont.b().position());
+        assertEquals(cont.b().capacity(), cont.b().limit());
+        assertEquals(expected, cont.b());
+        direct.release();
+        assertTrue(source.hasSameContents(copy));
+        cont.discard();
+    }
+
+    @Test
+    public void testFlattenWithDirectTail() {
+        VoltTable heapTable = makeTable(5, 10);
+        VoltTable tail1 = DirectResultBuffer.copyOf(asEETable(makeTable(7, 30)));
+        VoltTable tail2 = DirectResultBuffer.copyOf(asEETable(makeTable(3, 100)));
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS,
+                new VoltTable[] { heapTable, tail1, tail2 }, "status", 42);
+
+        ByteBuffer full = ByteBuffer.allocate(response.getSerializedSize());
+        response.flattenToBuffer(full).flip();
+
+        List<BBContainer> tail = new ArrayList<>();
+        tail.add(DirectResultBuffer.of(tail1).retain());
+        tail.add(DirectResultBuffer.of(tail2).retain());
+        int tailSize = tail1.getSerializedSize() + tail2.getSerializedSize();
+        ByteBuffer split = ByteBuffer.allocate(response.getSerializedSize());
+        split.limit(split.capacity() - tailSize);
+        response.flattenToBuffer(split, 1);
+        assertFalse(split.hasRemaining());
+        split.limit(split.capacity());
+        for (BBContainer cont : tail) {
+            split.put(cont.b());
+            cont.discard();
+        }
+        split.flip();
+        assertEquals(full, split);
+
+        DirectResultBuffer.of(tail1).release();
+        DirectResultBuffer.of(tail2).release();
+    }
+}
@@ -537,4 +537,98 @@ public class TestParameterSet extends TestCase {
 
         assertTrue(Arrays.deepEquals(pset1array, pset2array));
     }
+
+    private static ByteBuffer serialize(Object... params) throws IOException {
+        ParameterSet pset = ParameterSet.fromArrayNoCopy(params);
+        ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        buf.flip();
+        return buf;
+    }
+
+    public void testParameterView() throws IOException {
+        ByteBuffer buf = serialize((byte) 3, (short) 300, 70000, 5000000000L, 2.5, "voter", null,
+                new long[] { 1, 2 });
+        ParameterView view = ParameterView.of(buf);
+
+        assertEquals(8, view.size());
+        assertEquals(VoltType.TINYINT, view.getType(0));
+        assertEquals(VoltType.STRING, view.getType(5));
+        assertTrue(view.isArray(7));
+        assertFalse(view.isArray(6));
+
+        assertEquals(3, view.getByte(0));
+        assertEquals(300, view.getShort(1));
+        assertEquals(70000, view.getInt(2));
+        assertEquals(5000000000L, view.getLong(3));
+        assertEquals(2.5, view.getDouble(4));
+        assertEquals("voter", view.getString(5));
+        assertTrue(view.isNull(6));
+        assertNull(view.getString(6));
+
+        // narrower integer types widen and keep their null meaning
+        assertEquals(300L, view.getLong(1));
+        assertEquals(3, view.getInt(0));
+        assertEquals(VoltType.NULL_BIGINT, view.getLong(6));
+        assertTrue(Arrays.equals(new long[] { 1, 2 }, (long[]) view.getObject(7)));
+
+        // reading from the view does not move the source buffer
+        assertEquals(0, buf.position());
+
+        try {
+            view.getInt(3);
+            fail("BIGINT should not narrow to INTEGER");
+        } catch (VoltTypeException expected) {
+        }
+    }
+
+    public void testParameterViewNullValues() throws IOException {
+        ParameterView view = ParameterView.of(serialize(VoltType.NULL_TINYINT, VoltType.NULL_INTEGER,
+                VoltType.NULL_FLOAT, 0));
+        assertTrue(view.isNull(0));
+        assertTrue(view.isNull(1));
+        assertTrue(view.isNull(2));
+        assertFalse(view.isNull(3));
+        assertEquals(VoltType.NULL_BIGINT, view.getLong(0));
+        assertEquals(VoltType.NULL_INTEGER, view.getInt(0));
+        assertEquals(VoltType.NULL_BIGINT, view.getLong(1));
+    }
+
+    public void testParameterViewToArguments() throws IOException {
+        ByteBuffer buf = serialize(5551234567L, 3, "\\N", null, (short) 7);
+        Class<?>[] types = { long.class, int.class, String.class, long.class, long.class };
+        assertTrue(ParameterView.supportsDirectDecode(types));
+
+        Object[] args = ParameterView.of(buf).toArguments(types);
+        Object[] converted = ParameterSet.fromByteBuffer(buf.duplicate()).toArray();
+        for (int i = 0; i < types.length; ++i) {
+            converted[i] = ParameterConverter.tryToMakeCompatible(types[i], converted[i], false);
+        }
+        assertTrue(Arrays.deepEquals(converted, args));
+
+        // ProcedureRunner does not convert direct arguments again so every type and null must already match
+        buf = serialize(2.5, VoltType.NULL_FLOAT, null, (byte) 1, null, (short) 2, (byte) 3, null);
+        types = new Class<?>[] { double.class, double.class, double.class, byte.class, byte.class, short.class,
+                short.class, int.class };
+        args = ParameterView.of(buf).toArguments(types);
+        converted = ParameterSet.fromByteBuffer(buf.duplicate()).toArray();
+        for (int i = 0; i < types.length; ++i) {
+            converted[i] = ParameterConverter.tryToMakeCompatible(types[i], converted[i], false);
+        }
+        assertTrue(Arrays.deepEquals(converted, args));
+
+        // anything the view cannot read directly is left to ParameterConverter
+        assertNull(ParameterView.of(buf).toArguments(new Class<?>[] { long.class }));
+        assertNull(ParameterView.of(serialize("12")).toArguments(new Class<?>[] { long.class }));
+        assertNull(ParameterView.of(serialize(1.5)).toArguments(new Class<?>[] { int.class }));
+        assertFalse(ParameterView.supportsDirectDecode(new Class<?>[] { long.class, BigDecimal.class }));
+    }
+
+    public void testGetParameterAtIndex() throws IOException {
+        ByteBuffer buf = serialize("first", new byte[] { 1, 2, 3 }, null, new TimestampType(1234), 99L,
+                new int[] { 4 }, "last");
+        assertEquals(99L, ParameterSet.getParameterAtIndex(4, buf.duplicate()));
+        assertEquals("last", ParameterSet.getParameterAtIndex(6, buf.duplicate()));
+        assertEquals("first", ParameterSet.getParameterAtIndex(0, buf.duplicate()));
+    }
 }
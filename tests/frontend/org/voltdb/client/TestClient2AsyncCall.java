@@ -193,6 +193,35 @@ public class TestClient2AsyncCall {
         client.close();
     }
 
+    @Test
+    public void testCoalescedAsyncCalls() throws Exception {
+        // More calls than the outstanding limit, so that batches must
+        // also be flushed when waiting for a send permit.
+        Client2Config config = new Client2Config()
+            .procedureCallTimeout(10, TimeUnit.SECONDS)
+            .outstandingTransactionLimit(50)
+            .requestCoalescing(4096, 200, TimeUnit.MICROSECONDS);
+
+        Client2 client = ClientFactory.createClient(config);
+        client.connectSync("localhost");
+
+        final int count = 500;
+        AtomicInteger successes = new AtomicInteger();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+        for (int i = 0; i < count; i++) {
+            futures[i] = client.callProcedureAsync("ArbitraryDurationProc", 0)
+                .thenAccept((resp) -> {
+                        if (resp.getStatus() == ClientResponse.SUCCESS) {
+                            successes.incrementAndGet();
+                        }
+                    });
+        }
+        CompletableFuture.allOf(futures).join();
+        assertEquals(count, successes.get());
+
+        client.close();
+    }
+
     private void validateTmo(long startTime, long expected, TimeUnit expUnit, long limit, TimeUnit limitUnit) {
         long elapsed = endTime > startTime ? endTime - startTime : 0; // racy (may have completed before we noted start time)
         System.out.printf("Expected %,dus timeout took %,dus (client round trip %,dus, status %d)\n",
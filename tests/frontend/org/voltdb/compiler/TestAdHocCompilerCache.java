@@ -0,0 +1,148 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
+
+public class TestAdHocCompilerCache {
+
+    private static final byte[] CATALOG_HASH = new byte[20];
+
+    private static AdHocPlannedStatement plan(String sql, int fragmentSize) {
+        return plan(sql, fragmentSize, 0);
+    }
+
+    /**
+     * Plans with different variants have different fragment hashes
+     */
+    private static AdHocPlannedStatement plan(String sql, int fragmentSize, int variant) {
+        byte[] hash = new byte[20];
+        hash[0] = (byte) variant;
+        CorePlan core = new CorePlan(new byte[fragmentSize], null, hash, null, false, true, new VoltType[0],
+                CATALOG_HASH);
+        return new AdHocPlannedStatement(sql.getBytes(Constants.UTF8ENCODING), core, ParameterSet.emptyParameterSet(),
+                null);
+    }
+
+    @Test
+    public void testLiteralAndCoreLookups() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(100, 100);
+        AdHocPlannedStatement plan = plan("select * from t;", 100);
+
+        assertNull(cache.getWithSQL("select * from t;"));
+        cache.put("select * from t;", "token", plan, null, false, false);
+
+        assertSame(plan, cache.getWithSQL("select * from t;"));
+        List<BoundPlan> variants = cache.getWithParsedToken("token");
+        assertEquals(1, variants.size());
+        assertSame(plan.core, variants.get(0).m_core);
+        assertEquals(1, cache.getLiteralCacheSize());
+        assertEquals(1, cache.getCoreCacheSize());
+
+        // the same plan under a new literal reuses the cached core
+        AdHocPlannedStatement other = plan("select * from t ;", 100);
+        cache.put("select * from t ;", "token", other, null, false, false);
+        assertEquals(1, cache.getWithParsedToken("token").size());
+        assertSame(plan.core, cache.getWithSQL("select * from t ;").core);
+
+        // user parameterized queries are only cached by token
+        cache.put("select * from t where a = ?;", "token2", plan("select * from t where a = ?;", 100), null,
+                true, false);
+        assertNull(cache.getWithSQL("select * from t where a = ?;"));
+        assertNotNull(cache.getWithParsedToken("token2"));
+    }
+
+    @Test
+    public void testEvictionByEntries() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(10, 32 * 1024 * 1024, 10, 32 * 1024 * 1024);
+        for (int i = 0; i < 100; ++i) {
+            String sql = "select * from t where a = " + i + ";";
+            cache.put(sql, "token" + i, plan(sql, 100), null, false, false);
+        }
+        assertTrue(cache.getLiteralCacheSize() <= 10);
+        assertTrue(cache.getCoreCacheSize() <= 10);
+        assertEquals(100 - cache.getLiteralCacheSize(), cache.getLiteralCacheEvictions());
+        assertEquals(100 - cache.getCoreCacheSize(), cache.getCoreCacheEvictions());
+    }
+
+    @Test
+    public void testEvictionByMemory() {
+        // entries are allowed 1KB each on average but each plan is more than 10KB
+        AdHocCompilerCache cache = new AdHocCompilerCache(1000, 1024 * 1000, 1000, 1024 * 1000);
+        for (int i = 0; i < 1000; ++i) {
+            String sql = "select * from t where a = " + i + ";";
+            cache.put(sql, "token" + i, plan(sql, 10 * 1024), null, false, false);
+        }
+        assertTrue(cache.getLiteralCacheSize() <= 100);
+        assertTrue(cache.getCoreCacheSize() <= 100);
+        assertTrue(cache.getLiteralCacheEvictions() >= 900);
+    }
+
+    @Test
+    public void testConcurrentVariants() throws Exception {
+        AdHocCompilerCache cache = new AdHocCompilerCache(1000, 1000);
+        ExecutorService es = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; ++t) {
+                final int thread = t;
+                futures.add(es.submit(() -> {
+                    for (int i = 0; i < 200; ++i) {
+                        int query = (i + thread) % 50;
+                        String sql = "select * from t where a = " + query + ";";
+                        cache.put(sql, "token" + (query % 10), plan(sql, 100, query / 10), null, false, false);
+                        assertNotNull(cache.getWithParsedToken("token" + (query % 10)));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            es.shutdown();
+        }
+        // each distinct core for a token is kept exactly once
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(5, cache.getWithParsedToken("token" + i).size());
+        }
+        assertEquals(50, cache.getLiteralCacheSize());
+    }
+}
@@ -0,0 +1,216 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.junit.Test;
+import org.voltdb.compiler.TableStatistics.ColumnSampler;
+import org.voltdb.compiler.TableStatistics.ColumnStatistics;
+
+import com.google_voltpatches.common.collect.ImmutableMap;
+
+public class TestTableStatistics {
+    private static final double DELTA = 1e-9;
+
+    private static TableStatistics skewedTable() {
+        Map<String, ColumnStatistics> columns = new LinkedHashMap<>();
+        // 1000 rows, 100 nulls, values 0 to 100 with 800 of the 900 non-null rows in the first bucket
+        columns.put("A", new ColumnStatistics("A", 1000, 50, 100, 0, 100, new long[] { 800, 50, 25, 25 }));
+        columns.put("B", new ColumnStatistics("B", 1000, 1000, 0));
+        columns.put("C", new ColumnStatistics("C", 1000, -1, 0));
+        return new TableStatistics("T", "T|sig", 1000, 12345L, columns);
+    }
+
+    @Test
+    public void testJSONRoundTrip() throws Exception {
+        TableStatistics statistics = skewedTable();
+        JSONStringer stringer = new JSONStringer();
+        statistics.toJSONString(stringer);
+        TableStatistics copy = TableStatistics.fromJSONObject(new JSONObject(stringer.toString()));
+
+        assertEquals("T", copy.getTableName());
+        assertEquals("T|sig", copy.getSignature());
+        assertEquals(1000, copy.getRowCount());
+        assertEquals(12345L, copy.getAnalyzedAt());
+        assertArrayEquals(new Object[] { "A", "B", "C" }, copy.getColumns().keySet().toArray());
+        for (String name : statistics.getColumns().keySet()) {
+            ColumnStatistics expected = statistics.getColumn(name);
+            ColumnStatistics actual = copy.getColumn(name);
+            assertEquals(expected.getDistinctValues(), actual.getDistinctValues());
+            assertEquals(expected.getNullCount(), actual.getNullCount());
+            assertEquals(expected.getHistogramBuckets(), actual.getHistogramBuckets());
+            assertEquals(expected.equalitySelectivity(null), actual.equalitySelectivity(null), DELTA);
+            assertEquals(expected.rangeSelectivity(10.0, 60.0), actual.rangeSelectivity(10.0, 60.0), DELTA);
+        }
+        assertNull(copy.getColumn("D"));
+    }
+
+    @Test
+    public void testEqualitySelectivity() {
+        TableStatistics statistics = skewedTable();
+        // Uniform over the distinct non-null values when the value is not known
+        assertEquals(900.0 / 50 / 1000, statistics.getColumn("A").equalitySelectivity(null), DELTA);
+        assertEquals(0.001, statistics.getColumn("B").equalitySelectivity(null), DELTA);
+        // Unknown distinct count falls back to the default
+        assertEquals(TableStatistics.DEFAULT_EQUALITY_SELECTIVITY,
+                statistics.getColumn("C").equalitySelectivity(null), DELTA);
+
+        // A known value in a heavy bucket is much less selective than one in a light bucket
+        ColumnStatistics a = statistics.getColumn("A");
+        double heavy = a.equalitySelectivity(5.0);
+        double light = a.equalitySelectivity(80.0);
+        assertEquals(800.0 / (50 / 4) / 1000, heavy, DELTA);
+        assertEquals(25.0 / (50 / 4) / 1000, light, DELTA);
+        assertTrue(heavy > light * 10);
+        // Values outside of the histogram match nothing
+        assertEquals(0, a.equalitySelectivity(-1.0), DELTA);
+        assertEquals(0, a.equalitySelectivity(101.0), DELTA);
+    }
+
+    @Test
+    public void testRangeSelectivity() {
+        ColumnStatistics a = skewedTable().getColumn("A");
+        assertEquals(TableStatistics.DEFAULT_RANGE_SELECTIVITY, a.rangeSelectivity(null, null), DELTA);
+        // Whole first bucket
+        assertEquals(0.8, a.rangeSelectivity(null, 25.0), DELTA);
+        // Everything not null
+        assertEquals(0.9, a.rangeSelectivity(-10.0, null), DELTA);
+        // Half of the second bucket plus all of the third
+        assertEquals((25 + 25) / 1000.0, a.rangeSelectivity(37.5, 75.0), DELTA);
+        // Empty ranges
+        assertEquals(0, a.rangeSelectivity(200.0, null), DELTA);
+        assertEquals(0, a.rangeSelectivity(60.0, 40.0), DELTA);
+
+        // Without a histogram only the default is available
+        assertEquals(TableStatistics.DEFAULT_RANGE_SELECTIVITY,
+                skewedTable().getColumn("B").rangeSelectivity(1.0, 2.0), DELTA);
+
+        // A single distinct value
+        ColumnStatistics constant = new ColumnStatistics("D", 10, 1, 2, 7, 7, new long[] { 8, 0 });
+        assertEquals(0.8, constant.rangeSelectivity(0.0, 10.0), DELTA);
+        assertEquals(0.8, constant.equalitySelectivity(7.0), DELTA);
+        assertEquals(0, constant.rangeSelectivity(8.0, null), DELTA);
+    }
+
+    @Test
+    public void testEmptyTable() {
+        ColumnStatistics empty = new ColumnStatistics("E", 0, 0, 0);
+        assertEquals(0, empty.equalitySelectivity(null), DELTA);
+        assertEquals(0, empty.rangeSelectivity(1.0, null), DELTA);
+    }
+
+    @Test
+    public void testDatabaseEstimates() {
+        TableStatistics big = new TableStatistics("BIG", "sig", 100_000_000L, 0, ImmutableMap.of());
+        TableStatistics small = new TableStatistics("SMALL", "sig", 3, 0, ImmutableMap.of());
+        DatabaseEstimates estimates = new DatabaseEstimates(ImmutableMap.of("BIG", big, "SMALL", small));
+
+        DatabaseEstimates.TableEstimates bigEstimates = estimates.getEstimatesForTable("BIG");
+        assertEquals(100_000_000L, bigEstimates.maxTuples);
+        assertSame(big, bigEstimates.statistics);
+        assertSame(bigEstimates, estimates.getEstimatesForTable("BIG"));
+
+        // Small analyzed tables are not estimated below the minimum
+        assertEquals(DatabaseEstimates.MIN_ANALYZED_TUPLES, estimates.getEstimatesForTable("SMALL").maxTuples);
+
+        // Tables which have not been analyzed keep the defaults
+        DatabaseEstimates.TableEstimates other = estimates.getEstimatesForTable("OTHER");
+        assertNull(other.statistics);
+        assertEquals(new DatabaseEstimates.TableEstimates().maxTuples, other.maxTuples);
+    }
+
+    @Test
+    public void testJSONArrayRoundTrip() throws Exception {
+        TableStatistics other = new TableStatistics("U", "U|sig", 7, 0, ImmutableMap.of());
+        List<TableStatistics> copy = TableStatistics.fromJSONArray(
+                TableStatistics.toJSONString(Arrays.asList(skewedTable(), other)));
+        assertEquals(2, copy.size());
+        assertEquals("T", copy.get(0).getTableName());
+        assertEquals(50, copy.get(0).getColumn("A").getDistinctValues());
+        assertEquals("U", copy.get(1).getTableName());
+        assertEquals(7, copy.get(1).getRowCount());
+    }
+
+    @Test
+    public void testColumnSampler() {
+        // 4000 rows with 1000 sampled from each of two partitions
+        ColumnSampler partitionColumn = new ColumnSampler("P", true, 0);
+        partitionColumn.addPartition(1000, 1000, 1000, null);
+        partitionColumn.addPartition(1000, 1000, 950, null);
+        ColumnStatistics p = partitionColumn.build(4000, false);
+        assertEquals(0, p.getNullCount());
+        // Nearly unique in each partition so each estimate is scaled up and the partitions are disjoint
+        assertEquals(2000 + 1900, p.getDistinctValues());
+        assertEquals(0, p.getHistogramBuckets());
+
+        // A low cardinality column sees every value in each partition and the values repeat across partitions
+        ColumnSampler flag = new ColumnSampler("F", false, 0);
+        flag.addPartition(1000, 900, 2, null);
+        flag.addPartition(1000, 900, 3, null);
+        ColumnStatistics f = flag.build(4000, false);
+        assertEquals(400, f.getNullCount());
+        assertEquals(3, f.getDistinctValues());
+
+        // A unique index makes every non-null value distinct
+        ColumnSampler unique = new ColumnSampler("U", false, 0);
+        unique.addPartition(1000, 500, 10, null);
+        unique.addPartition(1000, 500, 10, null);
+        assertEquals(2000, unique.build(4000, true).getDistinctValues());
+
+        // Distinct values which were not sampled stay unknown
+        ColumnSampler unknown = new ColumnSampler("X", false, 0);
+        unknown.addPartition(1000, 1000, -1, null);
+        assertEquals(-1, unknown.build(4000, false).getDistinctValues());
+    }
+
+    @Test
+    public void testColumnSamplerHistogram() {
+        ColumnSampler sampler = new ColumnSampler("H", false, 2);
+        sampler.addPartition(4, 4, 4, new double[] { 0, 1, 2, 10 });
+        sampler.addPartition(2, 2, 2, new double[] { 3, 9 });
+        ColumnStatistics h = sampler.build(60, false);
+        assertEquals(0, h.getNullCount());
+        // Four sampled values below the midpoint and two at or above it, scaled by 10
+        assertEquals(40.0 / 60, h.rangeSelectivity(null, 5.0), DELTA);
+        assertEquals(1.0, h.rangeSelectivity(0.0, 10.0), DELTA);
+        assertEquals(0, h.rangeSelectivity(11.0, null), DELTA);
+
+        // Samples without values build no histogram
+        ColumnSampler empty = new ColumnSampler("E", false, 2);
+        empty.addPartition(0, 0, 0, new double[0]);
+        assertEquals(0, empty.build(0, false).getHistogramBuckets());
+    }
+}
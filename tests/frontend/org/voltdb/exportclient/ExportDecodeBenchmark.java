@@ -0,0 +1,200 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.exportclient;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.exportclient.decode.CSVStringDecoder;
+import org.voltdb.exportclient.decode.CSVWriterDecoder;
+
+import au.com.bytecode.opencsv_voltpatches.CSVWriter;
+
+/**
+ * Manual benchmark comparing the throughput of decoding export blocks a row at a time with
+ * {@link ExportRow#decodeRow(ExportRow, int, byte[])} against decoding them with {@link ExportRowBatch}. Each block is
+ * decoded on its own and then formatted the way {@code ExportToFileClient} (CSV written to a writer) and {@code KafkaExportClient} (a CSV string
+ * per row) format it.
+ *
+ * Usage: ExportDecodeBenchmark [rowsPerBlock] [blocks] [iterations]
+ */
+public class ExportDecodeBenchmark {
+    private static final int PARTITION_ID = 3;
+
+    private static final List<String> NAMES = Arrays.asList("VOLT_TRANSACTION_ID", "VOLT_EXPORT_TIMESTAMP",
+            "VOLT_EXPORT_SEQUENCE_NUMBER", "VOLT_PARTITION_ID", "VOLT_SITE_ID", "VOLT_EXPORT_OPERATION", "ID",
+            "CUSTOMER_ID", "AMOUNT", "CREATED", "STATUS", "DESCRIPTION");
+    private static final List<VoltType> TYPES = Arrays.asList(VoltType.BIGINT, VoltType.BIGINT, VoltType.BIGINT,
+            VoltType.BIGINT, VoltType.BIGINT, VoltType.TINYINT, VoltType.BIGINT, VoltType.INTEGER, VoltType.FLOAT,
+            VoltType.TIMESTAMP, VoltType.STRING, VoltType.STRING);
+    private static final ExportRow SCHEMA = new ExportRow("ORDERS", NAMES, TYPES,
+            Arrays.asList(8, 8, 8, 8, 8, 1, 8, 4, 8, 8, 16, 256), new Object[] {}, null, 7, PARTITION_ID, 1L);
+
+    private interface BlockDecoder {
+        long decode(ByteBuffer block) throws IOException;
+    }
+
+    private static final class CountingWriter extends Writer {
+        long m_chars;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            m_chars += len;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    private static ByteBuffer encodeBlock(int firstRow, int rowCount) {
+        ByteBuffer block = ByteBuffer.allocate(rowCount * 256).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = firstRow; i < firstRow + rowCount; ++i) {
+            byte[] status = (i % 3 == 0 ? "SHIPPED" : "PENDING").getBytes(StandardCharsets.UTF_8);
+            byte[] description = ("order " + i + " for customer " + (i % 1000)).getBytes(StandardCharsets.UTF_8);
+            int start = block.position();
+            block.putInt(0); // row length
+            block.putInt(7).putInt(TYPES.size());
+            block.put((byte) 0).put((byte) 0); // null flags
+            block.putLong(1_000_000L + i).putLong(1_600_000_000_000L).putLong(i).putLong(PARTITION_ID).putLong(0)
+                    .put((byte) ExportRow.ROW_OPERATION.INSERT.ordinal());
+            block.putLong(i).putInt(i % 1000).putDouble(i * 1.25).putLong(1_600_000_000_000_000L + i * 1000L);
+            block.putInt(status.length).put(status);
+            block.putInt(description.length).put(description);
+            block.putInt(start, block.position() - start - Integer.BYTES);
+        }
+        block.flip();
+        return block;
+    }
+
+    private static List<ExportRow> decodeRows(ByteBuffer block) throws IOException {
+        ByteBuffer buf = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        List<ExportRow> rows = new ArrayList<>();
+        while (buf.hasRemaining()) {
+            // Copy each row out of the block like GuestProcessor does
+            byte[] rowData = new byte[buf.getInt()];
+            buf.get(rowData);
+            rows.add(ExportRow.decodeRow(SCHEMA, PARTITION_ID, rowData));
+        }
+        return rows;
+    }
+
+    private static void measure(String name, List<ByteBuffer> blocks, int rowsPerBlock, int iterations,
+            BlockDecoder decoder) throws IOException {
+        // warm up so both paths are compiled before measuring
+        for (ByteBuffer block : blocks) {
+            decoder.decode(block);
+        }
+
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            for (ByteBuffer block : blocks) {
+                checksum += decoder.decode(block);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long rows = (long) blocks.size() * rowsPerBlock * iterations;
+        System.out.printf("%-18s %,12.0f rows/s (checksum %d)%n", name, rows * 1e9 / elapsed, checksum);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rowsPerBlock = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int blockCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        List<ByteBuffer> blocks = new ArrayList<>();
+        for (int i = 0; i < blockCount; ++i) {
+            blocks.add(encodeBlock(i * rowsPerBlock, rowsPerBlock));
+        }
+
+        CSVWriterDecoder.Builder fileBuilder = CSVWriterDecoder.builder();
+        fileBuilder.dateFormatter(Constants.ODBC_DATE_FORMAT_STRING).skipInternalFields(true);
+        CSVWriterDecoder fileDecoder = fileBuilder.build();
+        CountingWriter out = new CountingWriter();
+        CSVWriter csvWriter = new CSVWriter(out);
+
+        CSVStringDecoder.Builder kafkaBuilder = CSVStringDecoder.builder();
+        kafkaBuilder.dateFormatter(Constants.ODBC_DATE_FORMAT_STRING).skipInternalFields(true);
+        CSVStringDecoder kafkaDecoder = kafkaBuilder.build();
+
+        for (int round = 0; round < 3; ++round) {
+            // Decoding alone: sum an integer column and the length of a string column
+            measure("decode row", blocks, rowsPerBlock, iterations, block -> {
+                long sum = 0;
+                for (ExportRow row : decodeRows(block)) {
+                    sum += (Long) row.values[6] + ((String) row.values[11]).length();
+                }
+                return sum;
+            });
+            measure("decode batch", blocks, rowsPerBlock, iterations, block -> {
+                long sum = 0;
+                ExportRowBatch batch = new ExportRowBatch(SCHEMA, PARTITION_ID, block);
+                long[] ids = batch.getLongColumn(6);
+                for (int row = 0; row < batch.getRowCount(); ++row) {
+                    sum += ids[row] + batch.getString(row, 11).length();
+                }
+                return sum;
+            });
+            measure("file row", blocks, rowsPerBlock, iterations, block -> {
+                for (ExportRow row : decodeRows(block)) {
+                    fileDecoder.decode(row.generation, row.tableName, row.types, row.names, csvWriter, row.values);
+                }
+                return out.m_chars;
+            });
+            measure("file batch", blocks, rowsPerBlock, iterations, block -> {
+                fileDecoder.decode(new ExportRowBatch(SCHEMA, PARTITION_ID, block), csvWriter);
+                return out.m_chars;
+            });
+            measure("kafka row", blocks, rowsPerBlock, iterations, block -> {
+                long length = 0;
+                for (ExportRow row : decodeRows(block)) {
+                    String key = row.partitionValue.toString();
+                    length += key.length() + kafkaDecoder.decode(row.generation, row.tableName, row.types, row.names,
+                            null, row.values).length();
+                }
+                return length;
+            });
+            measure("kafka batch", blocks, rowsPerBlock, iterations, block -> {
+                long length = 0;
+                ExportRowBatch batch = new ExportRowBatch(SCHEMA, PARTITION_ID, block);
+                for (int row = 0; row < batch.getRowCount(); ++row) {
+                    String key = batch.getPartitionValue(row).toString();
+                    length += key.length() + kafkaDecoder.decode(batch, row).length();
+                }
+                return length;
+            });
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.exportclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.exportclient.ExportRow.ROW_OPERATION;
+import org.voltdb.exportclient.decode.CSVWriterDecoder;
+import org.voltdb.exportclient.decode.StringArrayDecoder;
+import org.voltdb.types.TimestampType;
+
+import au.com.bytecode.opencsv_voltpatches.CSVWriter;
+
+public class TestExportRowBatch extends ExportClientTestBase {
+    private static final int PARTITION_ID = 7;
+    private static final int ROW_COUNT = 20;
+
+    private ExportRow m_schema;
+    private ByteBuffer m_block;
+
+    @Before
+    public void setUp() throws IOException {
+        setup();
+        long l = System.currentTimeMillis();
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            if (i % 5 == 4) {
+                // Every user column is null
+                vtable.addRow(l + i, l, i, PARTITION_ID, 0, ROW_OPERATION.INSERT.ordinal(), null, null, null, null,
+                        null, null, null, null, null, null);
+            } else {
+                vtable.addRow(l + i, l, i, PARTITION_ID, 0, ROW_OPERATION.DELETE.ordinal(), (byte) i, (short) -i,
+                        i * 1000, l * i, i + 0.5, l * 1000 + i, "row " + i + " 十六", new BigDecimal(i * 11),
+                        GEOG_POINT, GEOG);
+            }
+        }
+        // Partition on the integer column
+        m_block = encodeBlock(vtable, 8);
+    }
+
+    private ByteBuffer encodeBlock(VoltTable table, int partitionColumn) throws IOException {
+        table.resetRowPosition();
+        ByteBuffer bb = ByteBuffer.wrap(ExportEncoder.encodeTable(table, "mytable", partitionColumn, 1L));
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        int schemaSize = bb.getInt();
+        m_schema = ExportRow.decodeBufferSchema(bb, bb.position() + schemaSize, PARTITION_ID, 1L);
+        return bb.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private ExportRow[] decodeRows() throws IOException {
+        ByteBuffer bb = m_block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ExportRow[] rows = new ExportRow[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            bb.getInt(); // row size
+            rows[i] = ExportRow.decodeRow(m_schema, PARTITION_ID, bb);
+        }
+        assertFalse(bb.hasRemaining());
+        return rows;
+    }
+
+    private static void assertValueEquals(Object expected, Object actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else if (expected instanceof byte[]) {
+            assertArrayEquals((byte[]) expected, (byte[]) actual);
+        } else {
+            // Geography types do not implement equals
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.toString(), actual.toString());
+        }
+    }
+
+    @Test
+    public void testRowsMatchDecodeRow() throws IOException {
+        ExportRow[] expected = decodeRows();
+        ExportRowBatch batch = new ExportRowBatch(m_schema, PARTITION_ID, m_block);
+        assertEquals(ROW_COUNT, batch.getRowCount());
+        assertEquals(COLUMN_NAMES.length, batch.getColumnCount());
+        assertEquals(8, batch.getPartitionColumnIndex());
+
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            ExportRow row = batch.getRow(i);
+            assertEquals(expected[i].values.length, row.values.length);
+            for (int c = 0; c < row.values.length; ++c) {
+                assertValueEquals(expected[i].values[c], row.values[c]);
+                assertEquals(expected[i].values[c] == null, batch.isNull(i, c));
+            }
+            assertEquals(expected[i].partitionValue, row.partitionValue);
+            assertEquals(expected[i].partitionColIndex, row.partitionColIndex);
+            assertEquals(expected[i].partitionId, row.partitionId);
+            // The test table stores the operation as a BIGINT so ExportRow.getOperation() cannot be used
+            assertEquals(i % 5 == 4 ? ROW_OPERATION.INSERT : ROW_OPERATION.DELETE, batch.getOperation(i));
+            assertEquals(expected[i].getSequenceNumber().longValue(), batch.getSequenceNumber(i));
+        }
+    }
+
+    @Test
+    public void testTypedColumns() throws IOException {
+        ExportRow[] expected = decodeRows();
+        ExportRowBatch batch = new ExportRowBatch(m_schema, PARTITION_ID, m_block);
+
+        long[] tinyints = batch.getLongColumn(6);
+        long[] bigints = batch.getLongColumn(9);
+        double[] floats = batch.getDoubleColumn(10);
+        long[] timestamps = batch.getLongColumn(11);
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            Object[] values = expected[i].values;
+            if (values[6] == null) {
+                assertEquals(0, tinyints[i]);
+                assertNull(batch.getString(i, 12));
+                assertNull(batch.getBytes(i, 12));
+                assertEquals(-1, batch.getValueOffset(i, 12));
+                continue;
+            }
+            assertEquals(((Byte) values[6]).longValue(), tinyints[i]);
+            assertEquals(((Short) values[7]).longValue(), batch.getLong(i, 7));
+            assertEquals(((Integer) values[8]).longValue(), batch.getLong(i, 8));
+            assertEquals(((Long) values[9]).longValue(), bigints[i]);
+            assertEquals((Double) values[10], floats[i], 0.0);
+            assertEquals(values[11], new TimestampType(timestamps[i]));
+            assertEquals(values[12], batch.getString(i, 12));
+            assertArrayEquals(((String) values[12]).getBytes("UTF-8"), batch.getBytes(i, 12));
+            assertEquals(batch.getBytes(i, 12).length, batch.getValueLength(i, 12));
+        }
+        // Columns are only decoded once
+        assertTrue(tinyints == batch.getLongColumn(6));
+    }
+
+    @Test
+    public void testNonIntegerColumn() throws IOException {
+        ExportRowBatch batch = new ExportRowBatch(m_schema, PARTITION_ID, m_block);
+        try {
+            batch.getLongColumn(10);
+            fail("FLOAT column decoded as a long");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            batch.getDoubleColumn(9);
+            fail("BIGINT column decoded as a double");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testNullPartitionValue() throws IOException {
+        ExportRowBatch batch = new ExportRowBatch(m_schema, PARTITION_ID, m_block);
+        // Rows with a null partition column fall back to the partition ID like ExportRow.decodeRow
+        assertEquals(PARTITION_ID, batch.getPartitionValue(4));
+        assertEquals(1000, batch.getPartitionValue(1));
+    }
+
+    @Test
+    public void testColumnCountMismatch() throws IOException {
+        ExportRow schema = new ExportRow(m_schema.tableName, m_schema.names.subList(0, 10),
+                m_schema.types.subList(0, 10), m_schema.lengths.subList(0, 10), new Object[] {}, null, -1,
+                PARTITION_ID, m_schema.generation);
+        try {
+            new ExportRowBatch(schema, PARTITION_ID, m_block);
+            fail("Batch created with the wrong schema");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testEmptyBlock() throws IOException {
+        ExportRowBatch batch = new ExportRowBatch(m_schema, PARTITION_ID, ByteBuffer.allocate(0));
+        assertEquals(0, batch.getRowCount());
+        assertEquals(0, batch.getLongColumn(0).length);
+    }
+
+    @Test
+    public void testStringArrayDecoder() throws IOException {
+        ExportRow[] expected = decodeRows();
+        ExportRowBatch batch = new ExportRowBatch(m_schema, PARTITION_ID, m_block);
+        for (boolean skipInternals : new boolean[] { true, false }) {
+            StringArrayDecoder.Builder builder = StringArrayDecoder.builder();
+            builder.timeZone("America/New_York").skipInternalFields(skipInternals);
+            StringArrayDecoder decoder = builder.build();
+            String[] fields = null;
+            for (int i = 0; i < ROW_COUNT; ++i) {
+                String[] rowFields = decoder.decode(m_schema.generation, m_schema.tableName, m_schema.types,
+                        m_schema.names, null, expected[i].values);
+                fields = decoder.decode(batch, i, fields);
+                assertArrayEquals(rowFields, fields);
+            }
+        }
+    }
+
+    @Test
+    public void testCSVWriterDecoder() throws IOException {
+        ExportRow[] expected = decodeRows();
+        ExportRowBatch batch = new ExportRowBatch(m_schema, PARTITION_ID, m_block);
+        CSVWriterDecoder.Builder builder = CSVWriterDecoder.builder();
+        builder.skipInternalFields(true);
+        CSVWriterDecoder decoder = builder.build();
+
+        StringWriter rowOutput = new StringWriter();
+        CSVWriter rowWriter = new CSVWriter(rowOutput);
+        for (ExportRow row : expected) {
+            decoder.decode(row.generation, row.tableName, row.types, row.names, rowWriter, row.values);
+        }
+        rowWriter.flush();
+
+        StringWriter batchOutput = new StringWriter();
+        CSVWriter batchWriter = new CSVWriter(batchOutput);
+        decoder.decode(batch, batchWriter);
+        batchWriter.flush();
+
+        assertEquals(rowOutput.toString(), batchOutput.toString());
+    }
+
+    @Test
+    public void testVarbinary() throws IOException {
+        ExportRow schema = new ExportRow("bins", Arrays.asList("tid", "bin"),
+                Arrays.asList(VoltType.BIGINT, VoltType.VARBINARY), Arrays.asList(0, 16),
+                new Object[] {}, null, -1, PARTITION_ID, 1L);
+        // ExportEncoder does not support VARBINARY so encode the rows by hand
+        ByteBuffer block = ByteBuffer.allocate(128).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] value = { 1, 2, 3 };
+        block.putInt(4 + 4 + 1 + 8 + 4 + value.length).putInt(0).putInt(2).put((byte) 0).putLong(5)
+                .putInt(value.length).put(value);
+        block.putInt(4 + 4 + 1 + 8).putInt(0).putInt(2).put((byte) 0x40).putLong(6);
+        block.flip();
+
+        ExportRowBatch batch = new ExportRowBatch(schema, PARTITION_ID, block);
+        assertEquals(2, batch.getRowCount());
+        assertArrayEquals(value, batch.getBytes(0, 1));
+        assertArrayEquals(value, (byte[]) batch.getObject(0, 1));
+        assertTrue(batch.isNull(1, 1));
+        assertEquals(6, batch.getLong(1, 0));
+        assertEquals(5L, batch.getPartitionValue(0));
+    }
+}
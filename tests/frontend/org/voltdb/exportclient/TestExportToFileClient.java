@@ -29,10 +29,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -41,7 +44,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -720,6 +728,157 @@ public class TestExportToFileClient extends ExportClientTestBase {
         assertTrue(validName);
     }
 
+    @Test
+    public void testParallelCompressedBlocks() throws Exception
+    {
+        ExportToFileClient client = new ExportToFileClient();
+        Properties props = new Properties();
+        props.put("nonce", Long.toString(System.currentTimeMillis()));
+        props.put("type", "csv");
+        props.put("outdir", m_dir);
+        props.put("period", "100s");
+        props.put("parallel", "true");
+        props.put("compression", "gzip");
+        client.configure(props);
+
+        final int rowsPerBlock = 50;
+        long l = System.currentTimeMillis();
+        for (int partition = 0; partition < 2; ++partition) {
+            final ExportToFileClient.ExportToFileDecoder decoder =
+                    client.constructExportDecoder(constructTestSource(false, partition));
+            vtable.clearRowData();
+            for (int i = 0; i < rowsPerBlock; ++i) {
+                vtable.addRow(l, l, i, partition, l, l, (byte) 1, (short) 2, 3, 4, 5.5, 6, "xx",
+                        new BigDecimal(88), GEOG_POINT, GEOG);
+            }
+            ByteBuffer bb = ByteBuffer.wrap(ExportEncoder.encodeTable(vtable, "mytable", 0, 1L));
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+            int schemaSize = bb.getInt();
+            ExportRow schemaRow = ExportRow.decodeBufferSchema(bb, bb.position() + schemaSize, partition, 0);
+            ExportRowBatch batch = new ExportRowBatch(schemaRow, partition, bb.slice());
+
+            assertTrue(decoder.isBatchDecoder());
+            decoder.onBlockStart(batch.getRow(0));
+            decoder.processBatch(batch);
+            decoder.onBlockCompletion(batch.getRow(rowsPerBlock - 1));
+        }
+        assertEquals(2 * rowsPerBlock, client.getThroughput("mytable").m_rows.sum());
+
+        // Shutting down closes and renames the file
+        client.shutdown();
+        File[] files = new File(m_dir).listFiles();
+        int index = findFileNotStartWithActive(files);
+        assertTrue(index >= 0);
+        assertTrue(files[index].getName().endsWith(".csv.gz"));
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(files[index])), Charsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        assertEquals(2 * rowsPerBlock, lines.size());
+        // Each block is written as a whole so the rows of a partition are not interleaved with other partitions
+        for (int i = 0; i < lines.size(); ++i) {
+            assertTrue(lines.get(i), lines.get(i).startsWith(String.format("\"%d\",\"%d\",\"%d\",\"%d\",", l, l,
+                    i % rowsPerBlock, i / rowsPerBlock)));
+        }
+    }
+
+    @Test
+    public void testParallelPartitionsRaceAfterRoll() throws Exception
+    {
+        ExportToFileClient client = new ExportToFileClient();
+        Properties props = new Properties();
+        props.put("nonce", Long.toString(System.currentTimeMillis()));
+        props.put("type", "csv");
+        props.put("outdir", m_dir);
+        props.put("period", "100s");
+        props.put("parallel", "true");
+        // Each roll gets its own file name
+        props.put("dateformat", "yyyyMMddHHmmssSSS");
+        client.configure(props);
+
+        final int partitions = 8;
+        final int rolls = 50;
+        final int rowsPerBlock = 10;
+        final List<ExportToFileClient.ExportToFileDecoder> decoders = new ArrayList<>();
+        final List<byte[]> blocks = new ArrayList<>();
+        long l = System.currentTimeMillis();
+        for (int partition = 0; partition < partitions; ++partition) {
+            decoders.add(client.constructExportDecoder(constructTestSource(false, partition)));
+            vtable.clearRowData();
+            for (int i = 0; i < rowsPerBlock; ++i) {
+                vtable.addRow(l, l, i, partition, l, l, (byte) 1, (short) 2, 3, 4, 5.5, 6, "xx",
+                        new BigDecimal(88), GEOG_POINT, GEOG);
+            }
+            blocks.add(ExportEncoder.encodeTable(vtable, "mytable", 0, 1L));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(partitions);
+        try {
+            for (int roll = 0; roll < rolls; ++roll) {
+                if (roll > 0) {
+                    Thread.sleep(2);
+                    client.roll();
+                }
+                // After every roll all partitions fetch the writer of the new file at the same time
+                final CyclicBarrier barrier = new CyclicBarrier(partitions);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int partition = 0; partition < partitions; ++partition) {
+                    final int p = partition;
+                    futures.add(executor.submit(() -> {
+                        ByteBuffer bb = ByteBuffer.wrap(blocks.get(p));
+                        bb.order(ByteOrder.LITTLE_ENDIAN);
+                        int schemaSize = bb.getInt();
+                        ExportRow schemaRow = ExportRow.decodeBufferSchema(bb, bb.position() + schemaSize, p, 0);
+                        ExportRowBatch batch = new ExportRowBatch(schemaRow, p, bb.slice());
+                        barrier.await();
+                        ExportToFileClient.ExportToFileDecoder decoder = decoders.get(p);
+                        decoder.onBlockStart(batch.getRow(0));
+                        decoder.processBatch(batch);
+                        decoder.onBlockCompletion(batch.getRow(rowsPerBlock - 1));
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        client.shutdown();
+
+        // Every row written by every partition is in one of the rolled files
+        int lines = 0;
+        int rolled = 0;
+        for (File file : new File(m_dir).listFiles()) {
+            assertTrue(file.getName(), !file.getName().startsWith("active"));
+            ++rolled;
+            lines += Files.readAllLines(file.toPath(), Charsets.UTF_8).size();
+        }
+        assertEquals(rolls, rolled);
+        assertEquals(partitions * rolls * rowsPerBlock, lines);
+    }
+
+    @Test
+    public void testInvalidCompression() throws Exception
+    {
+        ExportToFileClient client = new ExportToFileClient();
+        Properties props = new Properties();
+        props.put("nonce", Long.toString(System.currentTimeMillis()));
+        props.put("outdir", m_dir);
+        props.put("compression", "zip");
+        try {
+            client.configure(props);
+            fail("Invalid compression");
+        } catch (IllegalArgumentException e) {}
+    }
+
     void verifyContent(File f, long ts) throws IOException
     {
         assertEquals(String.format("\"%d\",\"%d\",\"%d\",\"0\",\"%d\",\"%d\",\"1\",\"2\",\"3\",\"4\",\"5.5\",\"1970-01-01 00:00:00.000\",\"xx\",\"88.000000000000\","
@@ -0,0 +1,201 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.exportclient.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.mockito.Mockito;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltType;
+import org.voltdb.export.AdvertisedDataSource;
+import org.voltdb.export.ExportManagerInterface;
+import org.voltdb.export.ExportManagerInterface.ExportMode;
+import org.voltdb.exportclient.ExportDecoderBase;
+import org.voltdb.exportclient.ExportRow;
+
+/**
+ * Manual benchmark comparing {@link KafkaExportClient} waiting for every block to be acknowledged before the next one
+ * is sent against keeping blocks in flight with {@code inflight.max.bytes}. Records are sent to an in-process stand-in
+ * broker which acknowledges all of the records it received once per round trip. Blocks are passed to the decoder the
+ * way {@code GuestProcessor} passes them, a block is assumed to take {@link #ROW_BYTES} per row.
+ *
+ * Usage: KafkaExportBenchmark [rowsPerBlock] [blocks] [roundTripMs] [maxInFlightBytes]
+ */
+public class KafkaExportBenchmark {
+    private static final int ROW_BYTES = 100;
+
+    private static final List<String> NAMES = Arrays.asList("VOLT_TRANSACTION_ID", "VOLT_EXPORT_TIMESTAMP",
+            "VOLT_EXPORT_SEQUENCE_NUMBER", "VOLT_PARTITION_ID", "VOLT_SITE_ID", "VOLT_EXPORT_OPERATION", "ID",
+            "DESCRIPTION");
+    private static final List<VoltType> TYPES = Arrays.asList(VoltType.BIGINT, VoltType.BIGINT, VoltType.BIGINT,
+            VoltType.BIGINT, VoltType.BIGINT, VoltType.TINYINT, VoltType.BIGINT, VoltType.STRING);
+
+    /**
+     * Producer which acknowledges every record sent before the end of each round trip
+     */
+    private static final class StandInBroker extends MockProducer<String, Object> implements Runnable {
+        private final long m_roundTripMs;
+        private long m_sent = 0;
+        private long m_acked = 0;
+        private volatile boolean m_stopped = false;
+
+        StandInBroker(long roundTripMs) {
+            super(false, new StringSerializer(), (topic, data) -> data.toString().getBytes(StandardCharsets.UTF_8));
+            m_roundTripMs = roundTripMs;
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<String, Object> record, Callback callback) {
+            ++m_sent;
+            return super.send(record, callback);
+        }
+
+        // Wait for the records which were sent to be acknowledged like KafkaProducer.flush()
+        @Override
+        public synchronized void flush() {
+            long sent = m_sent;
+            while (m_acked < sent) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!m_stopped) {
+                try {
+                    Thread.sleep(m_roundTripMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                synchronized (this) {
+                    for (long sent = m_sent; m_acked < sent; ++m_acked) {
+                        completeNext();
+                    }
+                    clear();
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private static List<List<ExportRow>> createBlocks(int rowsPerBlock, int blockCount) {
+        List<List<ExportRow>> blocks = new ArrayList<>();
+        for (int block = 0; block < blockCount; ++block) {
+            List<ExportRow> rows = new ArrayList<>();
+            for (int i = block * rowsPerBlock; i < (block + 1) * rowsPerBlock; ++i) {
+                long id = i;
+                rows.add(new ExportRow("ORDERS", NAMES, TYPES, Arrays.asList(8, 8, 8, 8, 8, 1, 8, 64),
+                        new Object[] { id, id, id, 0L, 0L, (byte) 1, id, "order " + i + " for customer " + (i % 1000) },
+                        id, 6, 0, 1L));
+            }
+            blocks.add(rows);
+        }
+        return blocks;
+    }
+
+    private static void measure(List<List<ExportRow>> blocks, long roundTripMs, long maxInFlightBytes)
+            throws Exception {
+        StandInBroker broker = new StandInBroker(roundTripMs);
+        KafkaExportClient client = new KafkaExportClient() {
+            @Override
+            Producer<String, Object> createProducer(Properties config) {
+                return broker;
+            }
+        };
+        Properties config = new Properties();
+        config.setProperty("bootstrap.servers", "localhost:9092");
+        config.setProperty("skipinternals", "true");
+        config.setProperty("inflight.max.bytes", Long.toString(maxInFlightBytes));
+        client.configure(config);
+        AdvertisedDataSource source = new AdvertisedDataSource(0, "ORDERS");
+        ExportDecoderBase decoder = client.constructExportDecoder(source);
+        Thread brokerThread = new Thread(broker, "Stand-in broker");
+        brokerThread.start();
+
+        // Blocks which have been sent and are waiting to be acknowledged with their sizes
+        ArrayDeque<Future<?>> inFlight = new ArrayDeque<>();
+        long rows = 0;
+        long start = System.nanoTime();
+        for (List<ExportRow> block : blocks) {
+            ExportRow last = block.get(block.size() - 1);
+            decoder.onBlockStart(block.get(0));
+            for (ExportRow row : block) {
+                decoder.processRow(row);
+            }
+            if (maxInFlightBytes > 0) {
+                inFlight.add(decoder.onBlockSent(last));
+                while ((long) inFlight.size() * block.size() * ROW_BYTES > maxInFlightBytes) {
+                    inFlight.poll().get();
+                }
+            } else {
+                decoder.onBlockCompletion(last);
+            }
+            rows += block.size();
+        }
+        for (Future<?> acked : inFlight) {
+            acked.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        broker.m_stopped = true;
+        brokerThread.join();
+        decoder.sourceNoLongerAdvertised(source);
+        System.out.printf("%-26s %,12.0f rows/s%n",
+                maxInFlightBytes > 0 ? "in flight " + maxInFlightBytes + " bytes" : "block at a time",
+                rows * 1e9 / elapsed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rowsPerBlock = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int blockCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long roundTripMs = args.length > 2 ? Long.parseLong(args[2]) : 2;
+        long maxInFlightBytes = args.length > 3 ? Long.parseLong(args[3]) : 8 * 1024 * 1024;
+
+        ExportManagerInterface exportManager = Mockito.mock(ExportManagerInterface.class);
+        Mockito.when(exportManager.getExportMode()).thenReturn(ExportMode.BASIC);
+        VoltDB.setExportManagerInstance(exportManager);
+
+        List<List<ExportRow>> blocks = createBlocks(rowsPerBlock, blockCount);
+        for (int round = 0; round < 3; ++round) {
+            measure(blocks, roundTripMs, 0);
+            measure(blocks, roundTripMs, maxInFlightBytes);
+        }
+    }
+}
@@ -25,15 +25,29 @@ package org.voltdb.exportclient.kafka;
 
 import static junit.framework.Assert.assertFalse;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.Test;
+import org.voltdb.VoltType;
+import org.voltdb.export.AdvertisedDataSource;
 import org.voltdb.exportclient.ExportClientTestBase;
 import org.voltdb.exportclient.ExportDecoderBase.BinaryEncoding;
+import org.voltdb.exportclient.ExportDecoderBase.RestartBlockException;
+import org.voltdb.exportclient.ExportRow;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
 
@@ -111,4 +125,108 @@ public class TestKafkaExportClient extends ExportClientTestBase {
         assertEquals(StringSerializer.class.getName(), client.m_producerConfig.getProperty(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG));
         assertEquals("fakehost2", client.m_producerConfig.getProperty(KafkaExportClient.SCHEMA_REGISTRY_URL_CONFIG));
     }
+
+    @Test
+    public void testInFlightConfig() throws Exception
+    {
+        final KafkaExportClient client = new KafkaExportClient();
+        final Properties config = new Properties();
+        config.setProperty("metadata.broker.list", "fakehost");
+        client.configure(config);
+        assertEquals(0, client.m_maxInFlightBytes);
+        assertEquals("1024", client.m_producerConfig.getProperty(ProducerConfig.BATCH_SIZE_CONFIG));
+
+        config.setProperty("inflight.max.bytes", "8388608");
+        client.configure(config);
+        assertEquals(8388608, client.m_maxInFlightBytes);
+        assertFalse(client.m_producerConfig.containsKey("inflight.max.bytes"));
+        assertEquals("65536", client.m_producerConfig.getProperty(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("5", client.m_producerConfig.getProperty(ProducerConfig.LINGER_MS_CONFIG));
+
+        config.setProperty(ProducerConfig.LINGER_MS_CONFIG, "20");
+        client.configure(config);
+        assertEquals("20", client.m_producerConfig.getProperty(ProducerConfig.LINGER_MS_CONFIG));
+
+        config.setProperty("inflight.max.bytes", "-1");
+        try {
+            client.configure(config);
+            fail("Negative inflight.max.bytes");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void testBlocksAcknowledgedBySentRecords() throws Exception
+    {
+        setup();
+        final MockProducer<String, Object> producer = new MockProducer<>(false, new StringSerializer(),
+                (topic, data) -> data.toString().getBytes(StandardCharsets.UTF_8));
+        final KafkaExportClient client = new KafkaExportClient() {
+            @Override
+            Producer<String, Object> createProducer(Properties config) {
+                return producer;
+            }
+        };
+        final Properties config = new Properties();
+        config.setProperty("metadata.broker.list", "fakehost");
+        config.setProperty("inflight.max.bytes", "1048576");
+        client.configure(config);
+
+        AdvertisedDataSource source = new AdvertisedDataSource(0, "mytable");
+        KafkaExportClient.KafkaExportDecoder decoder =
+                (KafkaExportClient.KafkaExportDecoder) client.constructExportDecoder(source);
+        try {
+            assertEquals(1048576, decoder.getMaxInFlightBytes());
+
+            // Send two blocks of 3 rows without waiting for acknowledgements
+            List<ListenableFuture<?>> blocks = new ArrayList<>();
+            for (int block = 0; block < 2; ++block) {
+                List<ExportRow> rows = new ArrayList<>();
+                for (int i = 0; i < 3; ++i) {
+                    rows.add(createRow(block * 3 + i));
+                }
+                decoder.onBlockStart(rows.get(0));
+                for (ExportRow row : rows) {
+                    decoder.processRow(row);
+                }
+                blocks.add(decoder.onBlockSent(rows.get(rows.size() - 1)));
+            }
+            assertEquals(6, producer.history().size());
+            assertFalse(blocks.get(0).isDone());
+
+            // The first block is acknowledged once all of its records are
+            assertTrue(producer.completeNext());
+            assertTrue(producer.completeNext());
+            assertFalse(blocks.get(0).isDone());
+            assertTrue(producer.completeNext());
+            assertTrue(blocks.get(0).isDone());
+            blocks.get(0).get();
+            assertFalse(blocks.get(1).isDone());
+
+            // A failed record fails its block
+            assertTrue(producer.errorNext(new RuntimeException("Broker unavailable")));
+            assertTrue(blocks.get(1).isDone());
+            try {
+                blocks.get(1).get();
+                fail("Block with failed record acknowledged");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RestartBlockException);
+                assertTrue(((RestartBlockException) e.getCause()).requestBackoff);
+            }
+
+            // An empty block is acknowledged as soon as it is sent
+            decoder.onBlockStart(createRow(6));
+            assertTrue(decoder.onBlockSent(createRow(6)).isDone());
+        } finally {
+            decoder.sourceNoLongerAdvertised(source);
+        }
+    }
+
+    private static ExportRow createRow(long id) {
+        List<String> names = Arrays.asList("VOLT_TRANSACTION_ID", "VOLT_EXPORT_TIMESTAMP",
+                "VOLT_EXPORT_SEQUENCE_NUMBER", "VOLT_PARTITION_ID", "VOLT_SITE_ID", "VOLT_EXPORT_OPERATION", "ID");
+        List<VoltType> types = Arrays.asList(VoltType.BIGINT, VoltType.BIGINT, VoltType.BIGINT, VoltType.BIGINT,
+                VoltType.BIGINT, VoltType.TINYINT, VoltType.BIGINT);
+        return new ExportRow("mytable", names, types, Arrays.asList(8, 8, 8, 8, 8, 1, 8),
+                new Object[] { id, id, id, 0L, 0L, (byte) 1, id }, id, 6, 0, 1L);
+    }
 }
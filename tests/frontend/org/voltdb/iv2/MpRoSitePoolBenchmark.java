@@ -0,0 +1,132 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram_voltpatches.Histogram;
+
+/**
+ * Manual benchmark of bursty concurrent MP reads against a fixed size read pool and one sized by
+ * {@link MpRoPoolSizer}. The dispatch loop mirrors {@link MpTransactionTaskQueue}: reads are queued in a backlog
+ * and handed to a site while the pool has capacity. Each read holds its site for a fixed time, modelling an MP read
+ * waiting on fragment responses from the partitions.
+ *
+ * Usage: MpRoSitePoolBenchmark [bursts] [readsPerBurst] [readMillis] [idleMillis] [fixedSize] [maxSize]
+ */
+public class MpRoSitePoolBenchmark {
+
+    private final MpRoPoolSizer m_sizer;
+    private final ExecutorService m_sites = Executors.newCachedThreadPool();
+    private final long m_readNanos;
+    private final Deque<Long> m_backlog = new ArrayDeque<>();
+    private final Histogram m_waits = new Histogram(TimeUnit.HOURS.toMicros(1), 2);
+    private int m_busy;
+    private int m_lowestLimit;
+    private int m_peakLimit;
+
+    private MpRoSitePoolBenchmark(MpRoPoolSizer sizer, long readNanos) {
+        m_sizer = sizer;
+        m_readNanos = readNanos;
+        m_lowestLimit = m_peakLimit = sizer.limit();
+    }
+
+    synchronized void offer() {
+        m_backlog.addLast(System.nanoTime());
+        dispatch();
+    }
+
+    synchronized void complete() {
+        --m_busy;
+        m_sizer.maybeShrink(m_busy, System.nanoTime());
+        dispatch();
+        notifyAll();
+    }
+
+    private void dispatch() {
+        long now = System.nanoTime();
+        while (!m_backlog.isEmpty()
+                && (m_busy < m_sizer.limit() || m_sizer.saturated(now - m_backlog.peekFirst(), now))) {
+            m_waits.recordValue(TimeUnit.NANOSECONDS.toMicros(now - m_backlog.pollFirst()));
+            ++m_busy;
+            m_sizer.maybeShrink(m_busy, now);
+            m_lowestLimit = Math.min(m_lowestLimit, m_sizer.limit());
+            m_peakLimit = Math.max(m_peakLimit, m_sizer.limit());
+            m_sites.execute(() -> {
+                LockSupport.parkNanos(m_readNanos);
+                complete();
+            });
+        }
+    }
+
+    synchronized void awaitIdle() throws InterruptedException {
+        while (m_busy > 0 || !m_backlog.isEmpty()) {
+            wait();
+        }
+    }
+
+    private void run(String name, int bursts, int readsPerBurst, long idleMillis) throws InterruptedException {
+        long busyNanos = 0;
+        for (int b = 0; b < bursts; b++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < readsPerBurst; i++) {
+                offer();
+            }
+            awaitIdle();
+            busyNanos += System.nanoTime() - start;
+            Thread.sleep(idleMillis);
+        }
+        m_sites.shutdown();
+        System.out.printf("%-9s reads/s during bursts %8.0f  wait p50 %7.2fms  p99 %7.2fms  max %7.2fms"
+                + "  limit %d to %d%n",
+                name, bursts * readsPerBurst / (busyNanos / 1e9),
+                m_waits.getValueAtPercentile(50) / 1000.0, m_waits.getValueAtPercentile(99) / 1000.0,
+                m_waits.getMaxValue() / 1000.0, m_lowestLimit, m_peakLimit);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int bursts = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int readsPerBurst = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long readNanos = TimeUnit.MILLISECONDS.toNanos(args.length > 2 ? Long.parseLong(args[2]) : 5);
+        long idleMillis = args.length > 3 ? Long.parseLong(args[3]) : 500;
+        int fixedSize = args.length > 4 ? Integer.parseInt(args[4]) : MpRoSitePool.DEFAULT_POOL_SIZE;
+        int maxSize = args.length > 5 ? Integer.parseInt(args[5]) : Math.max(fixedSize * 2, MpRoSitePool.MAX_POOL_SIZE);
+
+        // Shrink within the idle time between bursts so that every burst starts from a small pool
+        long shrinkNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis) / 4;
+        for (int round = 0; round < 2; round++) {
+            System.out.println("Round " + (round + 1));
+            new MpRoSitePoolBenchmark(new MpRoPoolSizer(fixedSize, fixedSize, fixedSize, 0, 0, 0, 1, () -> 0,
+                    System.nanoTime()), readNanos).run("fixed", bursts, readsPerBurst, idleMillis);
+            new MpRoSitePoolBenchmark(new MpRoPoolSizer(fixedSize, 1, maxSize, MpRoSitePool.GROW_WAIT_NANOS,
+                    MpRoSitePool.GROW_INTERVAL_NANOS, shrinkNanos, MpRoSitePool.MAX_LOAD_PER_CPU,
+                    () -> -1, System.nanoTime()), readNanos).run("adaptive", bursts, readsPerBurst, idleMillis);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteTasker.SiteTaskerRunnable;
+
+/**
+ * Manual micro-benchmark comparing the classic one-task-per-take() site loop with
+ * the batched drain mode of {@link SiteTaskerQueue#takeBatch(List, int)}.
+ * Several producer threads offer empty tasks while a single consumer thread plays
+ * the role of the site.
+ *
+ * Usage: SiteTaskerQueueBenchmark [producers] [tasksPerProducer] [batchSize...]
+ */
+public class SiteTaskerQueueBenchmark {
+
+    private static final class NoopTask extends SiteTaskerRunnable {
+        @Override
+        void run() {
+        }
+    }
+
+    private static SiteTaskerQueue newQueue() {
+        SiteTaskerQueue queue = new SiteTaskerQueue(0);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        return queue;
+    }
+
+    /**
+     * @return elapsed nanoseconds to drain producers * tasksPerProducer tasks
+     */
+    private static long runOnce(int producers, final int tasksPerProducer, int batchSize)
+            throws InterruptedException {
+        final SiteTaskerQueue queue = newQueue();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < tasksPerProducer; i++) {
+                        // Tasks carry their offer time, so each offer needs its own instance
+                        queue.offer(new NoopTask());
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        final long total = (long) producers * tasksPerProducer;
+        List<SiteTasker> batch = new ArrayList<>(batchSize);
+        long begin = System.nanoTime();
+        start.countDown();
+        long consumed = 0;
+        if (batchSize <= 1) {
+            while (consumed < total) {
+                queue.take().run(null);
+                consumed++;
+            }
+        } else {
+            while (consumed < total) {
+                consumed += queue.takeBatch(batch, batchSize);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).run(null);
+                }
+                batch.clear();
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        for (Thread t : threads) {
+            t.join();
+        }
+        return elapsed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int tasksPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        List<Integer> batchSizes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            batchSizes.add(Integer.parseInt(args[i]));
+        }
+        if (batchSizes.isEmpty()) {
+            batchSizes.add(1);
+            batchSizes.add(8);
+            batchSizes.add(32);
+            batchSizes.add(128);
+        }
+
+        // Warm up every code path before measuring
+        for (int batchSize : batchSizes) {
+            runOnce(producers, tasksPerProducer / 10, batchSize);
+        }
+
+        final long total = (long) producers * tasksPerProducer;
+        for (int batchSize : batchSizes) {
+            long elapsed = runOnce(producers, tasksPerProducer, batchSize);
+            System.out.printf("batch=%-5d producers=%d tasks=%d elapsed=%.1fms throughput=%.0f tasks/s%n",
+                    batchSize, producers, total, elapsed / 1e6, total * 1e9 / elapsed);
+        }
+    }
+}
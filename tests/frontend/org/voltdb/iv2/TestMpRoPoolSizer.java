@@ -0,0 +1,138 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestMpRoPoolSizer {
+
+    private static final long GROW_WAIT = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long GROW_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SHRINK_INTERVAL = TimeUnit.SECONDS.toNanos(60);
+
+    private double m_load = 0.0;
+
+    private MpRoPoolSizer newSizer(int initial, int min, int max) {
+        return new MpRoPoolSizer(initial, min, max, GROW_WAIT, GROW_INTERVAL, SHRINK_INTERVAL, 0.8, () -> m_load, 0);
+    }
+
+    @Test
+    public void testGrowsOnlyAfterWaitThreshold() {
+        MpRoPoolSizer sizer = newSizer(2, 1, 4);
+        assertFalse(sizer.saturated(GROW_WAIT - 1, 0));
+        assertEquals(2, sizer.limit());
+        assertTrue(sizer.saturated(GROW_WAIT, 0));
+        assertEquals(3, sizer.limit());
+    }
+
+    @Test
+    public void testGrowthIsRateLimitedAndCapped() {
+        MpRoPoolSizer sizer = newSizer(2, 1, 4);
+        assertTrue(sizer.saturated(GROW_WAIT, 0));
+        assertFalse(sizer.saturated(GROW_WAIT, GROW_INTERVAL - 1));
+        assertTrue(sizer.saturated(GROW_WAIT, GROW_INTERVAL));
+        assertEquals(4, sizer.limit());
+        assertFalse(sizer.saturated(GROW_WAIT, GROW_INTERVAL * 10));
+        assertEquals(4, sizer.limit());
+    }
+
+    @Test
+    public void testDoesNotGrowWithoutCpuHeadroom() {
+        MpRoPoolSizer sizer = newSizer(2, 1, 4);
+        m_load = 0.9;
+        assertFalse(sizer.saturated(GROW_WAIT * 10, 0));
+        assertEquals(2, sizer.limit());
+        // Unknown load does not prevent growth
+        m_load = -1;
+        assertTrue(sizer.saturated(GROW_WAIT * 10, 0));
+    }
+
+    @Test
+    public void testShrinksAfterQuietInterval() {
+        MpRoPoolSizer sizer = newSizer(3, 1, 4);
+        assertFalse(sizer.maybeShrink(0, SHRINK_INTERVAL - 1));
+        assertTrue(sizer.maybeShrink(0, SHRINK_INTERVAL));
+        assertEquals(2, sizer.limit());
+        // Only one step per interval
+        assertFalse(sizer.maybeShrink(0, SHRINK_INTERVAL + 1));
+        assertTrue(sizer.maybeShrink(0, SHRINK_INTERVAL * 2));
+        assertEquals(1, sizer.limit());
+        // Never below the minimum
+        assertFalse(sizer.maybeShrink(0, SHRINK_INTERVAL * 3));
+        assertEquals(1, sizer.limit());
+    }
+
+    @Test
+    public void testShrinksByQuietIntervalsAfterIdle() {
+        MpRoPoolSizer sizer = newSizer(4, 1, 4);
+        // Idle for two intervals then a read is dispatched
+        assertTrue(sizer.maybeShrink(1, SHRINK_INTERVAL * 2));
+        assertEquals(2, sizer.limit());
+        // Never below the number of busy sites
+        sizer = newSizer(4, 1, 4);
+        assertTrue(sizer.maybeShrink(3, SHRINK_INTERVAL * 10));
+        assertEquals(3, sizer.limit());
+    }
+
+    @Test
+    public void testDoesNotShrinkWhileReadsWait() {
+        MpRoPoolSizer sizer = newSizer(3, 1, 4);
+        sizer.saturated(0, SHRINK_INTERVAL / 2);
+        assertFalse(sizer.maybeShrink(0, SHRINK_INTERVAL));
+        assertEquals(3, sizer.limit());
+        assertTrue(sizer.maybeShrink(0, SHRINK_INTERVAL * 3 / 2));
+        assertEquals(2, sizer.limit());
+    }
+
+    @Test
+    public void testRestoresInitialLimitWhenReadsWait() {
+        MpRoPoolSizer sizer = newSizer(3, 1, 4);
+        // Idle for long enough to shrink to the minimum
+        assertTrue(sizer.maybeShrink(1, SHRINK_INTERVAL * 10));
+        assertEquals(1, sizer.limit());
+        // The first read which waits restores the initial limit at once, whatever the wait and load
+        m_load = 0.9;
+        assertTrue(sizer.saturated(0, SHRINK_INTERVAL * 10 + 1));
+        assertEquals(3, sizer.limit());
+        // Growing past it still needs a long wait and spare CPU
+        assertFalse(sizer.saturated(GROW_WAIT * 10, SHRINK_INTERVAL * 11));
+        m_load = 0.0;
+        assertTrue(sizer.saturated(GROW_WAIT * 10, SHRINK_INTERVAL * 11));
+        assertEquals(4, sizer.limit());
+    }
+
+    @Test
+    public void testFixedSizeNeverChanges() {
+        MpRoPoolSizer sizer = newSizer(3, 3, 3);
+        assertFalse(sizer.saturated(GROW_WAIT * 100, 0));
+        assertFalse(sizer.maybeShrink(0, SHRINK_INTERVAL * 10));
+        assertEquals(3, sizer.limit());
+    }
+}
@@ -25,6 +25,7 @@ package org.voltdb.iv2;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -106,6 +107,29 @@ public class TestMpTransactionTaskQueue extends TestCase
 
     }
 
+    // A saturated pool may grow to take a waiting read, the wait of every read is recorded
+    @Test
+    public void testSaturatedPoolGrows()
+    {
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        when(m_MPpool.canAcceptWork()).thenReturn(false);
+        txnId = txnId.makeNext();
+        long waiting = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(waiting, true));
+        verify(m_MPpool).saturated(anyLong());
+        verify(m_MPpool, never()).doWork(eq(waiting), any(TransactionTask.class));
+
+        // The pool grows on the next attempt to dispatch
+        when(m_MPpool.saturated(anyLong())).thenReturn(true).thenReturn(false);
+        txnId = txnId.makeNext();
+        long next = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(next, true));
+        verify(m_MPpool).doWork(eq(waiting), any(TransactionTask.class));
+        verify(m_MPpool, never()).doWork(eq(next), any(TransactionTask.class));
+        verify(m_MPpool).recordQueueWait(anyString(), anyLong());
+        assertEquals(1, m_dut.size());
+    }
+
     // Single write completes before any more reads are executed but after pending reads finish
     @Test
     public void testReadWriteBlocking()
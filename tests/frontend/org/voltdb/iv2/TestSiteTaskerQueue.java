@@ -0,0 +1,138 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteTasker.SiteTaskerRunnable;
+
+import junit.framework.TestCase;
+
+public class TestSiteTaskerQueue extends TestCase {
+
+    private static class CountingTask extends SiteTaskerRunnable {
+        final int m_id;
+        CountingTask(int id) {
+            m_id = id;
+        }
+        @Override
+        void run() {
+        }
+    }
+
+    private static SiteTaskerQueue getSiteTaskerQueue() {
+        SiteTaskerQueue queue = new SiteTaskerQueue(0);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        return queue;
+    }
+
+    @Test
+    public void testTakeBatchIsBoundedAndOrdered() throws InterruptedException {
+        SiteTaskerQueue queue = getSiteTaskerQueue();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new CountingTask(i));
+        }
+
+        List<SiteTasker> batch = new ArrayList<>();
+        assertEquals(3, queue.takeBatch(batch, 3));
+        assertEquals(3, batch.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, ((CountingTask) batch.get(i)).m_id);
+        }
+        assertEquals(2, queue.size());
+
+        batch.clear();
+        assertEquals(2, queue.takeBatch(batch, 3));
+        assertEquals(3, ((CountingTask) batch.get(0)).m_id);
+        assertEquals(4, ((CountingTask) batch.get(1)).m_id);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testTakeBatchBlocksUntilTaskArrives() throws Exception {
+        final SiteTaskerQueue queue = getSiteTaskerQueue();
+        final List<SiteTasker> batch = new ArrayList<>();
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.takeBatch(batch, 16);
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(50);
+        assertTrue(batch.isEmpty());
+        queue.offer(new CountingTask(42));
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        assertEquals(1, batch.size());
+        assertEquals(42, ((CountingTask) batch.get(0)).m_id);
+    }
+
+    private static int id(SiteTasker task) {
+        return ((CountingTask) task).m_id;
+    }
+
+    @Test
+    public void testRunBatchReturnsTasksAfterStateChange() throws InterruptedException {
+        SiteTaskerQueue queue = getSiteTaskerQueue();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new CountingTask(i));
+        }
+
+        final boolean[] running = { true };
+        final List<Integer> ran = new ArrayList<>();
+        List<SiteTasker> batch = new ArrayList<>();
+        // Running the second task takes the site out of the running state, like the start of a rejoin
+        queue.runBatch(batch, 8, () -> running[0], task -> {
+            ran.add(id(task));
+            if (id(task) == 1) {
+                running[0] = false;
+            }
+        });
+        assertEquals(Arrays.asList(0, 1), ran);
+        assertTrue(batch.isEmpty());
+        assertEquals(3, queue.size());
+
+        // The tasks which were not run are at the head of the queue for the replay and rejoin paths
+        queue.offer(new CountingTask(5));
+        assertEquals(2, id(queue.peek()));
+        assertEquals(2, id(queue.poll()));
+        assertEquals(3, id(queue.take()));
+
+        // Back in the running state the rest of the tasks run in queue order
+        running[0] = true;
+        while (!queue.isEmpty()) {
+            queue.runBatch(batch, 8, () -> running[0], task -> ran.add(id(task)));
+        }
+        assertEquals(Arrays.asList(0, 1, 4, 5), ran);
+    }
+}
@@ -30,6 +30,11 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 import org.voltdb.StarvationTracker;
@@ -639,4 +644,105 @@ public class TestTransactionTaskQueue extends TestCase
 
         verify();
     }
+
+    // Sites offer and execute back to back MP writes from their own threads, so the
+    // scoreboards of different sites are matched and released concurrently
+    @Test
+    public void testConcurrentMultiSiteOffers() throws Exception {
+        final int sites = 8;
+        final int rounds = 2000;
+        TransactionTaskQueue.resetScoreboards(0, sites);
+        final List<SiteTaskerQueue> siteQueues = new ArrayList<>();
+        final List<TransactionTaskQueue> txnQueues = new ArrayList<>();
+        for (int i = 0; i < sites; i++) {
+            SiteTaskerQueue siteQueue = getSiteTaskerQueue();
+            TransactionTaskQueue txnQueue = new TransactionTaskQueue(siteQueue, true);
+            txnQueue.initializeScoreboard(i);
+            siteQueues.add(siteQueue);
+            txnQueues.add(txnQueue);
+        }
+
+        InitiatorMailbox mbox = mock(InitiatorMailbox.class);
+        when(mbox.getHSId()).thenReturn(1337l);
+        final FragmentTask[][] frags = new FragmentTask[sites][rounds];
+        TxnEgo mpEgo = m_mpTxnEgo;
+        TxnEgo[] localEgo = new TxnEgo[sites];
+        for (int i = 0; i < sites; i++) {
+            localEgo[i] = TxnEgo.makeZero(i);
+        }
+        for (int r = 0; r < rounds; r++) {
+            mpEgo = mpEgo.makeNext();
+            FragmentTaskMessage msg = new FragmentTaskMessage(0, 0, mpEgo.getTxnId(), 0,
+                    false, false, false, false, CompleteTransactionMessage.INITIAL_TIMESTAMP);
+            for (int i = 0; i < sites; i++) {
+                localEgo[i] = localEgo[i].makeNext();
+                ParticipantTransactionState pts = new ParticipantTransactionState(localEgo[i].getTxnId(), msg);
+                frags[i][r] = new FragmentTask(mbox, pts, txnQueues.get(i), msg, null);
+            }
+        }
+
+        final ConcurrentHashMap<Long, AtomicInteger> releases = new ConcurrentHashMap<>();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < sites; i++) {
+            final int site = i;
+            // Offers every fragment of this site while the executor below is completing
+            // and flushing earlier transactions on the same queue
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int r = 0; r < rounds; r++) {
+                        txnQueues.get(site).offer(frags[site][r]);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "Offer-" + site));
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int r = 0; r < rounds; r++) {
+                        TransactionTask released = (TransactionTask) siteQueues.get(site).take();
+                        assertSame("Site " + site + " round " + r, frags[site][r], released);
+                        releases.computeIfAbsent(released.getTxnId(), k -> new AtomicInteger()).incrementAndGet();
+                        released.getTransactionState().setDone();
+                        txnQueues.get(site).flush(released.getTxnId());
+                    }
+                } catch (InterruptedException e) {
+                    failure.compareAndSet(null, new AssertionError("Site " + site + " timed out waiting for a release"));
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "Execute-" + site));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+        for (Thread t : threads) {
+            t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (t.isAlive()) {
+                for (Thread other : threads) {
+                    other.interrupt();
+                }
+                t.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        assertEquals(rounds, releases.size());
+        for (int r = 0; r < rounds; r++) {
+            AtomicInteger count = releases.get(frags[0][r].getTxnId());
+            assertNotNull(count);
+            assertEquals(sites, count.get());
+        }
+        for (int i = 0; i < sites; i++) {
+            assertTrue(siteQueues.get(i).isEmpty());
+            assertEquals(0, txnQueues.get(i).size());
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.voltdb.StarvationTracker;
+import org.voltdb.messaging.CompleteTransactionMessage;
+import org.voltdb.messaging.FragmentTaskMessage;
+
+/**
+ * Manual benchmark driving the MP write scoreboard from N concurrent sites. Every site
+ * thread offers the fragment of the current MP transaction to its own
+ * {@link TransactionTaskQueue}, waits for the scoreboard to release it to its
+ * {@link SiteTaskerQueue}, then completes the transaction and flushes the backlog,
+ * like a site executing back to back MP writes.
+ *
+ * Usage: TransactionTaskQueueContentionBenchmark [sites] [rounds]
+ */
+public class TransactionTaskQueueContentionBenchmark {
+
+    private static SiteTaskerQueue getSiteTaskerQueue(int partitionId) {
+        SiteTaskerQueue queue = new SiteTaskerQueue(partitionId);
+        queue.setStarvationTracker(new StarvationTracker(partitionId));
+        queue.setupQueueDepthTracker(partitionId);
+        return queue;
+    }
+
+    private static long runOnce(final int sites, final int rounds) throws Exception {
+        TransactionTaskQueue.resetScoreboards(0, sites);
+        final List<SiteTaskerQueue> siteQueues = new ArrayList<>();
+        final List<TransactionTaskQueue> txnQueues = new ArrayList<>();
+        for (int i = 0; i < sites; i++) {
+            SiteTaskerQueue siteQueue = getSiteTaskerQueue(i);
+            TransactionTaskQueue txnQueue = new TransactionTaskQueue(siteQueue, true);
+            txnQueue.initializeScoreboard(i);
+            siteQueues.add(siteQueue);
+            txnQueues.add(txnQueue);
+        }
+
+        // Build every task up front so task creation is not measured
+        InitiatorMailbox mbox = mock(InitiatorMailbox.class);
+        when(mbox.getHSId()).thenReturn(1337L);
+        final FragmentTask[][] frags = new FragmentTask[sites][rounds];
+        TxnEgo mpEgo = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        TxnEgo[] localEgo = new TxnEgo[sites];
+        for (int i = 0; i < sites; i++) {
+            localEgo[i] = TxnEgo.makeZero(i);
+        }
+        for (int r = 0; r < rounds; r++) {
+            mpEgo = mpEgo.makeNext();
+            // Real messages, the scoreboard reads the txnId and timestamp on every match
+            FragmentTaskMessage msg = new FragmentTaskMessage(0, 0, mpEgo.getTxnId(), 0,
+                    false, false, false, false, CompleteTransactionMessage.INITIAL_TIMESTAMP);
+            for (int i = 0; i < sites; i++) {
+                localEgo[i] = localEgo[i].makeNext();
+                ParticipantTransactionState pts = new ParticipantTransactionState(localEgo[i].getTxnId(), msg);
+                frags[i][r] = new FragmentTask(mbox, pts, txnQueues.get(i), msg, null);
+            }
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < sites; i++) {
+            final int site = i;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        TransactionTaskQueue txnQueue = txnQueues.get(site);
+                        SiteTaskerQueue siteQueue = siteQueues.get(site);
+                        for (int r = 0; r < rounds; r++) {
+                            FragmentTask frag = frags[site][r];
+                            txnQueue.offer(frag);
+                            TransactionTask released = (TransactionTask) siteQueue.take();
+                            assert(released == frag);
+                            released.getTransactionState().setDone();
+                            txnQueue.flush(released.getTxnId());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxSites = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        runOnce(Math.min(4, maxSites), rounds / 10);
+        for (int sites = 1; sites <= maxSites; sites *= 2) {
+            long elapsed = runOnce(sites, rounds);
+            System.out.printf("sites=%-3d rounds=%d elapsed=%.1fms mp-fragments/s=%.0f avg-round=%.2fus%n",
+                    sites, rounds, elapsed / 1e6, rounds * 1e9 / elapsed, elapsed / 1e3 / rounds);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jdbc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * Manual benchmark of {@link JDBC4Statement#executeBatch()} with statements executed one at a time (a batch window
+ * of 1, which is how batches used to be executed) and pipelined with a larger window. The client connection is
+ * simulated and responds to each statement after a fixed round trip time, so the numbers show the effect of the
+ * round trips and not server execution time.
+ *
+ * Usage: JDBCBatchBenchmark [roundTripMicros] [window] [maxBatchSize]
+ */
+public class JDBCBatchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long roundTripMicros = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : JDBC4Connection.DEFAULT_BATCH_WINDOW;
+        int maxBatchSize = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        ScheduledExecutorService server = Executors.newScheduledThreadPool(4);
+        JDBC4ClientConnection client = mock(JDBC4ClientConnection.class, withSettings().stubOnly());
+        VoltTable updated = new VoltTable(new VoltTable.ColumnInfo("modified_tuples", VoltType.BIGINT));
+        updated.addRow(1L);
+        ClientResponse response = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { updated }, null);
+        doAnswer(invocation -> {
+            ProcedureCallback callback = invocation.getArgument(0);
+            server.schedule(() -> {
+                callback.clientCallback(response);
+                return null;
+            }, roundTripMicros, TimeUnit.MICROSECONDS);
+            return true;
+        }).when(client).executeAsync(any(ProcedureCallback.class), anyLong(), any(TimeUnit.class), anyString(), any());
+
+        System.out.printf("Round trip %dus, pipelined window %d%n", roundTripMicros, window);
+        System.out.printf("%10s %18s %18s %8s%n", "batch", "window 1 stmt/s", "pipelined stmt/s", "speedup");
+        try {
+            // Warm up
+            run(client, 1, 100, roundTripMicros);
+            run(client, window, 1000, roundTripMicros);
+            for (int batchSize = 1; batchSize <= maxBatchSize; batchSize *= 10) {
+                double sequential = run(client, 1, batchSize, roundTripMicros);
+                double pipelined = run(client, window, batchSize, roundTripMicros);
+                System.out.printf("%10d %18.0f %18.0f %7.1fx%n", batchSize, sequential, pipelined,
+                        pipelined / sequential);
+            }
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    // Returns statements per second, running enough batches to cover at least a second of simulated round trips
+    private static double run(JDBC4ClientConnection client, int window, int batchSize, long roundTripMicros)
+            throws Exception {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.BATCH_WINDOW, Integer.toString(window));
+        Statement stmt = new JDBC4Connection(client, props).createStatement();
+        int batches = (int) Math.max(1, Math.min(1000, TimeUnit.SECONDS.toMicros(1) / (roundTripMicros * batchSize)));
+
+        long start = System.nanoTime();
+        for (int b = 0; b < batches; ++b) {
+            for (int i = 0; i < batchSize; ++i) {
+                stmt.addBatch("insert into t values (" + i + ")");
+            }
+            stmt.executeBatch();
+        }
+        long elapsed = System.nanoTime() - start;
+        return (double) batches * batchSize / (elapsed / 1_000_000_000D);
+    }
+}
@@ -0,0 +1,246 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+
+public class TestJDBC4CursorResultSet {
+    private static final long CURSOR_ID = 42;
+
+    private JDBC4ClientConnection m_client;
+    // Procedure name and parameters of each call made to the mock server
+    private final List<Object[]> m_calls = new ArrayList<>();
+    private int m_totalRows;
+    private int m_fetchSize;
+    private int m_nextRow;
+    private int m_maxChunkRows;
+
+    @Before
+    public void setUp() throws Exception {
+        m_client = mock(JDBC4ClientConnection.class);
+        // Mock server which holds the rows of a single cursor
+        doAnswer(invocation -> {
+            String procedure = invocation.getArgument(0);
+            Object[] params = Arrays.copyOfRange(invocation.getArguments(), 3, invocation.getArguments().length);
+            m_calls.add(new Object[] { procedure, params });
+            switch (procedure) {
+            case "@AdHocCursorOpen":
+                m_fetchSize = (Integer) params[0];
+                m_nextRow = 0;
+                return chunk();
+            case "@AdHocCursorFetch":
+                assertEquals(CURSOR_ID, params[0]);
+                return chunk();
+            case "@AdHocCursorClose":
+                assertEquals(CURSOR_ID, params[0]);
+                m_nextRow = m_totalRows;
+                return response(new VoltTable(new VoltTable.ColumnInfo("", VoltType.BIGINT)));
+            case "@AdHoc":
+                VoltTable all = rows(0, m_totalRows);
+                return response(all);
+            default:
+                throw new IllegalArgumentException(procedure);
+            }
+        }).when(m_client).execute(anyString(), anyLong(), any(TimeUnit.class), any());
+    }
+
+    private ClientResponse chunk() {
+        if (m_nextRow >= m_totalRows) {
+            fail("Fetch past the end of the cursor");
+        }
+        int end = Math.min(m_totalRows, m_nextRow + m_fetchSize);
+        VoltTable rows = rows(m_nextRow, end);
+        m_maxChunkRows = Math.max(m_maxChunkRows, rows.getRowCount());
+        m_nextRow = end;
+        VoltTable state = new VoltTable(new VoltTable.ColumnInfo("CURSOR_ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("REMAINING_ROWS", VoltType.BIGINT));
+        state.addRow(end == m_totalRows ? JDBC4CursorResultSet.NO_CURSOR : CURSOR_ID, m_totalRows - end);
+        return response(rows, state);
+    }
+
+    private static VoltTable rows(int start, int end) {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("ID", VoltType.INTEGER));
+        for (int i = start; i < end; ++i) {
+            table.addRow(i);
+        }
+        return table;
+    }
+
+    private static ClientResponse response(VoltTable... tables) {
+        ClientResponse response = mock(ClientResponse.class);
+        when(response.getStatus()).thenReturn(ClientResponse.SUCCESS);
+        when(response.getResults()).thenReturn(tables);
+        return response;
+    }
+
+    private long callCount(String procedure) {
+        return m_calls.stream().filter(c -> procedure.equals(c[0])).count();
+    }
+
+    private Statement createStatement(boolean cursorFetch) throws SQLException {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.CURSOR_FETCH, Boolean.toString(cursorFetch));
+        return new JDBC4Connection(m_client, props).createStatement();
+    }
+
+    @Test
+    public void testStreamsInFetchSizeChunks() throws Exception {
+        m_totalRows = 1005;
+        Statement stmt = createStatement(true);
+        stmt.setFetchSize(100);
+        ResultSet rs = stmt.executeQuery("select id from t order by id");
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, rs.getType());
+        assertTrue(rs.isBeforeFirst());
+        int expected = 0;
+        while (rs.next()) {
+            assertEquals(expected, rs.getInt(1));
+            assertEquals(expected + 1, rs.getRow());
+            assertEquals(expected == 0, rs.isFirst());
+            assertEquals(expected == m_totalRows - 1, rs.isLast());
+            ++expected;
+        }
+        assertEquals(m_totalRows, expected);
+        assertTrue(rs.isAfterLast());
+        assertFalse(rs.next());
+        assertEquals(100, m_maxChunkRows);
+        assertEquals(1, callCount("@AdHocCursorOpen"));
+        assertEquals(10, callCount("@AdHocCursorFetch"));
+
+        // The server released the cursor with the last chunk
+        rs.close();
+        assertEquals(0, callCount("@AdHocCursorClose"));
+    }
+
+    @Test
+    public void testCloseReleasesCursor() throws Exception {
+        m_totalRows = 1000;
+        Statement stmt = createStatement(true);
+        stmt.setFetchSize(10);
+        ResultSet rs = stmt.executeQuery("select id from t order by id");
+        for (int i = 0; i < 15; ++i) {
+            assertTrue(rs.next());
+        }
+        stmt.close();
+        assertTrue(rs.isClosed());
+        assertEquals(1, callCount("@AdHocCursorClose"));
+    }
+
+    @Test
+    public void testMaxRowsClosesCursor() throws Exception {
+        m_totalRows = 1000;
+        Statement stmt = createStatement(true);
+        stmt.setFetchSize(10);
+        stmt.setMaxRows(25);
+        ResultSet rs = stmt.executeQuery("select id from t order by id");
+        int count = 0;
+        while (rs.next()) {
+            ++count;
+        }
+        assertEquals(25, count);
+        assertEquals(1, callCount("@AdHocCursorClose"));
+        assertEquals(2, callCount("@AdHocCursorFetch"));
+    }
+
+    @Test
+    public void testCursorIsForwardOnly() throws Exception {
+        m_totalRows = 100;
+        Statement stmt = createStatement(true);
+        stmt.setFetchSize(10);
+        ResultSet rs = stmt.executeQuery("select id from t order by id");
+        assertTrue(rs.next());
+        try {
+            rs.previous();
+            fail("Cursor result sets should not scroll");
+        } catch (SQLException expected) {
+        }
+        try {
+            rs.absolute(50);
+            fail("Cursor result sets should not scroll");
+        } catch (SQLException expected) {
+        }
+    }
+
+    @Test
+    public void testPreparedStatementPassesParameters() throws Exception {
+        m_totalRows = 50;
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.CURSOR_FETCH, "true");
+        PreparedStatement stmt = new JDBC4Connection(m_client, props)
+                .prepareStatement("select id from t where id > ? order by id");
+        stmt.setFetchSize(20);
+        stmt.setInt(1, 7);
+        ResultSet rs = stmt.executeQuery();
+        int count = 0;
+        while (rs.next()) {
+            ++count;
+        }
+        assertEquals(m_totalRows, count);
+
+        Object[] params = (Object[]) m_calls.get(0)[1];
+        assertEquals("@AdHocCursorOpen", m_calls.get(0)[0]);
+        assertEquals(20, params[0]);
+        assertEquals("select id from t where id > ? order by id;", params[1]);
+        assertEquals(7, params[2]);
+    }
+
+    @Test
+    public void testCursorRequiresFetchSizeAndProperty() throws Exception {
+        m_totalRows = 100;
+        Statement stmt = createStatement(false);
+        stmt.setFetchSize(10);
+        ResultSet rs = stmt.executeQuery("select id from t order by id");
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+
+        stmt = createStatement(true);
+        rs = stmt.executeQuery("select id from t order by id");
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+        assertEquals(0, callCount("@AdHocCursorOpen"));
+        assertEquals(2, callCount("@AdHoc"));
+    }
+}
@@ -0,0 +1,232 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+
+public class TestJDBC4StatementBatch {
+    private final ScheduledExecutorService m_server = Executors.newScheduledThreadPool(4);
+    private final AtomicInteger m_sent = new AtomicInteger();
+    private final AtomicInteger m_outstanding = new AtomicInteger();
+    private final AtomicInteger m_maxOutstanding = new AtomicInteger();
+    private JDBC4ClientConnection m_client;
+    // Index of the statement which fails, -1 for none
+    private volatile int m_failAt = -1;
+    private volatile boolean m_rejectAll = false;
+    // Executes a statement when the server responds and returns its update count, null reports the statement length
+    private volatile ToIntFunction<String> m_executor = null;
+
+    @Before
+    public void setUp() throws Exception {
+        m_client = mock(JDBC4ClientConnection.class);
+        doAnswer(invocation -> {
+            if (m_rejectAll) {
+                return false;
+            }
+            ProcedureCallback callback = invocation.getArgument(0);
+            String sql = invocation.getArgument(4);
+            int index = m_sent.getAndIncrement();
+            m_maxOutstanding.accumulateAndGet(m_outstanding.incrementAndGet(), Math::max);
+            // Respond in a random order to make sure counts are still reported in batch order
+            m_server.schedule(() -> {
+                m_outstanding.decrementAndGet();
+                ToIntFunction<String> executor = m_executor;
+                callback.clientCallback(index == m_failAt ? failure()
+                        : updated(executor == null ? sql.length() : executor.applyAsInt(sql)));
+                return null;
+            }, ThreadLocalRandom.current().nextInt(500), TimeUnit.MICROSECONDS);
+            return true;
+        }).when(m_client).executeAsync(any(ProcedureCallback.class), anyLong(), any(TimeUnit.class), anyString(),
+                any());
+    }
+
+    @After
+    public void tearDown() {
+        m_server.shutdownNow();
+    }
+
+    private static ClientResponse updated(long count) {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("modified_tuples", VoltType.BIGINT));
+        table.addRow(count);
+        ClientResponse response = mock(ClientResponse.class);
+        when(response.getStatus()).thenReturn(ClientResponse.SUCCESS);
+        when(response.getResults()).thenReturn(new VoltTable[] { table });
+        return response;
+    }
+
+    private static ClientResponse failure() {
+        ClientResponse response = mock(ClientResponse.class);
+        when(response.getStatus()).thenReturn(ClientResponse.GRACEFUL_FAILURE);
+        when(response.getStatusString()).thenReturn("Constraint violation");
+        return response;
+    }
+
+    private Statement createStatement(int window, int batchSize) throws SQLException {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.BATCH_WINDOW, Integer.toString(window));
+        Statement stmt = new JDBC4Connection(m_client, props).createStatement();
+        for (int i = 0; i < batchSize; ++i) {
+            // The mock reports the length of the statement as its update count
+            stmt.addBatch("delete from t where id = " + i);
+        }
+        return stmt;
+    }
+
+    private static int[] expectedCounts(int count) {
+        int[] counts = new int[count];
+        for (int i = 0; i < count; ++i) {
+            counts[i] = ("delete from t where id = " + i + ";").length();
+        }
+        return counts;
+    }
+
+    @Test
+    public void testCountsAreInBatchOrder() throws Exception {
+        Statement stmt = createStatement(8, 500);
+        int[] expected = expectedCounts(500);
+        assertArrayEquals(expected, stmt.executeBatch());
+        int total = 0;
+        for (int count : expected) {
+            total += count;
+        }
+        assertEquals(total, stmt.getUpdateCount());
+        assertTrue("window exceeded: " + m_maxOutstanding.get(), m_maxOutstanding.get() <= 8);
+        assertEquals(0, m_outstanding.get());
+
+        // The batch is cleared after it executes
+        assertEquals(0, stmt.executeBatch().length);
+    }
+
+    @Test
+    public void testDependentStatementsExecuteInOrderByDefault() throws Exception {
+        // Each row is inserted, updated and then deleted, every statement depends on the one before it
+        Map<Integer, Integer> rows = new HashMap<>();
+        m_executor = sql -> {
+            int id = Integer.parseInt(sql.replaceAll(".*\\D(\\d+)\\D*", "$1"));
+            synchronized (rows) {
+                if (sql.startsWith("insert")) {
+                    return rows.putIfAbsent(id, 0) == null ? 1 : 0;
+                } else if (sql.startsWith("update")) {
+                    return rows.computeIfPresent(id, (k, v) -> v + 1) == null ? 0 : 1;
+                } else {
+                    return rows.remove(id) == null ? 0 : 1;
+                }
+            }
+        };
+
+        assertEquals(1, new JDBC4Connection(m_client, new Properties()).batchWindow);
+        Statement stmt = new JDBC4Connection(m_client, new Properties()).createStatement();
+        for (int i = 0; i < 50; ++i) {
+            stmt.addBatch("insert into t values (" + i + ")");
+            stmt.addBatch("update t set v = v + 1 where id = " + i);
+            stmt.addBatch("delete from t where id = " + i);
+        }
+        int[] expected = new int[150];
+        Arrays.fill(expected, 1);
+        assertArrayEquals(expected, stmt.executeBatch());
+        assertEquals(1, m_maxOutstanding.get());
+        assertTrue(rows.isEmpty());
+    }
+
+    @Test
+    public void testFailureStopsSendingAndReportsSentStatements() throws Exception {
+        m_failAt = 10;
+        Statement stmt = createStatement(4, 100);
+        try {
+            stmt.executeBatch();
+            fail("Expected BatchUpdateException");
+        } catch (BatchUpdateException e) {
+            int[] counts = e.getUpdateCounts();
+            // Every sent statement has completed and is reported, sending stopped once the failure was seen
+            assertEquals(m_sent.get(), counts.length);
+            assertTrue(counts.length > 10 && counts.length < 100);
+            assertTrue(m_maxOutstanding.get() <= 4);
+            assertEquals(0, m_outstanding.get());
+            for (int i = 0; i < counts.length; ++i) {
+                assertEquals(i == 10 ? Statement.EXECUTE_FAILED : expectedCounts(i + 1)[i], counts[i]);
+            }
+            assertEquals(SQLError.GENERAL_ERROR, e.getSQLState());
+            assertTrue(e.getMessage(), e.getMessage().contains("Constraint violation"));
+        }
+    }
+
+    @Test
+    public void testWindowOfOneStopsAtFailure() throws Exception {
+        m_failAt = 3;
+        Statement stmt = createStatement(1, 10);
+        try {
+            stmt.executeBatch();
+            fail("Expected BatchUpdateException");
+        } catch (BatchUpdateException e) {
+            int[] expected = expectedCounts(4);
+            expected[3] = Statement.EXECUTE_FAILED;
+            assertArrayEquals(expected, e.getUpdateCounts());
+            assertEquals(1, m_maxOutstanding.get());
+        }
+    }
+
+    @Test
+    public void testRejectedCallFailsBatch() throws Exception {
+        m_rejectAll = true;
+        Statement stmt = createStatement(4, 5);
+        try {
+            stmt.executeBatch();
+            fail("Expected BatchUpdateException");
+        } catch (BatchUpdateException e) {
+            assertArrayEquals(new int[] { Statement.EXECUTE_FAILED }, e.getUpdateCounts());
+            assertEquals(SQLError.CONNECTION_FAILURE, e.getSQLState());
+        }
+    }
+}
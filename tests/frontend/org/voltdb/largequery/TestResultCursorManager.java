@@ -0,0 +1,276 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.largequery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+public class TestResultCursorManager {
+    private static final int HOST_ID = 3;
+    private static final String USER = "user";
+    private static final long CONNECTION_ID = 42;
+    private static final String ADDRESS = "10.0.0.1";
+
+    private Path m_tempDir;
+    private Path m_swapPath;
+
+    @Before
+    public void setUp() throws IOException {
+        m_tempDir = Files.createTempDirectory("TestResultCursorManager");
+        m_swapPath = m_tempDir.resolve("large_query_swap");
+        Files.createDirectory(m_swapPath);
+        LargeBlockManager.startup(m_swapPath);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        LargeBlockManager.shutdown();
+        FileUtils.deleteDirectory(m_tempDir.toFile());
+    }
+
+    private static ResultCursorManager manager(long idleTimeoutMs, int spillThreshold) {
+        return new ResultCursorManager(HOST_ID, idleTimeoutMs, spillThreshold, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    private static VoltTable result(int rows) {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("NAME", VoltType.STRING));
+        for (int i = 0; i < rows; ++i) {
+            table.addRow(i, "row " + i);
+        }
+        return table;
+    }
+
+    private static long cursorId(VoltTable[] response) {
+        return response[1].fetchRow(0).getLong("CURSOR_ID");
+    }
+
+    private static long remaining(VoltTable[] response) {
+        return response[1].fetchRow(0).getLong("REMAINING_ROWS");
+    }
+
+    // Reads every chunk of the cursor checking that rows arrive in order and at most fetchSize at a time
+    private static int readAll(ResultCursorManager manager, VoltTable[] response, int fetchSize) {
+        int next = 0;
+        while (true) {
+            VoltTable rows = response[0];
+            assertTrue(rows.getRowCount() <= fetchSize);
+            while (rows.advanceRow()) {
+                assertEquals(next, rows.getLong(0));
+                assertEquals("row " + next, rows.getString(1));
+                ++next;
+            }
+            long cursorId = cursorId(response);
+            if (cursorId == ResultCursorManager.NO_CURSOR) {
+                assertEquals(0, remaining(response));
+                return next;
+            }
+            assertTrue(manager.isLocal(cursorId));
+            response = manager.fetch(cursorId, USER, ADDRESS);
+        }
+    }
+
+    // Wait for queued block tasks, such as releases, to complete
+    private static void drainBlockTasks() throws Exception {
+        LargeBlockManager.getInstance().submitTask(new LargeBlockTask() {
+            @Override
+            public LargeBlockResponse call() {
+                return new LargeBlockResponse();
+            }
+        }).get();
+    }
+
+    private boolean swapDirIsEmpty() throws IOException {
+        try (Stream<Path> files = Files.list(m_swapPath)) {
+            return !files.findFirst().isPresent();
+        }
+    }
+
+    @Test
+    public void testSmallResultDoesNotOpenCursor() {
+        ResultCursorManager manager = manager(60_000, Integer.MAX_VALUE);
+        VoltTable[] response = manager.open(result(10), 10, USER, CONNECTION_ID, ADDRESS);
+        assertEquals(10, response[0].getRowCount());
+        assertEquals(ResultCursorManager.NO_CURSOR, cursorId(response));
+        assertEquals(0, manager.getOpenCursorCount());
+
+        response = manager.open(result(10), 0, USER, CONNECTION_ID, ADDRESS);
+        assertEquals(10, response[0].getRowCount());
+        assertEquals(ResultCursorManager.NO_CURSOR, cursorId(response));
+    }
+
+    @Test
+    public void testFetchInMemory() throws Exception {
+        ResultCursorManager manager = manager(60_000, Integer.MAX_VALUE);
+        for (int fetchSize : new int[] { 1, 7, 100, 999 }) {
+            VoltTable[] response = manager.open(result(1000), fetchSize, USER, CONNECTION_ID, ADDRESS);
+            assertEquals(fetchSize, response[0].getRowCount());
+            assertEquals(1000 - fetchSize, remaining(response));
+            assertEquals(HOST_ID, ResultCursorManager.getOwnerHostId(cursorId(response)));
+            assertEquals(1000, readAll(manager, response, fetchSize));
+            assertEquals(0, manager.getOpenCursorCount());
+        }
+        assertTrue(swapDirIsEmpty());
+    }
+
+    @Test
+    public void testFetchSpilled() throws Exception {
+        ResultCursorManager manager = manager(60_000, 0);
+        VoltTable[] response = manager.open(result(1000), 64, USER, CONNECTION_ID, ADDRESS);
+        drainBlockTasks();
+        // All but the first chunk are written to the swap directory
+        try (Stream<Path> files = Files.list(m_swapPath)) {
+            assertEquals(1000 / 64, files.count());
+        }
+        assertEquals(1000, readAll(manager, response, 64));
+        drainBlockTasks();
+        assertTrue(swapDirIsEmpty());
+    }
+
+    @Test
+    public void testCloseReleasesBlocks() throws Exception {
+        ResultCursorManager manager = manager(60_000, 0);
+        VoltTable[] response = manager.open(result(1000), 100, USER, CONNECTION_ID, ADDRESS);
+        long cursorId = cursorId(response);
+        manager.fetch(cursorId, USER, ADDRESS);
+        assertTrue(manager.close(cursorId, USER, ADDRESS));
+        assertFalse(manager.close(cursorId, USER, ADDRESS));
+        assertEquals(0, manager.getOpenCursorCount());
+        drainBlockTasks();
+        assertTrue(swapDirIsEmpty());
+
+        try {
+            manager.fetch(cursorId, USER, ADDRESS);
+            fail("Fetch from closed cursor should fail");
+        } catch (VoltAbortException expected) {
+        }
+    }
+
+    @Test
+    public void testIdleCursorsExpire() throws Exception {
+        ResultCursorManager manager = manager(50, 0);
+        long idle = cursorId(manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS));
+        Thread.sleep(100);
+        // Expired by the periodic check without another cursor being opened
+        manager.expireIdleCursors();
+        assertEquals(0, manager.getOpenCursorCount());
+        assertEquals(0, manager.getPendingBytes());
+        idle = cursorId(manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS));
+        Thread.sleep(100);
+        long active = cursorId(manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS));
+        assertEquals(1, manager.getOpenCursorCount());
+        try {
+            manager.fetch(idle, USER, ADDRESS);
+            fail("Fetch from expired cursor should fail");
+        } catch (VoltAbortException expected) {
+        }
+        assertEquals(10, manager.fetch(active, USER, ADDRESS)[0].getRowCount());
+        assertTrue(manager.close(active, USER, ADDRESS));
+        drainBlockTasks();
+        assertTrue(swapDirIsEmpty());
+    }
+
+    @Test
+    public void testCursorBelongsToClient() throws Exception {
+        ResultCursorManager manager = manager(60_000, Integer.MAX_VALUE);
+        long cursorId = cursorId(manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS));
+        for (String[] other : new String[][] { { "other", ADDRESS }, { USER, "10.0.0.2" }, { null, null } }) {
+            try {
+                manager.fetch(cursorId, other[0], other[1]);
+                fail("Fetch by another client should fail");
+            } catch (VoltAbortException expected) {
+            }
+            assertFalse(manager.close(cursorId, other[0], other[1]));
+        }
+        // The same client can fetch through another connection
+        assertEquals(10, manager.fetch(cursorId, USER, ADDRESS)[0].getRowCount());
+        assertEquals(1, manager.getOpenCursorCount());
+
+        // Cursors are released when the connection which opened them closes
+        long otherConnection = cursorId(manager.open(result(100), 10, USER, CONNECTION_ID + 1, ADDRESS));
+        manager.releaseConnection(CONNECTION_ID);
+        assertEquals(1, manager.getOpenCursorCount());
+        try {
+            manager.fetch(cursorId, USER, ADDRESS);
+            fail("Fetch from cursor of a closed connection should fail");
+        } catch (VoltAbortException expected) {
+        }
+        assertTrue(manager.close(otherConnection, USER, ADDRESS));
+        assertEquals(0, manager.getPendingBytes());
+    }
+
+    @Test
+    public void testOpenCursorLimits() throws Exception {
+        ResultCursorManager manager = new ResultCursorManager(HOST_ID, 60_000, Integer.MAX_VALUE, 2, Long.MAX_VALUE);
+        long first = cursorId(manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS));
+        long second = cursorId(manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS));
+        assertTrue(first != second);
+        try {
+            manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS);
+            fail("Opening more cursors than the limit should fail");
+        } catch (VoltAbortException expected) {
+        }
+        // Results which fit in one chunk do not hold a cursor
+        assertEquals(ResultCursorManager.NO_CURSOR,
+                cursorId(manager.open(result(10), 10, USER, CONNECTION_ID, ADDRESS)));
+        assertTrue(manager.close(first, USER, ADDRESS));
+        assertTrue(manager.close(second, USER, ADDRESS));
+
+        // Pending rows are counted until they are fetched
+        int size = result(100).getSerializedSize();
+        manager = new ResultCursorManager(HOST_ID, 60_000, Integer.MAX_VALUE, 10, size + size / 2);
+        VoltTable[] response = manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS);
+        long pending = manager.getPendingBytes();
+        assertTrue(pending > 0);
+        try {
+            manager.open(result(100), 10, USER, CONNECTION_ID, ADDRESS);
+            fail("Opening a cursor over more bytes than the limit should fail");
+        } catch (VoltAbortException expected) {
+        }
+        assertEquals(1, manager.getOpenCursorCount());
+        assertEquals(pending, manager.getPendingBytes());
+        response = manager.fetch(cursorId(response), USER, ADDRESS);
+        assertTrue(manager.getPendingBytes() < pending);
+        while (cursorId(response) != ResultCursorManager.NO_CURSOR) {
+            response = manager.fetch(cursorId(response), USER, ADDRESS);
+        }
+        assertEquals(0, manager.getOpenCursorCount());
+        assertEquals(0, manager.getPendingBytes());
+    }
+}
@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltcore.messaging.HostMessenger;
+import org.voltdb.CatalogContext;
+import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.compiler.AdHocCompilerCache;
+import org.voltdb.compiler.PlannerTool;
+import org.voltdb.settings.ClusterSettings;
+import org.voltdb.settings.DbSettings;
+import org.voltdb.settings.NodeSettings;
+import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.MiscUtils;
+
+/**
+ * Manual benchmark measuring ad hoc planning throughput of one {@link PlannerTool} with 1 to N concurrent
+ * threads on the TPCC schema. Every statement is distinct after parameterization so it misses the plan cache
+ * and is fully planned. The number of statements planned at the same time is bounded by
+ * -DADHOC_PLANNER_POOL_SIZE.
+ *
+ * Usage: PlannerThroughputBenchmark [maxThreads] [statementsPerRound]
+ */
+public class PlannerThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int statements = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        TPCCProjectBuilder builder = new TPCCProjectBuilder();
+        builder.addAllDefaults();
+        File jar = File.createTempFile("tpcc-planner-benchmark", ".jar");
+        jar.deleteOnExit();
+        builder.compile(jar.getPath());
+        byte[] bytes = MiscUtils.fileToBytes(jar);
+        String serializedCatalog = CatalogUtil.getSerializedCatalogStringFromJar(
+                CatalogUtil.loadAndUpgradeCatalogFromJar(bytes, false).getFirst());
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        DbSettings settings = new DbSettings(ClusterSettings.create().asSupplier(), NodeSettings.create());
+        CatalogContext context = new CatalogContext(catalog, settings, 0, 0, bytes, null, new byte[] {},
+                mock(HostMessenger.class));
+
+        // warm up the planner and the HSQL pool
+        PlannerTool warmup = new PlannerTool(context.database, context.getCatalogHash());
+        for (int i = 0; i < 500; ++i) {
+            warmup.planSqlForTest(TestPlannerTool.tpccQuery(i));
+        }
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            // a new cache and planner for every round so that nothing is planned from the cache
+            AdHocCompilerCache.clearHashCache();
+            PlannerTool planner = new PlannerTool(context.database, context.getCatalogHash());
+            AtomicInteger next = new AtomicInteger(1_000_000);
+            int end = next.get() + statements;
+
+            ExecutorService es = Executors.newFixedThreadPool(threads);
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                futures.add(es.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < end) {
+                        planner.planSqlForTest(TestPlannerTool.tpccQuery(i));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            es.shutdown();
+
+            System.out.printf("%3d threads: %8.1f statements/s%n", threads, statements * 1e9 / elapsed);
+        }
+    }
+}
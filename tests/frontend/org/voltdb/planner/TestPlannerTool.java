@@ -27,18 +27,31 @@ import static org.mockito.Mockito.mock;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.voltcore.messaging.HostMessenger;
 import org.voltdb.CatalogContext;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 import org.voltdb.catalog.Catalog;
+import org.voltdb.compiler.AdHocCompilerCache;
 import org.voltdb.compiler.AdHocPlannedStatement;
 import org.voltdb.compiler.PlannerTool;
+import org.voltdb.compiler.TableStatistics;
+import org.voltdb.compiler.TableStatistics.ColumnStatistics;
 import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.DbSettings;
 import org.voltdb.settings.NodeSettings;
 import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.InMemoryJarfile;
 import org.voltdb.utils.MiscUtils;
 
 import junit.framework.TestCase;
@@ -171,4 +184,114 @@ public class TestPlannerTool extends TestCase {
         // would return a Stream Closed error
         m_pt.planSqlForTest("select * from A;");
     }
+
+    public void testAnalyzedStatisticsPickSelectiveIndex() throws Exception {
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema("create table t(id bigint not null, flag tinyint not null, kind tinyint not null, "
+                + "b bigint not null, primary key(id));"
+                + "create index idx_flag_kind on t(flag, kind);"
+                + "create index idx_b on t(b);");
+        final File jar = new File("testanalyze-oop.jar");
+        jar.deleteOnExit();
+        builder.compile("testanalyze-oop.jar");
+        byte[] bytes = MiscUtils.fileToBytes(jar);
+        final String sql = "select * from t where flag = 1 and kind = 2 and b = 7;";
+
+        // Without statistics two indexed columns look more selective than one
+        CatalogContext context = catalogContext(bytes);
+        String plan = new String(context.m_ptool.planSqlForTest(sql).core.aggregatorFragment, StandardCharsets.UTF_8);
+        assertTrue(plan, plan.contains("\"IDX_FLAG_KIND\""));
+
+        // Store statistics in the catalog jar the way @Analyze does: flag and kind have two values each, b is
+        // nearly unique
+        Map<String, ColumnStatistics> columns = new LinkedHashMap<>();
+        columns.put("ID", new ColumnStatistics("ID", 100_000, 100_000, 0));
+        columns.put("FLAG", new ColumnStatistics("FLAG", 100_000, 2, 0));
+        columns.put("KIND", new ColumnStatistics("KIND", 100_000, 2, 0));
+        columns.put("B", new ColumnStatistics("B", 100_000, 90_000, 0, 0, 100_000, new long[] { 50_000, 50_000 }));
+        String signature = context.database.getTables().get("T").getSignature();
+        TableStatistics statistics = new TableStatistics("T", signature, 100_000, System.currentTimeMillis(), columns);
+        InMemoryJarfile jarfile = new InMemoryJarfile(bytes);
+        jarfile.put(TableStatistics.CATALOG_JAR_ENTRY,
+                TableStatistics.toJSONString(Arrays.asList(statistics)).getBytes(StandardCharsets.UTF_8));
+
+        context = catalogContext(jarfile.getFullJarBytes());
+        assertEquals(100_000, context.m_ptool.getTableStatistics().get("T").getRowCount());
+        plan = new String(context.m_ptool.planSqlForTest(sql).core.aggregatorFragment, StandardCharsets.UTF_8);
+        assertTrue(plan, plan.contains("\"IDX_B\""));
+        assertFalse(plan, plan.contains("SEQSCAN"));
+
+        // A narrow range of b is also selective enough to use its index rather than scan the table
+        plan = new String(context.m_ptool.planSqlForTest("select * from t where flag = 1 and b < 10;")
+                .core.aggregatorFragment, StandardCharsets.UTF_8);
+        assertTrue(plan, plan.contains("\"IDX_B\""));
+        assertFalse(plan, plan.contains("SEQSCAN"));
+    }
+
+    private static CatalogContext catalogContext(byte[] bytes) throws IOException {
+        String serializedCatalog = CatalogUtil.getSerializedCatalogStringFromJar(CatalogUtil.loadAndUpgradeCatalogFromJar(bytes, false).getFirst());
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        DbSettings settings = new DbSettings(ClusterSettings.create().asSupplier(), NodeSettings.create());
+        return new CatalogContext(catalog, settings, 0, 0, bytes, null, new byte[] {}, mock(HostMessenger.class));
+    }
+
+    /**
+     * Statements which are distinct even after parameterization, so each one is fully planned
+     */
+    static String tpccQuery(int i) {
+        switch (i % 4) {
+        case 0:
+            return "select w_name as n" + i + " from warehouse where w_id = " + i + ";";
+        case 1:
+            return "select c_id as n" + i + ", c_last from customer where c_w_id = " + i
+                    + " and c_d_id = 3 order by c_last;";
+        case 2:
+            return "select o.o_d_id as n" + i + ", count(*) from orders o, order_line ol where o.o_id = ol.ol_o_id"
+                    + " and o.o_w_id = ol.ol_w_id and o.o_w_id = " + i + " group by o.o_d_id;";
+        default:
+            return "select i_name as n" + i + " from item where i_id in (select s_i_id from stock where s_w_id = " + i
+                    + " and s_quantity < 10);";
+        }
+    }
+
+    public void testConcurrentPlanning() throws Exception {
+        TPCCProjectBuilder builder = new TPCCProjectBuilder();
+        builder.addAllDefaults();
+        final File jar = new File("tpcc-concurrent.jar");
+        jar.deleteOnExit();
+        builder.compile("tpcc-concurrent.jar");
+        byte[] bytes = MiscUtils.fileToBytes(jar);
+        String serializedCatalog = CatalogUtil.getSerializedCatalogStringFromJar(CatalogUtil.loadAndUpgradeCatalogFromJar(bytes, false).getFirst());
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        DbSettings settings = new DbSettings(ClusterSettings.create().asSupplier(), NodeSettings.create());
+        CatalogContext context = new CatalogContext(catalog, settings, 0, 0, bytes, null, new byte[] {}, mock(HostMessenger.class));
+
+        final int queryCount = 64;
+        m_pt = new PlannerTool(context.database, context.getCatalogHash());
+        List<AdHocPlannedStatement> expected = new ArrayList<>();
+        for (int i = 0; i < queryCount; ++i) {
+            expected.add(m_pt.planSqlForTest(tpccQuery(i)));
+        }
+
+        // plan the same statements concurrently with an empty plan cache
+        AdHocCompilerCache.clearHashCache();
+        m_pt = new PlannerTool(context.database, context.getCatalogHash());
+        ExecutorService es = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<AdHocPlannedStatement>> results = new ArrayList<>();
+            for (int i = 0; i < queryCount; ++i) {
+                final String sql = tpccQuery(i);
+                results.add(es.submit(() -> m_pt.planSqlForTest(sql)));
+            }
+            for (int i = 0; i < queryCount; ++i) {
+                AdHocPlannedStatement actual = results.get(i).get();
+                assertEquals(tpccQuery(i), expected.get(i), actual);
+                assertEquals(expected.get(i).core.getSerializedSize(), actual.core.getSerializedSize());
+            }
+        } finally {
+            es.shutdown();
+        }
+    }
 }
@@ -0,0 +1,187 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltcore.messaging.MockMailbox;
+import org.voltcore.messaging.VoltMessage;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.stats.RejoinStats;
+import org.voltdb.utils.CachedByteBufferAllocator;
+import org.voltdb.utils.CompressionService;
+
+public class TestStreamSnapshotSink {
+    private static final long SOURCE_HSID = 5;
+    private static final long TARGET_ID = 1;
+    private static final int TABLE_ID = 7;
+
+    private final LinkedBlockingQueue<RejoinDataAckMessage> m_acks = new LinkedBlockingQueue<>();
+    private final CachedByteBufferAllocator m_allocator = new CachedByteBufferAllocator();
+    private MockMailbox m_mb;
+    private RejoinStats m_stats;
+    private StreamSnapshotSink m_sink;
+
+    @Before
+    public void setUp() {
+        m_mb = new MockMailbox() {
+            @Override
+            public void send(long hsId, VoltMessage message) {
+                assertEquals(SOURCE_HSID, hsId);
+                m_acks.offer((RejoinDataAckMessage) message);
+            }
+        };
+        m_mb.setHSId(100);
+        m_stats = new RejoinStats(100, 0);
+        m_sink = new StreamSnapshotSink(m_mb, m_stats);
+        m_sink.initialize(1, new ConcurrentLinkedQueue<BBContainer>(), new ConcurrentLinkedQueue<BBContainer>());
+    }
+
+    @After
+    public void tearDown() {
+        m_sink.close();
+    }
+
+    private void deliver(StreamSnapshotMessageType type, int blockIndex, byte[] content) throws Exception {
+        ByteBuffer block = ByteBuffer.allocate(StreamSnapshotBase.contentOffset + content.length);
+        block.put((byte) type.ordinal());
+        block.putInt(blockIndex);
+        block.putInt(TABLE_ID);
+        block.put(content);
+        RejoinDataMessage msg = new RejoinDataMessage(TARGET_ID, CompressionService.compressBytes(block.array()));
+        msg.m_sourceHSId = SOURCE_HSID;
+        m_mb.deliver(msg);
+    }
+
+    private void waitForQueued(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (m_sink.queuedBlocks() < count) {
+            assertTrue("Timed out waiting for blocks to be received", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private Set<Integer> drainAcks(int expected) throws InterruptedException {
+        Set<Integer> indexes = new HashSet<>();
+        for (int i = 0; i < expected; ++i) {
+            RejoinDataAckMessage ack = m_acks.poll(10, TimeUnit.SECONDS);
+            assertNotNull("Missing ack " + i + " of " + expected, ack);
+            assertEquals(TARGET_ID, ack.getTargetId());
+            assertTrue("Duplicate ack for block " + ack.getBlockIndex(), indexes.add(ack.getBlockIndex()));
+        }
+        return indexes;
+    }
+
+    @Test
+    public void testBlocksWithinWindowAreAckedOnReceipt() throws Exception {
+        int window = StreamSnapshotDataReceiver.ACK_WINDOW_BLOCKS;
+        int dataBlocks = window + 8;
+
+        deliver(StreamSnapshotMessageType.SCHEMA, 0, new byte[] { 1, 2, 3 });
+        for (int i = 1; i <= dataBlocks; ++i) {
+            deliver(StreamSnapshotMessageType.DATA, i, new byte[] { 0, 0, 0, 0, (byte) i });
+        }
+        waitForQueued(dataBlocks + 1);
+
+        // Only the window of blocks is acked before the site has taken anything
+        Set<Integer> acked = drainAcks(window);
+        for (int i = 0; i < window; ++i) {
+            assertTrue(acked.contains(i));
+        }
+        assertNull(m_acks.poll(100, TimeUnit.MILLISECONDS));
+
+        // Blocks beyond the window are acked once they are processed, every block exactly once
+        assertNull(m_sink.poll(m_allocator));
+        for (int i = 1; i <= dataBlocks; ++i) {
+            assertNotNull(m_sink.poll(m_allocator));
+        }
+        acked.addAll(drainAcks(dataBlocks + 1 - window));
+        assertEquals(dataBlocks + 1, acked.size());
+        assertNull(m_acks.poll(100, TimeUnit.MILLISECONDS));
+
+        // The END block is only acked once it is processed
+        deliver(StreamSnapshotMessageType.END, dataBlocks + 1, new byte[0]);
+        waitForQueued(1);
+        assertNull(m_acks.poll(100, TimeUnit.MILLISECONDS));
+        assertFalse(m_sink.isEOF());
+        assertNull(m_sink.poll(m_allocator));
+        assertTrue(m_sink.isEOF());
+        RejoinDataAckMessage endAck = m_acks.poll(10, TimeUnit.SECONDS);
+        assertNotNull(endAck);
+        assertTrue(endAck.isEOS());
+        assertEquals(dataBlocks + 1, endAck.getBlockIndex());
+    }
+
+    @Test
+    public void testWindowIsReleasedAsBlocksAreTaken() throws Exception {
+        int window = StreamSnapshotDataReceiver.ACK_WINDOW_BLOCKS;
+
+        deliver(StreamSnapshotMessageType.SCHEMA, 0, new byte[] { 1 });
+        for (int i = 1; i < window; ++i) {
+            deliver(StreamSnapshotMessageType.DATA, i, new byte[] { 0, 0, 0, 0, 1 });
+        }
+        waitForQueued(window);
+        drainAcks(window);
+
+        // Taking blocks frees room in the window so later blocks are acked on receipt again
+        assertNull(m_sink.poll(m_allocator));
+        assertNotNull(m_sink.poll(m_allocator));
+        deliver(StreamSnapshotMessageType.DATA, window, new byte[] { 0, 0, 0, 0, 1 });
+        deliver(StreamSnapshotMessageType.DATA, window + 1, new byte[] { 0, 0, 0, 0, 1 });
+        assertEquals(2, drainAcks(2).size());
+    }
+
+    @Test
+    public void testStatsTrackProgress() throws Exception {
+        deliver(StreamSnapshotMessageType.SCHEMA, 0, new byte[] { 1, 2 });
+        deliver(StreamSnapshotMessageType.DATA, 1, new byte[] { 0, 0, 0, 0, 1, 2, 3 });
+        deliver(StreamSnapshotMessageType.DATA, 2, new byte[] { 0, 0, 0, 0, 4, 5, 6 });
+        waitForQueued(3);
+
+        assertNull(m_sink.poll(m_allocator));
+        assertNotNull(m_sink.poll(m_allocator));
+        assertNotNull(m_sink.poll(m_allocator));
+        assertEquals(0, m_sink.queuedBlocks());
+
+        // Restored bytes are the schema followed by the table data without the partition id
+        assertEquals(2 * (2 + 3), m_stats.getBytesRestored());
+        assertEquals(m_sink.bytesTransferred(), m_stats.getBytesRestored());
+        m_stats.complete();
+        assertTrue(m_stats.getElapsedMillis() >= 0);
+    }
+}
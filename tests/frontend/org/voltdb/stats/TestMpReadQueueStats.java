@@ -0,0 +1,92 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.voltdb.StatsSource;
+
+public class TestMpReadQueueStats {
+
+    private static final int OFFSET = StatsSource.StatsCommon.values().length;
+    private static final int COLUMN_COUNT = OFFSET + MpReadQueueStats.MpReadQueue.values().length;
+
+    private static List<Object[]> collect(MpReadQueueStats stats, boolean interval) {
+        List<Object[]> rows = new ArrayList<>();
+        Iterator<Object> keys = stats.getStatsRowKeyIterator(interval);
+        while (keys.hasNext()) {
+            Object[] row = new Object[COLUMN_COUNT];
+            assertEquals(COLUMN_COUNT, stats.updateStatsRow(keys.next(), row));
+            rows.add(Arrays.copyOfRange(row, OFFSET, COLUMN_COUNT));
+        }
+        return rows;
+    }
+
+    @Test
+    public void shouldReportNothingWithoutReads() {
+        MpReadQueueStats stats = new MpReadQueueStats();
+        assertFalse(stats.getStatsRowKeyIterator(false).hasNext());
+    }
+
+    @Test
+    public void shouldReportWaitsPerProcedure() {
+        MpReadQueueStats stats = new MpReadQueueStats();
+        stats.recordWait("Report", 1_000_000);
+        stats.recordWait("Report", 3_000_000);
+        stats.recordWait("Lookup", 0);
+
+        List<Object[]> rows = collect(stats, false);
+
+        assertEquals(2, rows.size());
+        assertArrayEquals(new Object[] { "Lookup", 1L, 0L, 0L, 0L, 0L, 0L }, rows.get(0));
+        Object[] report = rows.get(1);
+        assertEquals("Report", report[MpReadQueueStats.MpReadQueue.PROCEDURE.ordinal()]);
+        assertEquals(2L, report[MpReadQueueStats.MpReadQueue.INVOCATIONS.ordinal()]);
+        // Histogram values are accurate to two significant digits
+        assertEquals(2000.0, (long) report[MpReadQueueStats.MpReadQueue.AVG_WAIT.ordinal()], 20.0);
+        assertEquals(3000.0, (long) report[MpReadQueueStats.MpReadQueue.MAX_WAIT.ordinal()], 30.0);
+        assertEquals(3000.0, (long) report[MpReadQueueStats.MpReadQueue.P99_WAIT.ordinal()], 30.0);
+    }
+
+    @Test
+    public void shouldReportIntervalThenTotals() {
+        MpReadQueueStats stats = new MpReadQueueStats();
+        stats.recordWait("Report", 1_000_000);
+        assertEquals(1L, collect(stats, true).get(0)[MpReadQueueStats.MpReadQueue.INVOCATIONS.ordinal()]);
+
+        stats.recordWait("Report", 1_000_000);
+        stats.recordWait("Report", 1_000_000);
+        assertEquals(2L, collect(stats, true).get(0)[MpReadQueueStats.MpReadQueue.INVOCATIONS.ordinal()]);
+        assertEquals(0L, collect(stats, true).get(0)[MpReadQueueStats.MpReadQueue.INVOCATIONS.ordinal()]);
+
+        assertEquals(3L, collect(stats, false).get(0)[MpReadQueueStats.MpReadQueue.INVOCATIONS.ordinal()]);
+    }
+}
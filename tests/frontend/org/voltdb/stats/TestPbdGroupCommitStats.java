@@ -0,0 +1,102 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.voltdb.StatsSource;
+
+public class TestPbdGroupCommitStats {
+
+    private static final int OFFSET = StatsSource.StatsCommon.values().length;
+    private static final int COLUMN_COUNT = OFFSET + PbdGroupCommitStats.PbdGroupCommit.values().length;
+
+    private static void assertColumns(Object[] actualValues, Object... expected) {
+        assertArrayEquals(expected, Arrays.copyOfRange(actualValues, OFFSET, COLUMN_COUNT));
+    }
+
+    @Test
+    public void shouldReportZerosWithoutFlushes() {
+        // Given
+        PbdGroupCommitStats stats = new PbdGroupCommitStats();
+        Object[] actualValues = new Object[COLUMN_COUNT];
+
+        // When
+        int position = stats.updateStatsRow(false, actualValues);
+
+        // Then
+        assertEquals(COLUMN_COUNT, position);
+        assertColumns(actualValues, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+    }
+
+    @Test
+    public void shouldPopulateTableWithTotalStats() {
+        // Given
+        PbdGroupCommitStats stats = new PbdGroupCommitStats();
+        Object[] actualValues = new Object[COLUMN_COUNT];
+
+        // When
+        stats.flushed(2, 10, 3_000_000);
+        stats.flushed(4, 30, 1_000_000);
+
+        stats.updateStatsRow(false, actualValues);
+
+        // Then
+        assertColumns(actualValues,
+                2L, // FLUSH_COUNT
+                6L, // DEQUES_SYNCED
+                40L, // OFFERS_SYNCED
+                20L, // AVG_BATCH_SIZE
+                30L, // MAX_BATCH_SIZE
+                2000L, // AVG_FSYNC_LATENCY
+                3000L // MAX_FSYNC_LATENCY
+        );
+    }
+
+    @Test
+    public void shouldPopulateTableWithLatestStatsThenReportCorrectTotals() {
+        // Given
+        PbdGroupCommitStats stats = new PbdGroupCommitStats();
+        Object[] actualValues = new Object[COLUMN_COUNT];
+
+        // When & Then
+        stats.flushed(2, 10, 3_000_000);
+        stats.updateStatsRow(true, actualValues);
+
+        assertColumns(actualValues, 1L, 2L, 10L, 10L, 10L, 3000L, 3000L);
+
+        stats.flushed(1, 4, 1_000_000);
+        stats.flushed(1, 2, 2_000_000);
+        stats.updateStatsRow(true, actualValues);
+
+        assertColumns(actualValues, 2L, 2L, 6L, 3L, 4L, 1500L, 2000L);
+
+        stats.updateStatsRow(false, actualValues);
+
+        assertColumns(actualValues, 3L, 4L, 16L, 5L, 10L, 2000L, 3000L);
+    }
+}
@@ -0,0 +1,93 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+import org.voltdb.SiteStatsSource;
+import org.voltdb.StatsSource;
+
+public class TestRejoinStats {
+
+    private static final int OFFSET = StatsSource.StatsCommon.values().length
+            + SiteStatsSource.SiteStats.values().length;
+    private static final int COLUMN_COUNT = OFFSET + RejoinStats.Rejoin.values().length;
+
+    private static Object[] collect(RejoinStats stats) {
+        Iterator<Object> keys = stats.getStatsRowKeyIterator(false);
+        Object[] row = new Object[COLUMN_COUNT];
+        assertEquals(COLUMN_COUNT, stats.updateStatsRow(keys.next(), row));
+        assertEquals(false, keys.hasNext());
+        return row;
+    }
+
+    private static Object column(Object[] row, RejoinStats.Rejoin column) {
+        return row[OFFSET + column.ordinal()];
+    }
+
+    @Test
+    public void shouldReportProgressOfTransfer() {
+        RejoinStats stats = new RejoinStats(100, 3);
+        Object[] row = collect(stats);
+        assertEquals(3, column(row, RejoinStats.Rejoin.PARTITION_ID));
+        assertEquals(RejoinStats.STATUS_WAITING, column(row, RejoinStats.Rejoin.STATUS));
+        assertEquals(0L, column(row, RejoinStats.Rejoin.ELAPSED_MS));
+
+        stats.blockReceived(100);
+        stats.blockReceived(2000);
+        stats.blockReceived(3000);
+        stats.blockTaken();
+        stats.blockTaken();
+        stats.blockRestored(1900);
+
+        row = collect(stats);
+        assertEquals(RejoinStats.STATUS_STREAMING, column(row, RejoinStats.Rejoin.STATUS));
+        assertEquals(3L, column(row, RejoinStats.Rejoin.BLOCKS_RECEIVED));
+        assertEquals(5100L, column(row, RejoinStats.Rejoin.BYTES_RECEIVED));
+        assertEquals(1L, column(row, RejoinStats.Rejoin.BLOCKS_RESTORED));
+        assertEquals(1900L, column(row, RejoinStats.Rejoin.BYTES_RESTORED));
+        assertEquals(1, column(row, RejoinStats.Rejoin.QUEUED_BLOCKS));
+    }
+
+    @Test
+    public void shouldFreezeThroughputOnCompletion() throws InterruptedException {
+        RejoinStats stats = new RejoinStats(100, 0);
+        stats.blockReceived(1024 * 1024);
+        stats.blockTaken();
+        stats.blockRestored(1024 * 1024);
+        Thread.sleep(20);
+        stats.complete();
+
+        Object[] row = collect(stats);
+        long elapsed = (long) column(row, RejoinStats.Rejoin.ELAPSED_MS);
+        assertEquals(RejoinStats.STATUS_COMPLETE, column(row, RejoinStats.Rejoin.STATUS));
+        assertEquals(1000D / elapsed, (double) column(row, RejoinStats.Rejoin.MB_PER_SEC), 0.0001);
+
+        Thread.sleep(20);
+        assertEquals(elapsed, column(collect(stats), RejoinStats.Rejoin.ELAPSED_MS));
+    }
+}
@@ -0,0 +1,73 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+public class TestSnapshotRestoreThroughput {
+    private static final long MB = 1024 * 1024;
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testThroughputPerHost() {
+        VoltTable results = new VoltTable(
+                new ColumnInfo("HOST_ID", VoltType.INTEGER),
+                new ColumnInfo("TABLE", VoltType.STRING),
+                new ColumnInfo("RESULT", VoltType.STRING));
+        results.addRow(0, "T1", "SUCCESS");
+        results.addRow(1, "T1", "SUCCESS");
+        results.addRow(0, "T2", "SUCCESS");
+        results.addRow(-1, "", "WARNING");
+        results.setStatusCode((byte) 3);
+
+        VoltTable throughput = new VoltTable(
+                new ColumnInfo("HOST_ID", VoltType.INTEGER),
+                new ColumnInfo("BYTES", VoltType.BIGINT),
+                new ColumnInfo("ELAPSED_NANOS", VoltType.BIGINT));
+        // Host 0 restored 300MB across two sites in 2 seconds
+        throughput.addRow(0, 100 * MB, 2 * SECOND);
+        throughput.addRow(0, 200 * MB, SECOND);
+        // Host 1 restored nothing
+        throughput.addRow(1, 0, SECOND);
+
+        VoltTable withThroughput = SnapshotRestore.addRestoreThroughput(results, throughput);
+        assertEquals(4, withThroughput.getColumnCount());
+        assertEquals(SnapshotRestore.CNAME_MB_PER_SEC, withThroughput.getColumnName(3));
+        assertEquals(4, withThroughput.getRowCount());
+        assertEquals(3, withThroughput.getStatusCode());
+
+        double[] expected = { 150.0, 0.0, 150.0, 0.0 };
+        String[] tables = { "T1", "T1", "T2", "" };
+        for (int i = 0; i < expected.length; ++i) {
+            withThroughput.advanceRow();
+            assertEquals(tables[i], withThroughput.getString("TABLE"));
+            assertEquals(expected[i], withThroughput.getDouble(SnapshotRestore.CNAME_MB_PER_SEC), 0.001);
+        }
+    }
+}
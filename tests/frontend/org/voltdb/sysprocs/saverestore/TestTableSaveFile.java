@@ -23,14 +23,18 @@
 
 package org.voltdb.sysprocs.saverestore;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.UnaryOperator;
 
@@ -314,6 +318,210 @@ public class TestTableSaveFile {
         }
     }
 
+    @Test
+    public void testRelevantChunksInOrder() throws Exception {
+        System.out.println("Running testRelevantChunksInOrder");
+        // 50 chunks with partition ids 0 to 49 which are decoded in parallel
+        Pair<VoltTable, File> generated = generateTestTable(50000);
+        File f = generated.getSecond();
+
+        Integer[] relevant = { 3, 4, 17, 30, 49 };
+        savefile = new TableSaveFile(new FileInputStream(f), 8, relevant);
+        int expected = 0;
+        while (savefile.hasMoreChunks()) {
+            final BBContainer c = savefile.getNextChunk();
+            if (c == null) {
+                break;
+            }
+            try {
+                TableSaveFile.Container cont = (TableSaveFile.Container)c;
+                assertEquals(relevant[expected].intValue(), cont.partitionId);
+                VoltTable test_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), false);
+                assertEquals(1000, test_table.getRowCount());
+                test_table.advanceRow();
+                assertEquals(relevant[expected] * 1000, test_table.getLong("RT_ID"));
+                ++expected;
+            } finally {
+                c.discard();
+            }
+        }
+        assertEquals(relevant.length, expected);
+        assertTrue(savefile.getCorruptedPartitionIds().isEmpty());
+    }
+
+    @Test
+    public void testCloseWhileDecoding() throws Exception {
+        System.out.println("Running testCloseWhileDecoding");
+        Pair<VoltTable, File> generated = generateTestTable(100000);
+        File f = generated.getSecond();
+
+        for (int i = 0; i < 10; ++i) {
+            TableSaveFile file = new TableSaveFile(new FileInputStream(f), 16, null);
+            BBContainer c = file.getNextChunk();
+            assertEquals(0, ((TableSaveFile.Container)c).partitionId);
+            file.close();
+            // Chunks handed out before close can still be discarded after it
+            c.discard();
+        }
+    }
+
+    @Test
+    public void testIncrementalSnapshotChain() throws Exception {
+        System.out.println("Running testIncrementalSnapshotChain");
+        File base = m_folder.newFile("base-TEST_TABLE-host_3.vpt");
+        File delta1 = m_folder.newFile("delta1-TEST_TABLE-host_3.vpt");
+        File delta2 = m_folder.newFile("delta2-TEST_TABLE-host_3.vpt");
+
+        int[][] versions = new int[4][3];
+        writeIncrementalTable(base, null, versions);
+        versions[1][2] = 1;
+        writeIncrementalTable(delta1, base, versions);
+        versions[2][0] = 2;
+        writeIncrementalTable(delta2, delta1, versions);
+
+        // Only the changed chunk is written in full to each delta
+        assertTrue(delta1.length() < base.length() / 4);
+        assertTrue(delta2.length() < base.length() / 4);
+
+        savefile = new TableSaveFile(new FileInputStream(delta2), 3, null, false, delta2.getParentFile());
+        assertEquals(delta1.getName(), savefile.getBaseFileName());
+        for (int chunk = 0; chunk < 3; ++chunk) {
+            for (int partition = 0; partition < 4; ++partition) {
+                BBContainer c = savefile.getNextChunk();
+                try {
+                    assertEquals(partition, ((TableSaveFile.Container) c).partitionId);
+                    VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), false);
+                    assertEquals(incrementalChunk(partition, chunk, versions[partition][chunk]), table);
+                } finally {
+                    c.discard();
+                }
+            }
+        }
+        assertFalse(savefile.hasMoreChunks());
+        assertTrue(savefile.getCorruptedPartitionIds().isEmpty());
+    }
+
+    @Test
+    public void testIncrementalSnapshotWithoutBase() throws Exception {
+        System.out.println("Running testIncrementalSnapshotWithoutBase");
+        File missing = new File(m_folder.getRoot(), "missing-TEST_TABLE-host_3.vpt");
+        File delta = m_folder.newFile("delta-TEST_TABLE-host_3.vpt");
+
+        // Without a usable base the full table is written
+        int[][] versions = new int[4][3];
+        writeIncrementalTable(delta, missing, versions);
+        savefile = new TableSaveFile(new FileInputStream(delta), 3, null);
+        assertEquals(null, savefile.getBaseFileName());
+        int chunks = 0;
+        while (savefile.hasMoreChunks()) {
+            BBContainer c = savefile.getNextChunk();
+            if (c == null) {
+                break;
+            }
+            c.discard();
+            ++chunks;
+        }
+        assertEquals(12, chunks);
+    }
+
+    @Test
+    public void testIncrementalBaseComparesChunkDigests() throws Exception {
+        System.out.println("Running testIncrementalBaseComparesChunkDigests");
+        File base = m_folder.newFile("base-TEST_TABLE-host_3.vpt");
+        writeIncrementalTable(base, null, new int[4][3]);
+
+        // Read the header, digest and payload of the first chunk straight from the file
+        ByteBuffer header = ByteBuffer.allocate(16 + TableSaveFile.CHUNK_DIGEST_LENGTH);
+        ByteBuffer chunk;
+        try (FileInputStream fis = new FileInputStream(base)) {
+            savefile = new TableSaveFile(fis, 1, null);
+            assertTrue(savefile.hasChunkDigests());
+            FileChannel channel = fis.getChannel();
+            long position = channel.position();
+            channel.read(header, position);
+            header.flip();
+            chunk = ByteBuffer.allocate(header.getInt(0));
+            channel.read(chunk, position + header.limit());
+            chunk.flip();
+            savefile.close();
+            savefile = null;
+        }
+        final int partitionId = header.getInt(4);
+        final int crc = header.getInt(12);
+        final byte[] digest = Arrays.copyOfRange(header.array(), 16, header.limit());
+        assertArrayEquals(TableSaveFile.chunkDigest(chunk), digest);
+
+        try (TableSaveFile baseFile = TableSaveFile.openBase(base)) {
+            assertTrue(baseFile.hasChunk(partitionId, 0, chunk.remaining(), crc, digest));
+            assertFalse(baseFile.hasChunk(partitionId, 1, chunk.remaining(), crc, digest));
+
+            // Same length and CRC but different bytes, as after a CRC collision, must not be referenced
+            ByteBuffer changed = ByteBuffer.allocate(chunk.remaining());
+            changed.put(chunk.duplicate()).flip();
+            changed.put(changed.limit() - 1, (byte) (changed.get(changed.limit() - 1) ^ 1));
+            assertFalse(baseFile.hasChunk(partitionId, 0, chunk.remaining(), crc, TableSaveFile.chunkDigest(changed)));
+        }
+    }
+
+    @Test
+    public void testIncrementalChainDepthIsCapped() throws Exception {
+        System.out.println("Running testIncrementalChainDepthIsCapped");
+        int[][] versions = new int[4][3];
+        File base = m_folder.newFile("delta0-TEST_TABLE-host_3.vpt");
+        writeIncrementalTable(base, null, versions);
+        final File full = base;
+        for (int depth = 1; depth <= TableSaveFile.MAX_INCREMENTAL_CHAIN_DEPTH + 1; ++depth) {
+            File delta = m_folder.newFile("delta" + depth + "-TEST_TABLE-host_3.vpt");
+            versions[depth % 4][depth % 3] = depth;
+            writeIncrementalTable(delta, base, versions);
+
+            try (TableSaveFile file = TableSaveFile.openBase(delta)) {
+                if (depth <= TableSaveFile.MAX_INCREMENTAL_CHAIN_DEPTH) {
+                    assertEquals(depth, file.getChainDepth());
+                    assertEquals(base.getName(), file.getBaseFileName());
+                } else {
+                    // Once the cap is reached the full table is written and starts a new chain
+                    assertEquals(0, file.getChainDepth());
+                    assertEquals(null, file.getBaseFileName());
+                    assertTrue(delta.length() > full.length() / 2);
+                }
+            }
+            base = delta;
+        }
+    }
+
+    private VoltTable incrementalTable() {
+        return new VoltTable(new ColumnInfo("RT_ID", VoltType.INTEGER), new ColumnInfo("RT_NAME", VoltType.STRING),
+                new ColumnInfo("RT_INTVAL", VoltType.INTEGER));
+    }
+
+    private VoltTable incrementalChunk(int partitionId, int chunk, int version) {
+        VoltTable table = incrementalTable();
+        for (int i = 0; i < 500; ++i) {
+            int id = partitionId * 100000 + chunk * 1000 + i;
+            table.addRow(id, "name_" + id + "_" + version, version);
+        }
+        return table;
+    }
+
+    private void writeIncrementalTable(File file, File baseFile, int[][] versions) throws Exception {
+        List<Integer> partitionIds = new ArrayList<>();
+        for (int i = 0; i < versions.length; ++i) {
+            partitionIds.add(i);
+        }
+        byte[] schema = PrivateVoltTableFactory.getSchemaBytes(incrementalTable());
+        // Without a base the incremental target writes the full table as the start of a chain
+        NativeSnapshotDataTarget target = new DefaultSnapshotDataTarget(file, HOST_ID, CLUSTER_NAME, DATABASE_NAME,
+                TABLE_NAME, TOTAL_PARTITIONS, false, partitionIds, schema, TXN_ID, TIMESTAMP, false,
+                UnaryOperator.identity(), baseFile == null ? new File(file.getParentFile(), "none") : baseFile);
+        for (int chunk = 0; chunk < versions[0].length; ++chunk) {
+            for (int partition = 0; partition < versions.length; ++partition) {
+                serializeChunk(incrementalChunk(partition, chunk, versions[partition][chunk]), target, partition);
+            }
+        }
+        target.close();
+    }
+
     protected NativeSnapshotDataTarget createTarget(File file, String pathType, boolean isTerminus, boolean isReplicated, List<Integer> partitionIds,
             byte[] schemaBytes, int[] version) throws IOException {
         return createTarget(file, pathType, isTerminus, HOST_ID, CLUSTER_NAME, DATABASE_NAME, TABLE_NAME, TOTAL_PARTITIONS, isReplicated,
@@ -0,0 +1,152 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.SnapshotSiteProcessor;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Manual benchmark comparing the {@link CompressionCodec}s on serialized {@link VoltTable} blocks of the size
+ * snapshots compress. Rows mix ids, low cardinality strings, decimals and timestamps like a typical order table.
+ * Each codec is measured compressing and decompressing every block on the calling thread and then compressing
+ * all blocks in parallel through {@link CompressionService}, whose pool size can be set with -DCOMPRESSION_THREADS.
+ *
+ * Usage: CompressionCodecBenchmark [blockCount] [iterations]
+ */
+public class CompressionCodecBenchmark {
+
+    private static final String[] STATUSES = { "NEW", "PENDING", "SHIPPED", "DELIVERED", "RETURNED" };
+    private static final String[] CITIES = { "Boston", "Bedford", "Chicago", "Denver", "Portland", "Austin",
+            "Seattle", "Atlanta" };
+
+    private static BBContainer createBlock(Random random, long firstId) {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("ORDER_ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("CUSTOMER_ID", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("STATUS", VoltType.STRING),
+                new VoltTable.ColumnInfo("CITY", VoltType.STRING),
+                new VoltTable.ColumnInfo("AMOUNT", VoltType.FLOAT),
+                new VoltTable.ColumnInfo("QUANTITY", VoltType.SMALLINT),
+                new VoltTable.ColumnInfo("CREATED", VoltType.TIMESTAMP));
+        long now = System.currentTimeMillis() * 1000;
+        long id = firstId;
+        while (table.getSerializedSize() < SnapshotSiteProcessor.m_snapshotBufferLength - 1024) {
+            table.addRow(id++, random.nextInt(100_000), STATUSES[random.nextInt(STATUSES.length)],
+                    CITIES[random.nextInt(CITIES.length)], random.nextInt(1_000_000) / 100.0,
+                    (short) random.nextInt(20), new TimestampType(now + id * 1000 + random.nextInt(1000)));
+        }
+        ByteBuffer serialized = table.getBuffer();
+        BBContainer block = DBBPool.allocateDirect(serialized.remaining());
+        block.b().put(serialized).flip();
+        return block;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int blockCount = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Random random = new Random(0);
+        List<BBContainer> blocks = new ArrayList<>();
+        long totalBytes = 0;
+        for (int i = 0; i < blockCount; ++i) {
+            BBContainer block = createBlock(random, i * 100_000L);
+            totalBytes += block.b().remaining();
+            blocks.add(block);
+        }
+        double megabytes = (double) totalBytes / (1024 * 1024);
+
+        try {
+            for (CompressionCodec codec : CompressionCodec.values()) {
+                int maxCompressed = codec.maxCompressedLength(SnapshotSiteProcessor.m_snapshotBufferLength);
+                List<BBContainer> compressed = new ArrayList<>();
+                for (int i = 0; i < blockCount; ++i) {
+                    compressed.add(DBBPool.allocateDirect(maxCompressed + Integer.BYTES));
+                }
+                BBContainer output = DBBPool.allocateDirect(SnapshotSiteProcessor.m_snapshotBufferLength);
+                try {
+                    // The first iteration warms up the codec and is not reported
+                    for (int iteration = 0; iteration <= iterations; ++iteration) {
+                        long compressedBytes = 0;
+                        long begin = System.nanoTime();
+                        for (int i = 0; i < blockCount; ++i) {
+                            ByteBuffer target = compressed.get(i).b();
+                            target.clear();
+                            compressedBytes += codec.compress(blocks.get(i).b(), target);
+                        }
+                        long compressNanos = System.nanoTime() - begin;
+
+                        begin = System.nanoTime();
+                        for (int i = 0; i < blockCount; ++i) {
+                            output.b().clear();
+                            codec.decompress(compressed.get(i).b(), output.b());
+                        }
+                        long decompressNanos = System.nanoTime() - begin;
+
+                        List<Future<Integer>> futures = new ArrayList<>();
+                        begin = System.nanoTime();
+                        for (int i = 0; i < blockCount; ++i) {
+                            final ByteBuffer block = blocks.get(i).b();
+                            final ByteBuffer target = compressed.get(i).b();
+                            target.clear();
+                            futures.add(CompressionService.submitCompressionTask(
+                                    () -> CompressionService.compressBuffer(block, target, codec)));
+                        }
+                        for (Future<Integer> future : futures) {
+                            future.get();
+                        }
+                        long parallelNanos = System.nanoTime() - begin;
+
+                        if (iteration > 0) {
+                            System.out.printf(
+                                    "codec=%s iteration=%d ratio=%.2f compress=%.1f MB/s decompress=%.1f MB/s "
+                                            + "parallel compress=%.1f MB/s%n",
+                                    codec, iteration, (double) totalBytes / compressedBytes,
+                                    megabytes * 1e9 / compressNanos, megabytes * 1e9 / decompressNanos,
+                                    megabytes * 1e9 / parallelNanos);
+                        }
+                    }
+                } finally {
+                    output.discard();
+                    for (BBContainer container : compressed) {
+                        container.discard();
+                    }
+                }
+            }
+        } finally {
+            for (BBContainer block : blocks) {
+                block.discard();
+            }
+        }
+        System.exit(0);
+    }
+}
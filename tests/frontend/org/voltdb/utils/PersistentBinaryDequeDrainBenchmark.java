@@ -0,0 +1,104 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * Manual benchmark of a cursor sequentially draining the final segments of a PBD, the way
+ * export and DR catch up after falling behind. The deque is written and closed once so every
+ * segment is final, then each pass drains it with a transient cursor and reads every long of
+ * every entry. The first pass also reads the files into the page cache and is not reported.
+ * Run it with -DPBD_MMAP_READS=false to measure entries copied through the file channel.
+ *
+ * Usage: PersistentBinaryDequeDrainBenchmark [entrySize] [entryCount] [passes] [compress]
+ */
+public class PersistentBinaryDequeDrainBenchmark {
+
+    private static final VoltLogger s_logger = new VoltLogger("HOST");
+
+    private static long drain(PersistentBinaryDeque<Void> pbd) throws Exception {
+        long checksum = 0;
+        BinaryDequeReader<Void> reader = pbd.openForRead("drain", true);
+        BBContainer cont;
+        while ((cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY)) != null) {
+            try {
+                ByteBuffer b = cont.b();
+                for (int i = b.position(); i + 8 <= b.limit(); i += 8) {
+                    checksum += b.getLong(i);
+                }
+            } finally {
+                cont.discard();
+            }
+        }
+        pbd.closeCursor("drain");
+        return checksum;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int entrySize = args.length > 0 ? Integer.parseInt(args[0]) : 64 * 1024;
+        int entryCount = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        int passes = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        boolean compress = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        File dir = Files.createTempDirectory("pbddrain").toFile();
+        try {
+            PersistentBinaryDeque<Void> pbd = PersistentBinaryDeque.<Void>builder("drain", dir, s_logger)
+                    .compression(compress).build();
+            for (int i = 0; i < entryCount; i++) {
+                ByteBuffer b = ByteBuffer.allocateDirect(entrySize);
+                while (b.remaining() >= 8) {
+                    b.putLong(i);
+                }
+                b.clear();
+                pbd.offer(DBBPool.wrapBB(b));
+            }
+            // Closing finishes the active segment so the drains only read final segments
+            pbd.close();
+
+            pbd = PersistentBinaryDeque.<Void>builder("drain", dir, s_logger).compression(compress).build();
+            double megabytes = (double) entrySize * entryCount / (1024 * 1024);
+            for (int pass = 0; pass <= passes; pass++) {
+                long begin = System.nanoTime();
+                long checksum = drain(pbd);
+                long elapsed = System.nanoTime() - begin;
+                if (pass > 0) {
+                    System.out.printf("mmap=%b pass=%d entries=%d throughput=%.1f MB/s %.0f entries/s checksum=%d%n",
+                            PBDRegularSegment.MMAP_READS, pass, entryCount, megabytes * 1e9 / elapsed,
+                            entryCount * 1e9 / elapsed, checksum);
+                }
+            }
+            pbd.close();
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+}
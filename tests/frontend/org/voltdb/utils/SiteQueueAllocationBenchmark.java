@@ -0,0 +1,124 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manual benchmark comparing the SP site queue implementations. Producer threads
+ * offer a pre-allocated element and a single consumer takes them, so any bytes
+ * allocated by the producers and the consumer come from the queue itself.
+ * Allocation is read from the per-thread counters of the HotSpot ThreadMXBean.
+ * Like clients with a bounded number of outstanding transactions, producers stop
+ * offering while {@code window} elements are queued.
+ *
+ * Usage: SiteQueueAllocationBenchmark [producers] [offersPerProducer] [ringCapacity] [window]
+ */
+public class SiteQueueAllocationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean s_threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        return s_threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void run(String name, final BlockingQueue<Object> queue, int producers,
+            final int offersPerProducer, final int window, boolean report) throws Exception {
+        final Object element = new Object();
+        final AtomicLong outstanding = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] producerBytes = new long[producers];
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long before = allocatedBytes();
+                    for (int i = 0; i < offersPerProducer; i++) {
+                        while (outstanding.get() >= window) {
+                            Thread.yield();
+                        }
+                        outstanding.incrementAndGet();
+                        queue.offer(element);
+                    }
+                    producerBytes[producer] = allocatedBytes() - before;
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        final long total = (long) producers * offersPerProducer;
+        long consumerBefore = allocatedBytes();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (long i = 0; i < total; i++) {
+            queue.take();
+            outstanding.decrementAndGet();
+        }
+        long elapsed = System.nanoTime() - begin;
+        long consumerBytes = allocatedBytes() - consumerBefore;
+        long producersTotal = 0;
+        for (int p = 0; p < producers; p++) {
+            threads.get(p).join();
+            producersTotal += producerBytes[p];
+        }
+
+        if (report) {
+            System.out.printf("%-24s elements=%d throughput=%.0f/s producer-alloc=%.2f B/op consumer-alloc=%.2f B/op%n",
+                    name, total, total * 1e9 / elapsed,
+                    (double) producersTotal / total, (double) consumerBytes / total);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int offersPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 16384;
+        int window = args.length > 3 ? Integer.parseInt(args[3]) : capacity / 2;
+
+        for (int pass = 0; pass < 2; pass++) {
+            // First pass warms up both implementations and is not reported
+            boolean report = pass == 1;
+            int offers = report ? offersPerProducer : offersPerProducer / 10;
+            run("LinkedTransferQueue", new LinkedTransferQueue<Object>(),
+                    producers, offers, window, report);
+            run("BlockingRingBufferQueue", new BlockingRingBufferQueue<Object>(capacity, 20_000),
+                    producers, offers, window, report);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestBlockingRingBufferQueue extends TestCase {
+
+    @Test
+    public void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new BlockingRingBufferQueue<Integer>(5, 0).ringCapacity());
+        assertEquals(16, new BlockingRingBufferQueue<Integer>(16, 0).ringCapacity());
+    }
+
+    @Test
+    public void testFifoAcrossWrapAround() {
+        BlockingRingBufferQueue<Integer> queue = new BlockingRingBufferQueue<>(4, 0);
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(queue.offer(round * 3 + i));
+            }
+            assertEquals(3, queue.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Integer.valueOf(next++), queue.peek());
+                assertEquals(Integer.valueOf(next - 1), queue.poll());
+            }
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void testOverflowKeepsOrder() {
+        BlockingRingBufferQueue<Integer> queue = new BlockingRingBufferQueue<>(4, 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertEquals(10, queue.size());
+
+        // Draining part of the ring must not let new offers jump the overflow
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        queue.offer(10);
+        queue.offer(11);
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(10, queue.drainTo(drained));
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(Integer.valueOf(i + 2), drained.get(i));
+        }
+        assertTrue(queue.isEmpty());
+
+        // Back to the ring once the overflow is empty
+        queue.offer(12);
+        assertEquals(Integer.valueOf(12), queue.poll());
+    }
+
+    @Test
+    public void testTimedPollOnEmptyQueue() throws InterruptedException {
+        BlockingRingBufferQueue<Integer> queue = new BlockingRingBufferQueue<>(4, 1000);
+        long start = System.nanoTime();
+        assertNull(queue.poll(20, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void testMultipleProducersSingleConsumer() throws Exception {
+        final int producers = 4;
+        final int perProducer = 100000;
+        final BlockingRingBufferQueue<long[]> queue = new BlockingRingBufferQueue<>(64, 10000);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.offer(new long[] { producer, i });
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+
+        // Each producer's elements must come out in the order they went in
+        long[] expected = new long[producers];
+        for (int i = 0; i < producers * perProducer; i++) {
+            long[] e = queue.take();
+            assertEquals(expected[(int) e[0]]++, e[1]);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
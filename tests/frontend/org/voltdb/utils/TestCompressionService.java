@@ -24,7 +24,12 @@
 package org.voltdb.utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
 
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 
 import junit.framework.TestCase;
@@ -47,4 +52,88 @@ public class TestCompressionService extends TestCase {
 
         assertEquals(someText, result);
     }
+
+    public void testCodecRoundTrip() throws IOException {
+        Random random = new Random(42);
+        byte[] data = new byte[64 * 1024];
+        // Half random and half repeating so the data is compressible but not trivially so
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = i % 2 == 0 ? (byte) random.nextInt(8) : (byte) i;
+        }
+
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            BBContainer input = DBBPool.allocateDirect(data.length + 3);
+            BBContainer compressed = DBBPool.allocateDirect(codec.maxCompressedLength(data.length) + 5);
+            BBContainer output = DBBPool.allocateDirect(data.length + 7);
+            try {
+                ByteBuffer in = input.b();
+                in.position(3);
+                in.put(data);
+                in.position(3);
+
+                ByteBuffer comp = compressed.b();
+                comp.position(5);
+                int compressedSize = codec.compress(in, comp);
+                assertEquals(codec.name(), 3, in.position());
+                assertEquals(codec.name(), 5, comp.position());
+                assertEquals(codec.name(), 5 + compressedSize, comp.limit());
+                assertTrue(codec.name(), compressedSize < data.length);
+                assertEquals(codec.name(), data.length, codec.uncompressedLength(comp));
+
+                ByteBuffer out = output.b();
+                out.position(7);
+                assertEquals(codec.name(), data.length, codec.decompress(comp, out));
+                assertEquals(codec.name(), 7, out.position());
+                assertEquals(codec.name(), 7 + data.length, out.limit());
+                byte[] result = new byte[data.length];
+                out.get(result);
+                assertTrue(codec.name(), Arrays.equals(data, result));
+            } finally {
+                input.discard();
+                compressed.discard();
+                output.discard();
+            }
+        }
+    }
+
+    public void testCodecLookup() {
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            assertSame(codec, CompressionCodec.fromId(codec.id()));
+            assertSame(codec, CompressionCodec.fromName(codec.name().toLowerCase()));
+        }
+        // Snappy must keep id 0 so data written before codecs were recorded is still readable
+        assertEquals(0, CompressionCodec.SNAPPY.id());
+
+        try {
+            CompressionCodec.fromId(CompressionCodec.values().length + 10);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {}
+
+        String property = "TEST_COMPRESSION_CODEC_" + getName();
+        assertSame(CompressionCodec.SNAPPY, CompressionCodec.fromProperty(property, CompressionCodec.SNAPPY));
+        System.setProperty(property, "lz4");
+        try {
+            assertSame(CompressionCodec.LZ4, CompressionCodec.fromProperty(property, CompressionCodec.SNAPPY));
+            System.setProperty(property, "bogus");
+            assertSame(CompressionCodec.SNAPPY, CompressionCodec.fromProperty(property, CompressionCodec.SNAPPY));
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+
+    public void testCorruptLz4Block() throws IOException {
+        BBContainer compressed = DBBPool.allocateDirect(64);
+        BBContainer output = DBBPool.allocateDirect(64);
+        try {
+            ByteBuffer comp = compressed.b();
+            comp.putInt(1000).put(new byte[] { 1, 2, 3 }).flip();
+            try {
+                CompressionCodec.LZ4.decompress(comp, output.b());
+                fail("Expected IOException");
+            } catch (IOException expected) {}
+        } finally {
+            compressed.discard();
+            output.discard();
+        }
+    }
 }
@@ -0,0 +1,154 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2022 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltdb.stats.PbdGroupCommitStats;
+import org.voltdb.stats.PbdGroupCommitStats.PbdGroupCommit;
+
+public class TestPbdGroupCommitScheduler {
+    private static final VoltLogger logger = new VoltLogger("EXPORT");
+
+    // Flushes are driven by the test instead of a timer
+    private final PbdGroupCommitScheduler m_scheduler = new PbdGroupCommitScheduler(0);
+    private final List<PersistentBinaryDeque<Void>> m_pbds = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        TestPersistentBinaryDeque.setupTestDir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (PersistentBinaryDeque<Void> pbd : m_pbds) {
+            pbd.close();
+        }
+        TestPersistentBinaryDeque.tearDownTestDir();
+    }
+
+    private PersistentBinaryDeque<Void> createPbd(String nonce) throws Exception {
+        PersistentBinaryDeque<Void> pbd = PersistentBinaryDeque.builder(nonce, TestPersistentBinaryDeque.TEST_DIR,
+                logger).groupCommit(m_scheduler).build();
+        m_pbds.add(pbd);
+        return pbd;
+    }
+
+    private static void offer(PersistentBinaryDeque<Void> pbd, int count) throws Exception {
+        for (int i = 0; i < count; ++i) {
+            pbd.offer(DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledSmallBuffer(i)));
+        }
+    }
+
+    private long total(PbdGroupCommit column) {
+        PbdGroupCommitStats stats = m_scheduler.getStats();
+        Object[] row = stats.getStatsRows(false, System.currentTimeMillis())[0];
+        return (Long) row[stats.getStatsColumnIndex(column.name())];
+    }
+
+    @Test
+    public void testFlushSyncsAllOfferedDeques() throws Exception {
+        PersistentBinaryDeque<Void> first = createPbd("first");
+        PersistentBinaryDeque<Void> second = createPbd("second");
+        PersistentBinaryDeque<Void> idle = createPbd("idle");
+
+        offer(first, 3);
+        offer(second, 5);
+        m_scheduler.flush();
+
+        assertEquals(1, total(PbdGroupCommit.FLUSH_COUNT));
+        assertEquals(2, total(PbdGroupCommit.DEQUES_SYNCED));
+        assertEquals(8, total(PbdGroupCommit.OFFERS_SYNCED));
+        assertEquals(8, total(PbdGroupCommit.MAX_BATCH_SIZE));
+        assertEquals(0, idle.groupSync());
+
+        // Nothing was offered since the last flush
+        m_scheduler.flush();
+        assertEquals(1, total(PbdGroupCommit.FLUSH_COUNT));
+
+        // Deques register again after being synced
+        offer(first, 2);
+        m_scheduler.flush();
+        assertEquals(2, total(PbdGroupCommit.FLUSH_COUNT));
+        assertEquals(3, total(PbdGroupCommit.DEQUES_SYNCED));
+        assertEquals(10, total(PbdGroupCommit.OFFERS_SYNCED));
+        assertEquals(5, total(PbdGroupCommit.AVG_BATCH_SIZE));
+    }
+
+    @Test
+    public void testForceAfterDequeClosed() throws Exception {
+        PersistentBinaryDeque<Void> pbd = createPbd("forced");
+        offer(pbd, 3);
+
+        // The segments are forced without the deque lock so the deque can be closed before they are
+        PersistentBinaryDeque.GroupSync sync = pbd.prepareGroupSync();
+        pbd.close();
+        assertEquals(3, sync.force());
+        assertNull(pbd.prepareGroupSync());
+    }
+
+    @Test
+    public void testScheduledFlushSyncsDequesInParallel() throws Exception {
+        PbdGroupCommitScheduler scheduler = new PbdGroupCommitScheduler(10);
+        try {
+            for (int i = 0; i < 2 * PbdGroupCommitScheduler.SYNC_THREADS + 1; ++i) {
+                PersistentBinaryDeque<Void> pbd = PersistentBinaryDeque
+                        .builder("scheduled" + i, TestPersistentBinaryDeque.TEST_DIR, logger).groupCommit(scheduler)
+                        .build();
+                m_pbds.add(pbd);
+                offer(pbd, 2);
+            }
+
+            PbdGroupCommitStats stats = scheduler.getStats();
+            long deadline = System.currentTimeMillis() + 60_000;
+            long offers;
+            do {
+                Thread.sleep(10);
+                Object[] row = stats.getStatsRows(false, System.currentTimeMillis())[0];
+                offers = (Long) row[stats.getStatsColumnIndex(PbdGroupCommit.OFFERS_SYNCED.name())];
+            } while (offers < 2 * m_pbds.size() && System.currentTimeMillis() < deadline);
+            assertEquals(2 * m_pbds.size(), offers);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testClosedDequeIsSkipped() throws Exception {
+        PersistentBinaryDeque<Void> pbd = createPbd("closed");
+        offer(pbd, 4);
+        pbd.close();
+
+        m_scheduler.flush();
+        assertEquals(0, total(PbdGroupCommit.FLUSH_COUNT));
+    }
+}
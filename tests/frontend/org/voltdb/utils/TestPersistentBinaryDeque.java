@@ -26,8 +26,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.File;
 import java.io.IOException;
@@ -321,7 +323,7 @@ public class TestPersistentBinaryDeque {
         cont.discard();
         cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
         cont.discard();
-        m_pbd.closeCursor(CURSOR_ID);
+        m_pbd.closeCursor(CURSOR_ID, false);
         reader = m_pbd.openForRead(CURSOR_ID);
         int readCount = 0;
         while((cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY)) != null) {
@@ -1126,6 +1128,134 @@ public class TestPersistentBinaryDeque {
         discarder.cancel();
     }
 
+    @Test
+    public void testMappedReadsOfFinalSegments() throws Exception {
+        assumeTrue(PBDRegularSegment.MMAP_READS);
+        m_pbd.close();
+        m_pbd = PersistentBinaryDeque.builder(TEST_NONCE, TEST_DIR, logger)
+                .initialExtraHeader(m_metadata, SERIALIZER).build();
+
+        m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(0)));
+        m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(1)));
+        // Finish the first segment so it becomes final
+        m_pbd.updateExtraHeader(m_metadata);
+        m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(2)));
+
+        BinaryDequeReader<ExtraHeaderMetadata> reader = m_pbd.openForRead(CURSOR_ID);
+        BBContainer first = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        BBContainer second = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        BBContainer third = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        try {
+            // Entries of the final segment are read only slices of the mapped file
+            assertTrue(first.b().isReadOnly());
+            assertEquals(getFilledSmallBuffer(0), first.b());
+            assertTrue(second.b().isReadOnly());
+
+            // Entries of the active segment are still copied
+            assertFalse(third.b().isReadOnly());
+            assertEquals(getFilledSmallBuffer(2), third.b());
+
+            // The mapping stays valid until all of its entries are discarded
+            m_pbd.close();
+            assertEquals(getFilledSmallBuffer(1), second.b());
+        } finally {
+            first.discard();
+            second.discard();
+            third.discard();
+        }
+    }
+
+    @Test
+    public void testCompressionCodecChangeAcrossRestart() throws Exception {
+        m_pbd.close();
+        m_pbd = PersistentBinaryDeque.builder(TEST_NONCE, TEST_DIR, logger).compression(CompressionCodec.LZ4)
+                .initialExtraHeader(m_metadata, SERIALIZER).build();
+        for (int i = 0; i < 10; ++i) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)));
+        }
+        m_pbd.close();
+
+        // Entries written with lz4 must still be readable after the codec is changed to snappy
+        m_pbd = PersistentBinaryDeque.builder(TEST_NONCE, TEST_DIR, logger).compression(CompressionCodec.SNAPPY)
+                .initialExtraHeader(m_metadata, SERIALIZER).build();
+        for (int i = 10; i < 20; ++i) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)));
+        }
+
+        BinaryDequeReader<ExtraHeaderMetadata> reader = m_pbd.openForRead(CURSOR_ID);
+        assertEquals(20, reader.getNumObjects());
+        for (int i = 0; i < 20; ++i) {
+            pollOnceAndVerify(reader, getFilledSmallBuffer(i));
+        }
+        pollOnceAndVerify(reader, null);
+    }
+
+    @Test
+    public void testCompressionCodecFlags() throws Exception {
+        // Entries written before the codec was recorded only have FLAG_COMPRESSED set and are snappy
+        assertSame(CompressionCodec.SNAPPY, PBDSegment.compressionCodec(PBDSegment.FLAG_COMPRESSED));
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            char flags = PBDSegment.compressionFlags(codec);
+            assertEquals(PBDSegment.FLAG_COMPRESSED, flags & PBDSegment.FLAG_COMPRESSED);
+            assertSame(codec, PBDSegment.compressionCodec(flags));
+        }
+    }
+
+    @Test
+    public void testPartialTruncateOfMappedFinalSegment() throws Exception {
+        assumeTrue(PBDRegularSegment.MMAP_READS);
+        // Only uncompressed entries are returned as slices of the mapping
+        m_pbd.close();
+        m_pbd = PersistentBinaryDeque.builder(TEST_NONCE, TEST_DIR, logger)
+                .initialExtraHeader(m_metadata, SERIALIZER).build();
+        for (int ii = 0; ii < 10; ii++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(ii)));
+        }
+        m_pbd.close();
+        m_pbd = PersistentBinaryDeque.builder(TEST_NONCE, TEST_DIR, logger)
+                .initialExtraHeader(m_metadata, SERIALIZER).build();
+
+        // The segment is final so regular cursors read it through the mapping
+        BinaryDequeReader<ExtraHeaderMetadata> reader = m_pbd.openForRead(CURSOR_ID);
+        BBContainer mapped = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        assertTrue(mapped.b().isReadOnly());
+        mapped.discard();
+        m_pbd.closeCursor(CURSOR_ID, false);
+
+        // Like StreamBlockQueue the truncator rewrites the entry it truncates in place
+        m_pbd.parseAndTruncate(new BinaryDequeTruncator() {
+            @Override
+            public TruncatorResponse parse(BBContainer bbc) {
+                ByteBuffer b = bbc.b();
+                if (b.getLong(0) == 5) {
+                    b.putLong(0, 55);
+                    b.limit(b.remaining() / 2);
+                    return new PersistentBinaryDeque.ByteBufferTruncatorResponse(b.slice());
+                }
+                return null;
+            }
+        });
+
+        reader = m_pbd.openForRead(CURSOR_ID);
+        for (int ii = 0; ii < 5; ii++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(ii), cont.b());
+            } finally {
+                cont.discard();
+            }
+        }
+        BBContainer truncated = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        try {
+            assertEquals(512, truncated.b().remaining());
+            assertEquals(55, truncated.b().getLong(0));
+            assertEquals(5, truncated.b().getLong(8));
+        } finally {
+            truncated.discard();
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
     class DeferredDiscarder extends TimerTask implements Executor {
 
         ConcurrentLinkedQueue<Runnable> m_actions = new ConcurrentLinkedQueue<>();
@@ -1451,7 +1581,7 @@ public class TestPersistentBinaryDeque {
     public void testCloseLastReader() throws Exception {
         BinaryDequeReader<ExtraHeaderMetadata> reader = m_pbd.openForRead(CURSOR_ID);
         pollOnceAndVerify(reader, null);
-        m_pbd.closeCursor(CURSOR_ID);
+        m_pbd.closeCursor(CURSOR_ID, false);
         m_pbd.offer(defaultContainer());
     }
 
@@ -1797,7 +1927,7 @@ public class TestPersistentBinaryDeque {
         entry = reader.pollEntry(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
         assertNull(entry);
 
-        m_pbd.closeCursor(CURSOR_ID);
+        m_pbd.closeCursor(CURSOR_ID, false);
     }
 
     private int openSegmentReaderCount(String cursorId) {
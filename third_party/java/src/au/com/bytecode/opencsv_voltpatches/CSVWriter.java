@@ -456,6 +456,11 @@ public class CSVWriter implements Closeable {
         pw = new PrintWriter(rawWriter);
     }
 
+    // Append lines which were already formatted by another CSVWriter in a single write
+    public void writeFormatted(char[] lines, int offset, int length) {
+        pw.write(lines, offset, length);
+    }
+
     private void validateNullString() {
         if (nullString == null) return;
 